@@ -0,0 +1,146 @@
+/**
+ * Measures the time the {@link Parser} takes over a program made almost
+ * entirely of expressions
+ * <p>
+ * Usage: ExpressionBenchmark [source.ez [runs]]. With no file, a program
+ * of about 4 MB of assignments of random expressions is generated, using
+ * every operator, calls, parentheses and conditional expressions. The
+ * program is scanned once, and its tokens parsed again at each run, so
+ * that only parsing is measured.
+ *
+ * @author  Federico Menozzi
+ * @version Easy Compiler v1
+ */
+
+package easy.Benchmarks;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+
+import java.util.Random;
+
+import easy.ErrorReporter;
+
+import easy.AbstractSyntaxTrees.AST;
+
+import easy.SyntacticAnalyzer.MappedFileCharSource;
+import easy.SyntacticAnalyzer.Parser;
+import easy.SyntacticAnalyzer.Scanner;
+import easy.SyntacticAnalyzer.TokenBuffer;
+
+public class ExpressionBenchmark {
+
+	/**
+	 * Size of the program generated when no file is given
+	 */
+	final static long generatedSize = 4L << 20;
+
+	final static String[] operators = {
+		"+", "-", "*", "/", "%", "mod", "<", "<=", ">", ">=", "==", "!=",
+		"equals", "notequals", "and", "or", "&&", "||"
+	};
+
+	final static String[] unaryOperators = { "- ", "not ", "!" };
+
+	public static void main(String[] args) throws IOException {
+		File file;
+		if (args.length > 0) {
+			file = new File(args[0]);
+		} else {
+			file = File.createTempFile("expressions", ".ez");
+			file.deleteOnExit();
+			generate(file, generatedSize);
+		}
+		int runs = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+
+		ErrorReporter reporter = new ErrorReporter();
+		TokenBuffer tokens = new Scanner(new MappedFileCharSource(file.getPath()), reporter).scanAll();
+
+		double best	= Double.MAX_VALUE;
+		double sum	= 0;
+		int measured = 0;
+		for (int run = 0; run < runs; run++) {
+			long start = System.nanoTime();
+			AST ast = new Parser(tokens.cursor(), reporter).parse();
+			double ms = (System.nanoTime() - start) / 1e6;
+			if (ast == null || reporter.hasErrors())
+				throw new IllegalStateException("Benchmark program does not parse");
+
+			// The first half of the runs warm up the JIT compiler
+			if (run >= runs / 2) {
+				best = Math.min(best, ms);
+				sum += ms;
+				measured++;
+			}
+		}
+		System.out.printf("%s: %,d tokens, best %.1f ms, mean %.1f ms over the last %d runs%n",
+						  file, tokens.size(), best, sum / measured, measured);
+	}
+
+	/**
+	 * Write a program of assignments of random expressions
+	 *
+	 * @param file	the file to write
+	 * @param size	the least number of bytes to write
+	 */
+	static void generate(File file, long size) throws IOException {
+		Random random = new Random(1);
+		try (BufferedWriter out = new BufferedWriter(new FileWriter(file), 1 << 16)) {
+			long written = 0;
+			out.write("main\n");
+			while (written < size) {
+				StringBuilder line = new StringBuilder("\tx = ");
+				expression(random, 0, line);
+				line.append(";\n");
+				out.write(line.toString());
+				written += line.length();
+			}
+			out.write("end\n");
+		}
+	}
+
+	private static void expression(Random random, int depth, StringBuilder out) {
+		int r = random.nextInt(20);
+		if (depth > 4 || r < 6) {
+			switch (random.nextInt(4)) {
+			case 0:
+				out.append(random.nextInt(1000));
+				break;
+			case 1:
+				out.append(random.nextBoolean() ? "x" : "y");
+				break;
+			case 2:
+				out.append(random.nextBoolean() ? "true" : "false");
+				break;
+			default:
+				out.append("\"s").append(random.nextInt(50)).append('"');
+				break;
+			}
+		} else if (r < 8) {
+			out.append('(');
+			expression(random, depth + 1, out);
+			out.append(')');
+		} else if (r < 10) {
+			out.append(unaryOperators[random.nextInt(unaryOperators.length)]);
+			expression(random, depth + 1, out);
+		} else if (r < 12) {
+			out.append('f').append(random.nextInt(50)).append('(');
+			expression(random, depth + 1, out);
+			out.append(", ");
+			expression(random, depth + 1, out);
+			out.append(')');
+		} else if (r < 13) {
+			expression(random, depth + 1, out);
+			out.append(" if ");
+			expression(random, depth + 1, out);
+			out.append(" else ");
+			expression(random, depth + 1, out);
+		} else {
+			expression(random, depth + 1, out);
+			out.append(' ').append(operators[random.nextInt(operators.length)]).append(' ');
+			expression(random, depth + 1, out);
+		}
+	}
+}
@@ -0,0 +1,149 @@
+/**
+ * Measures the throughput of the {@link Scanner}, in tokens per second,
+ * over each kind of {@link CharSource}
+ * <p>
+ * Usage: ScannerBenchmark [source.ez [runs]]. With no file, a synthetic
+ * program of 50 MB is generated and scanned. The "per-byte" source makes
+ * one call to InputStream.read() for each character, as the Scanner did
+ * before it read its input in blocks, and stands for the throughput before.
+ *
+ * @author  Federico Menozzi
+ * @version Easy Compiler v1
+ */
+
+package easy.Benchmarks;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.InputStream;
+
+import easy.ErrorReporter;
+
+import easy.SyntacticAnalyzer.CharSource;
+import easy.SyntacticAnalyzer.MappedFileCharSource;
+import easy.SyntacticAnalyzer.Scanner;
+import easy.SyntacticAnalyzer.StreamCharSource;
+import easy.SyntacticAnalyzer.Token;
+import easy.SyntacticAnalyzer.TokenKind;
+
+public class ScannerBenchmark {
+
+	/**
+	 * Size of the synthetic program generated when no file is given
+	 */
+	final static long syntheticSize = 50L << 20;
+
+	/**
+	 * Kinds of source measured
+	 */
+	final static String[] sources = { "per-byte", "stream", "mapped" };
+
+	public static void main(String[] args) throws IOException {
+		File file;
+		if (args.length > 0) {
+			file = new File(args[0]);
+		} else {
+			file = File.createTempFile("synthetic", ".ez");
+			file.deleteOnExit();
+			generate(file, syntheticSize);
+		}
+		int runs = args.length > 1 ? Integer.parseInt(args[1]) : 3;
+
+		System.out.println(file + ": " + (file.length() >> 20) + " MB");
+		for (String source : sources) {
+			double best = 0;
+			long tokens = 0;
+			for (int run = 0; run < runs; run++) {
+				long start = System.nanoTime();
+				tokens = scan(open(source, file));
+				best = Math.max(best, tokens / ((System.nanoTime() - start) / 1e9));
+			}
+			System.out.printf("%-9s %,d tokens, best %,.0f tokens/s%n", source, tokens, best);
+		}
+	}
+
+	/**
+	 * Scan a source to the end
+	 *
+	 * @param source	the source
+	 * @return			the number of tokens scanned, including the EOF token
+	 */
+	static long scan(CharSource source) {
+		Scanner scanner = new Scanner(source, new ErrorReporter());
+		long count = 0;
+		Token token;
+		do {
+			token = scanner.scan();
+			count++;
+		} while (token.kind != TokenKind.EOF);
+		return count;
+	}
+
+	static CharSource open(String source, File file) throws IOException {
+		switch (source) {
+		case "per-byte":
+			return new PerByteCharSource(new FileInputStream(file));
+		case "stream":
+			return new StreamCharSource(new FileInputStream(file));
+		default:
+			return new MappedFileCharSource(file.getPath());
+		}
+	}
+
+	/**
+	 * Write a synthetic program of declarations, assignments, calls, loops,
+	 * comments and strings
+	 *
+	 * @param file	the file to write
+	 * @param size	the least number of bytes to write
+	 */
+	static void generate(File file, long size) throws IOException {
+		try (BufferedWriter out = new BufferedWriter(new FileWriter(file), 1 << 16)) {
+			long written = 0;
+			out.write("main\n");
+			for (int i = 0; written < size; i++) {
+				String block = "\t# Block " + i + "\n"
+							 + "\tInt a" + i + " = (" + i + " + 17) * 3 mod 7;\n"
+							 + "\tBoolean b" + i + " = a" + i + " >= 2 and not (a" + i + " equals 5);\n"
+							 + "\twhile a" + i + " < 100\n"
+							 + "\t\ta" + i + " = a" + i + " + f(a" + i + ", b" + i + ");\n"
+							 + "\tend\n"
+							 + "\tprintln(\"value of a" + i + "\");\n";
+				out.write(block);
+				written += block.length();
+			}
+			out.write("end\n");
+		}
+	}
+
+	/**
+	 * Source that reads a single character at each call, by a single call
+	 * to read() on an unbuffered InputStream
+	 */
+	static class PerByteCharSource implements CharSource {
+
+		private final InputStream in;
+
+		PerByteCharSource(InputStream in) {
+			this.in = in;
+		}
+
+		@Override
+		public int read(char[] cbuf, int off, int len) throws IOException {
+			int c = in.read();
+			if (c == -1)
+				return -1;
+
+			cbuf[off] = (char) c;
+			return 1;
+		}
+
+		@Override
+		public void close() throws IOException {
+			in.close();
+		}
+	}
+}
@@ -0,0 +1,104 @@
+/**
+ * JMH microbenchmark of the classification of identifier-shaped lexemes,
+ * by the {@link WordTable} and by the sets of reserved words and chains
+ * of String comparisons that the Scanner used before it
+ * <p>
+ * Each operation classifies the same mix of lexemes, half of them reserved
+ * words, held as the Scanner holds them: characters at the start of a buffer.
+ *
+ * @author  Federico Menozzi
+ * @version Easy Compiler v1
+ */
+
+package easy.Benchmarks;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import easy.SyntacticAnalyzer.TokenKind;
+import easy.SyntacticAnalyzer.WordTable;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WordTableBenchmark {
+
+	/**
+	 * Lexemes classified by each operation
+	 */
+	final static String[] lexemes = {
+		"def", "counter", "main", "x", "end", "result", "return", "index",
+		"Int", "total", "Boolean", "isEven", "mod", "numToPrint", "while", "i",
+		"and", "value", "or", "print_10", "not", "sum", "equals", "j",
+		"notequals", "even", "true", "loopVar", "false", "until2", "break", "n"
+	};
+
+	/**
+	 * Characters of each lexeme, at the start of a buffer as long as the longest
+	 */
+	private char[][] buffers;
+
+	/**
+	 * Reserved words as the Scanner held them before the WordTable
+	 */
+	private HashSet<String> keywords;
+	private HashSet<String> logops;
+	private HashSet<String> relops;
+
+	@Setup
+	public void setup() {
+		buffers = new char[lexemes.length][];
+		for (int i = 0; i < lexemes.length; i++)
+			buffers[i] = Arrays.copyOf(lexemes[i].toCharArray(), 16);
+
+		keywords = new HashSet<String>(Arrays.asList(
+			"def", "main", "end", "return", "returns", "Int", "Boolean", "mod",
+			"do", "if", "else", "while", "for", "loop", "until", "in", "from",
+			"by", "to", "break"));
+		logops = new HashSet<String>(Arrays.asList("and", "or", "not"));
+		relops = new HashSet<String>(Arrays.asList("equals", "notequals"));
+	}
+
+	@Benchmark
+	public void wordTable(Blackhole blackhole) {
+		for (int i = 0; i < buffers.length; i++) {
+			int ordinal = WordTable.lookup(buffers[i], lexemes[i].length());
+			blackhole.consume(ordinal == -1 ? TokenKind.IDEN : WordTable.kind(ordinal));
+		}
+	}
+
+	@Benchmark
+	public void hashSets(Blackhole blackhole) {
+		for (int i = 0; i < buffers.length; i++) {
+			String word = new String(buffers[i], 0, lexemes[i].length());
+			TokenKind kind;
+			if (keywords.contains(word))
+				kind = TokenKind.KEYWORD;
+			else if (logops.contains(word))
+				kind = TokenKind.LOGOP;
+			else if (relops.contains(word))
+				kind = TokenKind.RELOP;
+			else if (word.equals("true") || word.equals("false"))
+				kind = TokenKind.BOOLLIT;
+			else
+				kind = TokenKind.IDEN;
+			blackhole.consume(kind);
+		}
+	}
+}
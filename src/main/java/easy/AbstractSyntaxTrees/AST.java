@@ -5,20 +5,39 @@
 package easy.AbstractSyntaxTrees;
 
 import easy.SyntacticAnalyzer.Line;
+import easy.SyntacticAnalyzer.SourcePosition;
 
 public abstract class AST {
 	/**
-	 * The line number of the AST node in source
+	 * The position of the AST node in source, packed by {@link SourcePosition};
+	 * moved only when the node is reused after an edit of its source
 	 */
-	public final Line line;
+	public long position;
 
 	/**
-	 * Construct an AST node at the given line
+	 * The position just past the end of the AST node in source, packed by
+	 * {@link SourcePosition}; set by the parser once the node is complete
+	 */
+	public long endPosition;
+
+	/**
+	 * Construct an AST node at the given position
+	 *
+	 * @param position	the position of the AST node in source
+	 */
+	public AST (long position) {
+		this.position 	 = position;
+		this.endPosition = position;
+	}
+	
+	/**
+	 * Create a {@link Line} view of the position of the AST node,
+	 * meant for error reporting
 	 * 
-	 * @param line	the line number of the AST node in source
+	 * @return	the line of the AST node in source
 	 */
-	public AST (Line line) {
-		this.line = line;
+	public Line line() {
+		return SourcePosition.line(position);
 	}
 
 	/**
@@ -29,7 +48,7 @@ public abstract class AST {
 		String fullClassName = this.getClass().getName();
 		String className = fullClassName.substring(fullClassName.lastIndexOf('.') + 1);
 		if (ASTDisplay.showPosition)
-			className += " " + line.toString();
+			className += " " + SourcePosition.lineNumber(position);
 		return className;
 	}
 
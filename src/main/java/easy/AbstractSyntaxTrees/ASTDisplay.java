@@ -8,6 +8,13 @@
  * <p>
  * where "arg" is a prefix String (indentation) to precede display of "astnode".
  * <p>
+ * The display is written to an Appendable, such as a Writer, a piece at a
+ * time: lines are never built up by concatenation, and the prefixes are
+ * cached, so that each depth of the AST has a single prefix String. Besides
+ * the indented text, the AST can be written on a single line as JSON or as
+ * an S-expression, and the display can be limited in depth and in number
+ * of nodes, with "..." in place of what is left out.
+ * <p>
  * Implements Visitor<String, Object>
  * 
  * @author  Federico Menozzi
@@ -18,9 +25,397 @@
 
 package easy.AbstractSyntaxTrees;
 
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+
+import java.util.IdentityHashMap;
+
+import easy.SyntacticAnalyzer.SourcePosition;
+
 public class ASTDisplay implements Visitor<String, Object> {
 	
 	public static boolean showPosition = false;
+
+	/**
+	 * Formats the AST can be displayed in
+	 */
+	public enum Format {
+		/** Indented text, a line to each node */
+		TEXT,
+		/** JSON, with each node an object and each list an array */
+		JSON,
+		/** S-expression, with each node a list headed by its kind */
+		SEXPR
+	}
+
+	/**
+	 * Shown in place of the nodes left out of a limited display
+	 */
+	private final static String elision = "...";
+
+	private final static String lineSeparator = System.getProperty("line.separator");
+
+	private Format format = Format.TEXT;
+	private int maxDepth  = Integer.MAX_VALUE;
+	private int maxNodes  = Integer.MAX_VALUE;
+
+	/**
+	 * Where the AST is being displayed
+	 */
+	private Appendable out;
+
+	/**
+	 * Depth of the node being visited, and number of nodes visited so far
+	 */
+	private int depth;
+	private int nodes;
+
+	/**
+	 * Whether JSON or an S-expression needs a separator before the next value
+	 */
+	private boolean separate;
+
+	/**
+	 * The prefixes of the children of each prefix: indented, and as list elements
+	 */
+	private final IdentityHashMap<String, String[]> prefixes = new IdentityHashMap<String, String[]>();
+
+	/**
+	 * Names of the classes of nodes, as shown by {@link AST#toString()}
+	 */
+	private final IdentityHashMap<Class<?>, String> names = new IdentityHashMap<Class<?>, String>();
+
+	/**
+	 * Used to unwind the display when the Appendable fails, carrying the
+	 * IOException out of the visit methods, which cannot throw it
+	 */
+	private static class OutputError extends Error {
+		private static final long serialVersionUID = 1L;
+
+		OutputError(IOException cause) {
+			super(null, cause, false, false);
+		}
+	}
+
+	/**
+	 * Set the format of the display, which is {@link Format#TEXT} by default
+	 *
+	 * @param format	the format
+	 */
+	public void setFormat(Format format) {
+		this.format = format;
+	}
+
+	/**
+	 * Limit the depth of the display. The root is at depth zero, and the
+	 * children of any node at the greatest depth are left out.
+	 *
+	 * @param maxDepth	the greatest depth displayed
+	 */
+	public void setMaxDepth(int maxDepth) {
+		this.maxDepth = maxDepth;
+	}
+
+	/**
+	 * Limit the number of nodes displayed. The nodes past the limit, in
+	 * the order of the display, are left out.
+	 *
+	 * @param maxNodes	the greatest number of nodes displayed
+	 */
+	public void setMaxNodes(int maxNodes) {
+		this.maxNodes = maxNodes;
+	}
+	
+	/**
+     * Print textual representation of AST to stdout
+     * 
+     * @param ast	the root node of AST 
+     */
+    public void showTree(AST ast) {
+    	Writer writer = new BufferedWriter(new OutputStreamWriter(System.out), 1 << 16);
+    	try {
+    		showTree(ast, writer);
+    		writer.flush();
+    	} catch (IOException e) {
+    		// System.out records its errors rather than throwing them
+    	}
+    }
+
+	/**
+     * Write textual representation of AST to an Appendable, which is not
+     * flushed. An Appendable that writes to a stream should be buffered.
+     * 
+     * @param ast	the root node of AST 
+     * @param out	where to write the display
+     * @throws IOException	if the Appendable fails
+     */
+    public void showTree(AST ast, Appendable out) throws IOException {
+    	this.out  = out;
+    	depth	  = 0;
+    	nodes	  = 0;
+    	separate  = false;
+    	try {
+    		if (format == Format.TEXT)
+    			line("", "==================== AST Display ====================");
+    		visit(ast, "");
+    		if (format == Format.TEXT)
+    			write("======================================================");
+    		write(lineSeparator);
+    	} catch (OutputError e) {
+    		throw (IOException) e.getCause();
+    	} finally {
+    		this.out = null;
+    	}
+    }
+
+	/**
+	 * Visit a node, unless the limits leave it out
+	 *
+	 * @param node		the node
+	 * @param prefix	the spacing to indicate depth in AST
+	 */
+	private void visit(AST node, String prefix) {
+		if (limited()) {
+			elide(prefix);
+			return;
+		}
+		nodes++;
+		depth++;
+		node.visit(this, prefix);
+		depth--;
+	}
+
+	/**
+	 * Test whether the limits leave out the next node to be visited
+	 */
+	private boolean limited() {
+		return depth > maxDepth || nodes >= maxNodes;
+	}
+
+	/**
+	 * Show that nodes have been left out
+	 *
+	 * @param prefix	the spacing to indicate depth in AST
+	 */
+	private void elide(String prefix) {
+		switch (format) {
+		case TEXT:
+			line(prefix, elision);
+			break;
+		case JSON:
+			separator();
+			string(elision);
+			break;
+		case SEXPR:
+			separator();
+			write(elision);
+			break;
+		}
+		separate = true;
+	}
+
+	/**
+	 * Display a node, and open it in JSON or an S-expression so that its
+	 * attributes and children follow
+	 *
+	 * @param prefix	the spacing to indicate depth in AST
+	 * @param node		the AST node, will be shown by name
+	 */
+	private void begin(String prefix, AST node) {
+		if (format == Format.TEXT)
+			show(prefix, node);
+		else
+			begin(node);
+	}
+
+	/**
+	 * Open a node in JSON or an S-expression, showing nothing in text
+	 *
+	 * @param node	the AST node
+	 */
+	private void begin(AST node) {
+		switch (format) {
+		case TEXT:
+			return;
+		case JSON:
+			separator();
+			write("{\"node\":\"");
+			write(name(node));
+			write("\"");
+			if (showPosition) {
+				write(",\"line\":");
+				write(Integer.toString(SourcePosition.lineNumber(node.position)));
+			}
+			break;
+		case SEXPR:
+			separator();
+			write("(");
+			write(name(node));
+			if (showPosition) {
+				write(" ");
+				write(Integer.toString(SourcePosition.lineNumber(node.position)));
+			}
+			break;
+		}
+		separate = true;
+	}
+
+	/**
+	 * Close the node opened last in JSON or an S-expression
+	 */
+	private void end() {
+		if (format != Format.TEXT) {
+			write(format == Format.JSON ? "}" : ")");
+			separate = true;
+		}
+	}
+
+	/**
+	 * Display an attribute of a node, which in text takes a line of its own
+	 *
+	 * @param prefix	the spacing to indicate depth in AST
+	 * @param key		the name of the attribute in JSON
+	 * @param value		the value of the attribute
+	 * @param label		the text following the quoted value in text
+	 */
+	private void attribute(String prefix, String key, String value, String label) {
+		if (format == Format.TEXT) {
+			write(prefix);
+			quoted(value);
+			write(label);
+			write(lineSeparator);
+		} else {
+			key(key);
+			string(value);
+			separate = true;
+		}
+	}
+
+	/**
+	 * Display a child of a node, if it has one
+	 *
+	 * @param key		the name of the child in JSON
+	 * @param node		the child, or null
+	 * @param prefix	the spacing to indicate depth of the child in AST
+	 */
+	private void child(String key, AST node, String prefix) {
+		if (node != null) {
+			key(key);
+			visit(node, prefix);
+		}
+	}
+
+	/**
+	 * Display a list of children of a node. In text, the list has a header
+	 * line giving its size, and its elements are marked with dots; a list
+	 * without a header is displayed as children at the next depth.
+	 *
+	 * @param prefix	the spacing to indicate depth of the node in AST
+	 * @param key		the name of the list in JSON
+	 * @param header	the name of the list in text, or null
+	 * @param list		the list
+	 */
+	private void list(String prefix, String key, String header, ASTList<?> list) {
+		int size = list.size();
+		switch (format) {
+		case TEXT:
+			if (header != null) {
+				write(prefix);
+				write("  ");
+				write(header);
+				write(" [");
+				write(Integer.toString(size));
+				write("]");
+				write(lineSeparator);
+			}
+			break;
+		case JSON:
+			key(key);
+			write("[");
+			break;
+		case SEXPR:
+			separator();
+			write("(");
+			break;
+		}
+		separate = false;
+
+		String elementPrefix = header == null ? indent(prefix) : element(prefix);
+		for (int i = 0; i < size; i++) {
+			if (limited()) {
+				elide(elementPrefix);
+				break;
+			}
+			visit(list.get(i), elementPrefix);
+		}
+
+		if (format != Format.TEXT)
+			write(format == Format.JSON ? "]" : ")");
+		separate = true;
+	}
+
+	/**
+	 * Display a terminal, with its spelling quoted
+	 *
+	 * @param prefix	the spacing to indicate depth in AST
+	 * @param node		the terminal
+	 */
+	private void terminal(String prefix, Terminal node) {
+		if (format == Format.TEXT) {
+			write(prefix);
+			quoted(node.spelling);
+			write(" ");
+			showName(node);
+		} else {
+			begin(node);
+			attribute(prefix, "spelling", node.spelling, null);
+			end();
+		}
+	}
+
+	/**
+	 * Write the key of the next value of a JSON object, or the separator
+	 * before the next value of an S-expression
+	 *
+	 * @param key	the key
+	 */
+	private void key(String key) {
+		separator();
+		if (format == Format.JSON) {
+			write("\"");
+			write(key);
+			write("\":");
+			separate = false;
+		}
+	}
+
+	private void separator() {
+		if (separate && format != Format.TEXT)
+			write(format == Format.JSON ? "," : " ");
+		separate = false;
+	}
+
+	/**
+	 * Write a string in quotes, escaped for JSON or an S-expression
+	 *
+	 * @param text	the string
+	 */
+	private void string(String text) {
+		write("\"");
+		int from = 0;
+		for (int i = 0; i < text.length(); i++) {
+			char c = text.charAt(i);
+			if (c == '"' || c == '\\' || (c < ' ' && format == Format.JSON)) {
+				append(text, from, i);
+				write(c == '"' || c == '\\' ? "\\" + c : String.format("\\u%04x", (int) c));
+				from = i + 1;
+			}
+		}
+		append(text, from, text.length());
+		write("\"");
+	}
 	
 	/**
      * Display arbitrary text for a node.
@@ -28,8 +423,10 @@ public class ASTDisplay implements Visitor<String, Object> {
      * @param prefix  the spacing to indicate depth in AST
      * @param text    the pre-formatted node display
      */
-    private void show(String prefix, String text) {
-        System.out.println(prefix + text);
+    private void line(String prefix, String text) {
+        write(prefix);
+        write(text);
+        write(lineSeparator);
     }
     
     /**
@@ -39,16 +436,49 @@ public class ASTDisplay implements Visitor<String, Object> {
      * @param node    the AST node, will be shown by name
      */
     private void show(String prefix, AST node) {
-    	System.out.println(prefix + node.toString());
+    	write(prefix);
+    	showName(node);
+    }
+
+    /**
+     * Display the name of a node, as {@link AST#toString()} gives it, ending the line
+     * 
+     * @param node    the AST node
+     */
+    private void showName(AST node) {
+    	write(name(node));
+    	if (showPosition) {
+    		write(" ");
+    		write(Integer.toString(SourcePosition.lineNumber(node.position)));
+    	}
+    	write(lineSeparator);
+    }
+
+    /**
+     * Find the name of the class of a node
+     * 
+     * @param node    the AST node
+     * @return        the name of its class, without the package
+     */
+    private String name(AST node) {
+    	String name = names.get(node.getClass());
+    	if (name == null) {
+    		String fullClassName = node.getClass().getName();
+    		name = fullClassName.substring(fullClassName.lastIndexOf('.') + 1);
+    		names.put(node.getClass(), name);
+    	}
+    	return name;
     }
     
     /**
-     * Quote a string
+     * Write a string in quotes, as is
      * 
      * @param text    the string to quote
      */
-    private String quote(String text) {
-    	return ("\"" + text + "\"");
+    private void quoted(String text) {
+    	write("\"");
+    	write(text);
+    	write("\"");
     }
     
     /**
@@ -58,18 +488,50 @@ public class ASTDisplay implements Visitor<String, Object> {
      * @return  		the new spacing 
      */
     private String indent(String prefix) {
-        return prefix + "  ";
+        return children(prefix)[0];
     }
-	
-	/**
-     * Print textual representation of AST to stdout
+
+    /**
+     * Increase depth in AST, marking an element of a list
      * 
-     * @param ast	the root node of AST 
+     * @param prefix	the current spacing to indicate depth in AST
+     * @return  		the new spacing 
      */
-    public void showTree(AST ast) {
-        System.out.println("==================== AST Display ====================");
-        ast.visit(this, "");
-        System.out.println("======================================================");
+    private String element(String prefix) {
+        return children(prefix)[1];
+    }
+
+    /**
+     * Find the prefixes of the children of a prefix, computing them the
+     * first time. Every prefix is the cached String, so they are looked
+     * up by identity.
+     * 
+     * @param prefix	the current spacing to indicate depth in AST
+     * @return  		the spacing of indented children and of list elements
+     */
+    private String[] children(String prefix) {
+    	String[] children = prefixes.get(prefix);
+    	if (children == null) {
+    		children = new String[] { prefix + "  ", prefix + "  . " };
+    		prefixes.put(prefix, children);
+    	}
+    	return children;
+    }
+
+    private void write(String text) {
+    	try {
+    		out.append(text);
+    	} catch (IOException e) {
+    		throw new OutputError(e);
+    	}
+    }
+
+    private void append(String text, int from, int to) {
+    	try {
+    		out.append(text, from, to);
+    	} catch (IOException e) {
+    		throw new OutputError(e);
+    	}
     }
 
     /**
@@ -80,21 +542,10 @@ public class ASTDisplay implements Visitor<String, Object> {
      */
 	@Override
 	public Object visitProgram(Program prog, String arg) {
-		show(arg, prog);
-		
-        FunctionDeclList functions = prog.functionDeclList;
-        BlockStmt mainBlock		   = prog.mainBlock;
-        
-        String prefix = arg + "  . ";
-        
-        show(arg, "  FunctionDeclList [" + functions.size() + "]");
-        for (FunctionDecl function : functions)
-        	function.visit(this, prefix);
-        
-        show(arg, "  Main Block [" + mainBlock.statementList.size() + "]");
-        for (Statement statement : mainBlock.statementList)
-        	statement.visit(this, prefix);
-        
+		begin(arg, prog);
+		list(arg, "functionDeclList", "FunctionDeclList", prog.functionDeclList);
+		list(arg, "mainBlock", "Main Block", prog.mainBlock.statementList);
+		end();
         return null;
 	}
 
@@ -106,23 +557,12 @@ public class ASTDisplay implements Visitor<String, Object> {
      */
 	@Override
 	public Object visitFunctionDecl(FunctionDecl fd, String arg) {		
-    	fd.type.visit(this, indent(arg));
-    	show(indent(arg), quote(fd.name) + " function name");
-    	
-        ParameterDeclList params = fd.params;
-        show(arg, "  ParameterDeclList [" + params.size() + "]");
-        
-        String prefix = arg + "  . ";
-        
-        for (ParameterDecl param: params)
-            param.visit(this, prefix);
-        
-        StatementList statements = fd.block.statementList;
-        
-        show(arg, "  StmtList [" + statements.size() + "]");
-        for (Statement statement: statements)
-            statement.visit(this, prefix);
-      
+		begin(fd);
+		child("type", fd.type, indent(arg));
+		attribute(indent(arg), "name", fd.name, " function name");
+		list(arg, "params", "ParameterDeclList", fd.params);
+		list(arg, "block", "StmtList", fd.block.statementList);
+		end();
         return null;
 	}
 
@@ -134,9 +574,10 @@ public class ASTDisplay implements Visitor<String, Object> {
      */
 	@Override
 	public Object visitParameterDecl(ParameterDecl pd, String arg) {
-		show(arg, pd);
-        pd.type.visit(this, indent(arg));
-        show(indent(arg), quote(pd.name) + " parameter name ");
+		begin(arg, pd);
+		child("type", pd.type, indent(arg));
+		attribute(indent(arg), "name", pd.name, " parameter name ");
+		end();
         return null;
 	}
 
@@ -148,9 +589,10 @@ public class ASTDisplay implements Visitor<String, Object> {
      */
 	@Override
 	public Object visitVarDecl(VarDecl decl, String arg) {
-		show(arg, decl);
-        decl.type.visit(this, indent(arg));
-        show(indent(arg), quote(decl.name) + " variable name");
+		begin(arg, decl);
+		child("type", decl.type, indent(arg));
+		attribute(indent(arg), "name", decl.name, " variable name");
+		end();
         return null;
 	}
 
@@ -162,7 +604,16 @@ public class ASTDisplay implements Visitor<String, Object> {
      */
 	@Override
 	public Object visitBaseType(BaseType type, String arg) {
-		show(arg, type.typeKind + " " + type.toString());
+		if (format == Format.TEXT) {
+			write(arg);
+			write(type.typeKind.toString());
+			write(" ");
+			showName(type);
+		} else {
+			begin(type);
+			attribute(arg, "typeKind", type.typeKind.toString(), null);
+			end();
+		}
         return null;
 	}
 
@@ -174,12 +625,9 @@ public class ASTDisplay implements Visitor<String, Object> {
      */
 	@Override
 	public Object visitBlockStmt(BlockStmt stmt, String arg) {
-		show(arg, stmt);
-        StatementList statements = stmt.statementList;
-        show(arg,"  StatementList [" + statements.size() + "]");
-        String pfx = arg + "  . ";
-        for (Statement statement: statements)
-        	statement.visit(this, pfx);
+		begin(arg, stmt);
+		list(arg, "statementList", "StatementList", stmt.statementList);
+		end();
         return null;
 	}
 
@@ -191,9 +639,10 @@ public class ASTDisplay implements Visitor<String, Object> {
      */
 	@Override
 	public Object visitVardeclStmt(VarDeclStmt stmt, String arg) {
-		show(arg, stmt);
-        stmt.varDecl.visit(this, indent(arg));	
-        stmt.initExpr.visit(this, indent(arg));
+		begin(arg, stmt);
+		child("varDecl", stmt.varDecl, indent(arg));
+		child("initExpr", stmt.initExpr, indent(arg));
+		end();
         return null;
 	}
 
@@ -205,9 +654,10 @@ public class ASTDisplay implements Visitor<String, Object> {
      */
 	@Override
 	public Object visitAssignStmt(AssignStmt stmt, String arg) {
-		show(arg,stmt);
-        stmt.ref.visit(this, indent(arg));
-        stmt.val.visit(this, indent(arg));
+		begin(arg, stmt);
+		child("ref", stmt.ref, indent(arg));
+		child("val", stmt.val, indent(arg));
+		end();
         return null;
 	}
 
@@ -219,49 +669,44 @@ public class ASTDisplay implements Visitor<String, Object> {
      */
 	@Override
 	public Object visitCallStmt(CallStmt stmt, String arg) {
-		show(arg, stmt);
-        stmt.functionRef.visit(this, indent(arg));
-        ExprList args = stmt.argList;
-        show(arg, "  ExprList [" + args.size() + "]");
-        String prefix = arg + "  . ";
-        for (Expression argument: args)
-            argument.visit(this, prefix);
+		begin(arg, stmt);
+		child("functionRef", stmt.functionRef, indent(arg));
+		list(arg, "argList", "ExprList", stmt.argList);
+		end();
         return null;
 	}
 
 	@Override
 	public Object visitIfStmt(IfStmt stmt, String arg) {
-		show(arg, stmt);
+		begin(arg, stmt);
 		
-		stmt.condition.visit(this, indent(arg));
-		stmt.body.visit(this, indent(arg));
-		
-		if (stmt.elseIfStmts != null)
-			for (ElseIfStmt elseIfStmt : stmt.elseIfStmts)
-				elseIfStmt.visit(this, indent(arg));
-		
-		if (stmt.elseStmt != null)
-			stmt.elseStmt.visit(this, indent(arg));
+		child("condition", stmt.condition, indent(arg));
+		child("body", stmt.body, indent(arg));
+		list(arg, "elseIfStmts", null, stmt.elseIfStmts);
+		child("elseStmt", stmt.elseStmt, indent(arg));
 		
+		end();
 		return null;
 	}
 
 	@Override
 	public Object visitElseIfStmt(ElseIfStmt stmt, String arg) {
-		show(arg, stmt);
+		begin(arg, stmt);
 	
-		stmt.condition.visit(this, indent(arg));
-		stmt.body.visit(this, indent(arg));
+		child("condition", stmt.condition, indent(arg));
+		child("body", stmt.body, indent(arg));
 		
+		end();
 		return null;
 	}
 
 	@Override
 	public Object visitElseStmt(ElseStmt stmt, String arg) {
-		show(arg, stmt);
+		begin(arg, stmt);
 		
-		stmt.body.visit(this, indent(arg));
+		child("body", stmt.body, indent(arg));
 		
+		end();
 		return null;
 	}
 
@@ -273,9 +718,10 @@ public class ASTDisplay implements Visitor<String, Object> {
      */
 	@Override
 	public Object visitWhileStmt(WhileStmt stmt, String arg) {
-		show(arg, stmt);
-        stmt.condition.visit(this, indent(arg));
-        stmt.body.visit(this, indent(arg));
+		begin(arg, stmt);
+		child("condition", stmt.condition, indent(arg));
+		child("body", stmt.body, indent(arg));
+		end();
         return null;
 	}
 
@@ -287,16 +733,17 @@ public class ASTDisplay implements Visitor<String, Object> {
      */
 	@Override
 	public Object visitForStmt(ForStmt stmt, String arg) {
-		show(arg, stmt);
+		begin(arg, stmt);
 		
-		stmt.loopVar.visit(this, indent(arg));
+		child("loopVar", stmt.loopVar, indent(arg));
 		
-		stmt.fromExpr.visit(this, indent(arg));
-		stmt.toExpr.visit(this, indent(arg));
-		stmt.byExpr.visit(this, indent(arg));
+		child("fromExpr", stmt.fromExpr, indent(arg));
+		child("toExpr", stmt.toExpr, indent(arg));
+		child("byExpr", stmt.byExpr, indent(arg));
 		
-		stmt.body.visit(this, indent(arg));
+		child("body", stmt.body, indent(arg));
 		
+		end();
 		return null;
 	}
 
@@ -308,12 +755,13 @@ public class ASTDisplay implements Visitor<String, Object> {
      */
 	@Override
 	public Object visitForEachStmt(ForEachStmt stmt, String arg) {
-		show(arg, stmt);
+		begin(arg, stmt);
 		
-		stmt.loopVar.visit(this, indent(arg));
-		stmt.collection.visit(this, indent(arg));
-		stmt.body.visit(this, indent(arg));
+		child("loopVar", stmt.loopVar, indent(arg));
+		child("collection", stmt.collection, indent(arg));
+		child("body", stmt.body, indent(arg));
 		
+		end();
 		return null;
 	}
 	
@@ -325,8 +773,9 @@ public class ASTDisplay implements Visitor<String, Object> {
      */
 	@Override
 	public Object visitInfiniteLoopStmt(InfiniteLoopStmt stmt, String arg) {
-		show(arg, stmt);
-		stmt.body.visit(this, indent(arg));
+		begin(arg, stmt);
+		child("body", stmt.body, indent(arg));
+		end();
 		return null;
 	}
 	
@@ -338,9 +787,10 @@ public class ASTDisplay implements Visitor<String, Object> {
      */
 	@Override
 	public Object visitUntilStmt(UntilStmt stmt, String arg) {
-		show(arg, stmt);
-        stmt.condition.visit(this, indent(arg));
-        stmt.body.visit(this, indent(arg));
+		begin(arg, stmt);
+		child("condition", stmt.condition, indent(arg));
+		child("body", stmt.body, indent(arg));
+		end();
         return null;
 	}
 	
@@ -352,10 +802,11 @@ public class ASTDisplay implements Visitor<String, Object> {
      */
 	@Override
 	public Object visitDoIfStmt(DoIfStmt stmt, String arg) {
-		show(arg, stmt);
-		stmt.thenStmt.visit(this, indent(arg));
-		stmt.condition.visit(this, indent(arg));
-		stmt.elseStmt.visit(this, indent(arg));
+		begin(arg, stmt);
+		child("thenStmt", stmt.thenStmt, indent(arg));
+		child("condition", stmt.condition, indent(arg));
+		child("elseStmt", stmt.elseStmt, indent(arg));
+		end();
 		return null;
 	}
 
@@ -367,7 +818,8 @@ public class ASTDisplay implements Visitor<String, Object> {
      */
 	@Override
 	public Object visitBreakStmt(BreakStmt stmt, String arg) {
-		show(arg, stmt);
+		begin(arg, stmt);
+		end();
 		return null;
 	}
 
@@ -379,9 +831,9 @@ public class ASTDisplay implements Visitor<String, Object> {
      */
 	@Override
 	public Object visitReturnStmt(ReturnStmt stmt, String arg) {
-		show(arg, stmt);
-		if (stmt.returnExpr != null)
-			stmt.returnExpr.visit(this, indent(arg));
+		begin(arg, stmt);
+		child("returnExpr", stmt.returnExpr, indent(arg));
+		end();
 		return null;
 	}
 
@@ -393,9 +845,10 @@ public class ASTDisplay implements Visitor<String, Object> {
      */
 	@Override
 	public Object visitUnaryExpr(UnaryExpr expr, String arg) {
-		show(arg, expr);
-        expr.operator.visit(this, indent(arg));
-        expr.expr.visit(this, indent(indent(arg)));
+		begin(arg, expr);
+		child("operator", expr.operator, indent(arg));
+		child("expr", expr.expr, indent(indent(arg)));
+		end();
         return null;
 	}
 
@@ -407,10 +860,11 @@ public class ASTDisplay implements Visitor<String, Object> {
      */
 	@Override
 	public Object visitBinaryExpr(BinaryExpr expr, String arg) {
-		show(arg, expr);
-        expr.operator.visit(this, indent(arg));
-        expr.leftExpr.visit(this, indent(indent(arg)));
-        expr.rightExpr.visit(this, indent(indent(arg)));
+		begin(arg, expr);
+		child("operator", expr.operator, indent(arg));
+		child("leftExpr", expr.leftExpr, indent(indent(arg)));
+		child("rightExpr", expr.rightExpr, indent(indent(arg)));
+		end();
         return null;
 	}
 
@@ -422,8 +876,9 @@ public class ASTDisplay implements Visitor<String, Object> {
      */
 	@Override
 	public Object visitRefExpr(RefExpr expr, String arg) {
-		show(arg, expr);
-		expr.ref.visit(this, indent(arg));
+		begin(arg, expr);
+		child("ref", expr.ref, indent(arg));
+		end();
 		return null;
 	}
 
@@ -435,18 +890,10 @@ public class ASTDisplay implements Visitor<String, Object> {
      */
 	@Override
 	public Object visitCallExpr(CallExpr expr, String arg) {
-		show(arg, expr);
-		
-        expr.functionRef.visit(this, indent(arg));
-        
-        ExprList args = expr.argList;
-        show(arg, "  ExprList + [" + args.size() + "]");
-        
-        String prefix = arg + "  . ";
-        
-        for (Expression argument: args)
-            argument.visit(this, prefix);
-        
+		begin(arg, expr);
+		child("functionRef", expr.functionRef, indent(arg));
+		list(arg, "argList", "ExprList +", expr.argList);
+		end();
         return null;
 	}
 
@@ -458,8 +905,9 @@ public class ASTDisplay implements Visitor<String, Object> {
      */
 	@Override
 	public Object visitLiteralExpr(LiteralExpr expr, String arg) {
-		show(arg, expr);
-        expr.literal.visit(this, indent(arg));
+		begin(arg, expr);
+		child("literal", expr.literal, indent(arg));
+		end();
         return null;
 	}
 	
@@ -471,12 +919,13 @@ public class ASTDisplay implements Visitor<String, Object> {
      */
 	@Override
 	public Object visitIfExpr(IfExpr expr, String arg) {
-		show(arg, expr);
+		begin(arg, expr);
 		
-		expr.thenExpr.visit(this, indent(arg));
-		expr.condition.visit(this, indent(arg));
-		expr.elseExpr.visit(this, indent(arg));
+		child("thenExpr", expr.thenExpr, indent(arg));
+		child("condition", expr.condition, indent(arg));
+		child("elseExpr", expr.elseExpr, indent(arg));
 		
+		end();
 		return null;
 	}
 
@@ -488,9 +937,10 @@ public class ASTDisplay implements Visitor<String, Object> {
      */
 	@Override
 	public Object visitIndexedRef(IndexedRef ref, String arg) {
-		show(arg, ref);
-    	ref.indexExpr.visit(this, indent(arg));
-    	ref.ref.visit(this, indent(arg));
+		begin(arg, ref);
+		child("indexExpr", ref.indexExpr, indent(arg));
+		child("ref", ref.ref, indent(arg));
+		end();
     	return null;
 	}
 
@@ -502,8 +952,9 @@ public class ASTDisplay implements Visitor<String, Object> {
      */
 	@Override
 	public Object visitIdRef(IdRef ref, String arg) {
-		show(arg,ref);
-    	ref.id.visit(this, indent(arg));
+		begin(arg, ref);
+		child("id", ref.id, indent(arg));
+		end();
     	return null;
 	}
 
@@ -515,7 +966,7 @@ public class ASTDisplay implements Visitor<String, Object> {
      */
 	@Override
 	public Object visitIdentifier(Identifier id, String arg) {
-		show(arg, quote(id.spelling) + " " + id.toString());
+		terminal(arg, id);
         return null;
 	}
 
@@ -527,7 +978,7 @@ public class ASTDisplay implements Visitor<String, Object> {
      */
 	@Override
 	public Object visitOperator(Operator op, String arg) {
-		show(arg, quote(op.spelling) + " " + op.toString());
+		terminal(arg, op);
         return null;
 	}
 
@@ -539,7 +990,7 @@ public class ASTDisplay implements Visitor<String, Object> {
      */
 	@Override
 	public Object visitIntLiteral(IntLiteral num, String arg) {
-		show(arg, quote(num.spelling) + " " + num.toString());
+		terminal(arg, num);
         return null;
 	}
 
@@ -551,7 +1002,7 @@ public class ASTDisplay implements Visitor<String, Object> {
      */
 	@Override
 	public Object visitBooleanLiteral(BooleanLiteral bool, String arg) {
-		show(arg, quote(bool.spelling) + " " + bool.toString());
+		terminal(arg, bool);
         return null;  
 	}
 
@@ -563,7 +1014,7 @@ public class ASTDisplay implements Visitor<String, Object> {
      */
 	@Override
 	public Object visitStringLiteral(StringLiteral str, String arg) {
-		show(arg, quote(str.spelling) + " " + str.toString());
+		terminal(arg, str);
 		return null;
 	}
 }
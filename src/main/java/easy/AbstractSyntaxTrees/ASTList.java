@@ -0,0 +1,104 @@
+/**
+ * List of AST nodes, immutable once built
+ * <p>
+ * The nodes are held in an array of exactly their number, copied once
+ * from wherever the list was gathered, such as the scratch stack of the
+ * parser. Lists are meant to be walked by index, with {@link #size()} and
+ * {@link #get(int)}, which allocates nothing; {@link #iterator()} is kept
+ * for the enhanced for statement.
+ *
+ * @author  Federico Menozzi
+ * @version Easy Compiler v1
+ */
+
+package easy.AbstractSyntaxTrees;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+public abstract class ASTList<T extends AST> implements Iterable<T> {
+
+	/**
+	 * The nodes of the list
+	 */
+	private final T[] elements;
+
+	/**
+	 * Construct a list holding the given array, which must not be modified afterwards
+	 *
+	 * @param elements	the nodes of the list
+	 */
+	protected ASTList(T[] elements) {
+		this.elements = elements;
+	}
+
+	/**
+	 * Copy a range of an array of nodes into an array of the element type
+	 *
+	 * @param nodes		the array holding the nodes
+	 * @param from		the index of the first node
+	 * @param to		the index just past the last node
+	 * @param elements	an array of length to - from, of the element type
+	 * @return			the array of elements
+	 * @throws ArrayStoreException	if a node is not of the element type
+	 */
+	protected static <T> T[] copy(AST[] nodes, int from, int to, T[] elements) {
+		System.arraycopy(nodes, from, elements, 0, to - from);
+		return elements;
+	}
+
+	/**
+	 * Retrieve the i-th node from the list, using zero-based indexing
+	 *
+	 * @param i	the index
+	 * @return	the i-th node
+	 */
+	public T get(int i) {
+		return elements[i];
+	}
+
+	/**
+	 * Retrieve the size of the list
+	 *
+	 * @return	the number of nodes in the list
+	 */
+	public int size() {
+		return elements.length;
+	}
+
+	/**
+	 * Test whether the list is empty. Equivalent to testing
+	 * whether size() == 0.
+	 *
+	 * @return	true if the list has zero nodes, false otherwise
+	 */
+	public boolean isEmpty() {
+		return size() == 0;
+	}
+
+	/**
+	 * Retrieve an iterator for the list
+	 *
+	 * @return	an iterator for the list
+	 */
+	public Iterator<T> iterator() {
+		return new Iterator<T>() {
+			private int next = 0;
+
+			public boolean hasNext() {
+				return next < size();
+			}
+
+			public T next() {
+				if (next >= size())
+					throw new NoSuchElementException();
+
+				return get(next++);
+			}
+
+			public void remove() {
+				throw new UnsupportedOperationException("AST lists are immutable");
+			}
+		};
+	}
+}
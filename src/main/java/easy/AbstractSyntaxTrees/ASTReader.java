@@ -0,0 +1,215 @@
+/**
+ * Reads ASTs written by an {@link ASTWriter} from a ByteBuffer, such as
+ * a memory-mapped file
+ * <p>
+ * Names are interned in the NameTable as they are read, and the range of
+ * every operand is checked, so that a damaged file is reported rather than
+ * read into a tree that refers outside itself.
+ *
+ * @author  Federico Menozzi
+ * @version Easy Compiler v1
+ */
+
+package easy.AbstractSyntaxTrees;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+
+import java.util.Arrays;
+
+import easy.SyntacticAnalyzer.NameTable;
+import easy.SyntacticAnalyzer.SourcePosition;
+import easy.SyntacticAnalyzer.TokenKind;
+
+public class ASTReader {
+
+	private final static int typeKindCount	= TypeKind.values().length;
+	private final static int tokenKindCount = TokenKind.values().length;
+
+	/**
+	 * The buffer read from, positioned at the next AST
+	 */
+	private final ByteBuffer in;
+
+	/**
+	 * Construct an ASTReader that reads from the position of a buffer
+	 *
+	 * @param in	the buffer to read from
+	 */
+	public ASTReader(ByteBuffer in) {
+		this.in = in;
+	}
+
+	/**
+	 * Read the AST held by a file, by memory-mapping it
+	 *
+	 * @param fileName	the name of the file
+	 * @return			the AST
+	 * @throws IOException	if the file cannot be read, or does not hold an AST
+	 */
+	public static FlatAST read(String fileName) throws IOException {
+		try (RandomAccessFile file = new RandomAccessFile(fileName, "r")) {
+			FileChannel channel = file.getChannel();
+			if (channel.size() > Integer.MAX_VALUE)
+				throw new IOException("AST file too large: " + fileName);
+
+			return new ASTReader(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size())).read();
+		}
+	}
+
+	/**
+	 * Read the next AST
+	 *
+	 * @return	the AST
+	 * @throws IOException	if the buffer does not hold a whole AST of this version
+	 */
+	public FlatAST read() throws IOException {
+		try {
+			for (byte b : ASTWriter.magic)
+				if (in.get() != b)
+					throw new IOException("Not an AST file");
+
+			int version = readVarint();
+			if (version != ASTWriter.version)
+				throw new IOException("Unsupported AST format version " + version);
+
+			String[] names	 = readStrings();
+			String[] strings = readStrings();
+			int[] nameIds = new int[names.length];
+			for (int i = 0; i < names.length; i++)
+				nameIds[i] = NameTable.intern(names[i]);
+
+			int size = readCount();
+			byte[] kinds		= new byte[size];
+			long[] positions	= new long[size];
+			long[] endPositions = new long[size];
+			int[] firstOperands = new int[size + 1];
+			int[] operands		= new int[Math.max(16, size)];
+			int operandCount	= 0;
+
+			long previous = SourcePosition.of(0, 0);
+			for (int node = 0; node < size; node++) {
+				int kind = readVarint();
+				if (kind < FlatAST.programNode || kind > FlatAST.stringLiteralNode)
+					throw new IOException("Unknown kind of node " + kind);
+				kinds[node] = (byte) kind;
+
+				int count = ASTWriter.operandCounts[kind];
+				if (count < 0)
+					count = ~count + readCount();
+
+				if (operandCount + count > operands.length)
+					operands = Arrays.copyOf(operands, Math.max(2 * operands.length, operandCount + count));
+
+				firstOperands[node] = operandCount;
+				for (int i = 0; i < count; i++) {
+					int operand = readVarint();
+					switch (ASTWriter.operandType(kinds[node], i)) {
+					case ASTWriter.childOperand:
+						operand = operand == 0 ? -1 : node - check(operand, node + 1);
+						break;
+					case ASTWriter.nameOperand:
+						operand = nameIds[check(operand, names.length)];
+						break;
+					case ASTWriter.stringOperand:
+						check(operand, strings.length);
+						break;
+					case ASTWriter.typeKindOperand:
+						check(operand, typeKindCount);
+						break;
+					case ASTWriter.tokenOperand:
+						check(operand, tokenKindCount);
+						break;
+					}
+					operands[operandCount++] = operand;
+				}
+
+				positions[node]	   = readPosition(previous);
+				endPositions[node] = readPosition(positions[node]);
+				previous		   = positions[node];
+			}
+			firstOperands[size] = operandCount;
+
+			return FlatAST.of(kinds, positions, endPositions, firstOperands,
+							  Arrays.copyOf(operands, operandCount), strings);
+		} catch (BufferUnderflowException e) {
+			throw new IOException("Truncated AST file");
+		}
+	}
+
+	/**
+	 * Check that a number read is within range
+	 *
+	 * @param n		the number
+	 * @param limit	the number just past the greatest valid one
+	 * @return		n
+	 * @throws IOException	if n is not below limit
+	 */
+	private static int check(int n, int limit) throws IOException {
+		if (n < 0 || n >= limit)
+			throw new IOException("Corrupt AST file: " + n + " out of range");
+
+		return n;
+	}
+
+	private String[] readStrings() throws IOException {
+		String[] strings = new String[readCount()];
+		for (int i = 0; i < strings.length; i++) {
+			byte[] bytes = new byte[readCount()];
+			in.get(bytes);
+			strings[i] = new String(bytes, StandardCharsets.UTF_8);
+		}
+		return strings;
+	}
+
+	/**
+	 * Read a position written as the difference from another
+	 *
+	 * @param base	the position it was written relative to
+	 * @return		the position
+	 */
+	private long readPosition(long base) throws IOException {
+		long n = readVarlong();
+		if ((n & 1) == 0)
+			return SourcePosition.of(SourcePosition.lineNumber(base),
+									 SourcePosition.column(base) + (int) unzigzag(n >>> 1));
+
+		int line = SourcePosition.lineNumber(base) + (int) unzigzag(n >>> 1);
+		return SourcePosition.of(line, (int) unzigzag(readVarlong()));
+	}
+
+	private static long unzigzag(long n) {
+		return (n >>> 1) ^ -(n & 1);
+	}
+
+	/**
+	 * Read a count, which cannot exceed the bytes left to read
+	 */
+	private int readCount() throws IOException {
+		return check(readVarint(), in.remaining() + 1);
+	}
+
+	private int readVarint() throws IOException {
+		long n = readVarlong();
+		if (n > Integer.MAX_VALUE)
+			throw new IOException("Corrupt AST file: " + n + " out of range");
+
+		return (int) n;
+	}
+
+	private long readVarlong() throws IOException {
+		long n = 0;
+		for (int shift = 0; shift < 64; shift += 7) {
+			byte b = in.get();
+			n |= (long) (b & 0x7F) << shift;
+			if (b >= 0)
+				return n;
+		}
+		throw new IOException("Corrupt AST file: varint too long");
+	}
+}
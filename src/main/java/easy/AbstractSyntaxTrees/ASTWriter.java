@@ -0,0 +1,265 @@
+/**
+ * Writes ASTs in a compact binary format, which an {@link ASTReader}
+ * reads back, so that a program parsed once need not be parsed again
+ * <p>
+ * The format is that of a {@link FlatAST}, written out with every number
+ * as a varint (seven bits to a byte, low bits first, the high bit set on
+ * all but the last byte). A file holds:
+ * <ul>
+ * <li>the magic number "EZAST", followed by the version of the format;
+ * <li>the table of names, and the table of spellings of literals and
+ * 	   operators, each a count followed by that many UTF-8 strings, each
+ * 	   string its length in bytes followed by the bytes;
+ * <li>the number of nodes, followed by the nodes in post-order.
+ * </ul>
+ * Each node is its kind, the length of its list if it is of a kind that
+ * ends with one, its operands, and its position and end position. A child
+ * operand is written as the distance back to the child, which is never zero
+ * in post-order, or zero for an absent child. A name or a spelling is
+ * written as its index in its table, and the ordinal of a type or token
+ * kind as itself. A position is written relative to that of the previous
+ * node, and an end position relative to the position of the same node: on
+ * the same line, as twice the zigzag-encoded difference in columns, and
+ * otherwise as one more than twice the zigzag-encoded difference in lines,
+ * followed by the zigzag-encoded column. Most nodes thus take a few bytes.
+ * <p>
+ * Since names are written as strings rather than as IDs in the NameTable,
+ * what is written by one process can be read by another.
+ *
+ * @author  Federico Menozzi
+ * @version Easy Compiler v1
+ */
+
+package easy.AbstractSyntaxTrees;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+
+import easy.SyntacticAnalyzer.NameTable;
+import easy.SyntacticAnalyzer.SourcePosition;
+
+public class ASTWriter {
+
+	/**
+	 * Bytes that begin every AST written
+	 */
+	final static byte[] magic = { 'E', 'Z', 'A', 'S', 'T' };
+
+	/**
+	 * Version of the format, increased whenever it changes
+	 */
+	public final static int version = 1;
+
+	/**
+	 * Types of operand, as given by {@link #operandType(byte, int)}
+	 */
+	final static int childOperand	 = 0;
+	final static int nameOperand	 = 1;
+	final static int stringOperand	 = 2;
+	final static int typeKindOperand = 3;
+	final static int tokenOperand	 = 4;
+
+	/**
+	 * Number of operands of each kind of node, or for a kind that ends
+	 * with a list, the complement of the number that precede the list
+	 */
+	final static int[] operandCounts = {
+		-2,	// Program: main block, functions
+		-4,	// FunctionDecl: name, type, block, parameters
+		2, 2, 1,
+		-1,	// BlockStmt: statements
+		2, 2,
+		-2,	// CallStmt: function, arguments
+		-4,	// IfStmt: condition, body, else, else-ifs
+		2, 1, 2, 6, 4, 1, 2, 3, 0, 1, 2, 3, 1,
+		-2,	// CallExpr: function, arguments
+		1, 3, 2, 1, 1, 2, 1, 1, 1
+	};
+
+	/**
+	 * The stream written to
+	 */
+	private final OutputStream out;
+
+	/**
+	 * Bytes not yet written to the stream
+	 */
+	private final byte[] buffer = new byte[8192];
+	private int count;
+
+	/**
+	 * Construct an ASTWriter. The stream is written to in large blocks,
+	 * so it need not be buffered.
+	 *
+	 * @param out	the stream to write to
+	 */
+	public ASTWriter(OutputStream out) {
+		this.out = out;
+	}
+
+	/**
+	 * Write an AST, by way of its FlatAST
+	 *
+	 * @param ast	the root node of the AST
+	 * @throws IOException	if the stream cannot be written to
+	 */
+	public void write(AST ast) throws IOException {
+		write(FlatAST.of(ast));
+	}
+
+	/**
+	 * Write a FlatAST, and flush it to the stream
+	 *
+	 * @param flat	the FlatAST
+	 * @throws IOException	if the stream cannot be written to
+	 */
+	public void write(FlatAST flat) throws IOException {
+		ArrayList<String> names			  = new ArrayList<String>();
+		HashMap<Integer, Integer> nameIds = new HashMap<Integer, Integer>();
+		ArrayList<String> strings		  = new ArrayList<String>();
+		HashMap<String, Integer> spellings = new HashMap<String, Integer>();
+
+		for (int node = 0; node < flat.size(); node++) {
+			byte kind = flat.kind(node);
+			for (int i = 0; i < flat.operandCount(node); i++) {
+				int type = operandType(kind, i);
+				if (type == nameOperand && ! nameIds.containsKey(flat.operand(node, i))) {
+					nameIds.put(flat.operand(node, i), names.size());
+					names.add(NameTable.spelling(flat.operand(node, i)));
+				} else if (type == stringOperand && ! spellings.containsKey(flat.spelling(node))) {
+					spellings.put(flat.spelling(node), strings.size());
+					strings.add(flat.spelling(node));
+				}
+			}
+		}
+
+		for (byte b : magic)
+			writeByte(b);
+		writeVarint(version);
+		writeStrings(names);
+		writeStrings(strings);
+
+		writeVarint(flat.size());
+		long previous = SourcePosition.of(0, 0);
+		for (int node = 0; node < flat.size(); node++) {
+			byte kind = flat.kind(node);
+			writeVarint(kind);
+			if (operandCounts[kind] < 0)
+				writeVarint(flat.operandCount(node) - ~operandCounts[kind]);
+
+			for (int i = 0; i < flat.operandCount(node); i++) {
+				int operand = flat.operand(node, i);
+				switch (operandType(kind, i)) {
+				case childOperand:
+					writeVarint(operand < 0 ? 0 : node - operand);
+					break;
+				case nameOperand:
+					writeVarint(nameIds.get(operand));
+					break;
+				case stringOperand:
+					writeVarint(spellings.get(flat.spelling(node)));
+					break;
+				default:
+					writeVarint(operand);
+					break;
+				}
+			}
+
+			long position = flat.position(node);
+			writePosition(position, previous);
+			writePosition(flat.endPosition(node), position);
+			previous = position;
+		}
+
+		flush();
+	}
+
+	/**
+	 * Find the type of an operand of a node
+	 *
+	 * @param kind	the kind of node
+	 * @param i		the index of the operand
+	 * @return		one of the types of operand, such as {@link #childOperand}
+	 */
+	static int operandType(byte kind, int i) {
+		switch (kind) {
+		case FlatAST.functionDeclNode:
+		case FlatAST.parameterDeclNode:
+		case FlatAST.varDeclNode:
+			return i == 0 ? nameOperand : childOperand;
+
+		case FlatAST.identifierNode:
+			return nameOperand;
+
+		case FlatAST.baseTypeNode:
+			return typeKindOperand;
+
+		case FlatAST.operatorNode:
+			return i == 0 ? tokenOperand : stringOperand;
+
+		case FlatAST.intLiteralNode:
+		case FlatAST.booleanLiteralNode:
+		case FlatAST.stringLiteralNode:
+			return stringOperand;
+
+		default:
+			return childOperand;
+		}
+	}
+
+	private void writeStrings(ArrayList<String> strings) throws IOException {
+		writeVarint(strings.size());
+		for (String s : strings) {
+			byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+			writeVarint(bytes.length);
+			for (byte b : bytes)
+				writeByte(b);
+		}
+	}
+
+	/**
+	 * Write a position as the difference from another
+	 *
+	 * @param position	the position
+	 * @param base		the position it is written relative to
+	 */
+	private void writePosition(long position, long base) throws IOException {
+		long lines = (long) SourcePosition.lineNumber(position) - SourcePosition.lineNumber(base);
+		if (lines == 0) {
+			writeVarint(zigzag((long) SourcePosition.column(position) - SourcePosition.column(base)) << 1);
+		} else {
+			writeVarint(zigzag(lines) << 1 | 1);
+			writeVarint(zigzag(SourcePosition.column(position)));
+		}
+	}
+
+	/**
+	 * Map a signed number to an unsigned one, small for small magnitudes
+	 */
+	private static long zigzag(long n) {
+		return (n << 1) ^ (n >> 63);
+	}
+
+	private void writeVarint(long n) throws IOException {
+		while ((n & ~0x7FL) != 0) {
+			writeByte((byte) (n & 0x7F | 0x80));
+			n >>>= 7;
+		}
+		writeByte((byte) n);
+	}
+
+	private void writeByte(byte b) throws IOException {
+		if (count == buffer.length)
+			flush();
+		buffer[count++] = b;
+	}
+
+	private void flush() throws IOException {
+		out.write(buffer, 0, count);
+		out.flush();
+		count = 0;
+	}
+}
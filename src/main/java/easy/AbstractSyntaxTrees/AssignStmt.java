@@ -7,8 +7,6 @@
 
 package easy.AbstractSyntaxTrees;
 
-import easy.SyntacticAnalyzer.Line;
-
 public class AssignStmt extends Statement {
 	
 	/**
@@ -26,10 +24,10 @@ public class AssignStmt extends Statement {
 	 * 
 	 * @param ref	the {@code Reference} that val gets assigned to
 	 * @param val	the {@code Expression} that ref gets assigned	
-	 * @param line	the line number of the reference in source
+	 * @param position	the position of the reference in source
 	 */
-	public AssignStmt(Reference ref, Expression val, Line line){
-        super(line);
+	public AssignStmt(Reference ref, Expression val, long position){
+        super(position);
         
         this.ref = ref;
         this.val = val;
@@ -7,18 +7,16 @@
 
 package easy.AbstractSyntaxTrees;
 
-import easy.SyntacticAnalyzer.Line;
-
 public class BaseType extends Type {
 
 	/**
-	 * Construct a BaseType with given {@link TypeKind} and {@link Line}
+	 * Construct a BaseType with given {@link TypeKind} and position
 	 * 
 	 * @param typeKind	an instance of the enum {@code TypeKind}
-	 * @param line		the line number of the BaseType in source
+	 * @param position	the position of the BaseType in source
 	 */
-	public BaseType(TypeKind typeKind, Line line) {
-		super(typeKind, line);
+	public BaseType(TypeKind typeKind, long position) {
+		super(typeKind, position);
 		this.spelling = typeKind.name().toLowerCase();
 	}
 
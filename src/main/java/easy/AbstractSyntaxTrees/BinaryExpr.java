@@ -7,8 +7,6 @@
 
 package easy.AbstractSyntaxTrees;
 
-import easy.SyntacticAnalyzer.Line;
-
 public class BinaryExpr extends Expression {
 
 	/**
@@ -35,10 +33,10 @@ public class BinaryExpr extends Expression {
 	 * @param leftExpr	the left expression in the binary expression	
 	 * @param operator	the binary operator
 	 * @param rightExpr	the right expression in the binary expression
-	 * @param line		the line number of the expression in source
+	 * @param position	the position of the expression in source
 	 */
-	public BinaryExpr(Expression leftExpr, Operator operator, Expression rightExpr, Line line) {
-		super(leftExpr.spelling + operator.spelling + rightExpr.spelling, line);
+	public BinaryExpr(Expression leftExpr, Operator operator, Expression rightExpr, long position) {
+		super(leftExpr.spelling + operator.spelling + rightExpr.spelling, position);
 		
 		this.leftExpr  = leftExpr;
 		this.operator  = operator;
@@ -7,8 +7,6 @@
 
 package easy.AbstractSyntaxTrees;
 
-import easy.SyntacticAnalyzer.Line;
-
 public class BlockStmt extends Statement {
 
 	/**
@@ -20,10 +18,10 @@ public class BlockStmt extends Statement {
 	 * Construct a BlockStmt containing the {@link StatementList} statementList
 	 * 
 	 * @param statementList	the list of statements to execute
-	 * @param line			the line of the first statement of the block in source
+	 * @param position		the position of the first statement of the block in source
 	 */
-	public BlockStmt(StatementList statementList, Line line) {
-		super(line);
+	public BlockStmt(StatementList statementList, long position) {
+		super(position);
 		this.statementList = statementList;
 	}
 	
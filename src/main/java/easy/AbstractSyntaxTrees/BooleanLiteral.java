@@ -7,19 +7,17 @@
 
 package easy.AbstractSyntaxTrees;
 
-import easy.SyntacticAnalyzer.Line;
-
 public class BooleanLiteral extends Literal {
 	
 	/**
 	 * Construct a BooleanLiteral with specified spelling
-	 * at the given line in source.
+	 * at the given position in source.
 	 * 
 	 * @param spelling	the spelling of the literal (either "true" or "false")
-	 * @param line		the line number of the literal in source
+	 * @param position	the position of the literal in source
 	 */
-	public BooleanLiteral(String spelling, Line line) {
-		super(spelling, line);
+	public BooleanLiteral(String spelling, long position) {
+		super(spelling, position);
 	}
 
 	/**
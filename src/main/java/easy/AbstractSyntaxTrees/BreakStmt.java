@@ -7,16 +7,14 @@
 
 package easy.AbstractSyntaxTrees;
 
-import easy.SyntacticAnalyzer.Line;
-
 public class BreakStmt extends Statement {
 	/**
 	 * Construct a break statement
 	 * 
-	 * @param line	the line number of the break statement in source
+	 * @param position	the position of the break statement in source
 	 */
-	public BreakStmt(Line line) {
-		super(line);
+	public BreakStmt(long position) {
+		super(position);
 	}
 	
 	/**
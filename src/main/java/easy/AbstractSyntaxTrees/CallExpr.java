@@ -7,8 +7,6 @@
 
 package easy.AbstractSyntaxTrees;
 
-import easy.SyntacticAnalyzer.Line;
-
 public class CallExpr extends Expression {
 	
 	/**
@@ -27,10 +25,10 @@ public class CallExpr extends Expression {
 	 * 
 	 * @param functionRef	the reference to the underlying function
 	 * @param argList		the list of arguments
-	 * @param line			the line number of the call in source
+	 * @param position		the position of the call in source
 	 */
-	public CallExpr(Reference functionRef, ExprList argList, Line line) {
-		super(functionRef.spelling, line);
+	public CallExpr(Reference functionRef, ExprList argList, long position) {
+		super(functionRef.spelling, position);
 		
 		this.functionRef = functionRef;
 		this.argList	 = argList;
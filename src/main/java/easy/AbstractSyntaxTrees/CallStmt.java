@@ -7,8 +7,6 @@
 
 package easy.AbstractSyntaxTrees;
 
-import easy.SyntacticAnalyzer.Line;
-
 public class CallStmt extends Statement {
 
 	/**
@@ -27,10 +25,10 @@ public class CallStmt extends Statement {
 	 * 
 	 * @param functionRef	the reference to the underlying function
 	 * @param argList		the list of arguments
-	 * @param line			the line number of the call in source
+	 * @param position		the position of the call in source
 	 */
-	public CallStmt(Reference functionRef, ExprList argList, Line line) {
-		super(line);
+	public CallStmt(Reference functionRef, ExprList argList, long position) {
+		super(position);
 		
 		this.functionRef = functionRef;
 		this.argList     = argList;
@@ -7,7 +7,7 @@
 
 package easy.AbstractSyntaxTrees;
 
-import easy.SyntacticAnalyzer.Line;
+import easy.SyntacticAnalyzer.NameTable;
 
 public abstract class Declaration extends AST {
 	
@@ -21,18 +21,36 @@ public abstract class Declaration extends AST {
 	 */
 	public final String name;
 	
+	/**
+	 * ID of the name in the {@link NameTable}
+	 */
+	public final int nameId;
+	
 	/**
 	 * Construct a Declaration of the variable "name" with
 	 * underlying {@code Type} "type". 
 	 * 
 	 * @param name	the name of the variable
 	 * @param type	the type of the variable 
-	 * @param line	the line number of the type in source
+	 * @param position	the position of the type in source
+	 */
+	public Declaration(Type type, String name, long position) {
+		this(type, NameTable.intern(name), position);
+	}
+	
+	/**
+	 * Construct a Declaration of the interned name with the given
+	 * ID and underlying {@code Type} "type". 
+	 * 
+	 * @param type		the type of the variable 
+	 * @param nameId	the ID of the name in the NameTable
+	 * @param position	the position of the type in source
 	 */
-	public Declaration(Type type, String name, Line line) {
-		super(line);
+	public Declaration(Type type, int nameId, long position) {
+		super(position);
 		
 		this.type 	  = type;
-		this.name 	  = name;
+		this.name 	  = NameTable.spelling(nameId);
+		this.nameId	  = nameId;
 	}
 }
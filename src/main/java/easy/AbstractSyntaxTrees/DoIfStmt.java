@@ -7,8 +7,6 @@
 
 package easy.AbstractSyntaxTrees;
 
-import easy.SyntacticAnalyzer.Line;
-
 public class DoIfStmt extends Statement {
 	
 	/**
@@ -29,8 +27,8 @@ public class DoIfStmt extends Statement {
 	 */
 	public final Statement elseStmt;
 	
-	public DoIfStmt(Statement thenStmt, Expression condition, Statement elseStmt, Line line) {
-		super(line);
+	public DoIfStmt(Statement thenStmt, Expression condition, Statement elseStmt, long position) {
+		super(position);
 		
 		this.thenStmt  = thenStmt;
 		this.condition = condition;
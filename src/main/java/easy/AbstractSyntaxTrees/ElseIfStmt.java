@@ -7,8 +7,6 @@
 
 package easy.AbstractSyntaxTrees;
 
-import easy.SyntacticAnalyzer.Line;
-
 public class ElseIfStmt extends Statement {
 	
 	/**
@@ -27,10 +25,10 @@ public class ElseIfStmt extends Statement {
 	 * 
 	 * @param condition	the {@code Expression} used to test whether to execute the body
 	 * @param body		the {@code Statement} to execute if the condition is true
-	 * @param line		the line number of the "else" keyword in source
+	 * @param position	the position of the "else" keyword in source
 	 */
-	public ElseIfStmt(Expression condition, Statement body, Line line) {
-		super(line);
+	public ElseIfStmt(Expression condition, Statement body, long position) {
+		super(position);
 		
 		this.condition = condition;
 		this.body      = body;
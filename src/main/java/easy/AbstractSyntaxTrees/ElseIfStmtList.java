@@ -0,0 +1,28 @@
+/**
+ * Else If Statement List
+ * 
+ * @author  Federico Menozzi
+ * @version Easy Compiler v1
+ */
+
+package easy.AbstractSyntaxTrees;
+
+public class ElseIfStmtList extends ASTList<ElseIfStmt> {
+
+	/**
+	 * The empty list of {@code ElseIfStmt}s, shared by every node that has none
+	 */
+	public final static ElseIfStmtList empty = new ElseIfStmtList(new AST[0], 0, 0);
+
+	/**
+	 * Construct a list of the {@code ElseIfStmt}s in a range of an array
+	 * 
+	 * @param nodes	the array holding the ElseIfStmts
+	 * @param from	the index of the first ElseIfStmt
+	 * @param to	the index just past the last ElseIfStmt
+	 * @throws ArrayStoreException	if a node in the range is not a ElseIfStmt
+	 */
+	public ElseIfStmtList(AST[] nodes, int from, int to) {
+		super(copy(nodes, from, to, new ElseIfStmt[to - from]));
+	}
+}
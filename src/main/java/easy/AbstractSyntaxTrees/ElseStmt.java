@@ -7,8 +7,6 @@
 
 package easy.AbstractSyntaxTrees;
 
-import easy.SyntacticAnalyzer.Line;
-
 public class ElseStmt extends Statement {
 	
 	/**
@@ -20,10 +18,10 @@ public class ElseStmt extends Statement {
 	 * Construct an ElseStmt that executes a {@link BlockStmt} 
 	 * 
 	 * @param block	the {@code Statement} to execute
-	 * @param line	the line number of the "else" keyword in source
+	 * @param position	the position of the "else" keyword in source
 	 */
-	public ElseStmt(Statement body, Line line) {
-		super(line);
+	public ElseStmt(Statement body, long position) {
+		super(position);
 		this.body = body;
 	}
 	
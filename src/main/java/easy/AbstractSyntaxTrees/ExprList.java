@@ -1,74 +1,28 @@
 /**
  * Expression List
  * 
- * @author 	Federico Menozzi
+ * @author  Federico Menozzi
  * @version Easy Compiler v1
  */
 
 package easy.AbstractSyntaxTrees;
 
-import java.util.ArrayList;
-import java.util.Iterator;
-
-public class ExprList implements Iterable<Expression> {
-
-	/**
-	 * ArrayList of {@link Expression}s
-	 */
-	private ArrayList<Expression> exprList;
+public class ExprList extends ASTList<Expression> {
 
 	/**
-	 * Construct an empty list of {@code Expression}s
+	 * The empty list of {@code Expression}s, shared by every node that has none
 	 */
-	public ExprList() {
-		exprList = new ArrayList<Expression>();
-	}
+	public final static ExprList empty = new ExprList(new AST[0], 0, 0);
 
 	/**
-	 * Add an {@code Expression} to the list. 
+	 * Construct a list of the {@code Expression}s in a range of an array
 	 * 
-	 * @param e	the Expression to add
+	 * @param nodes	the array holding the Expressions
+	 * @param from	the index of the first Expression
+	 * @param to	the index just past the last Expression
+	 * @throws ArrayStoreException	if a node in the range is not a Expression
 	 */
-	public void add(Expression e){
-		exprList.add(e);
-	}
-
-	/**
-     * Retrieve the i-th {@code Expression} from the list, 
-     * using zero-based indexing.
-     * 
-     * @param i	the index
-     * @return	the i-th Expression
-     */
-	public Expression get(int i){
-		return exprList.get(i);
-	}
-
-	/**
-     * Retrieve the size of the list.
-     * 
-     * @return	the number of elements in the list
-     */
-	public int size() {
-		return exprList.size();
-	}
-	
-	/**
-     * Test whether the list is empty. Equivalent to testing
-     * whether size() == 0.
-     * 
-     * @return	true if the list has zero elements, false otherwise
-     */
-	public boolean isEmpty() {
-		return exprList.isEmpty();
-	}
-
-	/**
-     * Retrieve an iterator for the list
-     * 
-     * @return an iterator for the list
-     */
-	public Iterator<Expression> iterator() {
-		return exprList.iterator();
+	public ExprList(AST[] nodes, int from, int to) {
+		super(copy(nodes, from, to, new Expression[to - from]));
 	}
 }
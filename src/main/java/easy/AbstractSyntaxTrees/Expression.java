@@ -7,8 +7,6 @@
 
 package easy.AbstractSyntaxTrees;
 
-import easy.SyntacticAnalyzer.Line;
-
 public abstract class Expression extends AST {
 	
 	/**
@@ -16,15 +14,20 @@ public abstract class Expression extends AST {
 	 */
 	public final String spelling;
 	
+	/**
+	 * Kind of the type of the expression, set by type checking
+	 */
+	public TypeKind typeKind;
+	
 	/**
 	 * Construct an Expression with given spelling at 
-	 * the given line number in source
+	 * the given position in source
 	 * 
 	 * @param spelling	the String representation of the expression (e.g. "2+3")
-	 * @param line		the line number of the leftmost subexpression
+	 * @param position	the position of the leftmost subexpression
 	 */
-	public Expression(String spelling, Line line) {
-		super(line);
+	public Expression(String spelling, long position) {
+		super(position);
 		this.spelling = spelling;
 	}
 }
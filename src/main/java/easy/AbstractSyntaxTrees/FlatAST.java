@@ -0,0 +1,1086 @@
+/**
+ * Compact representation of an Abstract Syntax Tree (AST)
+ * <p>
+ * Rather than as one heap object per node, the nodes are held in a few
+ * parallel arrays, indexed by node number. Each node has a kind, a position
+ * and an end position, each packed into an int unless its line or column is
+ * very large, and a run of int operands in a single arena: the
+ * numbers of its child nodes (-1 for an absent child), the NameTable IDs
+ * of names, the ordinals of type and token kinds, and indices into a table
+ * of the distinct spellings of literals and operators. Nodes are numbered
+ * in post-order, so that every subtree occupies a contiguous range of node
+ * numbers ending at its root, and the root of the whole tree is the last
+ * node. The spelling of an expression, which the object AST builds from
+ * those of its subexpressions, is not stored at all.
+ * <p>
+ * A FlatAST is built from an object AST by {@link #of(AST)}, and any
+ * {@link Visitor} can be run over it by {@link #visit(int, Visitor, Object)},
+ * which rebuilds the object nodes as the Visitor needs them. The function
+ * declarations of a Program and the statements of its main block are only
+ * rebuilt when retrieved from their lists, one at a time, so that a Visitor
+ * that walks the lists in order never holds more than one of them. Since
+ * each retrieval builds new nodes, the bindings and types that a pass stores
+ * in them are lost to later passes, so a tree that is decorated and then
+ * compiled is rebuilt once and in full by {@link #tree()}.
+ *
+ * @author  Federico Menozzi
+ * @version Easy Compiler v1
+ */
+
+package easy.AbstractSyntaxTrees;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+
+import easy.SyntacticAnalyzer.SourcePosition;
+import easy.SyntacticAnalyzer.Token;
+import easy.SyntacticAnalyzer.TokenKind;
+
+public class FlatAST {
+
+	/**
+	 * Kinds of node, one for each concrete class of AST node
+	 */
+	public final static byte programNode		  = 0;
+	public final static byte functionDeclNode	  = 1;
+	public final static byte parameterDeclNode	  = 2;
+	public final static byte varDeclNode		  = 3;
+	public final static byte baseTypeNode		  = 4;
+	public final static byte blockStmtNode		  = 5;
+	public final static byte varDeclStmtNode	  = 6;
+	public final static byte assignStmtNode		  = 7;
+	public final static byte callStmtNode		  = 8;
+	public final static byte ifStmtNode			  = 9;
+	public final static byte elseIfStmtNode		  = 10;
+	public final static byte elseStmtNode		  = 11;
+	public final static byte whileStmtNode		  = 12;
+	public final static byte forStmtNode		  = 13;
+	public final static byte forEachStmtNode	  = 14;
+	public final static byte infiniteLoopStmtNode = 15;
+	public final static byte untilStmtNode		  = 16;
+	public final static byte doIfStmtNode		  = 17;
+	public final static byte breakStmtNode		  = 18;
+	public final static byte returnStmtNode		  = 19;
+	public final static byte unaryExprNode		  = 20;
+	public final static byte binaryExprNode		  = 21;
+	public final static byte refExprNode		  = 22;
+	public final static byte callExprNode		  = 23;
+	public final static byte literalExprNode	  = 24;
+	public final static byte ifExprNode			  = 25;
+	public final static byte indexedRefNode		  = 26;
+	public final static byte idRefNode			  = 27;
+	public final static byte identifierNode		  = 28;
+	public final static byte operatorNode		  = 29;
+	public final static byte intLiteralNode		  = 30;
+	public final static byte booleanLiteralNode	  = 31;
+	public final static byte stringLiteralNode	  = 32;
+
+	/**
+	 * Number of bits of a narrow position that hold the column
+	 */
+	private final static int columnBits = 11;
+
+	private final static TypeKind[]  typeKinds	= TypeKind.values();
+	private final static TokenKind[] tokenKinds = TokenKind.values();
+
+	/**
+	 * Kind of each node
+	 */
+	private final byte[] kinds;
+
+	/**
+	 * Position of each node in source, narrowed by {@link Flattener#narrow(long)}
+	 */
+	private final int[] positions;
+
+	/**
+	 * Position just past the end of each node in source, narrowed likewise
+	 */
+	private final int[] endPositions;
+
+	/**
+	 * Positions too large to be narrowed, packed by SourcePosition
+	 */
+	private final long[] widePositions;
+
+	/**
+	 * Index in the arena of the first operand of each node, followed by
+	 * the index just past the operands of the last node
+	 */
+	private final int[] firstOperands;
+
+	/**
+	 * Operands of every node, in node order
+	 */
+	private final int[] operands;
+
+	/**
+	 * Distinct spellings of literals and operators
+	 */
+	private final String[] strings;
+
+	private FlatAST(byte[] kinds, int[] positions, int[] endPositions, long[] widePositions,
+					int[] firstOperands, int[] operands, String[] strings) {
+		this.kinds		   = kinds;
+		this.positions	   = positions;
+		this.endPositions  = endPositions;
+		this.widePositions = widePositions;
+		this.firstOperands = firstOperands;
+		this.operands	   = operands;
+		this.strings	   = strings;
+	}
+
+	/**
+	 * Build the compact representation of an AST
+	 *
+	 * @param ast	the root node of the AST
+	 * @return		the FlatAST holding every node of the AST
+	 */
+	public static FlatAST of(AST ast) {
+		Flattener flattener = new Flattener();
+		flattener.add(ast);
+		return flattener.finish();
+	}
+
+	/**
+	 * Build a FlatAST from nodes whose positions are not narrowed yet,
+	 * such as those read by an {@link ASTReader}
+	 *
+	 * @param kinds			the kind of each node
+	 * @param positions		the position of each node, packed by SourcePosition
+	 * @param endPositions	the end position of each node, packed likewise
+	 * @param firstOperands	the index of the first operand of each node, and the
+	 * 						number of operands
+	 * @param operands		the operands of every node
+	 * @param strings		the spellings referred to by the operands
+	 * @return				the FlatAST
+	 */
+	static FlatAST of(byte[] kinds, long[] positions, long[] endPositions,
+					  int[] firstOperands, int[] operands, String[] strings) {
+		Flattener flattener	  = new Flattener();
+		int[] narrowPositions = new int[kinds.length];
+		int[] narrowEnds	  = new int[kinds.length];
+		for (int i = 0; i < kinds.length; i++) {
+			narrowPositions[i] = flattener.narrow(positions[i]);
+			narrowEnds[i]	   = flattener.narrow(endPositions[i]);
+		}
+
+		return new FlatAST(kinds, narrowPositions, narrowEnds,
+						   Arrays.copyOf(flattener.widePositions, flattener.wideCount),
+						   firstOperands, operands, strings);
+	}
+
+	/**
+	 * Retrieve the number of nodes
+	 *
+	 * @return	the number of nodes
+	 */
+	public int size() {
+		return kinds.length;
+	}
+
+	/**
+	 * Retrieve the number of the root node, which is the last node
+	 *
+	 * @return	the number of the root node
+	 */
+	public int root() {
+		return kinds.length - 1;
+	}
+
+	/**
+	 * Retrieve the kind of a node
+	 *
+	 * @param node	the number of the node
+	 * @return		one of the node kinds, such as {@link #binaryExprNode}
+	 */
+	public byte kind(int node) {
+		return kinds[node];
+	}
+
+	/**
+	 * Retrieve the position of a node in source
+	 *
+	 * @param node	the number of the node
+	 * @return		the position, packed by SourcePosition
+	 */
+	public long position(int node) {
+		return widen(positions[node]);
+	}
+
+	/**
+	 * Retrieve the position just past the end of a node in source
+	 *
+	 * @param node	the number of the node
+	 * @return		the end position, packed by SourcePosition
+	 */
+	public long endPosition(int node) {
+		return widen(endPositions[node]);
+	}
+
+	/**
+	 * Unpack a position narrowed by {@link Flattener#narrow(long)}
+	 *
+	 * @param position	the narrowed position
+	 * @return			the position, packed by SourcePosition
+	 */
+	private long widen(int position) {
+		if (position < 0)
+			return widePositions[~position];
+
+		return SourcePosition.of(position >>> columnBits, position & ((1 << columnBits) - 1));
+	}
+
+	/**
+	 * Retrieve the number of operands of a node
+	 *
+	 * @param node	the number of the node
+	 * @return		the number of operands
+	 */
+	public int operandCount(int node) {
+		return firstOperands[node + 1] - firstOperands[node];
+	}
+
+	/**
+	 * Retrieve an operand of a node
+	 *
+	 * @param node	the number of the node
+	 * @param i		the index of the operand, from zero
+	 * @return		the operand
+	 */
+	public int operand(int node, int i) {
+		return operands[firstOperands[node] + i];
+	}
+
+	/**
+	 * Retrieve the number of child nodes of a node, counting absent ones
+	 *
+	 * @param node	the number of the node
+	 * @return		the number of child nodes
+	 */
+	public int childCount(int node) {
+		int first = firstChild(kinds[node]);
+		return first < 0 ? 0 : operandCount(node) - first;
+	}
+
+	/**
+	 * Retrieve a child node of a node, in the order of the fields of
+	 * the node, followed by the elements of its list, if any
+	 *
+	 * @param node	the number of the node
+	 * @param i		the index of the child, from zero
+	 * @return		the number of the child node, or -1 if it is absent
+	 */
+	public int child(int node, int i) {
+		return operands[firstOperands[node] + firstChild(kinds[node]) + i];
+	}
+
+	/**
+	 * Retrieve the name of a declaration or an Identifier
+	 *
+	 * @param node	the number of the node
+	 * @return		the ID of the name in the NameTable
+	 */
+	public int nameId(int node) {
+		return operands[firstOperands[node]];
+	}
+
+	/**
+	 * Retrieve the spelling of a literal or an operator
+	 *
+	 * @param node	the number of the node
+	 * @return		the spelling
+	 */
+	public String spelling(int node) {
+		int last = firstOperands[node + 1] - 1;
+		return strings[operands[last]];
+	}
+
+	/**
+	 * Find the index of the first operand of a node kind that is a child node
+	 *
+	 * @param kind	the kind of node
+	 * @return		the index, or -1 for a kind that has no child nodes
+	 */
+	private static int firstChild(byte kind) {
+		switch (kind) {
+		case functionDeclNode:
+		case parameterDeclNode:
+		case varDeclNode:
+			return 1;
+
+		case baseTypeNode:
+		case identifierNode:
+		case operatorNode:
+		case intLiteralNode:
+		case booleanLiteralNode:
+		case stringLiteralNode:
+			return -1;
+
+		default:
+			return 0;
+		}
+	}
+
+	/**
+	 * Visit a node with any Visitor, by rebuilding its subtree as AST
+	 * objects. If the node is a Program, its function declarations and
+	 * the statements of its main block are rebuilt one at a time, as
+	 * they are retrieved from their lists.
+	 *
+	 * @param node	the number of the node
+	 * @param v		an object that implements the Visitor interface
+	 * @param arg	the helper object received for the visit
+	 * @return		the helper object synthesized during the visit
+	 */
+	public <ArgType, ReturnType> ReturnType visit(int node, Visitor<ArgType, ReturnType> v, ArgType arg) {
+		return ast(node).visit(v, arg);
+	}
+
+	/**
+	 * Rebuild the subtree of a node as AST objects. If the node is a
+	 * Program, its function declarations and the statements of its main
+	 * block are rebuilt each time they are retrieved from their lists.
+	 *
+	 * @param node	the number of the node
+	 * @return		the root of the subtree, or null for -1
+	 */
+	public AST ast(int node) {
+		if (node < 0)
+			return null;
+
+		AST ast;
+		int first = firstOperands[node];
+		long position = position(node);
+
+		switch (kinds[node]) {
+		case programNode:
+			int mainBlock = operands[first];
+			BlockStmt block = new BlockStmt(new FlatStatementList(mainBlock), position(mainBlock));
+			block.endPosition = endPosition(mainBlock);
+			ast = new Program(block, new FlatFunctionDeclList(node), position);
+			break;
+
+		case functionDeclNode:
+			AST[] params = nodes(first + 3, firstOperands[node + 1]);
+			ParameterDeclList paramList = params.length == 0 ? ParameterDeclList.empty
+															 : new ParameterDeclList(params, 0, params.length);
+			ast = new FunctionDecl(operands[first], (Type) ast(operands[first + 1]), paramList,
+								   (BlockStmt) ast(operands[first + 2]), position);
+			break;
+
+		case parameterDeclNode:
+			ast = new ParameterDecl((Type) ast(operands[first + 1]), operands[first], position);
+			break;
+
+		case varDeclNode:
+			ast = new VarDecl((Type) ast(operands[first + 1]), operands[first], position);
+			break;
+
+		case baseTypeNode:
+			ast = new BaseType(typeKinds[operands[first]], position);
+			break;
+
+		case blockStmtNode:
+			AST[] statements = nodes(first, firstOperands[node + 1]);
+			StatementList statementList = statements.length == 0 ? StatementList.empty
+																 : new StatementList(statements, 0, statements.length);
+			ast = new BlockStmt(statementList, position);
+			break;
+
+		case varDeclStmtNode:
+			ast = new VarDeclStmt((VarDecl) ast(operands[first]),
+								  (Expression) ast(operands[first + 1]), position);
+			break;
+
+		case assignStmtNode:
+			ast = new AssignStmt((Reference) ast(operands[first]),
+								 (Expression) ast(operands[first + 1]), position);
+			break;
+
+		case callStmtNode:
+			ast = new CallStmt((Reference) ast(operands[first]), arguments(node), position);
+			break;
+
+		case ifStmtNode:
+			AST[] elseIfStmts = nodes(first + 3, firstOperands[node + 1]);
+			ElseIfStmtList elseIfList = elseIfStmts.length == 0 ? ElseIfStmtList.empty
+																: new ElseIfStmtList(elseIfStmts, 0, elseIfStmts.length);
+			ast = new IfStmt((Expression) ast(operands[first]), (Statement) ast(operands[first + 1]),
+							 elseIfList, (ElseStmt) ast(operands[first + 2]), position);
+			break;
+
+		case elseIfStmtNode:
+			ast = new ElseIfStmt((Expression) ast(operands[first]),
+								 (Statement) ast(operands[first + 1]), position);
+			break;
+
+		case elseStmtNode:
+			ast = new ElseStmt((Statement) ast(operands[first]), position);
+			break;
+
+		case whileStmtNode:
+			ast = new WhileStmt((Expression) ast(operands[first]),
+								(Statement) ast(operands[first + 1]), position);
+			break;
+
+		case forStmtNode:
+			ast = new ForStmt((Identifier) ast(operands[first]), (Type) ast(operands[first + 1]),
+							  (Expression) ast(operands[first + 2]), (Expression) ast(operands[first + 3]),
+							  (Expression) ast(operands[first + 4]), (BlockStmt) ast(operands[first + 5]),
+							  position);
+			break;
+
+		case forEachStmtNode:
+			ast = new ForEachStmt((Identifier) ast(operands[first]), (Type) ast(operands[first + 1]),
+								  (Expression) ast(operands[first + 2]), (Statement) ast(operands[first + 3]),
+								  position);
+			break;
+
+		case infiniteLoopStmtNode:
+			ast = new InfiniteLoopStmt((Statement) ast(operands[first]), position);
+			break;
+
+		case untilStmtNode:
+			ast = new UntilStmt((Expression) ast(operands[first]),
+								(Statement) ast(operands[first + 1]), position);
+			break;
+
+		case doIfStmtNode:
+			ast = new DoIfStmt((Statement) ast(operands[first]), (Expression) ast(operands[first + 1]),
+							   (Statement) ast(operands[first + 2]), position);
+			break;
+
+		case breakStmtNode:
+			ast = new BreakStmt(position);
+			break;
+
+		case returnStmtNode:
+			ast = new ReturnStmt((Expression) ast(operands[first]), position);
+			break;
+
+		case unaryExprNode:
+			ast = new UnaryExpr((Operator) ast(operands[first]),
+								(Expression) ast(operands[first + 1]), position);
+			break;
+
+		case binaryExprNode:
+			ast = new BinaryExpr((Expression) ast(operands[first]), (Operator) ast(operands[first + 1]),
+								 (Expression) ast(operands[first + 2]), position);
+			break;
+
+		case refExprNode:
+			ast = new RefExpr((Reference) ast(operands[first]), position);
+			break;
+
+		case callExprNode:
+			ast = new CallExpr((Reference) ast(operands[first]), arguments(node), position);
+			break;
+
+		case literalExprNode:
+			ast = new LiteralExpr((Literal) ast(operands[first]), position);
+			break;
+
+		case ifExprNode:
+			ast = new IfExpr((Expression) ast(operands[first]), (Expression) ast(operands[first + 1]),
+							 (Expression) ast(operands[first + 2]), position);
+			break;
+
+		case indexedRefNode:
+			ast = new IndexedRef((Reference) ast(operands[first]),
+								 (Expression) ast(operands[first + 1]), position);
+			break;
+
+		case idRefNode:
+			ast = new IdRef((Identifier) ast(operands[first]), position);
+			break;
+
+		case identifierNode:
+			ast = new Identifier(operands[first], position);
+			break;
+
+		case operatorNode:
+			Token token = new Token(tokenKinds[operands[first]], strings[operands[first + 1]], position);
+			ast = new Operator(token, position);
+			break;
+
+		case intLiteralNode:
+			ast = new IntLiteral(strings[operands[first]], position);
+			break;
+
+		case booleanLiteralNode:
+			ast = new BooleanLiteral(strings[operands[first]], position);
+			break;
+
+		case stringLiteralNode:
+			ast = new StringLiteral(strings[operands[first]], position);
+			break;
+
+		default:
+			throw new IllegalStateException("Unknown kind of node " + kinds[node]);
+		}
+
+		ast.endPosition = endPosition(node);
+		return ast;
+	}
+
+	/**
+	 * Rebuild the whole tree as AST objects, including every function
+	 * declaration and statement of a Program, so that the same nodes are
+	 * seen by every pass over the tree
+	 *
+	 * @return	the root of the tree
+	 */
+	public AST tree() {
+		int node = root();
+		if (kinds[node] != programNode)
+			return ast(node);
+
+		int first = firstOperands[node];
+		AST[] functions = nodes(first + 1, firstOperands[node + 1]);
+		FunctionDeclList functionList = functions.length == 0 ? FunctionDeclList.empty
+															  : new FunctionDeclList(functions, 0, functions.length);
+		Program program = new Program((BlockStmt) ast(operands[first]), functionList, position(node));
+		program.endPosition = endPosition(node);
+		return program;
+	}
+
+	/**
+	 * Rebuild the arguments of a call, which follow the function reference
+	 *
+	 * @param node	the number of the CallStmt or CallExpr node
+	 * @return		the list of arguments
+	 */
+	private ExprList arguments(int node) {
+		AST[] args = nodes(firstOperands[node] + 1, firstOperands[node + 1]);
+		return args.length == 0 ? ExprList.empty : new ExprList(args, 0, args.length);
+	}
+
+	/**
+	 * Rebuild the subtrees of a range of operands
+	 *
+	 * @param from	the index in the arena of the first operand
+	 * @param to	the index in the arena just past the last operand
+	 * @return		the roots of the subtrees
+	 */
+	private AST[] nodes(int from, int to) {
+		AST[] nodes = new AST[to - from];
+		for (int i = from; i < to; i++)
+			nodes[i - from] = ast(operands[i]);
+		return nodes;
+	}
+
+	/**
+	 * Function declarations of a Program node, each rebuilt when retrieved
+	 */
+	private class FlatFunctionDeclList extends FunctionDeclList {
+
+		/**
+		 * Index in the arena of the first declaration of the program
+		 */
+		private final int first;
+
+		/**
+		 * Index in the arena just past the last declaration
+		 */
+		private final int last;
+
+		FlatFunctionDeclList(int program) {
+			super(new AST[0], 0, 0);
+			this.first = firstOperands[program] + 1;
+			this.last  = firstOperands[program + 1];
+		}
+
+		@Override
+		public FunctionDecl get(int i) {
+			if (i < 0 || i >= size())
+				throw new IndexOutOfBoundsException("Index: " + i + ", Size: " + size());
+
+			return (FunctionDecl) ast(operands[first + i]);
+		}
+
+		@Override
+		public int size() {
+			return last - first;
+		}
+
+	}
+
+	/**
+	 * Statements of the main block of a Program node, each rebuilt when retrieved
+	 */
+	private class FlatStatementList extends StatementList {
+
+		/**
+		 * Index in the arena of the first statement of the block
+		 */
+		private final int first;
+
+		/**
+		 * Index in the arena just past the last statement
+		 */
+		private final int last;
+
+		FlatStatementList(int block) {
+			super(new AST[0], 0, 0);
+			this.first = firstOperands[block];
+			this.last  = firstOperands[block + 1];
+		}
+
+		@Override
+		public Statement get(int i) {
+			if (i < 0 || i >= size())
+				throw new IndexOutOfBoundsException("Index: " + i + ", Size: " + size());
+
+			return (Statement) ast(operands[first + i]);
+		}
+
+		@Override
+		public int size() {
+			return last - first;
+		}
+
+	}
+
+	/**
+	 * Builds a FlatAST by visiting every node of an object AST, numbering
+	 * each node once all of its children have been numbered
+	 * <p>
+	 * Implements Visitor<Object, Object>
+	 */
+	private static class Flattener implements Visitor<Object, Object> {
+
+		private byte[] kinds		 = new byte[1024];
+		private int[] positions		 = new int[1024];
+		private int[] endPositions	 = new int[1024];
+		private long[] widePositions = new long[16];
+		private int[] firstOperands	 = new int[1025];
+		private int[] operands		 = new int[2048];
+
+		/**
+		 * Number of nodes, of wide positions, and of operands added so far
+		 */
+		private int nodeCount;
+		private int wideCount;
+		private int operandCount;
+
+		/**
+		 * Distinct spellings of literals and operators, and their indices
+		 */
+		private final ArrayList<String> strings			= new ArrayList<String>();
+		private final HashMap<String, Integer> indices	= new HashMap<String, Integer>();
+
+		/**
+		 * Number of the node most recently added
+		 */
+		private int last;
+
+		/**
+		 * Operands of nodes being visited, whose children are not all numbered yet
+		 */
+		private int[] pending = new int[64];
+		private int pendingCount;
+
+		/**
+		 * Add a subtree
+		 *
+		 * @param ast	the root of the subtree, or null
+		 * @return		the number of the root node, or -1 for null
+		 */
+		int add(AST ast) {
+			if (ast == null)
+				return -1;
+
+			ast.visit(this, null);
+			return last;
+		}
+
+		FlatAST finish() {
+			firstOperands[nodeCount] = operandCount;
+			return new FlatAST(Arrays.copyOf(kinds, nodeCount),
+							   Arrays.copyOf(positions, nodeCount),
+							   Arrays.copyOf(endPositions, nodeCount),
+							   Arrays.copyOf(widePositions, wideCount),
+							   Arrays.copyOf(firstOperands, nodeCount + 1),
+							   Arrays.copyOf(operands, operandCount),
+							   strings.toArray(new String[strings.size()]));
+		}
+
+		/**
+		 * Begin a node whose operands will be pushed by {@link #push(int)}
+		 *
+		 * @return	the height of the pending operands before the node
+		 */
+		private int begin() {
+			return pendingCount;
+		}
+
+		private void push(int operand) {
+			if (pendingCount == pending.length)
+				pending = Arrays.copyOf(pending, 2 * pendingCount);
+			pending[pendingCount++] = operand;
+		}
+
+		/**
+		 * Add a node with the operands pushed since {@link #begin()}
+		 *
+		 * @param kind	the kind of node
+		 * @param ast	the AST node
+		 * @param base	the height returned by {@link #begin()}
+		 */
+		private void end(byte kind, AST ast, int base) {
+			if (nodeCount + 1 == kinds.length) {
+				int capacity = 2 * kinds.length;
+				kinds		  = Arrays.copyOf(kinds, capacity);
+				positions	  = Arrays.copyOf(positions, capacity);
+				endPositions  = Arrays.copyOf(endPositions, capacity);
+				firstOperands = Arrays.copyOf(firstOperands, capacity + 1);
+			}
+
+			int count = pendingCount - base;
+			if (operandCount + count > operands.length)
+				operands = Arrays.copyOf(operands, Math.max(2 * operands.length, operandCount + count));
+
+			System.arraycopy(pending, base, operands, operandCount, count);
+			pendingCount = base;
+
+			kinds[nodeCount]		 = kind;
+			positions[nodeCount]	 = narrow(ast.position);
+			endPositions[nodeCount]	 = narrow(ast.endPosition);
+			firstOperands[nodeCount] = operandCount;
+			operandCount += count;
+			last = nodeCount++;
+		}
+
+		/**
+		 * Pack a position into an int holding its line and column, or if
+		 * either is too large, into the complement of its index among the
+		 * wide positions
+		 *
+		 * @param position	the position, packed by SourcePosition
+		 * @return			the narrowed position
+		 */
+		private int narrow(long position) {
+			int line   = SourcePosition.lineNumber(position);
+			int column = SourcePosition.column(position);
+			if (line >= 0 && line < 1 << (31 - columnBits) && column >= 0 && column < 1 << columnBits)
+				return line << columnBits | column;
+
+			if (wideCount == widePositions.length)
+				widePositions = Arrays.copyOf(widePositions, 2 * wideCount);
+			widePositions[wideCount] = position;
+			return ~wideCount++;
+		}
+
+		/**
+		 * Add a node with no child nodes
+		 */
+		private void leaf(byte kind, AST ast, int operand) {
+			int base = begin();
+			push(operand);
+			end(kind, ast, base);
+		}
+
+		private int string(String s) {
+			Integer index = indices.get(s);
+			if (index == null) {
+				index = strings.size();
+				strings.add(s);
+				indices.put(s, index);
+			}
+			return index;
+		}
+
+		@Override
+		public Object visitProgram(Program prog, Object arg) {
+			int base = begin();
+			push(add(prog.mainBlock));
+			for (int i = 0; i < prog.functionDeclList.size(); i++)
+				push(add(prog.functionDeclList.get(i)));
+			end(programNode, prog, base);
+			return null;
+		}
+
+		@Override
+		public Object visitFunctionDecl(FunctionDecl fd, Object arg) {
+			int base = begin();
+			push(fd.nameId);
+			push(add(fd.type));
+			push(add(fd.block));
+			for (int i = 0; i < fd.params.size(); i++)
+				push(add(fd.params.get(i)));
+			end(functionDeclNode, fd, base);
+			return null;
+		}
+
+		@Override
+		public Object visitParameterDecl(ParameterDecl pd, Object arg) {
+			int base = begin();
+			push(pd.nameId);
+			push(add(pd.type));
+			end(parameterDeclNode, pd, base);
+			return null;
+		}
+
+		@Override
+		public Object visitVarDecl(VarDecl decl, Object arg) {
+			int base = begin();
+			push(decl.nameId);
+			push(add(decl.type));
+			end(varDeclNode, decl, base);
+			return null;
+		}
+
+		@Override
+		public Object visitBaseType(BaseType type, Object arg) {
+			leaf(baseTypeNode, type, type.typeKind.ordinal());
+			return null;
+		}
+
+		@Override
+		public Object visitBlockStmt(BlockStmt stmt, Object arg) {
+			int base = begin();
+			for (int i = 0; i < stmt.statementList.size(); i++)
+				push(add(stmt.statementList.get(i)));
+			end(blockStmtNode, stmt, base);
+			return null;
+		}
+
+		@Override
+		public Object visitVardeclStmt(VarDeclStmt stmt, Object arg) {
+			int base = begin();
+			push(add(stmt.varDecl));
+			push(add(stmt.initExpr));
+			end(varDeclStmtNode, stmt, base);
+			return null;
+		}
+
+		@Override
+		public Object visitAssignStmt(AssignStmt stmt, Object arg) {
+			int base = begin();
+			push(add(stmt.ref));
+			push(add(stmt.val));
+			end(assignStmtNode, stmt, base);
+			return null;
+		}
+
+		@Override
+		public Object visitCallStmt(CallStmt stmt, Object arg) {
+			int base = begin();
+			push(add(stmt.functionRef));
+			for (int i = 0; i < stmt.argList.size(); i++)
+				push(add(stmt.argList.get(i)));
+			end(callStmtNode, stmt, base);
+			return null;
+		}
+
+		@Override
+		public Object visitIfStmt(IfStmt stmt, Object arg) {
+			int base = begin();
+			push(add(stmt.condition));
+			push(add(stmt.body));
+			push(add(stmt.elseStmt));
+			for (int i = 0; i < stmt.elseIfStmts.size(); i++)
+				push(add(stmt.elseIfStmts.get(i)));
+			end(ifStmtNode, stmt, base);
+			return null;
+		}
+
+		@Override
+		public Object visitElseIfStmt(ElseIfStmt stmt, Object arg) {
+			int base = begin();
+			push(add(stmt.condition));
+			push(add(stmt.body));
+			end(elseIfStmtNode, stmt, base);
+			return null;
+		}
+
+		@Override
+		public Object visitElseStmt(ElseStmt stmt, Object arg) {
+			int base = begin();
+			push(add(stmt.body));
+			end(elseStmtNode, stmt, base);
+			return null;
+		}
+
+		@Override
+		public Object visitWhileStmt(WhileStmt stmt, Object arg) {
+			int base = begin();
+			push(add(stmt.condition));
+			push(add(stmt.body));
+			end(whileStmtNode, stmt, base);
+			return null;
+		}
+
+		@Override
+		public Object visitForStmt(ForStmt stmt, Object arg) {
+			int base = begin();
+			push(add(stmt.loopVar));
+			push(add(stmt.loopVarType));
+			push(add(stmt.fromExpr));
+			push(add(stmt.toExpr));
+			push(add(stmt.byExpr));
+			push(add(stmt.body));
+			end(forStmtNode, stmt, base);
+			return null;
+		}
+
+		@Override
+		public Object visitForEachStmt(ForEachStmt stmt, Object arg) {
+			int base = begin();
+			push(add(stmt.loopVar));
+			push(add(stmt.loopVarType));
+			push(add(stmt.collection));
+			push(add(stmt.body));
+			end(forEachStmtNode, stmt, base);
+			return null;
+		}
+
+		@Override
+		public Object visitInfiniteLoopStmt(InfiniteLoopStmt stmt, Object arg) {
+			int base = begin();
+			push(add(stmt.body));
+			end(infiniteLoopStmtNode, stmt, base);
+			return null;
+		}
+
+		@Override
+		public Object visitUntilStmt(UntilStmt stmt, Object arg) {
+			int base = begin();
+			push(add(stmt.condition));
+			push(add(stmt.body));
+			end(untilStmtNode, stmt, base);
+			return null;
+		}
+
+		@Override
+		public Object visitDoIfStmt(DoIfStmt stmt, Object arg) {
+			int base = begin();
+			push(add(stmt.thenStmt));
+			push(add(stmt.condition));
+			push(add(stmt.elseStmt));
+			end(doIfStmtNode, stmt, base);
+			return null;
+		}
+
+		@Override
+		public Object visitBreakStmt(BreakStmt stmt, Object arg) {
+			end(breakStmtNode, stmt, begin());
+			return null;
+		}
+
+		@Override
+		public Object visitReturnStmt(ReturnStmt stmt, Object arg) {
+			int base = begin();
+			push(add(stmt.returnExpr));
+			end(returnStmtNode, stmt, base);
+			return null;
+		}
+
+		@Override
+		public Object visitUnaryExpr(UnaryExpr expr, Object arg) {
+			int base = begin();
+			push(add(expr.operator));
+			push(add(expr.expr));
+			end(unaryExprNode, expr, base);
+			return null;
+		}
+
+		@Override
+		public Object visitBinaryExpr(BinaryExpr expr, Object arg) {
+			int base = begin();
+			push(add(expr.leftExpr));
+			push(add(expr.operator));
+			push(add(expr.rightExpr));
+			end(binaryExprNode, expr, base);
+			return null;
+		}
+
+		@Override
+		public Object visitRefExpr(RefExpr expr, Object arg) {
+			int base = begin();
+			push(add(expr.ref));
+			end(refExprNode, expr, base);
+			return null;
+		}
+
+		@Override
+		public Object visitCallExpr(CallExpr expr, Object arg) {
+			int base = begin();
+			push(add(expr.functionRef));
+			for (int i = 0; i < expr.argList.size(); i++)
+				push(add(expr.argList.get(i)));
+			end(callExprNode, expr, base);
+			return null;
+		}
+
+		@Override
+		public Object visitLiteralExpr(LiteralExpr expr, Object arg) {
+			int base = begin();
+			push(add(expr.literal));
+			end(literalExprNode, expr, base);
+			return null;
+		}
+
+		@Override
+		public Object visitIfExpr(IfExpr expr, Object arg) {
+			int base = begin();
+			push(add(expr.thenExpr));
+			push(add(expr.condition));
+			push(add(expr.elseExpr));
+			end(ifExprNode, expr, base);
+			return null;
+		}
+
+		@Override
+		public Object visitIndexedRef(IndexedRef ref, Object arg) {
+			int base = begin();
+			push(add(ref.ref));
+			push(add(ref.indexExpr));
+			end(indexedRefNode, ref, base);
+			return null;
+		}
+
+		@Override
+		public Object visitIdRef(IdRef ref, Object arg) {
+			int base = begin();
+			push(add(ref.id));
+			end(idRefNode, ref, base);
+			return null;
+		}
+
+		@Override
+		public Object visitIdentifier(Identifier id, Object arg) {
+			leaf(identifierNode, id, id.nameId);
+			return null;
+		}
+
+		@Override
+		public Object visitOperator(Operator op, Object arg) {
+			int base = begin();
+			push(op.token.kind.ordinal());
+			push(string(op.spelling));
+			end(operatorNode, op, base);
+			return null;
+		}
+
+		@Override
+		public Object visitIntLiteral(IntLiteral num, Object arg) {
+			leaf(intLiteralNode, num, string(num.spelling));
+			return null;
+		}
+
+		@Override
+		public Object visitBooleanLiteral(BooleanLiteral bool, Object arg) {
+			leaf(booleanLiteralNode, bool, string(bool.spelling));
+			return null;
+		}
+
+		@Override
+		public Object visitStringLiteral(StringLiteral str, Object arg) {
+			leaf(stringLiteralNode, str, string(str.spelling));
+			return null;
+		}
+	}
+}
@@ -7,8 +7,6 @@
 
 package easy.AbstractSyntaxTrees;
 
-import easy.SyntacticAnalyzer.Line;
-
 public class ForEachStmt extends Statement {
 	
 	/**
@@ -39,10 +37,10 @@ public class ForEachStmt extends Statement {
 	 * @param loopVar		the {@code Identifier} used as an iterator
 	 * @param collection	the values through which to iterate
 	 * @param body			the statement to execute in each iteration
-	 * @param line			the line number of the "for" keyword in source
+	 * @param position		the position of the "for" keyword in source
 	 */
-	public ForEachStmt(Identifier loopVar, Type loopVarType, Expression collection, Statement body, Line line) {
-		super(line);
+	public ForEachStmt(Identifier loopVar, Type loopVarType, Expression collection, Statement body, long position) {
+		super(position);
 		
 		this.loopVar 	 = loopVar;
 		this.loopVarType = loopVarType;
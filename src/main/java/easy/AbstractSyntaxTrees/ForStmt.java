@@ -7,8 +7,6 @@
 
 package easy.AbstractSyntaxTrees;
 
-import easy.SyntacticAnalyzer.Line;
-
 public class ForStmt extends Statement {
 
 	/**
@@ -52,7 +50,7 @@ public class ForStmt extends Statement {
 	 * @param toExpr	the end of the range, inclusive
 	 * @param byExpr	the increment (defaults to one if excluded from constructor)
 	 * @param body		the statements to execute
-	 * @param line		the line number of the for statement in source
+	 * @param position	the position of the for statement in source
 	 */
 	public ForStmt(Identifier loopVar, 
 				   Type loopVarType,
@@ -60,9 +58,9 @@ public class ForStmt extends Statement {
 				   Expression toExpr, 
 				   Expression byExpr,
 				   BlockStmt body, 
-				   Line line) {
+				   long position) {
 		
-		super(line);
+		super(position);
 		
 		this.loopVar  	 = loopVar;
 		this.loopVarType = loopVarType;
@@ -81,22 +79,22 @@ public class ForStmt extends Statement {
 	 * @param fromExpr	the beginning of the range
 	 * @param toExpr	the end of the range, inclusive
 	 * @param body		the statements to execute
-	 * @param line		the line number of the "for" keyword in source
+	 * @param position	the position of the "for" keyword in source
 	 */
 	public ForStmt(Identifier loopVar, 
 				   Type loopVarType,
 				   Expression fromExpr, 
 				   Expression toExpr, 
 				   BlockStmt body, 
-				   Line line) {
+				   long position) {
 		
-		super(line);
+		super(position);
 		
 		this.loopVar  	 = loopVar;
 		this.loopVarType = loopVarType;
 		this.fromExpr 	 = fromExpr;
 		this.toExpr   	 = toExpr;
-		this.byExpr   	 = new LiteralExpr(new IntLiteral("1", line), line);
+		this.byExpr   	 = new LiteralExpr(new IntLiteral("1", position), position);
 		this.body 	  	 = body;
 	}
 	
@@ -7,8 +7,6 @@
 
 package easy.AbstractSyntaxTrees;
 
-import easy.SyntacticAnalyzer.Line;
-
 public class FunctionDecl extends Declaration {
 	
 	/**
@@ -28,10 +26,26 @@ public class FunctionDecl extends Declaration {
 	 * @param returnType	the type returned by the function, not null
 	 * @param params		the list of formal parameters
 	 * @param block			the statements to execute in function call
-	 * @param line			the line number of the "function" keyword in source
+	 * @param position		the position of the "function" keyword in source
+	 */
+	public FunctionDecl(String name, Type returnType, ParameterDeclList params, BlockStmt block, long position) {
+		super(returnType, name, position);
+		
+		this.params = params;
+		this.block = block;
+	}
+	
+	/**
+	 * Construct a FunctionDecl whose name is the interned name with the given ID
+	 * 
+	 * @param nameId		the ID of the function name in the NameTable
+	 * @param returnType	the type returned by the function, not null
+	 * @param params		the list of formal parameters
+	 * @param block			the statements to execute in function call
+	 * @param position		the position of the "function" keyword in source
 	 */
-	public FunctionDecl(String name, Type returnType, ParameterDeclList params, BlockStmt block, Line line) {
-		super(returnType, name, line);
+	public FunctionDecl(int nameId, Type returnType, ParameterDeclList params, BlockStmt block, long position) {
+		super(returnType, nameId, position);
 		
 		this.params = params;
 		this.block = block;
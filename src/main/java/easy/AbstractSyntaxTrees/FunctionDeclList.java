@@ -7,68 +7,22 @@
 
 package easy.AbstractSyntaxTrees;
 
-import java.util.ArrayList;
-import java.util.Iterator;
+public class FunctionDeclList extends ASTList<FunctionDecl> {
 
-public class FunctionDeclList implements Iterable<FunctionDecl>{
-	
 	/**
-	 * ArrayList of {@link FunctionDecl}s
+	 * The empty list of {@code FunctionDecl}s, shared by every node that has none
 	 */
-	private ArrayList<FunctionDecl> functionDeclList;
+	public final static FunctionDeclList empty = new FunctionDeclList(new AST[0], 0, 0);
 
 	/**
-	 * Construct an empty list of {@code FunctionDecl}s
-	 */
-	public FunctionDeclList() {
-		functionDeclList = new ArrayList<FunctionDecl>();
-	}   
-
-	/**
-	 * Add an {@code FunctionDecl} to the list. 
+	 * Construct a list of the {@code FunctionDecl}s in a range of an array
 	 * 
-	 * @param fd	the FunctionDecl to add
+	 * @param nodes	the array holding the FunctionDecls
+	 * @param from	the index of the first FunctionDecl
+	 * @param to	the index just past the last FunctionDecl
+	 * @throws ArrayStoreException	if a node in the range is not a FunctionDecl
 	 */
-	public void add(FunctionDecl fd){
-		functionDeclList.add(fd);
-	}
-
-	/**
-     * Retrieve the i-th {@code FunctionDecl} from the list, 
-     * using zero-based indexing.
-     * 
-     * @param i	the index
-     * @return	the i-th FunctionDecl
-     */
-	public FunctionDecl get(int i){
-		return functionDeclList.get(i);
-	}
-
-	/**
-     * Retrieve the size of the list.
-     * 
-     * @return	the number of elements in the list
-     */
-	public int size() {
-		return functionDeclList.size();
-	}
-
-	/**
-     * Test whether the list is empty. Equivalent to testing
-     * whether size() == 0.
-     * 
-     * @return	true if the list has zero elements, false otherwise
-     */
-	public boolean isEmpty() {
-		return functionDeclList.isEmpty();
-	}
-
-	/**
-     * Retrieve an iterator for the list
-     * 
-     * @return an iterator for the list
-     */
-	public Iterator<FunctionDecl> iterator() {
-		return functionDeclList.iterator();
+	public FunctionDeclList(AST[] nodes, int from, int to) {
+		super(copy(nodes, from, to, new FunctionDecl[to - from]));
 	}
 }
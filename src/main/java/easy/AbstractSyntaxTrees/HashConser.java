@@ -0,0 +1,640 @@
+/**
+ * Hash-conses the expressions of an AST, so that structurally identical
+ * expression subtrees share a single node
+ * <p>
+ * Expressions, references and the terminals below them are canonicalized
+ * bottom-up: two nodes are identical when they are of the same class, have
+ * the same spelling and have identical children. The first occurrence of
+ * each distinct node becomes its canonical node, and is given the next
+ * node ID, so IDs are dense, start at 0 and never change for the life of
+ * the HashConser. Later passes can keep results per node ID in arrays.
+ * <p>
+ * An {@link Identifier} is bound in place to its declaration, and names
+ * of the same spelling may be bound to different declarations, so each
+ * occurrence of an Identifier or {@link IdRef} is a node of its own, with
+ * a node ID of its own, and so is every expression that contains one.
+ * Only expressions made of literals and operators are shared, and the
+ * type of each is the same wherever it occurs. A tree may therefore be
+ * consed at any point after it is parsed: before {@link
+ * easy.ContextualAnalyzer.Identification} and the {@link
+ * easy.ContextualAnalyzer.TypeChecker}, between them, or after them and
+ * before the optimizers, which rebuild the nodes they change rather than
+ * change them.
+ * <p>
+ * Every statement or declaration that contains a replaced expression is
+ * rebuilt; nodes whose children are all unchanged are kept as they are.
+ * A shared node has the position of its first occurrence only, and so a
+ * consed tree must not be given to a {@link PositionShifter}, which would
+ * move a shared node once per occurrence. Statements, declarations and
+ * types are never shared.
+ * <p>
+ * Implements Visitor<Object, AST>
+ *
+ * @author  Federico Menozzi
+ * @version Easy Compiler v1
+ */
+
+package easy.AbstractSyntaxTrees;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+
+public class HashConser implements Visitor<Object, AST> {
+
+	/**
+	 * Node ID of the canonical node of each structure seen so far
+	 */
+	private final HashMap<Key, Integer> canonical = new HashMap<Key, Integer>();
+
+	/**
+	 * Canonical nodes, indexed by node ID
+	 */
+	private final ArrayList<AST> nodes = new ArrayList<AST>();
+
+	/**
+	 * Node ID of each canonical node
+	 */
+	private final IdentityHashMap<AST, Integer> ids = new IdentityHashMap<AST, Integer>();
+
+	/**
+	 * Number of expression nodes visited, shared or not
+	 */
+	private int occurrences;
+
+	/**
+	 * Node ID of the node returned by the last visit of an expression node
+	 */
+	private int lastId;
+
+	/**
+	 * Hash-cons a tree. Expressions that are identical to ones consed
+	 * before, in this tree or in an earlier one, are replaced by the
+	 * earlier node.
+	 *
+	 * @param ast	the root node of the tree
+	 * @return		the root node of the consed tree, which is ast itself
+	 * 				if no expression in it was replaced
+	 */
+	public AST cons(AST ast) {
+		return ast.visit(this, null);
+	}
+
+	/**
+	 * Get the node ID of a canonical node
+	 *
+	 * @param ast	the node
+	 * @return		its node ID, or -1 if it is not a canonical node
+	 */
+	public int id(AST ast) {
+		Integer id = ids.get(ast);
+		return id == null ? -1 : id;
+	}
+
+	/**
+	 * Get the canonical node with the given node ID
+	 *
+	 * @param id	the node ID
+	 * @return		the canonical node
+	 */
+	public AST node(int id) {
+		return nodes.get(id);
+	}
+
+	/**
+	 * Get the number of distinct expression nodes, which is one more
+	 * than the greatest node ID
+	 *
+	 * @return	the number of canonical nodes
+	 */
+	public int size() {
+		return nodes.size();
+	}
+
+	/**
+	 * Get the number of expression nodes consed, counting each
+	 * occurrence of a shared node
+	 *
+	 * @return	the number of expression nodes visited
+	 */
+	public int occurrences() {
+		return occurrences;
+	}
+
+	/**
+	 * Find the canonical node for a structure
+	 *
+	 * @param key	the structure of the node
+	 * @return		the canonical node, or null if the structure is new
+	 */
+	private AST find(Key key) {
+		occurrences++;
+
+		Integer id = canonical.get(key);
+		if (id == null)
+			return null;
+
+		lastId = id;
+		return nodes.get(id);
+	}
+
+	/**
+	 * Give a node that is never shared a node ID of its own
+	 *
+	 * @param node	the node, whose children are all canonical
+	 * @return		the node
+	 */
+	private AST unique(AST node) {
+		occurrences++;
+
+		lastId = nodes.size();
+		ids.put(node, lastId);
+		nodes.add(node);
+
+		return node;
+	}
+
+	/**
+	 * Make a node the canonical node for a new structure
+	 *
+	 * @param key	the structure of the node
+	 * @param node	the node, whose children are all canonical
+	 * @return		the node
+	 */
+	private AST add(Key key, AST node) {
+		lastId = nodes.size();
+		canonical.put(key, lastId);
+		ids.put(node, lastId);
+		nodes.add(node);
+
+		return node;
+	}
+
+	/**
+	 * Cons a list of expressions
+	 *
+	 * @param list		the list
+	 * @param children	receives the node ID of each element
+	 * @param from		the index in children of the node ID of the first element
+	 * @return			the list of canonical elements, which is list itself
+	 * 					if every element is already canonical
+	 */
+	private ExprList expressions(ExprList list, int[] children, int from) {
+		AST[] elements = null;
+		for (int i = 0; i < list.size(); i++) {
+			AST element = list.get(i).visit(this, null);
+			children[from + i] = lastId;
+			if (element != list.get(i) && elements == null) {
+				elements = new AST[list.size()];
+				for (int j = 0; j < i; j++)
+					elements[j] = list.get(j);
+			}
+			if (elements != null)
+				elements[i] = element;
+		}
+		return elements == null ? list : new ExprList(elements, 0, elements.length);
+	}
+
+	/**
+	 * Cons the expressions of a list of statements
+	 *
+	 * @param list	the list
+	 * @return		the list of rebuilt statements, which is list itself
+	 * 				if no statement changed
+	 */
+	private StatementList statements(StatementList list) {
+		AST[] elements = null;
+		for (int i = 0; i < list.size(); i++) {
+			AST element = list.get(i).visit(this, null);
+			if (element != list.get(i) && elements == null) {
+				elements = new AST[list.size()];
+				for (int j = 0; j < i; j++)
+					elements[j] = list.get(j);
+			}
+			if (elements != null)
+				elements[i] = element;
+		}
+		return elements == null ? list : new StatementList(elements, 0, elements.length);
+	}
+
+	/**
+	 * Keep the end position of a rebuilt node
+	 *
+	 * @param rebuilt	the rebuilt node
+	 * @param original	the node as parsed
+	 * @return			the rebuilt node
+	 */
+	private static <T extends AST> T rebuilt(T rebuilt, AST original) {
+		rebuilt.endPosition = original.endPosition;
+		return rebuilt;
+	}
+
+	@Override
+	public AST visitProgram(Program prog, Object arg) {
+		AST[] functions = null;
+		for (int i = 0; i < prog.functionDeclList.size(); i++) {
+			AST decl = prog.functionDeclList.get(i).visit(this, arg);
+			if (decl != prog.functionDeclList.get(i) && functions == null) {
+				functions = new AST[prog.functionDeclList.size()];
+				for (int j = 0; j < i; j++)
+					functions[j] = prog.functionDeclList.get(j);
+			}
+			if (functions != null)
+				functions[i] = decl;
+		}
+		BlockStmt mainBlock = (BlockStmt) prog.mainBlock.visit(this, arg);
+
+		if (functions == null && mainBlock == prog.mainBlock)
+			return prog;
+
+		FunctionDeclList functionDeclList = functions == null ? prog.functionDeclList
+															  : new FunctionDeclList(functions, 0, functions.length);
+		return rebuilt(new Program(mainBlock, functionDeclList, prog.position), prog);
+	}
+
+	@Override
+	public AST visitFunctionDecl(FunctionDecl fd, Object arg) {
+		BlockStmt block = (BlockStmt) fd.block.visit(this, arg);
+		if (block == fd.block)
+			return fd;
+
+		return rebuilt(new FunctionDecl(fd.nameId, fd.type, fd.params, block, fd.position), fd);
+	}
+
+	@Override
+	public AST visitParameterDecl(ParameterDecl pd, Object arg) {
+		return pd;
+	}
+
+	@Override
+	public AST visitVarDecl(VarDecl decl, Object arg) {
+		return decl;
+	}
+
+	@Override
+	public AST visitBaseType(BaseType type, Object arg) {
+		return type;
+	}
+
+	@Override
+	public AST visitBlockStmt(BlockStmt stmt, Object arg) {
+		StatementList statementList = statements(stmt.statementList);
+		if (statementList == stmt.statementList)
+			return stmt;
+
+		return rebuilt(new BlockStmt(statementList, stmt.position), stmt);
+	}
+
+	@Override
+	public AST visitVardeclStmt(VarDeclStmt stmt, Object arg) {
+		Expression initExpr = (Expression) stmt.initExpr.visit(this, arg);
+		if (initExpr == stmt.initExpr)
+			return stmt;
+
+		return rebuilt(new VarDeclStmt(stmt.varDecl, initExpr, stmt.position), stmt);
+	}
+
+	@Override
+	public AST visitAssignStmt(AssignStmt stmt, Object arg) {
+		Reference ref	= (Reference) stmt.ref.visit(this, arg);
+		Expression val	= (Expression) stmt.val.visit(this, arg);
+		if (ref == stmt.ref && val == stmt.val)
+			return stmt;
+
+		return rebuilt(new AssignStmt(ref, val, stmt.position), stmt);
+	}
+
+	@Override
+	public AST visitCallStmt(CallStmt stmt, Object arg) {
+		Reference functionRef = (Reference) stmt.functionRef.visit(this, arg);
+		ExprList argList	  = expressions(stmt.argList, new int[stmt.argList.size()], 0);
+		if (functionRef == stmt.functionRef && argList == stmt.argList)
+			return stmt;
+
+		return rebuilt(new CallStmt(functionRef, argList, stmt.position), stmt);
+	}
+
+	@Override
+	public AST visitIfStmt(IfStmt stmt, Object arg) {
+		Expression condition = (Expression) stmt.condition.visit(this, arg);
+		Statement body		 = (Statement) stmt.body.visit(this, arg);
+
+		AST[] elseIfs = null;
+		for (int i = 0; i < stmt.elseIfStmts.size(); i++) {
+			AST elseIf = stmt.elseIfStmts.get(i).visit(this, arg);
+			if (elseIf != stmt.elseIfStmts.get(i) && elseIfs == null) {
+				elseIfs = new AST[stmt.elseIfStmts.size()];
+				for (int j = 0; j < i; j++)
+					elseIfs[j] = stmt.elseIfStmts.get(j);
+			}
+			if (elseIfs != null)
+				elseIfs[i] = elseIf;
+		}
+
+		ElseStmt elseStmt = stmt.elseStmt == null ? null : (ElseStmt) stmt.elseStmt.visit(this, arg);
+
+		if (condition == stmt.condition && body == stmt.body && elseIfs == null && elseStmt == stmt.elseStmt)
+			return stmt;
+
+		ElseIfStmtList elseIfStmts = elseIfs == null ? stmt.elseIfStmts
+													 : new ElseIfStmtList(elseIfs, 0, elseIfs.length);
+		return rebuilt(new IfStmt(condition, body, elseIfStmts, elseStmt, stmt.position), stmt);
+	}
+
+	@Override
+	public AST visitElseIfStmt(ElseIfStmt stmt, Object arg) {
+		Expression condition = (Expression) stmt.condition.visit(this, arg);
+		Statement body		 = (Statement) stmt.body.visit(this, arg);
+		if (condition == stmt.condition && body == stmt.body)
+			return stmt;
+
+		return rebuilt(new ElseIfStmt(condition, body, stmt.position), stmt);
+	}
+
+	@Override
+	public AST visitElseStmt(ElseStmt stmt, Object arg) {
+		Statement body = (Statement) stmt.body.visit(this, arg);
+		if (body == stmt.body)
+			return stmt;
+
+		return rebuilt(new ElseStmt(body, stmt.position), stmt);
+	}
+
+	@Override
+	public AST visitWhileStmt(WhileStmt stmt, Object arg) {
+		Expression condition = (Expression) stmt.condition.visit(this, arg);
+		Statement body		 = (Statement) stmt.body.visit(this, arg);
+		if (condition == stmt.condition && body == stmt.body)
+			return stmt;
+
+		return rebuilt(new WhileStmt(condition, body, stmt.position), stmt);
+	}
+
+	@Override
+	public AST visitForStmt(ForStmt stmt, Object arg) {
+		Expression fromExpr = (Expression) stmt.fromExpr.visit(this, arg);
+		Expression toExpr	= (Expression) stmt.toExpr.visit(this, arg);
+		Expression byExpr	= (Expression) stmt.byExpr.visit(this, arg);
+		BlockStmt body		= (BlockStmt) stmt.body.visit(this, arg);
+		if (fromExpr == stmt.fromExpr && toExpr == stmt.toExpr && byExpr == stmt.byExpr && body == stmt.body)
+			return stmt;
+
+		return rebuilt(new ForStmt(stmt.loopVar, stmt.loopVarType, fromExpr, toExpr, byExpr, body, stmt.position), stmt);
+	}
+
+	@Override
+	public AST visitForEachStmt(ForEachStmt stmt, Object arg) {
+		Expression collection = (Expression) stmt.collection.visit(this, arg);
+		Statement body		  = (Statement) stmt.body.visit(this, arg);
+		if (collection == stmt.collection && body == stmt.body)
+			return stmt;
+
+		return rebuilt(new ForEachStmt(stmt.loopVar, stmt.loopVarType, collection, body, stmt.position), stmt);
+	}
+
+	@Override
+	public AST visitInfiniteLoopStmt(InfiniteLoopStmt stmt, Object arg) {
+		Statement body = (Statement) stmt.body.visit(this, arg);
+		if (body == stmt.body)
+			return stmt;
+
+		return rebuilt(new InfiniteLoopStmt(body, stmt.position), stmt);
+	}
+
+	@Override
+	public AST visitUntilStmt(UntilStmt stmt, Object arg) {
+		Expression condition = (Expression) stmt.condition.visit(this, arg);
+		Statement body		 = (Statement) stmt.body.visit(this, arg);
+		if (condition == stmt.condition && body == stmt.body)
+			return stmt;
+
+		return rebuilt(new UntilStmt(condition, body, stmt.position), stmt);
+	}
+
+	@Override
+	public AST visitDoIfStmt(DoIfStmt stmt, Object arg) {
+		Statement thenStmt	 = (Statement) stmt.thenStmt.visit(this, arg);
+		Expression condition = (Expression) stmt.condition.visit(this, arg);
+		Statement elseStmt	 = (Statement) stmt.elseStmt.visit(this, arg);
+		if (thenStmt == stmt.thenStmt && condition == stmt.condition && elseStmt == stmt.elseStmt)
+			return stmt;
+
+		return rebuilt(new DoIfStmt(thenStmt, condition, elseStmt, stmt.position), stmt);
+	}
+
+	@Override
+	public AST visitBreakStmt(BreakStmt stmt, Object arg) {
+		return stmt;
+	}
+
+	@Override
+	public AST visitReturnStmt(ReturnStmt stmt, Object arg) {
+		if (stmt.returnExpr == null)
+			return stmt;
+
+		Expression returnExpr = (Expression) stmt.returnExpr.visit(this, arg);
+		if (returnExpr == stmt.returnExpr)
+			return stmt;
+
+		return rebuilt(new ReturnStmt(returnExpr, stmt.position), stmt);
+	}
+
+	@Override
+	public AST visitUnaryExpr(UnaryExpr expr, Object arg) {
+		Operator operator  = (Operator) expr.operator.visit(this, arg);
+		int operatorId	   = lastId;
+		Expression operand = (Expression) expr.expr.visit(this, arg);
+		int operandId	   = lastId;
+
+		Key key = new Key(expr, null, operatorId, operandId);
+		AST node = find(key);
+		if (node != null)
+			return node;
+		else if (operator == expr.operator && operand == expr.expr)
+			return add(key, expr);
+		else
+			return add(key, rebuilt(new UnaryExpr(operator, operand, expr.position), expr));
+	}
+
+	@Override
+	public AST visitBinaryExpr(BinaryExpr expr, Object arg) {
+		Expression left	  = (Expression) expr.leftExpr.visit(this, arg);
+		int leftId		  = lastId;
+		Operator operator = (Operator) expr.operator.visit(this, arg);
+		int operatorId	  = lastId;
+		Expression right  = (Expression) expr.rightExpr.visit(this, arg);
+		int rightId		  = lastId;
+
+		Key key = new Key(expr, null, leftId, operatorId, rightId);
+		AST node = find(key);
+		if (node != null)
+			return node;
+		else if (left == expr.leftExpr && operator == expr.operator && right == expr.rightExpr)
+			return add(key, expr);
+		else
+			return add(key, rebuilt(new BinaryExpr(left, operator, right, expr.position), expr));
+	}
+
+	@Override
+	public AST visitRefExpr(RefExpr expr, Object arg) {
+		Reference ref = (Reference) expr.ref.visit(this, arg);
+
+		Key key = new Key(expr, null, lastId);
+		AST node = find(key);
+		if (node != null)
+			return node;
+		else if (ref == expr.ref)
+			return add(key, expr);
+		else
+			return add(key, rebuilt(new RefExpr(ref, expr.position), expr));
+	}
+
+	@Override
+	public AST visitCallExpr(CallExpr expr, Object arg) {
+		Reference functionRef = (Reference) expr.functionRef.visit(this, arg);
+		int functionId		  = lastId;
+
+		int[] children	 = new int[expr.argList.size() + 1];
+		ExprList argList = expressions(expr.argList, children, 1);
+		children[0]		 = functionId;
+
+		Key key = new Key(expr, null, children);
+		AST node = find(key);
+		if (node != null)
+			return node;
+		else if (functionRef == expr.functionRef && argList == expr.argList)
+			return add(key, expr);
+		else
+			return add(key, rebuilt(new CallExpr(functionRef, argList, expr.position), expr));
+	}
+
+	@Override
+	public AST visitLiteralExpr(LiteralExpr expr, Object arg) {
+		Literal literal = (Literal) expr.literal.visit(this, arg);
+
+		Key key = new Key(expr, null, lastId);
+		AST node = find(key);
+		if (node != null)
+			return node;
+		else if (literal == expr.literal)
+			return add(key, expr);
+		else
+			return add(key, rebuilt(new LiteralExpr(literal, expr.position), expr));
+	}
+
+	@Override
+	public AST visitIfExpr(IfExpr expr, Object arg) {
+		Expression thenExpr	 = (Expression) expr.thenExpr.visit(this, arg);
+		int thenId			 = lastId;
+		Expression condition = (Expression) expr.condition.visit(this, arg);
+		int conditionId		 = lastId;
+		Expression elseExpr	 = (Expression) expr.elseExpr.visit(this, arg);
+		int elseId			 = lastId;
+
+		Key key = new Key(expr, null, thenId, conditionId, elseId);
+		AST node = find(key);
+		if (node != null)
+			return node;
+		else if (thenExpr == expr.thenExpr && condition == expr.condition && elseExpr == expr.elseExpr)
+			return add(key, expr);
+		else
+			return add(key, rebuilt(new IfExpr(thenExpr, condition, elseExpr, expr.position), expr));
+	}
+
+	@Override
+	public AST visitIndexedRef(IndexedRef ref, Object arg) {
+		Reference base	 = (Reference) ref.ref.visit(this, arg);
+		int baseId		 = lastId;
+		Expression index = (Expression) ref.indexExpr.visit(this, arg);
+		int indexId		 = lastId;
+
+		Key key = new Key(ref, null, baseId, indexId);
+		AST node = find(key);
+		if (node != null)
+			return node;
+		else if (base == ref.ref && index == ref.indexExpr)
+			return add(key, ref);
+		else
+			return add(key, rebuilt(new IndexedRef(base, index, ref.position), ref));
+	}
+
+	@Override
+	public AST visitIdRef(IdRef ref, Object arg) {
+		ref.id.visit(this, arg);
+		return unique(ref);
+	}
+
+	@Override
+	public AST visitIdentifier(Identifier id, Object arg) {
+		return unique(id);
+	}
+
+	@Override
+	public AST visitOperator(Operator op, Object arg) {
+		return terminal(new Key(op, op.spelling, op.token.kind.ordinal()), op);
+	}
+
+	@Override
+	public AST visitIntLiteral(IntLiteral num, Object arg) {
+		return terminal(new Key(num, num.spelling), num);
+	}
+
+	@Override
+	public AST visitBooleanLiteral(BooleanLiteral bool, Object arg) {
+		return terminal(new Key(bool, bool.spelling), bool);
+	}
+
+	@Override
+	public AST visitStringLiteral(StringLiteral str, Object arg) {
+		return terminal(new Key(str, str.spelling), str);
+	}
+
+	/**
+	 * Cons a terminal, which has no children to replace
+	 *
+	 * @param key		the structure of the terminal
+	 * @param terminal	the terminal
+	 * @return			the canonical node
+	 */
+	private AST terminal(Key key, Terminal terminal) {
+		AST node = find(key);
+		return node != null ? node : add(key, terminal);
+	}
+
+	/**
+	 * Structure of an expression node: its class, its spelling if it is
+	 * a terminal, and the node IDs of its children
+	 */
+	private static class Key {
+		private final Class<?> kind;
+		private final String spelling;
+		private final int[] children;
+		private final int hash;
+
+		Key(AST node, String spelling, int... children) {
+			this.kind	  = node.getClass();
+			this.spelling = spelling;
+			this.children = children;
+			this.hash	  = 31 * (31 * kind.hashCode() + (spelling == null ? 0 : spelling.hashCode()))
+						  + Arrays.hashCode(children);
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (! (o instanceof Key))
+				return false;
+
+			Key key = (Key) o;
+			return hash == key.hash
+				&& kind == key.kind
+				&& (spelling == null ? key.spelling == null : spelling.equals(key.spelling))
+				&& Arrays.equals(children, key.children);
+		}
+	}
+}
@@ -7,8 +7,6 @@
 
 package easy.AbstractSyntaxTrees;
 
-import easy.SyntacticAnalyzer.Line;
-
 public class IdRef extends Reference {
 	
 	/**
@@ -18,13 +16,13 @@ public class IdRef extends Reference {
 	
 	/**
 	 * Construct an IdRef with underlying {@code Identifier}
-	 * id at the given line in source.
+	 * id at the given position in source.
 	 * 
 	 * @param id	the underlying Identifier
-	 * @param line	the line number of the underlying Identifier in source
+	 * @param position	the position of the underlying Identifier in source
 	 */
-	public IdRef(Identifier id, Line line){
-		super(id.spelling, line);
+	public IdRef(Identifier id, long position){
+		super(id.spelling, position);
 		this.id = id;
 	}
 		
@@ -7,19 +7,41 @@
 
 package easy.AbstractSyntaxTrees;
 
-import easy.SyntacticAnalyzer.Line;
+import easy.SyntacticAnalyzer.NameTable;
 
 public class Identifier extends Terminal {
 	
+	/**
+	 * ID of the identifier's name in the {@link NameTable}
+	 */
+	public final int nameId;
+	
+	/**
+	 * {@link Declaration} the identifier refers to, set by identification
+	 */
+	public Declaration decl;
+	
 	/**
 	 * Construct an Identifier with String representation
-	 * s at the given line. 
+	 * s at the given position. 
 	 * 
 	 * @param s		the String representation of the Identifier (e.g. "foo")
-	 * @param line	the line number of the identifier in source
+	 * @param position	the position of the identifier in source
+	 */
+	public Identifier (String s, long position) {
+		this (NameTable.intern(s), position);
+	}
+	
+	/**
+	 * Construct an Identifier for the interned name with
+	 * the given ID at the given position.
+	 * 
+	 * @param nameId	the ID of the name in the NameTable
+	 * @param position	the position of the identifier in source
 	 */
-	public Identifier (String s, Line line) {
-		super (s, line);
+	public Identifier (int nameId, long position) {
+		super (NameTable.spelling(nameId), position);
+		this.nameId = nameId;
 	}
 
 	/**
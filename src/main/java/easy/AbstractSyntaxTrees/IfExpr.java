@@ -7,8 +7,6 @@
 
 package easy.AbstractSyntaxTrees;
 
-import easy.SyntacticAnalyzer.Line;
-
 public class IfExpr extends Expression {
 	
 	/**
@@ -29,8 +27,8 @@ public class IfExpr extends Expression {
 	 */
 	public final Expression elseExpr;
 	
-	public IfExpr(Expression thenExpr, Expression condition, Expression elseExpr, Line line) {
-		super(thenExpr.spelling+" if "+condition.spelling+" else "+elseExpr.spelling, line);
+	public IfExpr(Expression thenExpr, Expression condition, Expression elseExpr, long position) {
+		super(thenExpr.spelling+" if "+condition.spelling+" else "+elseExpr.spelling, position);
 		
 		this.thenExpr  = thenExpr;
 		this.condition = condition;
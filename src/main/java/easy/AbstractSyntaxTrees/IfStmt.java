@@ -7,10 +7,6 @@
 
 package easy.AbstractSyntaxTrees;
 
-import java.util.List;
-
-import easy.SyntacticAnalyzer.Line;
-
 public class IfStmt extends Statement {
 	
 	/**
@@ -25,9 +21,9 @@ public class IfStmt extends Statement {
 	public final Statement body;
 	
 	/**
-	 * List of {@link ElseIfStmt}s, can be null
+	 * List of {@link ElseIfStmt}s, empty if there are none
 	 */
-	public final List<ElseIfStmt> elseIfStmts;
+	public final ElseIfStmtList elseIfStmts;
 	
 	/**
 	 * {@link ElseStmt}, can be null
@@ -42,21 +38,21 @@ public class IfStmt extends Statement {
 	 * 
 	 * @param condition		the condition used to test whether to execute the body
 	 * @param body			the statement to execute if the condition is true
-	 * @param elseIfStmts	the optional ArrayList of list of {@code ElseIfStmt}s (i.e. can be null)
+	 * @param elseIfStmts	the list of {@code ElseIfStmt}s, which may be empty
 	 * @param elseStmt		the optional {@code ElseStmt} (i.e. can be null)
-	 * @param line			the line number of the "if" keyword in source
+	 * @param position		the position of the "if" keyword in source
 	 */
 	public IfStmt(Expression condition, 
 				  Statement body, 
-				  List<ElseIfStmt> elseIfStmts, 
+				  ElseIfStmtList elseIfStmts, 
 				  ElseStmt elseStmt, 
-				  Line line) {
+				  long position) {
 		
-		super(line);
+		super(position);
 		
 		this.condition 	 = condition;
 		this.body 		 = body;
-		this.elseIfStmts = elseIfStmts.isEmpty() ? null : elseIfStmts;
+		this.elseIfStmts = elseIfStmts;
 		this.elseStmt 	 = elseStmt;
 	}
 
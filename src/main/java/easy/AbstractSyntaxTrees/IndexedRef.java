@@ -7,8 +7,6 @@
 
 package easy.AbstractSyntaxTrees;
 
-import easy.SyntacticAnalyzer.Line;
-
 public class IndexedRef extends Reference {
 
 	/**
@@ -27,10 +25,10 @@ public class IndexedRef extends Reference {
 	 * 
 	 * @param ref		the underlying reference
 	 * @param indexExpr	the index expression
-	 * @param line		the line number of the reference in source
+	 * @param position	the position of the reference in source
 	 */
-	public IndexedRef(Reference ref, Expression indexExpr, Line line) {
-		super(ref.spelling+"["+indexExpr.spelling+"]", line);
+	public IndexedRef(Reference ref, Expression indexExpr, long position) {
+		super(ref.spelling+"["+indexExpr.spelling+"]", position);
 		
 		this.ref = ref;
 		this.indexExpr = indexExpr;
@@ -7,8 +7,6 @@
 
 package easy.AbstractSyntaxTrees;
 
-import easy.SyntacticAnalyzer.Line;
-
 public class InfiniteLoopStmt extends Statement {
 	
 	/**
@@ -16,8 +14,8 @@ public class InfiniteLoopStmt extends Statement {
 	 */
 	public final Statement body;
 	
-	public InfiniteLoopStmt(Statement body, Line line) {
-		super(line);
+	public InfiniteLoopStmt(Statement body, long position) {
+		super(position);
 		this.body = body;
 	}
 
@@ -7,19 +7,17 @@
 
 package easy.AbstractSyntaxTrees;
 
-import easy.SyntacticAnalyzer.Line;
-
 public class IntLiteral extends Literal {
 
 	/**
 	 * Construct an IntLiteral with the given spelling
-	 * at the given line. 
+	 * at the given position. 
 	 * 
 	 * @param spelling	the String representation of the literal (e.g. "1")
-	 * @param line		the line number of the literal in source
+	 * @param position	the position of the literal in source
 	 */
-	public IntLiteral(String spelling, Line line) {
-		super(spelling, line);
+	public IntLiteral(String spelling, long position) {
+		super(spelling, position);
 	}
 
 	/**
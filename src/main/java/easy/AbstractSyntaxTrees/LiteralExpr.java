@@ -7,8 +7,6 @@
 
 package easy.AbstractSyntaxTrees;
 
-import easy.SyntacticAnalyzer.Line;
-
 public class LiteralExpr extends Expression {
 
 	/**
@@ -20,10 +18,10 @@ public class LiteralExpr extends Expression {
 	 * Construct a LiteralExpr using the underlying {@link Literal} literal
 	 * 
 	 * @param literal	the underlying {@code Literal}
-	 * @param line		the line number of the literal in source
+	 * @param position	the position of the literal in source
 	 */
-	public LiteralExpr(Literal literal, Line line) {
-		super(literal.spelling, line);
+	public LiteralExpr(Literal literal, long position) {
+		super(literal.spelling, position);
 		this.literal = literal;
 	}
 	
@@ -7,8 +7,6 @@
 
 package easy.AbstractSyntaxTrees;
 
-import easy.SyntacticAnalyzer.Line;
-
 public abstract class LocalDecl extends Declaration {
 	
 	/**
@@ -17,9 +15,9 @@ public abstract class LocalDecl extends Declaration {
 	 * 
 	 * @param type	the type of the variable 
 	 * @param name	the name of the variable
-	 * @param line	the line number of the declaration in source
+	 * @param position	the position of the declaration in source
 	 */
-	public LocalDecl(Type type, String name, Line line){
-		super(type, name, line);
+	public LocalDecl(Type type, String name, long position){
+		super(type, name, position);
 	}
 }
@@ -8,7 +8,6 @@
 package easy.AbstractSyntaxTrees;
 
 import easy.SyntacticAnalyzer.Token;
-import easy.SyntacticAnalyzer.Line;
 
 public class Operator extends Terminal {
 	
@@ -21,10 +20,10 @@ public class Operator extends Terminal {
 	 * Construct an Operator from a Token
 	 * 
 	 * @param token	the underlying token
-	 * @param line	the line number of the token in source
+	 * @param position	the position of the token in source
 	 */
-	public Operator(Token token, Line line) {
-		super(token.spelling, line);
+	public Operator(Token token, long position) {
+		super(token.spelling, position);
 		this.token = token;
 	}
 
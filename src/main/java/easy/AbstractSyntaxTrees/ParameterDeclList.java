@@ -7,68 +7,22 @@
 
 package easy.AbstractSyntaxTrees;
 
-import java.util.ArrayList;
-import java.util.Iterator;
+public class ParameterDeclList extends ASTList<ParameterDecl> {
 
-public class ParameterDeclList implements Iterable<ParameterDecl> {
-	
 	/**
-	 * ArrayList of {@link ParameterDecl}s
+	 * The empty list of {@code ParameterDecl}s, shared by every node that has none
 	 */
-	private ArrayList<ParameterDecl> parameterDeclList;
-	
+	public final static ParameterDeclList empty = new ParameterDeclList(new AST[0], 0, 0);
+
 	/**
-	 * Construct an empty list of {@code ParameterDecl}s
+	 * Construct a list of the {@code ParameterDecl}s in a range of an array
+	 * 
+	 * @param nodes	the array holding the ParameterDecls
+	 * @param from	the index of the first ParameterDecl
+	 * @param to	the index just past the last ParameterDecl
+	 * @throws ArrayStoreException	if a node in the range is not a ParameterDecl
 	 */
-    public ParameterDeclList() {
-    	parameterDeclList = new ArrayList<ParameterDecl>();
-    }
-    
-    /**
-     * Add a {@code ParameterDecl} to the list
-     * 
-     * @param pd	the ParameterDecl to add
-     */
-    public void add(ParameterDecl pd){
-    	parameterDeclList.add(pd);
-    }
-    
-    /**
-     * Retrieve the i-th {@code ParameterDecl} from the list, 
-     * using zero-based indexing.
-     * 
-     * @param i	the index
-     * @return	the i-th {@code ParameterDecl}
-     */
-    public ParameterDecl get(int i){
-        return parameterDeclList.get(i);
-    }
-    
-    /**
-     * Retrieve the size of the list.
-     * 
-     * @return	the number of elements in the list
-     */
-    public int size() {
-        return parameterDeclList.size();
-    }
-    
-    /**
-     * Test whether the list is empty. Equivalent to testing
-     * whether size() == 0.
-     * 
-     * @return	true if the list has zero elements, false otherwise
-     */
-    public boolean isEmpty() {
-    	return parameterDeclList.isEmpty();
-    }
-    
-    /**
-     * Retrieve an iterator for the list
-     * 
-     * @return an iterator for the list
-     */
-    public Iterator<ParameterDecl> iterator() {
-    	return parameterDeclList.iterator();
-    }
+	public ParameterDeclList(AST[] nodes, int from, int to) {
+		super(copy(nodes, from, to, new ParameterDecl[to - from]));
+	}
 }
@@ -0,0 +1,348 @@
+/**
+ * Moves the positions of AST nodes that follow an edit of their source,
+ * so that a subtree parsed before the edit can be reused after it.
+ * <p>
+ * Positions on the line on which the edit ends are moved to the line
+ * and column at which that text now lies, and positions on later lines
+ * are moved by the number of lines the edit added or removed. Positions
+ * on earlier lines are left alone.
+ * <p>
+ * Implements Visitor<Object, Object>
+ *
+ * @author  Federico Menozzi
+ * @version Easy Compiler v1
+ */
+
+package easy.AbstractSyntaxTrees;
+
+import easy.SyntacticAnalyzer.SourcePosition;
+
+public class PositionShifter implements Visitor<Object, Object> {
+
+	/**
+	 * Line on which the edit ends, before the edit
+	 */
+	private final int fromLine;
+
+	/**
+	 * Line on which the text after the edit begins, after the edit
+	 */
+	private final int toLine;
+
+	/**
+	 * Change in column of the text after the edit on its first line
+	 */
+	private final int columnDelta;
+
+	/**
+	 * Construct a PositionShifter for an edit
+	 *
+	 * @param from	the position just past the edit, before the edit
+	 * @param to	the same position in the text, after the edit
+	 */
+	public PositionShifter(long from, long to) {
+		this.fromLine	 = SourcePosition.lineNumber(from);
+		this.toLine		 = SourcePosition.lineNumber(to);
+		this.columnDelta = SourcePosition.column(to) - SourcePosition.column(from);
+	}
+
+	/**
+	 * Move a position
+	 *
+	 * @param position	the position before the edit
+	 * @return			the position after the edit
+	 */
+	public long shift(long position) {
+		int line = SourcePosition.lineNumber(position);
+		if (line < fromLine)
+			return position;
+		else if (line == fromLine)
+			return SourcePosition.of(toLine, SourcePosition.column(position) + columnDelta);
+		else
+			return SourcePosition.of(line + toLine - fromLine, SourcePosition.column(position));
+	}
+
+	/**
+	 * Move the positions of every node of a subtree
+	 *
+	 * @param ast	the root node of the subtree
+	 */
+	public void shiftTree(AST ast) {
+		if (columnDelta != 0 || toLine != fromLine)
+			ast.visit(this, null);
+	}
+
+	/**
+	 * Move the positions of a single node
+	 *
+	 * @param ast	the node
+	 */
+	private void move(AST ast) {
+		ast.position	= shift(ast.position);
+		ast.endPosition = shift(ast.endPosition);
+	}
+
+	@Override
+	public Object visitProgram(Program prog, Object arg) {
+		move(prog);
+		for (int i = 0; i < prog.functionDeclList.size(); i++)
+			prog.functionDeclList.get(i).visit(this, arg);
+		prog.mainBlock.visit(this, arg);
+		return null;
+	}
+
+	@Override
+	public Object visitFunctionDecl(FunctionDecl fd, Object arg) {
+		move(fd);
+		fd.type.visit(this, arg);
+		for (int i = 0; i < fd.params.size(); i++)
+			fd.params.get(i).visit(this, arg);
+		fd.block.visit(this, arg);
+		return null;
+	}
+
+	@Override
+	public Object visitParameterDecl(ParameterDecl pd, Object arg) {
+		move(pd);
+		pd.type.visit(this, arg);
+		return null;
+	}
+
+	@Override
+	public Object visitVarDecl(VarDecl decl, Object arg) {
+		move(decl);
+		decl.type.visit(this, arg);
+		return null;
+	}
+
+	@Override
+	public Object visitBaseType(BaseType type, Object arg) {
+		move(type);
+		return null;
+	}
+
+	@Override
+	public Object visitBlockStmt(BlockStmt stmt, Object arg) {
+		move(stmt);
+		for (int i = 0; i < stmt.statementList.size(); i++)
+			stmt.statementList.get(i).visit(this, arg);
+		return null;
+	}
+
+	@Override
+	public Object visitVardeclStmt(VarDeclStmt stmt, Object arg) {
+		move(stmt);
+		stmt.varDecl.visit(this, arg);
+		stmt.initExpr.visit(this, arg);
+		return null;
+	}
+
+	@Override
+	public Object visitAssignStmt(AssignStmt stmt, Object arg) {
+		move(stmt);
+		stmt.ref.visit(this, arg);
+		stmt.val.visit(this, arg);
+		return null;
+	}
+
+	@Override
+	public Object visitCallStmt(CallStmt stmt, Object arg) {
+		move(stmt);
+		stmt.functionRef.visit(this, arg);
+		for (int i = 0; i < stmt.argList.size(); i++)
+			stmt.argList.get(i).visit(this, arg);
+		return null;
+	}
+
+	@Override
+	public Object visitIfStmt(IfStmt stmt, Object arg) {
+		move(stmt);
+		stmt.condition.visit(this, arg);
+		stmt.body.visit(this, arg);
+
+		for (int i = 0; i < stmt.elseIfStmts.size(); i++)
+			stmt.elseIfStmts.get(i).visit(this, arg);
+
+		if (stmt.elseStmt != null)
+			stmt.elseStmt.visit(this, arg);
+
+		return null;
+	}
+
+	@Override
+	public Object visitElseIfStmt(ElseIfStmt stmt, Object arg) {
+		move(stmt);
+		stmt.condition.visit(this, arg);
+		stmt.body.visit(this, arg);
+		return null;
+	}
+
+	@Override
+	public Object visitElseStmt(ElseStmt stmt, Object arg) {
+		move(stmt);
+		stmt.body.visit(this, arg);
+		return null;
+	}
+
+	@Override
+	public Object visitWhileStmt(WhileStmt stmt, Object arg) {
+		move(stmt);
+		stmt.condition.visit(this, arg);
+		stmt.body.visit(this, arg);
+		return null;
+	}
+
+	@Override
+	public Object visitForStmt(ForStmt stmt, Object arg) {
+		move(stmt);
+		stmt.loopVar.visit(this, arg);
+		stmt.loopVarType.visit(this, arg);
+		stmt.fromExpr.visit(this, arg);
+		stmt.toExpr.visit(this, arg);
+		stmt.byExpr.visit(this, arg);
+		stmt.body.visit(this, arg);
+		return null;
+	}
+
+	@Override
+	public Object visitForEachStmt(ForEachStmt stmt, Object arg) {
+		move(stmt);
+		stmt.loopVar.visit(this, arg);
+		stmt.loopVarType.visit(this, arg);
+		stmt.collection.visit(this, arg);
+		stmt.body.visit(this, arg);
+		return null;
+	}
+
+	@Override
+	public Object visitInfiniteLoopStmt(InfiniteLoopStmt stmt, Object arg) {
+		move(stmt);
+		stmt.body.visit(this, arg);
+		return null;
+	}
+
+	@Override
+	public Object visitUntilStmt(UntilStmt stmt, Object arg) {
+		move(stmt);
+		stmt.condition.visit(this, arg);
+		stmt.body.visit(this, arg);
+		return null;
+	}
+
+	@Override
+	public Object visitDoIfStmt(DoIfStmt stmt, Object arg) {
+		move(stmt);
+		stmt.thenStmt.visit(this, arg);
+		stmt.condition.visit(this, arg);
+		stmt.elseStmt.visit(this, arg);
+		return null;
+	}
+
+	@Override
+	public Object visitBreakStmt(BreakStmt stmt, Object arg) {
+		move(stmt);
+		return null;
+	}
+
+	@Override
+	public Object visitReturnStmt(ReturnStmt stmt, Object arg) {
+		move(stmt);
+		if (stmt.returnExpr != null)
+			stmt.returnExpr.visit(this, arg);
+		return null;
+	}
+
+	@Override
+	public Object visitUnaryExpr(UnaryExpr expr, Object arg) {
+		move(expr);
+		expr.operator.visit(this, arg);
+		expr.expr.visit(this, arg);
+		return null;
+	}
+
+	@Override
+	public Object visitBinaryExpr(BinaryExpr expr, Object arg) {
+		move(expr);
+		expr.leftExpr.visit(this, arg);
+		expr.operator.visit(this, arg);
+		expr.rightExpr.visit(this, arg);
+		return null;
+	}
+
+	@Override
+	public Object visitRefExpr(RefExpr expr, Object arg) {
+		move(expr);
+		expr.ref.visit(this, arg);
+		return null;
+	}
+
+	@Override
+	public Object visitCallExpr(CallExpr expr, Object arg) {
+		move(expr);
+		expr.functionRef.visit(this, arg);
+		for (int i = 0; i < expr.argList.size(); i++)
+			expr.argList.get(i).visit(this, arg);
+		return null;
+	}
+
+	@Override
+	public Object visitLiteralExpr(LiteralExpr expr, Object arg) {
+		move(expr);
+		expr.literal.visit(this, arg);
+		return null;
+	}
+
+	@Override
+	public Object visitIfExpr(IfExpr expr, Object arg) {
+		move(expr);
+		expr.thenExpr.visit(this, arg);
+		expr.condition.visit(this, arg);
+		expr.elseExpr.visit(this, arg);
+		return null;
+	}
+
+	@Override
+	public Object visitIndexedRef(IndexedRef ref, Object arg) {
+		move(ref);
+		ref.ref.visit(this, arg);
+		ref.indexExpr.visit(this, arg);
+		return null;
+	}
+
+	@Override
+	public Object visitIdRef(IdRef ref, Object arg) {
+		move(ref);
+		ref.id.visit(this, arg);
+		return null;
+	}
+
+	@Override
+	public Object visitIdentifier(Identifier id, Object arg) {
+		move(id);
+		return null;
+	}
+
+	@Override
+	public Object visitOperator(Operator op, Object arg) {
+		move(op);
+		return null;
+	}
+
+	@Override
+	public Object visitIntLiteral(IntLiteral num, Object arg) {
+		move(num);
+		return null;
+	}
+
+	@Override
+	public Object visitBooleanLiteral(BooleanLiteral bool, Object arg) {
+		move(bool);
+		return null;
+	}
+
+	@Override
+	public Object visitStringLiteral(StringLiteral str, Object arg) {
+		move(str);
+		return null;
+	}
+}
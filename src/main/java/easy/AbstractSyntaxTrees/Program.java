@@ -7,8 +7,6 @@
 
 package easy.AbstractSyntaxTrees;
 
-import easy.SyntacticAnalyzer.Line;
-
 public class Program extends AST {
 	
 	/**
@@ -27,13 +25,13 @@ public class Program extends AST {
 	 * @param mainBlock			the statements executed when the program is run
 	 * @param functionDeclList	the list of function declarations
 	 * @param structDeclList	the list of struct declarations
-	 * @param line				the line number of the "main" keyword in source
+	 * @param position			the position of the "main" keyword in source
 	 */
 	public Program(BlockStmt mainBlock, 
 				   FunctionDeclList functionDeclList, 
-				   Line line) {
+				   long position) {
 		
-		super(line);
+		super(position);
 		
 		this.mainBlock = mainBlock;
 		this.functionDeclList = functionDeclList;
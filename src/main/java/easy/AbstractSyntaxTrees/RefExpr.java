@@ -7,8 +7,6 @@
 
 package easy.AbstractSyntaxTrees;
 
-import easy.SyntacticAnalyzer.Line;
-
 public class RefExpr extends Expression {
 
 	/**
@@ -20,10 +18,10 @@ public class RefExpr extends Expression {
 	 * Construct a RefExpr with underlying Reference ref
 	 * 
 	 * @param ref	the underlying reference
-	 * @param line	the line number of the reference in source
+	 * @param position	the position of the reference in source
 	 */
-	public RefExpr(Reference ref, Line line) {
-		super(ref.spelling, line);
+	public RefExpr(Reference ref, long position) {
+		super(ref.spelling, position);
 		this.ref = ref;
 	}
 	
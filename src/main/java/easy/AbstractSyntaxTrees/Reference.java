@@ -7,8 +7,6 @@
 
 package easy.AbstractSyntaxTrees;
 
-import easy.SyntacticAnalyzer.Line;
-
 public abstract class Reference extends AST {
 	/**
 	 * String representation of reference (e.g. "nums[3].toString")
@@ -16,14 +14,14 @@ public abstract class Reference extends AST {
 	public final String spelling;
 	
 	/**
-	 * Construct a Reference with given spelling at given line
-	 * number in source.
+	 * Construct a Reference with given spelling at given
+	 * position in source.
 	 * 
 	 * @param spelling	the String representation of the reference (e.g. "nums[3].toString")
-	 * @param line		the line number of the reference in source
+	 * @param position	the position of the reference in source
 	 */
-	public Reference(String spelling, Line line) {
-		super(line);
+	public Reference(String spelling, long position) {
+		super(position);
 		this.spelling = spelling;
 	}
 }
\ No newline at end of file
@@ -7,8 +7,6 @@
 
 package easy.AbstractSyntaxTrees;
 
-import easy.SyntacticAnalyzer.Line;
-
 public class ReturnStmt extends Statement {
 	
 	/**
@@ -22,10 +20,10 @@ public class ReturnStmt extends Statement {
 	 * void function or method.
 	 * 
 	 * @param returnExpr	the Expression to return (may be null)
-	 * @param line			the line number of the "return" keyword in source
+	 * @param position		the position of the "return" keyword in source
 	 */
-	public ReturnStmt(Expression returnExpr, Line line) {
-		super(line);
+	public ReturnStmt(Expression returnExpr, long position) {
+		super(position);
 		this.returnExpr = returnExpr;
 	}
 	
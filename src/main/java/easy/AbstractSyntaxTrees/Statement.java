@@ -7,16 +7,14 @@
 
 package easy.AbstractSyntaxTrees;
 
-import easy.SyntacticAnalyzer.Line;
-
 public abstract class Statement extends AST {
 
 	/**
 	 * Construct a Statement
 	 * 
-	 * @param line	the line number of the Statement in source
+	 * @param position	the position of the Statement in source
 	 */
-	public Statement(Line line) {
-		super(line);
+	public Statement(long position) {
+		super(position);
 	}
 }
\ No newline at end of file
@@ -7,68 +7,22 @@
 
 package easy.AbstractSyntaxTrees;
 
-import java.util.ArrayList;
-import java.util.Iterator;
-
-public class StatementList implements Iterable<Statement> {
-
-	/**
-	 * ArrayList of {@link Statement}s
-	 */
-	private ArrayList<Statement> statementList;
+public class StatementList extends ASTList<Statement> {
 
 	/**
-	 * Construct an empty list of {@code Statement}s
+	 * The empty list of {@code Statement}s, shared by every node that has none
 	 */
-	public StatementList() {
-		statementList = new ArrayList<Statement>();
-	}
+	public final static StatementList empty = new StatementList(new AST[0], 0, 0);
 
 	/**
-	 * Add an {@code Statement} to the list. 
+	 * Construct a list of the {@code Statement}s in a range of an array
 	 * 
-	 * @param e	the Statement to add
+	 * @param nodes	the array holding the Statements
+	 * @param from	the index of the first Statement
+	 * @param to	the index just past the last Statement
+	 * @throws ArrayStoreException	if a node in the range is not a Statement
 	 */
-	public void add(Statement s){
-		statementList.add(s);
-	}
-
-	/**
-     * Retrieve the i-th {@code Statement} from the list, 
-     * using zero-based indexing.
-     * 
-     * @param i	the index
-     * @return	the i-th Statement
-     */
-	public Statement get(int i){
-		return statementList.get(i);
-	}
-
-	/**
-     * Retrieve the size of the list.
-     * 
-     * @return	the number of elements in the list
-     */
-	public int size() {
-		return statementList.size();
-	}
-	
-	/**
-     * Test whether the list is empty. Equivalent to testing
-     * whether size() == 0.
-     * 
-     * @return	true if the list has zero elements, false otherwise
-     */
-	public boolean isEmpty() {
-		return statementList.isEmpty();
-	}
-
-	/**
-     * Retrieve an iterator for the list
-     * 
-     * @return an iterator for the list
-     */
-	public Iterator<Statement> iterator() {
-		return statementList.iterator();
+	public StatementList(AST[] nodes, int from, int to) {
+		super(copy(nodes, from, to, new Statement[to - from]));
 	}
-}
\ No newline at end of file
+}
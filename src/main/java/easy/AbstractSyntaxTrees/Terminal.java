@@ -7,8 +7,6 @@
 
 package easy.AbstractSyntaxTrees;
 
-import easy.SyntacticAnalyzer.Line;
-
 abstract public class Terminal extends AST {
 
 	/**
@@ -17,13 +15,13 @@ abstract public class Terminal extends AST {
 	public final String spelling;
 
 	/**
-	 * Construct a Terminal with given spelling and line number
+	 * Construct a Terminal with given spelling and position
 	 * 
 	 * @param spelling	the String representation of the Terminal
-	 * @param line		the line number of the Terminal in source
+	 * @param position	the position of the Terminal in source
 	 */
-	public Terminal(String spelling, Line line) {
-		super(line);
+	public Terminal(String spelling, long position) {
+		super(position);
 		this.spelling = spelling;
 	}
 }
\ No newline at end of file
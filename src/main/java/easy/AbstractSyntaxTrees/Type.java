@@ -7,8 +7,6 @@
 
 package easy.AbstractSyntaxTrees;
 
-import easy.SyntacticAnalyzer.Line;
-
 public abstract class Type extends AST {
 	
 	/**
@@ -25,10 +23,10 @@ public abstract class Type extends AST {
 	 * Construct a Type with the specified {@link TypeKind}
 	 * 
 	 * @param typeKind	an instance of an enumeration of possible types
-	 * @param line		the line number of the type in source
+	 * @param position	the position of the type in source
 	 */
-	public Type(TypeKind typeKind, Line line){
-        super(line);
+	public Type(TypeKind typeKind, long position){
+        super(position);
         this.typeKind = typeKind;
         this.spelling = "";
     }
@@ -11,5 +11,7 @@ public enum TypeKind {
 	VOID,
 	INT,
 	BOOLEAN,
+	STRING,
+	REAL,
 	ERROR;
 }
@@ -7,8 +7,6 @@
 
 package easy.AbstractSyntaxTrees;
 
-import easy.SyntacticAnalyzer.Line;
-
 public class UnaryExpr extends Expression {
 	
 	/**
@@ -28,10 +26,10 @@ public class UnaryExpr extends Expression {
 	 * 
 	 * @param operator	the unary operator  
 	 * @param expr		the expression
-	 * @param line		the line number of the expression in source
+	 * @param position	the position of the expression in source
 	 */
-	public UnaryExpr(Operator operator, Expression expr, Line line) {
-		super(operator.spelling + expr.spelling, line);
+	public UnaryExpr(Operator operator, Expression expr, long position) {
+		super(operator.spelling + expr.spelling, position);
 		this.operator = operator;
 		this.expr = expr;
 	}
@@ -7,8 +7,6 @@
 
 package easy.AbstractSyntaxTrees;
 
-import easy.SyntacticAnalyzer.Line;
-
 public class UntilStmt extends Statement {
 	
 	/**
@@ -28,10 +26,10 @@ public class UntilStmt extends Statement {
 	 * 
 	 * @param condition	the condition for loop execution
 	 * @param body		the statement to execute when the condition is true
-	 * @param line		the line number of the "until" keyword in source
+	 * @param position	the position of the "until" keyword in source
 	 */
-	public UntilStmt(Expression condition, Statement body, Line line) {
-		super(line);
+	public UntilStmt(Expression condition, Statement body, long position) {
+		super(position);
 		
 		this.condition = condition;
 		this.body = body;
@@ -7,8 +7,6 @@
 
 package easy.AbstractSyntaxTrees;
 
-import easy.SyntacticAnalyzer.Line;
-
 public class VarDecl extends Declaration {
 
 	/**
@@ -17,10 +15,22 @@ public class VarDecl extends Declaration {
 	 * 
 	 * @param type	the type of the variable 
 	 * @param name	the name of the variable
-	 * @param line	the line number of the name in source
+	 * @param position	the position of the name in source
+	 */
+	public VarDecl(Type type, String name, long position) {
+		super(type, name, position);
+	}
+	
+	/**
+	 * Construct a VarDecl of the interned name with the given ID
+	 * and underlying {@link Type} "type".
+	 * 
+	 * @param type		the type of the variable 
+	 * @param nameId	the ID of the name in the NameTable
+	 * @param position	the position of the name in source
 	 */
-	public VarDecl(Type type, String name, Line line) {
-		super(type, name, line);
+	public VarDecl(Type type, int nameId, long position) {
+		super(type, nameId, position);
 	}
 	
 	/**
@@ -7,8 +7,6 @@
 
 package easy.AbstractSyntaxTrees;
 
-import easy.SyntacticAnalyzer.Line;
-
 public class VarDeclStmt extends Statement {
 
 	/**
@@ -27,10 +25,10 @@ public class VarDeclStmt extends Statement {
 	 * 
 	 * @param varDecl	the {@code VarDecl}
 	 * @param initExpr	the initializing {@code Expression}
-	 * @param line		the line number of "varDecl" in source
+	 * @param position	the position of "varDecl" in source
 	 */
-	public VarDeclStmt(VarDecl varDecl, Expression initExpr, Line line) {
-		super(line);
+	public VarDeclStmt(VarDecl varDecl, Expression initExpr, long position) {
+		super(position);
 		
 		this.varDecl  = varDecl;
 		this.initExpr = initExpr;
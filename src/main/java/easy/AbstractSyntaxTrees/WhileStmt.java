@@ -7,8 +7,6 @@
 
 package easy.AbstractSyntaxTrees;
 
-import easy.SyntacticAnalyzer.Line;
-
 public class WhileStmt extends Statement {
 	
 	/**
@@ -28,10 +26,10 @@ public class WhileStmt extends Statement {
 	 * 
 	 * @param condition	the condition for loop execution
 	 * @param body		the statement to execute when the condition is true
-	 * @param line		the line number of the "while" keyword in source
+	 * @param position	the position of the "while" keyword in source
 	 */
-	public WhileStmt(Expression condition, Statement body, Line line) {
-		super(line);
+	public WhileStmt(Expression condition, Statement body, long position) {
+		super(position);
 		
 		this.condition = condition;
 		this.body = body;
@@ -12,6 +12,10 @@ import java.io.IOException;
 
 import easy.AbstractSyntaxTrees.*;
 
+import easy.ContextualAnalyzer.CallGraph;
+
+import easy.SyntacticAnalyzer.NameTable;
+
 // TODO Add documentation!
 
 public class Generator implements Visitor<String, Object> {
@@ -26,6 +30,11 @@ public class Generator implements Visitor<String, Object> {
 	 */
 	private String filename;
 	
+	/**
+	 * Whether to write only the functions reachable from the main block
+	 */
+	private boolean reachableOnly;
+	
 	/**
 	 * Create file for writing
 	 * 
@@ -78,6 +87,28 @@ public class Generator implements Visitor<String, Object> {
         return prefix + "\t";
     }
 	
+	/**
+	 * Set whether to write only the functions that can be called from the
+	 * main block, as found by a {@link CallGraph}, which needs the program
+	 * to have been identified. By default every function is written.
+	 * 
+	 * @param reachableOnly	true to leave out functions never called
+	 */
+	public void setReachableOnly(boolean reachableOnly) {
+		this.reachableOnly = reachableOnly;
+	}
+	
+	/**
+	 * Test whether a reference is a plain identifier with the given name
+	 * 
+	 * @param ref		the reference
+	 * @param nameId	the ID of the name in the NameTable
+	 * @return			true if the reference names nameId, false otherwise
+	 */
+	private boolean refersTo(Reference ref, int nameId) {
+		return ref instanceof IdRef && ((IdRef) ref).id.nameId == nameId;
+	}
+	
 	/**
 	 * Begin writing to file
 	 * 
@@ -105,8 +136,12 @@ public class Generator implements Visitor<String, Object> {
 		prog.mainBlock.visit(this, tab(tab(arg)));
 		writeln(tab(arg) + "}\n");
 		
-		for (FunctionDecl function : prog.functionDeclList)
-			function.visit(this, tab(arg));
+		FunctionDeclList functions = prog.functionDeclList;
+		CallGraph graph = reachableOnly ? CallGraph.of(prog) : null;
+		String functionPrefix = tab(arg);
+		for (int i = 0; i < functions.size(); i++)
+			if (graph == null || graph.isReachable(functions.get(i)))
+				functions.get(i).visit(this, functionPrefix);
 
 		writeln("}");
 		
@@ -123,8 +158,7 @@ public class Generator implements Visitor<String, Object> {
 		}
 		writeln(") {");
 		
-		for (Statement statement : fd.block.statementList)
-			statement.visit(this, tab(arg));
+		writeStatements(fd.block.statementList, tab(arg));
 		
 		writeln(arg + "}\n");
 		
@@ -149,11 +183,46 @@ public class Generator implements Visitor<String, Object> {
 
 	@Override
 	public Object visitBlockStmt(BlockStmt stmt, String arg) {
-		for (Statement statement : stmt.statementList)
-			statement.visit(this, arg);
+		writeStatements(stmt.statementList, arg);
 		return null;
 	}
 
+	/**
+	 * Write the statements of a block. A block that is itself one of the
+	 * statements, such as a branch that dead code elimination puts in place
+	 * of its conditional statement, is written in braces if it declares
+	 * variables, so that they stay in its scope.
+	 * 
+	 * @param statements	the statements
+	 * @param arg			the indentation of the statements
+	 */
+	private void writeStatements(StatementList statements, String arg) {
+		for (int i = 0; i < statements.size(); i++) {
+			Statement statement = statements.get(i);
+			if (statement instanceof BlockStmt && declares((BlockStmt) statement)) {
+				writeln(arg + "{");
+				statement.visit(this, tab(arg));
+				writeln(arg + "}");
+			} else {
+				statement.visit(this, arg);
+			}
+		}
+	}
+	
+	/**
+	 * Test whether a block declares variables in its own scope
+	 * 
+	 * @param block	the block
+	 * @return		true if one of its statements is a declaration
+	 */
+	private static boolean declares(BlockStmt block) {
+		StatementList statements = block.statementList;
+		for (int i = 0; i < statements.size(); i++)
+			if (statements.get(i) instanceof VarDeclStmt)
+				return true;
+		return false;
+	}
+
 	@Override
 	public Object visitVardeclStmt(VarDeclStmt stmt, String arg) {
 		write(arg + ((String) stmt.varDecl.visit(this, arg)));
@@ -176,15 +245,15 @@ public class Generator implements Visitor<String, Object> {
 
 	@Override
 	public Object visitCallStmt(CallStmt stmt, String arg) {
-		if (stmt.functionRef.spelling.equals("println")) {
+		if (refersTo(stmt.functionRef, NameTable.println)) {
 			write(arg + "System.out.println(");
-			for (Expression argument : stmt.argList)
-				argument.visit(this, "");
+			for (int i = 0; i < stmt.argList.size(); i++)
+				stmt.argList.get(i).visit(this, "");
 			writeln(");");
-		} else if (stmt.functionRef.spelling.equals("print")) {
+		} else if (refersTo(stmt.functionRef, NameTable.print)) {
 			write(arg + "System.out.print(");
-			for (Expression argument : stmt.argList)
-				argument.visit(this, "");
+			for (int i = 0; i < stmt.argList.size(); i++)
+				stmt.argList.get(i).visit(this, "");
 			writeln(");");
 		} else {
 			write(arg + stmt.functionRef.spelling + "(");
@@ -207,9 +276,8 @@ public class Generator implements Visitor<String, Object> {
 		stmt.body.visit(this, tab(arg));
 		write(arg + "} ");
 		
-		if (stmt.elseIfStmts != null)
-			for (ElseIfStmt elseIf : stmt.elseIfStmts)
-				elseIf.visit(this, arg);
+		for (int i = 0; i < stmt.elseIfStmts.size(); i++)
+			stmt.elseIfStmts.get(i).visit(this, arg);
 		
 		if (stmt.elseStmt != null)
 			stmt.elseStmt.visit(this, arg);
@@ -359,7 +427,7 @@ public class Generator implements Visitor<String, Object> {
 
 	@Override
 	public Object visitCallExpr(CallExpr expr, String arg) {
-		if (expr.functionRef.spelling.equals("sqrt"))
+		if (refersTo(expr.functionRef, NameTable.sqrt))
 			write(arg + "Math.sqrt(");
 		else
 			write(arg + expr.functionRef.spelling + "(");
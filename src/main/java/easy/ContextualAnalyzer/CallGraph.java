@@ -0,0 +1,526 @@
+/**
+ * Graph of the calls between the functions of a program, with the
+ * functions reachable from the main block and the strongly connected
+ * components, whose functions call one another
+ * <p>
+ * Every call in the program counts, whether or not it can run. The calls
+ * are those bound by {@link Identification}, which must have been run on
+ * the program; calls to functions that are built in are left out.
+ *
+ * @author  Federico Menozzi
+ * @version Easy Compiler v1
+ */
+
+package easy.ContextualAnalyzer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+
+import easy.AbstractSyntaxTrees.*;
+
+public class CallGraph {
+
+	/**
+	 * Functions of the program, in the order declared
+	 */
+	private final FunctionDeclList functions;
+
+	/**
+	 * Index of each function in the list
+	 */
+	private final IdentityHashMap<FunctionDecl, Integer> indices;
+
+	/**
+	 * Indices of the functions each function calls, each once, and those
+	 * the main block calls last
+	 */
+	private final int[][] callees;
+
+	/**
+	 * Whether each function is reachable from the main block
+	 */
+	private final boolean[] reachable;
+
+	/**
+	 * Index of the strongly connected component of each function, and the
+	 * components, computed when first asked for
+	 */
+	private int[] component;
+	private List<List<FunctionDecl>> components;
+
+	private CallGraph(FunctionDeclList functions, IdentityHashMap<FunctionDecl, Integer> indices, int[][] callees) {
+		this.functions = functions;
+		this.indices   = indices;
+		this.callees   = callees;
+		this.reachable = new boolean[functions.size()];
+
+		int[] pending = new int[functions.size()];
+		int count	  = 0;
+		for (int callee : callees[functions.size()]) {
+			reachable[callee] = true;
+			pending[count++]  = callee;
+		}
+		while (count > 0) {
+			for (int callee : callees[pending[--count]]) {
+				if (! reachable[callee]) {
+					reachable[callee] = true;
+					pending[count++]  = callee;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Build the call graph of a program
+	 *
+	 * @param ast	the root node of the AST, once identified
+	 * @return		the call graph
+	 */
+	public static CallGraph of(AST ast) {
+		Program prog = (Program) ast;
+		IdentityHashMap<FunctionDecl, Integer> indices = new IdentityHashMap<FunctionDecl, Integer>();
+		for (int i = 0; i < prog.functionDeclList.size(); i++)
+			indices.put(prog.functionDeclList.get(i), i);
+
+		int[][] callees = new int[prog.functionDeclList.size() + 1][];
+		Calls calls = new Calls(indices);
+		for (int i = 0; i < prog.functionDeclList.size(); i++)
+			callees[i] = calls.of(i, prog.functionDeclList.get(i).block);
+		callees[prog.functionDeclList.size()] = calls.of(prog.functionDeclList.size(), prog.mainBlock);
+
+		return new CallGraph(prog.functionDeclList, indices, callees);
+	}
+
+	/**
+	 * Get the functions of the program
+	 *
+	 * @return	the functions, in the order declared
+	 */
+	public FunctionDeclList functions() {
+		return functions;
+	}
+
+	/**
+	 * Get the functions a function calls
+	 *
+	 * @param fd	a function of the program
+	 * @return		the functions it calls, each once, in the order first called
+	 */
+	public List<FunctionDecl> callees(FunctionDecl fd) {
+		return decls(callees[index(fd)]);
+	}
+
+	/**
+	 * Get the functions the main block calls
+	 *
+	 * @return	the functions it calls, each once, in the order first called
+	 */
+	public List<FunctionDecl> mainCallees() {
+		return decls(callees[functions.size()]);
+	}
+
+	/**
+	 * Test whether a function can be called, directly or not, from the
+	 * main block
+	 *
+	 * @param fd	a function of the program
+	 * @return		true if the function is reachable, false otherwise
+	 */
+	public boolean isReachable(FunctionDecl fd) {
+		return reachable[index(fd)];
+	}
+
+	/**
+	 * Get the functions reachable from the main block
+	 *
+	 * @return	the functions reachable, in the order declared
+	 */
+	public List<FunctionDecl> reachable() {
+		List<FunctionDecl> result = new ArrayList<FunctionDecl>();
+		for (int i = 0; i < functions.size(); i++)
+			if (reachable[i])
+				result.add(functions.get(i));
+		return result;
+	}
+
+	/**
+	 * Get the strongly connected components of the graph: the largest sets
+	 * of functions each of which calls, directly or not, all of the others
+	 *
+	 * @return	the components, those of the functions called before those of
+	 * 			their callers, each with its functions in the order declared
+	 */
+	public List<List<FunctionDecl>> components() {
+		if (components == null)
+			findComponents();
+		return components;
+	}
+
+	/**
+	 * Test whether a function can call itself, directly or not
+	 *
+	 * @param fd	a function of the program
+	 * @return		true if the function is recursive, false otherwise
+	 */
+	public boolean isRecursive(FunctionDecl fd) {
+		if (components == null)
+			findComponents();
+
+		int i = index(fd);
+		if (components.get(component[i]).size() > 1)
+			return true;
+		for (int callee : callees[i])
+			if (callee == i)
+				return true;
+		return false;
+	}
+
+	private int index(FunctionDecl fd) {
+		Integer i = indices.get(fd);
+		if (i == null)
+			throw new IllegalArgumentException("Not a function of the program: " + fd.name);
+		return i;
+	}
+
+	private List<FunctionDecl> decls(int[] indices) {
+		List<FunctionDecl> result = new ArrayList<FunctionDecl>(indices.length);
+		for (int i : indices)
+			result.add(functions.get(i));
+		return result;
+	}
+
+	/**
+	 * Find the strongly connected components by Tarjan's algorithm, which
+	 * finds them callees first. The search keeps its own stack, as chains
+	 * of calls can be deeper than the stack of the JVM.
+	 */
+	private void findComponents() {
+		int n = functions.size();
+		int[] order	  = new int[n];		// order in which each function was reached, from 1
+		int[] lowest  = new int[n];		// lowest order of the functions it reaches still on the stack
+		int[] stack	  = new int[n];		// functions whose components are not yet found
+		int[] path	  = new int[n];		// functions being searched
+		int[] next	  = new int[n];		// index of the next callee to search of each on the path
+		boolean[] on  = new boolean[n];
+		int reached	  = 0;
+		int stackSize = 0;
+
+		component  = new int[n];
+		components = new ArrayList<List<FunctionDecl>>();
+
+		for (int root = 0; root < n; root++) {
+			if (order[root] != 0)
+				continue;
+
+			int depth = 0;
+			path[depth++] = root;
+			order[root]	  = lowest[root] = ++reached;
+			stack[stackSize++] = root;
+			on[root] = true;
+
+			while (depth > 0) {
+				int fd = path[depth - 1];
+				if (next[fd] < callees[fd].length) {
+					int callee = callees[fd][next[fd]++];
+					if (order[callee] == 0) {
+						path[depth++]	= callee;
+						order[callee]	= lowest[callee] = ++reached;
+						stack[stackSize++] = callee;
+						on[callee] = true;
+					} else if (on[callee]) {
+						lowest[fd] = Math.min(lowest[fd], order[callee]);
+					}
+					continue;
+				}
+
+				depth--;
+				if (depth > 0)
+					lowest[path[depth - 1]] = Math.min(lowest[path[depth - 1]], lowest[fd]);
+
+				if (lowest[fd] == order[fd]) {
+					int size = 0;
+					while (stack[stackSize - 1 - size] != fd)
+						size++;
+					int[] members = Arrays.copyOfRange(stack, stackSize - 1 - size, stackSize);
+					stackSize -= members.length;
+					Arrays.sort(members);
+
+					for (int member : members) {
+						on[member]		  = false;
+						component[member] = components.size();
+					}
+					components.add(decls(members));
+				}
+			}
+		}
+	}
+
+	/**
+	 * Finds the functions called by a block
+	 * <p>
+	 * Implements Visitor<Object, Object>
+	 */
+	private static class Calls implements Visitor<Object, Object> {
+
+		private final IdentityHashMap<FunctionDecl, Integer> indices;
+
+		/**
+		 * Index of the block whose calls are being found, marked against
+		 * each function it is found to call
+		 */
+		private final int[] caller;
+		private int current;
+
+		/**
+		 * Functions found to be called by the block
+		 */
+		private int[] found = new int[16];
+		private int count;
+
+		Calls(IdentityHashMap<FunctionDecl, Integer> indices) {
+			this.indices = indices;
+			this.caller	 = new int[indices.size()];
+			Arrays.fill(caller, -1);
+		}
+
+		/**
+		 * Find the functions a block calls
+		 *
+		 * @param index	the index of the block, distinct for each block
+		 * @param block	the body of a function or the main block
+		 * @return		the indices of the functions called, each once
+		 */
+		int[] of(int index, BlockStmt block) {
+			current = index;
+			count	= 0;
+			block.visit(this, null);
+			return Arrays.copyOf(found, count);
+		}
+
+		private void call(Reference functionRef) {
+			if (! (functionRef instanceof IdRef))
+				return;
+
+			Integer callee = indices.get(((IdRef) functionRef).id.decl);
+			if (callee == null || caller[callee] == current)
+				return;
+
+			caller[callee] = current;
+			if (count == found.length)
+				found = Arrays.copyOf(found, 2 * count);
+			found[count++] = callee;
+		}
+
+		private void visitAll(ASTList<? extends AST> list) {
+			for (int i = 0; i < list.size(); i++)
+				list.get(i).visit(this, null);
+		}
+
+		@Override
+		public Object visitProgram(Program prog, Object arg) {
+			return null;
+		}
+
+		@Override
+		public Object visitFunctionDecl(FunctionDecl fd, Object arg) {
+			return null;
+		}
+
+		@Override
+		public Object visitParameterDecl(ParameterDecl pd, Object arg) {
+			return null;
+		}
+
+		@Override
+		public Object visitVarDecl(VarDecl decl, Object arg) {
+			return null;
+		}
+
+		@Override
+		public Object visitBaseType(BaseType type, Object arg) {
+			return null;
+		}
+
+		@Override
+		public Object visitBlockStmt(BlockStmt stmt, Object arg) {
+			visitAll(stmt.statementList);
+			return null;
+		}
+
+		@Override
+		public Object visitVardeclStmt(VarDeclStmt stmt, Object arg) {
+			stmt.initExpr.visit(this, arg);
+			return null;
+		}
+
+		@Override
+		public Object visitAssignStmt(AssignStmt stmt, Object arg) {
+			stmt.ref.visit(this, arg);
+			stmt.val.visit(this, arg);
+			return null;
+		}
+
+		@Override
+		public Object visitCallStmt(CallStmt stmt, Object arg) {
+			call(stmt.functionRef);
+			visitAll(stmt.argList);
+			return null;
+		}
+
+		@Override
+		public Object visitIfStmt(IfStmt stmt, Object arg) {
+			stmt.condition.visit(this, arg);
+			stmt.body.visit(this, arg);
+			visitAll(stmt.elseIfStmts);
+			if (stmt.elseStmt != null)
+				stmt.elseStmt.visit(this, arg);
+			return null;
+		}
+
+		@Override
+		public Object visitElseIfStmt(ElseIfStmt stmt, Object arg) {
+			stmt.condition.visit(this, arg);
+			stmt.body.visit(this, arg);
+			return null;
+		}
+
+		@Override
+		public Object visitElseStmt(ElseStmt stmt, Object arg) {
+			stmt.body.visit(this, arg);
+			return null;
+		}
+
+		@Override
+		public Object visitWhileStmt(WhileStmt stmt, Object arg) {
+			stmt.condition.visit(this, arg);
+			stmt.body.visit(this, arg);
+			return null;
+		}
+
+		@Override
+		public Object visitForStmt(ForStmt stmt, Object arg) {
+			stmt.fromExpr.visit(this, arg);
+			stmt.toExpr.visit(this, arg);
+			stmt.byExpr.visit(this, arg);
+			stmt.body.visit(this, arg);
+			return null;
+		}
+
+		@Override
+		public Object visitForEachStmt(ForEachStmt stmt, Object arg) {
+			stmt.collection.visit(this, arg);
+			stmt.body.visit(this, arg);
+			return null;
+		}
+
+		@Override
+		public Object visitInfiniteLoopStmt(InfiniteLoopStmt stmt, Object arg) {
+			stmt.body.visit(this, arg);
+			return null;
+		}
+
+		@Override
+		public Object visitUntilStmt(UntilStmt stmt, Object arg) {
+			stmt.condition.visit(this, arg);
+			stmt.body.visit(this, arg);
+			return null;
+		}
+
+		@Override
+		public Object visitDoIfStmt(DoIfStmt stmt, Object arg) {
+			stmt.thenStmt.visit(this, arg);
+			stmt.condition.visit(this, arg);
+			stmt.elseStmt.visit(this, arg);
+			return null;
+		}
+
+		@Override
+		public Object visitBreakStmt(BreakStmt stmt, Object arg) {
+			return null;
+		}
+
+		@Override
+		public Object visitReturnStmt(ReturnStmt stmt, Object arg) {
+			if (stmt.returnExpr != null)
+				stmt.returnExpr.visit(this, arg);
+			return null;
+		}
+
+		@Override
+		public Object visitUnaryExpr(UnaryExpr expr, Object arg) {
+			expr.expr.visit(this, arg);
+			return null;
+		}
+
+		@Override
+		public Object visitBinaryExpr(BinaryExpr expr, Object arg) {
+			expr.leftExpr.visit(this, arg);
+			expr.rightExpr.visit(this, arg);
+			return null;
+		}
+
+		@Override
+		public Object visitRefExpr(RefExpr expr, Object arg) {
+			expr.ref.visit(this, arg);
+			return null;
+		}
+
+		@Override
+		public Object visitCallExpr(CallExpr expr, Object arg) {
+			call(expr.functionRef);
+			visitAll(expr.argList);
+			return null;
+		}
+
+		@Override
+		public Object visitLiteralExpr(LiteralExpr expr, Object arg) {
+			return null;
+		}
+
+		@Override
+		public Object visitIfExpr(IfExpr expr, Object arg) {
+			expr.condition.visit(this, arg);
+			expr.thenExpr.visit(this, arg);
+			expr.elseExpr.visit(this, arg);
+			return null;
+		}
+
+		@Override
+		public Object visitIndexedRef(IndexedRef ref, Object arg) {
+			ref.indexExpr.visit(this, arg);
+			return null;
+		}
+
+		@Override
+		public Object visitIdRef(IdRef ref, Object arg) {
+			return null;
+		}
+
+		@Override
+		public Object visitIdentifier(Identifier id, Object arg) {
+			return null;
+		}
+
+		@Override
+		public Object visitOperator(Operator op, Object arg) {
+			return null;
+		}
+
+		@Override
+		public Object visitIntLiteral(IntLiteral num, Object arg) {
+			return null;
+		}
+
+		@Override
+		public Object visitBooleanLiteral(BooleanLiteral bool, Object arg) {
+			return null;
+		}
+
+		@Override
+		public Object visitStringLiteral(StringLiteral str, Object arg) {
+			return null;
+		}
+	}
+}
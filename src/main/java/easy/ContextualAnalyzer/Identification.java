@@ -0,0 +1,380 @@
+/**
+ * Identification: binds every use of a name in the AST to its declaration
+ * <p>
+ * Functions are declared throughout the program, so all of them are
+ * entered before any body is visited, and may be called before they are
+ * declared. Variables are visible from their declaration to the end of
+ * the block that holds it, parameters throughout their function, and the
+ * variable of a for statement in its bounds and body. Functions and
+ * variables have separate names, as do the main block and each function,
+ * which see none of each other's variables. As in the Java generated from
+ * the program, a variable may not be declared while another of the same
+ * name is visible.
+ * <p>
+ * Each {@link Identifier} used is bound to its declaration through its
+ * decl field; an undeclared name is reported and left unbound. The loop
+ * variable of a for statement has no declaration in the AST, so one is
+ * made for it, to which its Identifier is bound along with its uses.
+ * Identifiers are bound in place; a {@link HashConser} shares no
+ * Identifier, so a tree may be identified before or after it is consed.
+ * <p>
+ * Implements Visitor<Object, Object>
+ *
+ * @author  Federico Menozzi
+ * @version Easy Compiler v1
+ */
+
+package easy.ContextualAnalyzer;
+
+import easy.ErrorReporter;
+
+import easy.AbstractSyntaxTrees.*;
+
+import easy.SyntacticAnalyzer.NameTable;
+import easy.SyntacticAnalyzer.SourcePosition;
+
+public class Identification implements Visitor<Object, Object> {
+
+	/**
+	 * Functions provided by the language, which have no declaration in
+	 * source. Their arguments are not described by parameters.
+	 */
+	public final static FunctionDecl println = builtIn(NameTable.println, TypeKind.VOID);
+	public final static FunctionDecl print	 = builtIn(NameTable.print, TypeKind.VOID);
+	public final static FunctionDecl sqrt	 = builtIn(NameTable.sqrt, TypeKind.REAL);
+
+	/**
+	 * Used in reporting undeclared and redeclared names
+	 */
+	private final ErrorReporter reporter;
+
+	/**
+	 * Declarations of functions, and of variables, visible at the node visited
+	 */
+	private final IdentificationTable functions = new IdentificationTable();
+	private final IdentificationTable variables = new IdentificationTable();
+
+	/**
+	 * Construct an Identification that reports errors to a reporter
+	 *
+	 * @param reporter	the ErrorReporter instance
+	 */
+	public Identification(ErrorReporter reporter) {
+		this.reporter = reporter;
+	}
+
+	private static FunctionDecl builtIn(int nameId, TypeKind returnType) {
+		return new FunctionDecl(nameId, new BaseType(returnType, 0), ParameterDeclList.empty,
+								new BlockStmt(StatementList.empty, 0), 0);
+	}
+
+	/**
+	 * Bind the names used in a program to their declarations
+	 *
+	 * @param ast	the root node of the AST
+	 */
+	public void identify(AST ast) {
+		ast.visit(this, null);
+	}
+
+	/**
+	 * Enter a variable or parameter, reporting it if it is declared again
+	 *
+	 * @param decl	the declaration
+	 */
+	private void declare(Declaration decl) {
+		Declaration previous = variables.enter(decl);
+		if (previous != null)
+			reporter.addIdError(decl.position, "Variable " + decl.name + " is already declared at line "
+											   + SourcePosition.lineNumber(previous.position));
+	}
+
+	/**
+	 * Visit a statement in a scope of its own, so that a declaration that
+	 * is the whole of the body of a statement is not visible after it
+	 *
+	 * @param stmt	the statement
+	 */
+	private void visitScoped(Statement stmt) {
+		variables.openScope();
+		stmt.visit(this, null);
+		variables.closeScope();
+	}
+
+	/**
+	 * Bind the name of a function called
+	 *
+	 * @param ref	the reference to the function
+	 */
+	private void visitFunctionRef(Reference ref) {
+		if (! (ref instanceof IdRef)) {
+			reporter.addIdError(ref.position, "Only functions can be called");
+			ref.visit(this, null);
+			return;
+		}
+
+		Identifier id = ((IdRef) ref).id;
+		id.decl = functions.retrieve(id.nameId);
+		if (id.decl == null)
+			reporter.addIdError(id.position, "Undeclared function " + id.spelling);
+	}
+
+	private void visitArguments(ExprList args) {
+		for (int i = 0; i < args.size(); i++)
+			args.get(i).visit(this, null);
+	}
+
+	@Override
+	public Object visitProgram(Program prog, Object arg) {
+		functions.openScope();
+		functions.enter(println);
+		functions.enter(print);
+		functions.enter(sqrt);
+
+		FunctionDeclList decls = prog.functionDeclList;
+		for (int i = 0; i < decls.size(); i++) {
+			FunctionDecl decl = decls.get(i);
+			Declaration previous = functions.enter(decl);
+			if (previous == println || previous == print || previous == sqrt)
+				reporter.addIdError(decl.position, "Function " + decl.name + " is built in");
+			else if (previous != null)
+				reporter.addIdError(decl.position, "Function " + decl.name + " is already declared at line "
+												   + SourcePosition.lineNumber(previous.position));
+		}
+
+		prog.mainBlock.visit(this, null);
+		for (int i = 0; i < decls.size(); i++)
+			decls.get(i).visit(this, null);
+
+		functions.closeScope();
+		return null;
+	}
+
+	@Override
+	public Object visitFunctionDecl(FunctionDecl fd, Object arg) {
+		variables.openScope();
+		for (int i = 0; i < fd.params.size(); i++)
+			fd.params.get(i).visit(this, null);
+		fd.block.visit(this, null);
+		variables.closeScope();
+		return null;
+	}
+
+	@Override
+	public Object visitParameterDecl(ParameterDecl pd, Object arg) {
+		declare(pd);
+		return null;
+	}
+
+	@Override
+	public Object visitVarDecl(VarDecl decl, Object arg) {
+		declare(decl);
+		return null;
+	}
+
+	@Override
+	public Object visitBaseType(BaseType type, Object arg) {
+		return null;
+	}
+
+	@Override
+	public Object visitBlockStmt(BlockStmt stmt, Object arg) {
+		variables.openScope();
+		StatementList statements = stmt.statementList;
+		for (int i = 0; i < statements.size(); i++)
+			statements.get(i).visit(this, null);
+		variables.closeScope();
+		return null;
+	}
+
+	@Override
+	public Object visitVardeclStmt(VarDeclStmt stmt, Object arg) {
+		stmt.initExpr.visit(this, null);
+		stmt.varDecl.visit(this, null);
+		return null;
+	}
+
+	@Override
+	public Object visitAssignStmt(AssignStmt stmt, Object arg) {
+		stmt.ref.visit(this, null);
+		stmt.val.visit(this, null);
+		return null;
+	}
+
+	@Override
+	public Object visitCallStmt(CallStmt stmt, Object arg) {
+		visitFunctionRef(stmt.functionRef);
+		visitArguments(stmt.argList);
+		return null;
+	}
+
+	@Override
+	public Object visitIfStmt(IfStmt stmt, Object arg) {
+		stmt.condition.visit(this, null);
+		visitScoped(stmt.body);
+		for (int i = 0; i < stmt.elseIfStmts.size(); i++)
+			stmt.elseIfStmts.get(i).visit(this, null);
+		if (stmt.elseStmt != null)
+			stmt.elseStmt.visit(this, null);
+		return null;
+	}
+
+	@Override
+	public Object visitElseIfStmt(ElseIfStmt stmt, Object arg) {
+		stmt.condition.visit(this, null);
+		visitScoped(stmt.body);
+		return null;
+	}
+
+	@Override
+	public Object visitElseStmt(ElseStmt stmt, Object arg) {
+		visitScoped(stmt.body);
+		return null;
+	}
+
+	@Override
+	public Object visitWhileStmt(WhileStmt stmt, Object arg) {
+		stmt.condition.visit(this, null);
+		visitScoped(stmt.body);
+		return null;
+	}
+
+	@Override
+	public Object visitForStmt(ForStmt stmt, Object arg) {
+		stmt.fromExpr.visit(this, null);
+
+		variables.openScope();
+		stmt.loopVar.decl = new VarDecl(stmt.loopVarType, stmt.loopVar.nameId, stmt.loopVar.position);
+		declare(stmt.loopVar.decl);
+		stmt.toExpr.visit(this, null);
+		stmt.byExpr.visit(this, null);
+		stmt.body.visit(this, null);
+		variables.closeScope();
+		return null;
+	}
+
+	@Override
+	public Object visitForEachStmt(ForEachStmt stmt, Object arg) {
+		stmt.collection.visit(this, null);
+
+		variables.openScope();
+		stmt.loopVar.decl = new VarDecl(stmt.loopVarType, stmt.loopVar.nameId, stmt.loopVar.position);
+		declare(stmt.loopVar.decl);
+		stmt.body.visit(this, null);
+		variables.closeScope();
+		return null;
+	}
+
+	@Override
+	public Object visitInfiniteLoopStmt(InfiniteLoopStmt stmt, Object arg) {
+		visitScoped(stmt.body);
+		return null;
+	}
+
+	@Override
+	public Object visitUntilStmt(UntilStmt stmt, Object arg) {
+		stmt.condition.visit(this, null);
+		visitScoped(stmt.body);
+		return null;
+	}
+
+	@Override
+	public Object visitDoIfStmt(DoIfStmt stmt, Object arg) {
+		stmt.condition.visit(this, null);
+		visitScoped(stmt.thenStmt);
+		visitScoped(stmt.elseStmt);
+		return null;
+	}
+
+	@Override
+	public Object visitBreakStmt(BreakStmt stmt, Object arg) {
+		return null;
+	}
+
+	@Override
+	public Object visitReturnStmt(ReturnStmt stmt, Object arg) {
+		if (stmt.returnExpr != null)
+			stmt.returnExpr.visit(this, null);
+		return null;
+	}
+
+	@Override
+	public Object visitUnaryExpr(UnaryExpr expr, Object arg) {
+		expr.expr.visit(this, null);
+		return null;
+	}
+
+	@Override
+	public Object visitBinaryExpr(BinaryExpr expr, Object arg) {
+		expr.leftExpr.visit(this, null);
+		expr.rightExpr.visit(this, null);
+		return null;
+	}
+
+	@Override
+	public Object visitRefExpr(RefExpr expr, Object arg) {
+		expr.ref.visit(this, null);
+		return null;
+	}
+
+	@Override
+	public Object visitCallExpr(CallExpr expr, Object arg) {
+		visitFunctionRef(expr.functionRef);
+		visitArguments(expr.argList);
+		return null;
+	}
+
+	@Override
+	public Object visitLiteralExpr(LiteralExpr expr, Object arg) {
+		return null;
+	}
+
+	@Override
+	public Object visitIfExpr(IfExpr expr, Object arg) {
+		expr.condition.visit(this, null);
+		expr.thenExpr.visit(this, null);
+		expr.elseExpr.visit(this, null);
+		return null;
+	}
+
+	@Override
+	public Object visitIndexedRef(IndexedRef ref, Object arg) {
+		ref.ref.visit(this, null);
+		ref.indexExpr.visit(this, null);
+		return null;
+	}
+
+	@Override
+	public Object visitIdRef(IdRef ref, Object arg) {
+		ref.id.visit(this, null);
+		return null;
+	}
+
+	@Override
+	public Object visitIdentifier(Identifier id, Object arg) {
+		id.decl = variables.retrieve(id.nameId);
+		if (id.decl == null)
+			reporter.addIdError(id.position, "Undeclared variable " + id.spelling);
+		return null;
+	}
+
+	@Override
+	public Object visitOperator(Operator op, Object arg) {
+		return null;
+	}
+
+	@Override
+	public Object visitIntLiteral(IntLiteral num, Object arg) {
+		return null;
+	}
+
+	@Override
+	public Object visitBooleanLiteral(BooleanLiteral bool, Object arg) {
+		return null;
+	}
+
+	@Override
+	public Object visitStringLiteral(StringLiteral str, Object arg) {
+		return null;
+	}
+}
@@ -0,0 +1,117 @@
+/**
+ * Table of the declarations visible at a point of a program, organized
+ * as a stack of nested scopes
+ * <p>
+ * Names are looked up by their ID in the {@link NameTable}, which indexes
+ * an array holding the innermost visible declaration of each name, so
+ * that a lookup is a single array access whatever the depth of nesting.
+ * Entering a declaration pushes the one it hides onto a stack, and closing
+ * a scope pops what its declarations hid back into the array.
+ *
+ * @author  Federico Menozzi
+ * @version Easy Compiler v1
+ */
+
+package easy.ContextualAnalyzer;
+
+import java.util.Arrays;
+
+import easy.AbstractSyntaxTrees.Declaration;
+
+import easy.SyntacticAnalyzer.NameTable;
+
+public class IdentificationTable {
+
+	/**
+	 * The innermost visible declaration of each name, indexed by name ID
+	 */
+	private Declaration[] visible = new Declaration[Math.max(16, NameTable.size())];
+
+	/**
+	 * Names entered, in order, and the declaration each hid when entered
+	 */
+	private int[] names				= new int[16];
+	private Declaration[] hidden	= new Declaration[16];
+	private int entries;
+
+	/**
+	 * Number of entries made before each open scope
+	 */
+	private int[] scopes = new int[16];
+	private int level;
+
+	/**
+	 * Open a scope, nested in the current one
+	 */
+	public void openScope() {
+		if (level == scopes.length)
+			scopes = Arrays.copyOf(scopes, 2 * level);
+		scopes[level++] = entries;
+	}
+
+	/**
+	 * Close the current scope, making visible again the declarations
+	 * hidden by those entered in it
+	 *
+	 * @throws IllegalStateException	if no scope is open
+	 */
+	public void closeScope() {
+		if (level == 0)
+			throw new IllegalStateException("No scope is open");
+
+		int first = scopes[--level];
+		while (entries > first) {
+			entries--;
+			visible[names[entries]] = hidden[entries];
+			hidden[entries] = null;
+		}
+	}
+
+	/**
+	 * Retrieve the number of open scopes
+	 *
+	 * @return	the number of open scopes
+	 */
+	public int level() {
+		return level;
+	}
+
+	/**
+	 * Enter a declaration in the current scope, hiding any declaration
+	 * of the same name until the scope is closed
+	 *
+	 * @param decl	the declaration
+	 * @return		the declaration hidden, or null if there is none
+	 * @throws IllegalStateException	if no scope is open
+	 */
+	public Declaration enter(Declaration decl) {
+		if (level == 0)
+			throw new IllegalStateException("No scope is open");
+
+		int nameId = decl.nameId;
+		if (nameId >= visible.length)
+			visible = Arrays.copyOf(visible, Math.max(2 * visible.length, nameId + 1));
+
+		if (entries == names.length) {
+			names  = Arrays.copyOf(names, 2 * entries);
+			hidden = Arrays.copyOf(hidden, 2 * entries);
+		}
+
+		Declaration previous = visible[nameId];
+		names[entries]	= nameId;
+		hidden[entries] = previous;
+		entries++;
+		visible[nameId] = decl;
+		return previous;
+	}
+
+	/**
+	 * Retrieve the innermost visible declaration of a name
+	 *
+	 * @param nameId	the ID of the name in the NameTable
+	 * @return			the declaration, or null if none is visible
+	 */
+	public Declaration retrieve(int nameId) {
+		return nameId < visible.length ? visible[nameId] : null;
+	}
+}
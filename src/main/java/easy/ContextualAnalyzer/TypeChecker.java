@@ -0,0 +1,490 @@
+/**
+ * Type checking: finds the type of every expression in the AST, and
+ * checks that each is used where a value of its type is allowed
+ * <p>
+ * The kind of the type of each {@link Expression} is stored in its
+ * typeKind field. An expression whose type cannot be found, because it
+ * is wrong or refers to an undeclared name, has the type ERROR, which
+ * matches any other, so that an error is reported once rather than at
+ * every expression that contains it.
+ * <p>
+ * The result of sqrt is a REAL, which has no name in source, and so can
+ * be neither declared nor assigned to a variable, passed as an argument,
+ * returned, nor used where an Int is expected. It can be printed, and be
+ * the operand of arithmetic and of comparisons, with an Int or another
+ * REAL; arithmetic on a REAL is itself a REAL.
+ * <p>
+ * The AST must have been through {@link Identification} first. The
+ * expressions a {@link HashConser} shares hold no names, and have the
+ * same type wherever they occur, so a tree may be checked before or
+ * after it is consed.
+ * <p>
+ * Implements Visitor<Object, TypeKind>
+ *
+ * @author  Federico Menozzi
+ * @version Easy Compiler v1
+ */
+
+package easy.ContextualAnalyzer;
+
+import easy.ErrorReporter;
+
+import easy.AbstractSyntaxTrees.*;
+
+public class TypeChecker implements Visitor<Object, TypeKind> {
+
+	/**
+	 * Used in reporting type errors
+	 */
+	private final ErrorReporter reporter;
+
+	/**
+	 * Function whose body is being checked, or null for the main block
+	 */
+	private FunctionDecl function;
+
+	/**
+	 * Construct a TypeChecker that reports errors to a reporter
+	 *
+	 * @param reporter	the ErrorReporter instance
+	 */
+	public TypeChecker(ErrorReporter reporter) {
+		this.reporter = reporter;
+	}
+
+	/**
+	 * Find and check the types of a program
+	 *
+	 * @param ast	the root node of the AST, once identified
+	 */
+	public void check(AST ast) {
+		ast.visit(this, null);
+	}
+
+	/**
+	 * Find the type of an expression, and check that it is of an expected type
+	 *
+	 * @param expr		the expression
+	 * @param expected	the expected kind of type
+	 * @param what		what the expression is, as reported
+	 * @return			the kind of type of the expression
+	 */
+	private TypeKind expect(Expression expr, TypeKind expected, String what) {
+		TypeKind type = expr.visit(this, null);
+		if (! matches(type, expected))
+			reporter.addTypeError(expr.position, what + " must be " + name(expected) + ", not " + name(type));
+		return type;
+	}
+
+	/**
+	 * Find the type of an expression used as a value, of any type
+	 *
+	 * @param expr	the expression
+	 * @return		the kind of type of the expression, or ERROR if it has no value
+	 */
+	private TypeKind value(Expression expr) {
+		TypeKind type = expr.visit(this, null);
+		if (type == TypeKind.VOID) {
+			reporter.addTypeError(expr.position, "Function with no result used as a value");
+			return TypeKind.ERROR;
+		}
+		return type;
+	}
+
+	/**
+	 * Test whether two kinds of type match, as any does ERROR
+	 */
+	private static boolean matches(TypeKind a, TypeKind b) {
+		return a == b || a == TypeKind.ERROR || b == TypeKind.ERROR;
+	}
+
+	/**
+	 * Test whether a kind of type is a number, as any is ERROR
+	 */
+	private static boolean numeric(TypeKind type) {
+		return type == TypeKind.INT || type == TypeKind.REAL || type == TypeKind.ERROR;
+	}
+
+	/**
+	 * Name a kind of type as it is written in source
+	 */
+	private static String name(TypeKind type) {
+		switch (type) {
+		case INT:
+			return "Int";
+		case BOOLEAN:
+			return "Boolean";
+		case STRING:
+			return "a string";
+		case REAL:
+			return "a real number";
+		default:
+			return "void";
+		}
+	}
+
+	/**
+	 * Find the function a reference calls
+	 *
+	 * @param ref	the reference
+	 * @return		the function, or null if the reference was not identified
+	 */
+	private static FunctionDecl function(Reference ref) {
+		if (ref instanceof IdRef && ((IdRef) ref).id.decl instanceof FunctionDecl)
+			return (FunctionDecl) ((IdRef) ref).id.decl;
+		return null;
+	}
+
+	/**
+	 * Check the arguments of a call, and find the type of its result
+	 *
+	 * @param ref		the reference to the function called
+	 * @param args		the arguments
+	 * @param position	the position of the call
+	 * @return			the kind of the type of the result
+	 */
+	private TypeKind checkCall(Reference ref, ExprList args, long position) {
+		FunctionDecl callee = function(ref);
+		if (callee == Identification.println || callee == Identification.print) {
+			int max = 1;
+			int min = callee == Identification.print ? 1 : 0;
+			if (args.size() < min || args.size() > max)
+				reporter.addTypeError(position, callee.name + " takes " + (min == max ? "one argument" : "at most one argument"));
+			for (int i = 0; i < args.size(); i++)
+				value(args.get(i));
+			return TypeKind.VOID;
+		}
+
+		if (callee == Identification.sqrt) {
+			if (args.size() != 1)
+				reporter.addTypeError(position, "sqrt takes one argument");
+			for (int i = 0; i < args.size(); i++) {
+				TypeKind type = value(args.get(i));
+				if (! numeric(type))
+					reporter.addTypeError(args.get(i).position, "Argument of sqrt must be a number, not " + name(type));
+			}
+			return TypeKind.REAL;
+		}
+
+		if (callee == null) {
+			for (int i = 0; i < args.size(); i++)
+				args.get(i).visit(this, null);
+			return TypeKind.ERROR;
+		}
+
+		ParameterDeclList params = callee.params;
+		if (args.size() != params.size())
+			reporter.addTypeError(position, callee.name + " takes " + params.size() + " argument(s), not " + args.size());
+		for (int i = 0; i < args.size(); i++) {
+			if (i < params.size())
+				expect(args.get(i), params.get(i).type.typeKind, "Argument " + (i + 1) + " of " + callee.name);
+			else
+				args.get(i).visit(this, null);
+		}
+		return callee.type.typeKind;
+	}
+
+	@Override
+	public TypeKind visitProgram(Program prog, Object arg) {
+		function = null;
+		prog.mainBlock.visit(this, null);
+
+		FunctionDeclList functions = prog.functionDeclList;
+		for (int i = 0; i < functions.size(); i++)
+			functions.get(i).visit(this, null);
+		return null;
+	}
+
+	@Override
+	public TypeKind visitFunctionDecl(FunctionDecl fd, Object arg) {
+		function = fd;
+		fd.block.visit(this, null);
+		function = null;
+		return null;
+	}
+
+	@Override
+	public TypeKind visitParameterDecl(ParameterDecl pd, Object arg) {
+		return pd.type.typeKind;
+	}
+
+	@Override
+	public TypeKind visitVarDecl(VarDecl decl, Object arg) {
+		return decl.type.typeKind;
+	}
+
+	@Override
+	public TypeKind visitBaseType(BaseType type, Object arg) {
+		return type.typeKind;
+	}
+
+	@Override
+	public TypeKind visitBlockStmt(BlockStmt stmt, Object arg) {
+		StatementList statements = stmt.statementList;
+		for (int i = 0; i < statements.size(); i++)
+			statements.get(i).visit(this, null);
+		return null;
+	}
+
+	@Override
+	public TypeKind visitVardeclStmt(VarDeclStmt stmt, Object arg) {
+		expect(stmt.initExpr, stmt.varDecl.type.typeKind, "Value of " + stmt.varDecl.name);
+		return null;
+	}
+
+	@Override
+	public TypeKind visitAssignStmt(AssignStmt stmt, Object arg) {
+		TypeKind type = stmt.ref.visit(this, null);
+		expect(stmt.val, type, "Value assigned to " + stmt.ref.spelling);
+		return null;
+	}
+
+	@Override
+	public TypeKind visitCallStmt(CallStmt stmt, Object arg) {
+		checkCall(stmt.functionRef, stmt.argList, stmt.position);
+		return null;
+	}
+
+	@Override
+	public TypeKind visitIfStmt(IfStmt stmt, Object arg) {
+		expect(stmt.condition, TypeKind.BOOLEAN, "Condition");
+		stmt.body.visit(this, null);
+		for (int i = 0; i < stmt.elseIfStmts.size(); i++)
+			stmt.elseIfStmts.get(i).visit(this, null);
+		if (stmt.elseStmt != null)
+			stmt.elseStmt.visit(this, null);
+		return null;
+	}
+
+	@Override
+	public TypeKind visitElseIfStmt(ElseIfStmt stmt, Object arg) {
+		expect(stmt.condition, TypeKind.BOOLEAN, "Condition");
+		stmt.body.visit(this, null);
+		return null;
+	}
+
+	@Override
+	public TypeKind visitElseStmt(ElseStmt stmt, Object arg) {
+		stmt.body.visit(this, null);
+		return null;
+	}
+
+	@Override
+	public TypeKind visitWhileStmt(WhileStmt stmt, Object arg) {
+		expect(stmt.condition, TypeKind.BOOLEAN, "Condition");
+		stmt.body.visit(this, null);
+		return null;
+	}
+
+	@Override
+	public TypeKind visitForStmt(ForStmt stmt, Object arg) {
+		if (stmt.loopVarType.typeKind != TypeKind.INT)
+			reporter.addTypeError(stmt.loopVarType.position, "Loop variable must be Int");
+		expect(stmt.fromExpr, TypeKind.INT, "Start of range");
+		expect(stmt.toExpr, TypeKind.INT, "End of range");
+		expect(stmt.byExpr, TypeKind.INT, "Step");
+		stmt.body.visit(this, null);
+		return null;
+	}
+
+	@Override
+	public TypeKind visitForEachStmt(ForEachStmt stmt, Object arg) {
+		TypeKind type = stmt.collection.visit(this, null);
+		if (type != TypeKind.ERROR)
+			reporter.addTypeError(stmt.collection.position, "Cannot iterate over " + name(type));
+		stmt.body.visit(this, null);
+		return null;
+	}
+
+	@Override
+	public TypeKind visitInfiniteLoopStmt(InfiniteLoopStmt stmt, Object arg) {
+		stmt.body.visit(this, null);
+		return null;
+	}
+
+	@Override
+	public TypeKind visitUntilStmt(UntilStmt stmt, Object arg) {
+		expect(stmt.condition, TypeKind.BOOLEAN, "Condition");
+		stmt.body.visit(this, null);
+		return null;
+	}
+
+	@Override
+	public TypeKind visitDoIfStmt(DoIfStmt stmt, Object arg) {
+		stmt.thenStmt.visit(this, null);
+		expect(stmt.condition, TypeKind.BOOLEAN, "Condition");
+		stmt.elseStmt.visit(this, null);
+		return null;
+	}
+
+	@Override
+	public TypeKind visitBreakStmt(BreakStmt stmt, Object arg) {
+		return null;
+	}
+
+	@Override
+	public TypeKind visitReturnStmt(ReturnStmt stmt, Object arg) {
+		TypeKind expected = function == null ? TypeKind.VOID : function.type.typeKind;
+		if (stmt.returnExpr == null) {
+			if (expected != TypeKind.VOID)
+				reporter.addTypeError(stmt.position, "Missing return value");
+		} else if (expected == TypeKind.VOID) {
+			stmt.returnExpr.visit(this, null);
+			reporter.addTypeError(stmt.returnExpr.position, "Cannot return a value "
+								  + (function == null ? "from main" : "from " + function.name));
+		} else {
+			expect(stmt.returnExpr, expected, "Return value");
+		}
+		return null;
+	}
+
+	@Override
+	public TypeKind visitUnaryExpr(UnaryExpr expr, Object arg) {
+		TypeKind type;
+		if (expr.operator.spelling.equals("-")) {
+			type = value(expr.expr);
+			if (! numeric(type)) {
+				reporter.addTypeError(expr.expr.position, "Operand of - must be a number, not " + name(type));
+				type = TypeKind.ERROR;
+			}
+		} else
+			type = expect(expr.expr, TypeKind.BOOLEAN, "Operand of " + expr.operator.spelling) == TypeKind.ERROR
+				 ? TypeKind.ERROR : TypeKind.BOOLEAN;
+		return expr.typeKind = type;
+	}
+
+	@Override
+	public TypeKind visitBinaryExpr(BinaryExpr expr, Object arg) {
+		TypeKind left  = value(expr.leftExpr);
+		TypeKind right = value(expr.rightExpr);
+		String op	   = expr.operator.spelling;
+
+		TypeKind operand;
+		TypeKind result;
+		switch (op) {
+		case "+":
+			if (left == TypeKind.STRING || right == TypeKind.STRING)
+				return expr.typeKind = TypeKind.STRING;
+			return expr.typeKind = arithmetic(expr, left, right, TypeKind.INT);
+		case "-": case "*": case "/": case "%": case "mod":
+			return expr.typeKind = arithmetic(expr, left, right, TypeKind.INT);
+		case "<": case "<=": case ">": case ">=":
+			return expr.typeKind = arithmetic(expr, left, right, TypeKind.BOOLEAN);
+		case "and": case "or": case "&&": case "||":
+			operand = TypeKind.BOOLEAN;
+			result	= TypeKind.BOOLEAN;
+			break;
+		default:	// ==, !=, equals, notequals
+			if (! matches(left, right) && ! (numeric(left) && numeric(right)))
+				reporter.addTypeError(expr.operator.position, "Cannot compare " + name(left) + " with " + name(right));
+			return expr.typeKind = left == TypeKind.ERROR || right == TypeKind.ERROR ? TypeKind.ERROR : TypeKind.BOOLEAN;
+		}
+
+		boolean ok = true;
+		if (! matches(left, operand)) {
+			reporter.addTypeError(expr.leftExpr.position, "Operand of " + op + " must be " + name(operand) + ", not " + name(left));
+			ok = false;
+		}
+		if (! matches(right, operand)) {
+			reporter.addTypeError(expr.rightExpr.position, "Operand of " + op + " must be " + name(operand) + ", not " + name(right));
+			ok = false;
+		}
+		return expr.typeKind = ok && left != TypeKind.ERROR && right != TypeKind.ERROR ? result : TypeKind.ERROR;
+	}
+
+	/**
+	 * Check the operands of an arithmetic operator or a comparison
+	 *
+	 * @param expr		the binary expression
+	 * @param left		the kind of the type of its left operand
+	 * @param right		the kind of the type of its right operand
+	 * @param result	the kind of the type of its result when both operands are Int
+	 * @return			the kind of the type of its result, which is REAL for
+	 * 					arithmetic on a REAL
+	 */
+	private TypeKind arithmetic(BinaryExpr expr, TypeKind left, TypeKind right, TypeKind result) {
+		String op = expr.operator.spelling;
+		boolean ok = true;
+		if (! numeric(left)) {
+			reporter.addTypeError(expr.leftExpr.position, "Operand of " + op + " must be a number, not " + name(left));
+			ok = false;
+		}
+		if (! numeric(right)) {
+			reporter.addTypeError(expr.rightExpr.position, "Operand of " + op + " must be a number, not " + name(right));
+			ok = false;
+		}
+
+		if (! ok || left == TypeKind.ERROR || right == TypeKind.ERROR)
+			return TypeKind.ERROR;
+		if (result == TypeKind.INT && (left == TypeKind.REAL || right == TypeKind.REAL))
+			return TypeKind.REAL;
+		return result;
+	}
+
+	@Override
+	public TypeKind visitRefExpr(RefExpr expr, Object arg) {
+		return expr.typeKind = expr.ref.visit(this, null);
+	}
+
+	@Override
+	public TypeKind visitCallExpr(CallExpr expr, Object arg) {
+		return expr.typeKind = checkCall(expr.functionRef, expr.argList, expr.position);
+	}
+
+	@Override
+	public TypeKind visitLiteralExpr(LiteralExpr expr, Object arg) {
+		return expr.typeKind = expr.literal.visit(this, null);
+	}
+
+	@Override
+	public TypeKind visitIfExpr(IfExpr expr, Object arg) {
+		expect(expr.condition, TypeKind.BOOLEAN, "Condition");
+		TypeKind thenType = value(expr.thenExpr);
+		TypeKind elseType = value(expr.elseExpr);
+		if (! matches(thenType, elseType)) {
+			reporter.addTypeError(expr.elseExpr.position, "Alternatives must be of the same type, not "
+								  + name(thenType) + " and " + name(elseType));
+			return expr.typeKind = TypeKind.ERROR;
+		}
+		return expr.typeKind = thenType == TypeKind.ERROR ? elseType : thenType;
+	}
+
+	@Override
+	public TypeKind visitIndexedRef(IndexedRef ref, Object arg) {
+		TypeKind type = ref.ref.visit(this, null);
+		expect(ref.indexExpr, TypeKind.INT, "Index");
+		if (type != TypeKind.ERROR)
+			reporter.addTypeError(ref.position, "Cannot index " + name(type));
+		return TypeKind.ERROR;
+	}
+
+	@Override
+	public TypeKind visitIdRef(IdRef ref, Object arg) {
+		return ref.id.visit(this, null);
+	}
+
+	@Override
+	public TypeKind visitIdentifier(Identifier id, Object arg) {
+		return id.decl == null ? TypeKind.ERROR : id.decl.type.typeKind;
+	}
+
+	@Override
+	public TypeKind visitOperator(Operator op, Object arg) {
+		return null;
+	}
+
+	@Override
+	public TypeKind visitIntLiteral(IntLiteral num, Object arg) {
+		return TypeKind.INT;
+	}
+
+	@Override
+	public TypeKind visitBooleanLiteral(BooleanLiteral bool, Object arg) {
+		return TypeKind.BOOLEAN;
+	}
+
+	@Override
+	public TypeKind visitStringLiteral(StringLiteral str, Object arg) {
+		return TypeKind.STRING;
+	}
+}
@@ -9,6 +9,8 @@ package easy;
 
 import java.util.ArrayList;
 
+import easy.SyntacticAnalyzer.SourcePosition;
+
 public class ErrorReporter {
 	/**
 	 * Error lists
@@ -36,6 +38,17 @@ public class ErrorReporter {
 	public void addScanError(int lineNumber, String message) {
 		scanErrors.add("At line " + lineNumber + ": " + message);
 	}	
+	
+	/**
+	 * Add a scan error at the given position in source 
+	 * to the list of scan errors
+	 * 
+	 * @param position	the position of the error, packed by {@link SourcePosition}
+	 * @param message
+	 */
+	public void addScanError(long position, String message) {
+		scanErrors.add(at(position) + message);
+	}
 
 	/**
 	 * Add a parse error to the list of parse errors
@@ -46,13 +59,79 @@ public class ErrorReporter {
 		parseErrors.add("At line " + lineNumber + ": " + message);
 	}
 	
+	/**
+	 * Add a parse error at the given position in source 
+	 * to the list of parse errors
+	 * 
+	 * @param position	the position of the error, packed by {@link SourcePosition}
+	 * @param message
+	 */
+	public void addParseError(long position, String message) {
+		parseErrors.add(at(position) + message);
+	}
+	
 	/**
 	 * Add an ID error to the list of ID errors
 	 * 
 	 * @param message
 	 */
 	public void addIdError(int lineNumber, String message) {
-		parseErrors.add("At line " + lineNumber + ": " + message);
+		idErrors.add("At line " + lineNumber + ": " + message);
+	}
+	
+	/**
+	 * Add an ID error at the given position in source 
+	 * to the list of ID errors
+	 * 
+	 * @param position	the position of the error, packed by {@link SourcePosition}
+	 * @param message
+	 */
+	public void addIdError(long position, String message) {
+		idErrors.add(at(position) + message);
+	}
+	
+	/**
+	 * Add a type error to the list of type errors
+	 * 
+	 * @param message
+	 */
+	public void addTypeError(int lineNumber, String message) {
+		typeErrors.add("At line " + lineNumber + ": " + message);
+	}
+	
+	/**
+	 * Add a type error at the given position in source 
+	 * to the list of type errors
+	 * 
+	 * @param position	the position of the error, packed by {@link SourcePosition}
+	 * @param message
+	 */
+	public void addTypeError(long position, String message) {
+		typeErrors.add(at(position) + message);
+	}
+	
+	/**
+	 * Append all errors recorded by another reporter, in order,
+	 * after the errors of each stage recorded so far
+	 *
+	 * @param other	the reporter whose errors are appended
+	 */
+	public void addErrors(ErrorReporter other) {
+		scanErrors.addAll(other.scanErrors);
+		parseErrors.addAll(other.parseErrors);
+		idErrors.addAll(other.idErrors);
+		typeErrors.addAll(other.typeErrors);
+	}
+
+	/**
+	 * Format the prefix of an error message at the given position
+	 * 
+	 * @param position	the position of the error, packed by {@link SourcePosition}
+	 * @return			the prefix naming the line and column of the error
+	 */
+	private String at(long position) {
+		return "At line " + SourcePosition.lineNumber(position) + 
+			   ", column " + SourcePosition.column(position) + ": ";
 	}
 	
 	/**
@@ -61,7 +140,7 @@ public class ErrorReporter {
 	 * @return	whether the reporter currently has any errors
 	 */
 	public boolean hasErrors() {
-		return hasScanErrors() || hasParseErrors();
+		return hasScanErrors() || hasParseErrors() || hasIdErrors() || hasTypeErrors();
 	}
 	
 	private boolean hasScanErrors() {
@@ -71,6 +150,14 @@ public class ErrorReporter {
 	private boolean hasParseErrors() {
 		return parseErrors.size() > 0;
 	}
+
+	private boolean hasIdErrors() {
+		return idErrors.size() > 0;
+	}
+
+	private boolean hasTypeErrors() {
+		return typeErrors.size() > 0;
+	}
 	
 	/**
 	 * Report errors to console
@@ -87,5 +174,17 @@ public class ErrorReporter {
 			for (String error : parseErrors)
 				System.out.println("\t-" + error);
 		}
+
+		if (!idErrors.isEmpty()) {
+			System.out.println("IDENTIFICATION ERROR(S):");
+			for (String error : idErrors)
+				System.out.println("\t-" + error);
+		}
+
+		if (!typeErrors.isEmpty()) {
+			System.out.println("TYPE ERROR(S):");
+			for (String error : typeErrors)
+				System.out.println("\t-" + error);
+		}
 	}
 }
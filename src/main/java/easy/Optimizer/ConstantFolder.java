@@ -0,0 +1,808 @@
+/**
+ * Folds constant expressions of an AST, and propagates the constant values
+ * of variables into the expressions that use them
+ * <p>
+ * Unary, binary and conditional expressions whose operands are Int or
+ * Boolean constants are replaced by their values, computed as Java
+ * computes them, so that Int arithmetic wraps around on overflow. Division
+ * and remainder by zero are left to fail when the program runs. An "and"
+ * or "or" whose left operand is constant, or whose right operand makes it
+ * the value of its left, is reduced to the operand it depends on, which
+ * is evaluated as before. A negative constant is written as the negation
+ * of a literal, as the source would have it.
+ * <p>
+ * A variable declared or assigned a constant keeps that value through
+ * the straight-line code that follows, until it is assigned again. Each
+ * branch of a conditional starts from the values known before it, and the
+ * variables assigned in any branch are unknown after it. The body and the
+ * conditions of a loop are run again after the body assigns its variables,
+ * so they start from the values known before the loop less those of the
+ * variables it assigns, which are unknown after it too. Functions cannot
+ * see the variables of one another, so a call does not change what is known.
+ * <p>
+ * The AST must have been through {@link Identification}, which binds the
+ * variables, and through {@link TypeChecker}, whose types are kept by the
+ * nodes made. As fields of AST nodes are final, nodes that contain a folded
+ * expression are rebuilt, and calls are bound again to their rebuilt
+ * functions; nodes with nothing folded are kept as they are. A body whose
+ * statements are nested more deeply than {@link #setMaxNesting(int)} allows
+ * is kept as it is, as folding it could exhaust the thread's stack.
+ * <p>
+ * Implements Visitor<Object, AST>
+ *
+ * @author  Federico Menozzi
+ * @version Easy Compiler v1
+ */
+
+package easy.Optimizer;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+
+import easy.AbstractSyntaxTrees.*;
+
+import easy.ContextualAnalyzer.Identification;
+import easy.ContextualAnalyzer.TypeChecker;
+
+import easy.SyntacticAnalyzer.Token;
+import easy.SyntacticAnalyzer.TokenKind;
+
+public class ConstantFolder implements Visitor<Object, AST> {
+
+	/**
+	 * Value, an Integer or a Boolean, of each variable known to be constant
+	 */
+	private IdentityHashMap<Declaration, Object> constants = new IdentityHashMap<Declaration, Object>();
+
+	/**
+	 * Variables assigned since the start of the innermost branch or loop
+	 */
+	private IdentityHashMap<Declaration, Boolean> assigned = new IdentityHashMap<Declaration, Boolean>();
+
+	/**
+	 * Functions rebuilt, and the identifiers of the calls to be bound to them
+	 */
+	private final IdentityHashMap<FunctionDecl, FunctionDecl> rebuiltFunctions = new IdentityHashMap<FunctionDecl, FunctionDecl>();
+	private final ArrayList<Identifier> calls = new ArrayList<Identifier>();
+
+	/**
+	 * Greatest depth of nesting of the statements of a body that is folded
+	 * by default, within which the recursion of the optimizers takes no
+	 * more of the thread's stack than the passes before them take for the
+	 * deepest nesting the Parser accepts
+	 */
+	public final static int defaultMaxNesting = 500;
+
+	/**
+	 * Greatest depth of nesting of a body that is folded
+	 */
+	private int maxNesting = defaultMaxNesting;
+
+	/**
+	 * Number of expressions replaced by constants or by one of their operands
+	 */
+	private int folded;
+
+	/**
+	 * Number of bodies left as they are, being nested too deeply
+	 */
+	private int unfolded;
+
+	/**
+	 * Set the greatest depth of nesting of the statements of a body that
+	 * is folded. A body nested more deeply is left as it is.
+	 *
+	 * @param maxNesting	the greatest depth of nesting folded
+	 */
+	public void setMaxNesting(int maxNesting) {
+		if (maxNesting < 0)
+			throw new IllegalArgumentException("Nesting limit must not be negative: " + maxNesting);
+
+		this.maxNesting = maxNesting;
+	}
+
+	/**
+	 * Fold the constant expressions of a program
+	 *
+	 * @param ast	the root node of the AST, once identified and type checked
+	 * @return		the root node of the folded AST, which is ast itself
+	 * 				if nothing was folded
+	 */
+	public AST fold(AST ast) {
+		AST result = ast.visit(this, null);
+
+		for (Identifier id : calls) {
+			FunctionDecl function = rebuiltFunctions.get(id.decl);
+			if (function != null)
+				id.decl = function;
+		}
+		calls.clear();
+		rebuiltFunctions.clear();
+
+		return result;
+	}
+
+	/**
+	 * Get the number of expressions folded so far
+	 *
+	 * @return	the number of expressions replaced by constants or by one
+	 * 			of their operands
+	 */
+	public int folded() {
+		return folded;
+	}
+
+	/**
+	 * Get the number of bodies left as they are so far, being nested
+	 * more deeply than the limit on nesting
+	 *
+	 * @return	the number of function bodies and main blocks not folded
+	 */
+	public int unfolded() {
+		return unfolded;
+	}
+
+	/**
+	 * Find the value of a constant expression
+	 *
+	 * @param expr	the expression, once folded
+	 * @return		its value, an Integer or a Boolean, or null if it is not constant
+	 */
+	static Object value(Expression expr) {
+		if (expr instanceof LiteralExpr) {
+			Literal literal = ((LiteralExpr) expr).literal;
+			if (literal instanceof BooleanLiteral)
+				return literal.spelling.equals("true");
+			if (literal instanceof IntLiteral) {
+				try {
+					return Integer.parseInt(literal.spelling);
+				} catch (NumberFormatException e) {
+					return null;
+				}
+			}
+		} else if (expr instanceof UnaryExpr && ((UnaryExpr) expr).operator.spelling.equals("-")) {
+			Object operand = value(((UnaryExpr) expr).expr);
+			if (operand instanceof Integer)
+				return -(Integer) operand;
+		}
+		return null;
+	}
+
+	/**
+	 * Make the expression for a constant
+	 *
+	 * @param value		the value, an Integer or a Boolean
+	 * @param original	the expression it replaces
+	 * @return			the expression
+	 */
+	private Expression constant(Object value, Expression original) {
+		folded++;
+		long position = original.position;
+
+		if (value instanceof Boolean) {
+			Expression expr = new LiteralExpr(new BooleanLiteral(value.toString(), position), position);
+			expr.typeKind = TypeKind.BOOLEAN;
+			return rebuilt(expr, original);
+		}
+
+		int n = (Integer) value;
+		Expression literal = new LiteralExpr(new IntLiteral(Long.toString(Math.abs((long) n)), position), position);
+		literal.typeKind = TypeKind.INT;
+		if (n >= 0)
+			return rebuilt(literal, original);
+
+		Operator minus = new Operator(new Token(TokenKind.ARITHOP, "-", position), position);
+		return rebuilt(new UnaryExpr(minus, literal, position), original);
+	}
+
+	/**
+	 * Keep the end position, and the type of an expression, of a rebuilt node
+	 *
+	 * @param rebuilt	the rebuilt node
+	 * @param original	the node as it was
+	 * @return			the rebuilt node
+	 */
+	private static <T extends AST> T rebuilt(T rebuilt, AST original) {
+		rebuilt.endPosition = original.endPosition;
+		if (rebuilt instanceof Expression)
+			((Expression) rebuilt).typeKind = ((Expression) original).typeKind;
+		return rebuilt;
+	}
+
+	/**
+	 * Record that a variable was assigned, and its value if it is constant
+	 *
+	 * @param decl	the declaration of the variable, or null if it is not known
+	 * @param val	the value assigned, once folded
+	 */
+	private void assign(Declaration decl, Expression val) {
+		if (decl == null)
+			return;
+
+		Object value = value(val);
+		if (value == null)
+			constants.remove(decl);
+		else
+			constants.put(decl, value);
+		assigned.put(decl, Boolean.TRUE);
+	}
+
+	/**
+	 * Start a branch or loop, whose assignments are gathered apart
+	 *
+	 * @return	the assignments gathered before it, to pass to {@link #endRegion}
+	 */
+	private IdentityHashMap<Declaration, Boolean> beginRegion() {
+		IdentityHashMap<Declaration, Boolean> outer = assigned;
+		assigned = new IdentityHashMap<Declaration, Boolean>();
+		return outer;
+	}
+
+	/**
+	 * End a branch or loop, forgetting the values of the variables it
+	 * assigned, which are known from before it
+	 *
+	 * @param before	the values known before the region
+	 * @param outer		the assignments gathered before the region
+	 */
+	private void endRegion(IdentityHashMap<Declaration, Object> before, IdentityHashMap<Declaration, Boolean> outer) {
+		constants = before;
+		for (Declaration decl : assigned.keySet())
+			constants.remove(decl);
+		outer.putAll(assigned);
+		assigned = outer;
+	}
+
+	/**
+	 * Fold a branch, starting from the values known before it
+	 *
+	 * @param stmt		the body of the branch
+	 * @param before	the values known before the branch
+	 * @return			the folded body
+	 */
+	private AST branch(AST stmt, IdentityHashMap<Declaration, Object> before) {
+		constants = new IdentityHashMap<Declaration, Object>(before);
+		return stmt.visit(this, null);
+	}
+
+	/**
+	 * Find the values known throughout a loop
+	 *
+	 * @param before	the values known before the loop
+	 * @param body		the body of the loop
+	 * @return			the values known before the loop, less those of the
+	 * 					variables the body assigns
+	 */
+	private static IdentityHashMap<Declaration, Object> unassigned(IdentityHashMap<Declaration, Object> before,
+																   Statement body) {
+		IdentityHashMap<Declaration, Object> constants = new IdentityHashMap<Declaration, Object>(before);
+		if (! constants.isEmpty())
+			unassign(body, constants);
+		return constants;
+	}
+
+	/**
+	 * Remove the variables a statement assigns, which only statements
+	 * can do, from the values known
+	 */
+	private static void unassign(Statement stmt, IdentityHashMap<Declaration, Object> constants) {
+		if (stmt instanceof AssignStmt) {
+			if (((AssignStmt) stmt).ref instanceof IdRef)
+				constants.remove(((IdRef) ((AssignStmt) stmt).ref).id.decl);
+		} else if (stmt instanceof BlockStmt) {
+			StatementList statements = ((BlockStmt) stmt).statementList;
+			for (int i = 0; i < statements.size(); i++)
+				unassign(statements.get(i), constants);
+		} else if (stmt instanceof IfStmt) {
+			IfStmt ifStmt = (IfStmt) stmt;
+			unassign(ifStmt.body, constants);
+			for (int i = 0; i < ifStmt.elseIfStmts.size(); i++)
+				unassign(ifStmt.elseIfStmts.get(i).body, constants);
+			if (ifStmt.elseStmt != null)
+				unassign(ifStmt.elseStmt.body, constants);
+		} else if (stmt instanceof DoIfStmt) {
+			unassign(((DoIfStmt) stmt).thenStmt, constants);
+			unassign(((DoIfStmt) stmt).elseStmt, constants);
+		} else if (stmt instanceof WhileStmt) {
+			unassign(((WhileStmt) stmt).body, constants);
+		} else if (stmt instanceof UntilStmt) {
+			unassign(((UntilStmt) stmt).body, constants);
+		} else if (stmt instanceof InfiniteLoopStmt) {
+			unassign(((InfiniteLoopStmt) stmt).body, constants);
+		} else if (stmt instanceof ForStmt) {
+			unassign(((ForStmt) stmt).body, constants);
+		} else if (stmt instanceof ForEachStmt) {
+			unassign(((ForEachStmt) stmt).body, constants);
+		}
+	}
+
+	private ExprList expressions(ExprList list) {
+		AST[] elements = null;
+		for (int i = 0; i < list.size(); i++) {
+			AST element = list.get(i).visit(this, null);
+			if (element != list.get(i) && elements == null) {
+				elements = new AST[list.size()];
+				for (int j = 0; j < i; j++)
+					elements[j] = list.get(j);
+			}
+			if (elements != null)
+				elements[i] = element;
+		}
+		return elements == null ? list : new ExprList(elements, 0, elements.length);
+	}
+
+	private StatementList statements(StatementList list) {
+		AST[] elements = null;
+		for (int i = 0; i < list.size(); i++) {
+			AST element = list.get(i).visit(this, null);
+			if (element != list.get(i) && elements == null) {
+				elements = new AST[list.size()];
+				for (int j = 0; j < i; j++)
+					elements[j] = list.get(j);
+			}
+			if (elements != null)
+				elements[i] = element;
+		}
+		return elements == null ? list : new StatementList(elements, 0, elements.length);
+	}
+
+	/**
+	 * Fold the body of a function or the main block, from nothing known,
+	 * unless it is nested too deeply, in which case only its calls are
+	 * recorded, to be bound again
+	 */
+	private BlockStmt body(BlockStmt block) {
+		if (Nesting.depth(block) > maxNesting) {
+			unfolded++;
+			Nesting.calls(block, calls);
+			return block;
+		}
+
+		constants = new IdentityHashMap<Declaration, Object>();
+		assigned  = new IdentityHashMap<Declaration, Boolean>();
+		return (BlockStmt) block.visit(this, null);
+	}
+
+	@Override
+	public AST visitProgram(Program prog, Object arg) {
+		BlockStmt mainBlock = body(prog.mainBlock);
+
+		AST[] functions = null;
+		for (int i = 0; i < prog.functionDeclList.size(); i++) {
+			AST decl = prog.functionDeclList.get(i).visit(this, arg);
+			if (decl != prog.functionDeclList.get(i) && functions == null) {
+				functions = new AST[prog.functionDeclList.size()];
+				for (int j = 0; j < i; j++)
+					functions[j] = prog.functionDeclList.get(j);
+			}
+			if (functions != null)
+				functions[i] = decl;
+		}
+
+		if (functions == null && mainBlock == prog.mainBlock)
+			return prog;
+
+		FunctionDeclList functionDeclList = functions == null ? prog.functionDeclList
+															  : new FunctionDeclList(functions, 0, functions.length);
+		return rebuilt(new Program(mainBlock, functionDeclList, prog.position), prog);
+	}
+
+	@Override
+	public AST visitFunctionDecl(FunctionDecl fd, Object arg) {
+		BlockStmt block = body(fd.block);
+		if (block == fd.block)
+			return fd;
+
+		FunctionDecl function = rebuilt(new FunctionDecl(fd.nameId, fd.type, fd.params, block, fd.position), fd);
+		rebuiltFunctions.put(fd, function);
+		return function;
+	}
+
+	@Override
+	public AST visitParameterDecl(ParameterDecl pd, Object arg) {
+		return pd;
+	}
+
+	@Override
+	public AST visitVarDecl(VarDecl decl, Object arg) {
+		return decl;
+	}
+
+	@Override
+	public AST visitBaseType(BaseType type, Object arg) {
+		return type;
+	}
+
+	@Override
+	public AST visitBlockStmt(BlockStmt stmt, Object arg) {
+		StatementList statementList = statements(stmt.statementList);
+		if (statementList == stmt.statementList)
+			return stmt;
+
+		return rebuilt(new BlockStmt(statementList, stmt.position), stmt);
+	}
+
+	@Override
+	public AST visitVardeclStmt(VarDeclStmt stmt, Object arg) {
+		Expression initExpr = (Expression) stmt.initExpr.visit(this, arg);
+		assign(stmt.varDecl, initExpr);
+		if (initExpr == stmt.initExpr)
+			return stmt;
+
+		return rebuilt(new VarDeclStmt(stmt.varDecl, initExpr, stmt.position), stmt);
+	}
+
+	@Override
+	public AST visitAssignStmt(AssignStmt stmt, Object arg) {
+		Reference ref	= stmt.ref instanceof IdRef ? stmt.ref : (Reference) stmt.ref.visit(this, arg);
+		Expression val	= (Expression) stmt.val.visit(this, arg);
+		if (ref instanceof IdRef)
+			assign(((IdRef) ref).id.decl, val);
+		if (ref == stmt.ref && val == stmt.val)
+			return stmt;
+
+		return rebuilt(new AssignStmt(ref, val, stmt.position), stmt);
+	}
+
+	@Override
+	public AST visitCallStmt(CallStmt stmt, Object arg) {
+		if (stmt.functionRef instanceof IdRef)
+			calls.add(((IdRef) stmt.functionRef).id);
+
+		ExprList argList = expressions(stmt.argList);
+		if (argList == stmt.argList)
+			return stmt;
+
+		return rebuilt(new CallStmt(stmt.functionRef, argList, stmt.position), stmt);
+	}
+
+	@Override
+	public AST visitIfStmt(IfStmt stmt, Object arg) {
+		Expression condition = (Expression) stmt.condition.visit(this, arg);
+
+		IdentityHashMap<Declaration, Object> before = constants;
+		IdentityHashMap<Declaration, Boolean> outer = beginRegion();
+		Statement body = (Statement) branch(stmt.body, before);
+
+		AST[] elseIfs = null;
+		for (int i = 0; i < stmt.elseIfStmts.size(); i++) {
+			AST elseIf = branch(stmt.elseIfStmts.get(i), before);
+			if (elseIf != stmt.elseIfStmts.get(i) && elseIfs == null) {
+				elseIfs = new AST[stmt.elseIfStmts.size()];
+				for (int j = 0; j < i; j++)
+					elseIfs[j] = stmt.elseIfStmts.get(j);
+			}
+			if (elseIfs != null)
+				elseIfs[i] = elseIf;
+		}
+
+		ElseStmt elseStmt = stmt.elseStmt == null ? null : (ElseStmt) branch(stmt.elseStmt, before);
+		endRegion(before, outer);
+
+		if (condition == stmt.condition && body == stmt.body && elseIfs == null && elseStmt == stmt.elseStmt)
+			return stmt;
+
+		ElseIfStmtList elseIfStmts = elseIfs == null ? stmt.elseIfStmts
+													 : new ElseIfStmtList(elseIfs, 0, elseIfs.length);
+		return rebuilt(new IfStmt(condition, body, elseIfStmts, elseStmt, stmt.position), stmt);
+	}
+
+	/**
+	 * Fold an else-if branch. Its condition is evaluated only after those
+	 * before it, which assign nothing, so it is folded with the values
+	 * known before the if statement, as is its body.
+	 */
+	@Override
+	public AST visitElseIfStmt(ElseIfStmt stmt, Object arg) {
+		Expression condition = (Expression) stmt.condition.visit(this, arg);
+		Statement body		 = (Statement) stmt.body.visit(this, arg);
+		if (condition == stmt.condition && body == stmt.body)
+			return stmt;
+
+		return rebuilt(new ElseIfStmt(condition, body, stmt.position), stmt);
+	}
+
+	@Override
+	public AST visitElseStmt(ElseStmt stmt, Object arg) {
+		Statement body = (Statement) stmt.body.visit(this, arg);
+		if (body == stmt.body)
+			return stmt;
+
+		return rebuilt(new ElseStmt(body, stmt.position), stmt);
+	}
+
+	@Override
+	public AST visitWhileStmt(WhileStmt stmt, Object arg) {
+		IdentityHashMap<Declaration, Object> before = constants;
+		IdentityHashMap<Declaration, Boolean> outer = beginRegion();
+		constants = unassigned(before, stmt.body);
+		Expression condition = (Expression) stmt.condition.visit(this, arg);
+		Statement body		 = (Statement) stmt.body.visit(this, arg);
+		endRegion(before, outer);
+
+		if (condition == stmt.condition && body == stmt.body)
+			return stmt;
+
+		return rebuilt(new WhileStmt(condition, body, stmt.position), stmt);
+	}
+
+	@Override
+	public AST visitForStmt(ForStmt stmt, Object arg) {
+		Expression fromExpr = (Expression) stmt.fromExpr.visit(this, arg);
+
+		IdentityHashMap<Declaration, Object> before = constants;
+		IdentityHashMap<Declaration, Boolean> outer = beginRegion();
+		constants = unassigned(before, stmt.body);
+		Expression toExpr	= (Expression) stmt.toExpr.visit(this, arg);
+		Expression byExpr	= (Expression) stmt.byExpr.visit(this, arg);
+		BlockStmt body		= (BlockStmt) stmt.body.visit(this, arg);
+		endRegion(before, outer);
+
+		if (fromExpr == stmt.fromExpr && toExpr == stmt.toExpr && byExpr == stmt.byExpr && body == stmt.body)
+			return stmt;
+
+		return rebuilt(new ForStmt(stmt.loopVar, stmt.loopVarType, fromExpr, toExpr, byExpr, body, stmt.position), stmt);
+	}
+
+	@Override
+	public AST visitForEachStmt(ForEachStmt stmt, Object arg) {
+		Expression collection = (Expression) stmt.collection.visit(this, arg);
+
+		IdentityHashMap<Declaration, Object> before = constants;
+		IdentityHashMap<Declaration, Boolean> outer = beginRegion();
+		constants = unassigned(before, stmt.body);
+		Statement body = (Statement) stmt.body.visit(this, arg);
+		endRegion(before, outer);
+
+		if (collection == stmt.collection && body == stmt.body)
+			return stmt;
+
+		return rebuilt(new ForEachStmt(stmt.loopVar, stmt.loopVarType, collection, body, stmt.position), stmt);
+	}
+
+	@Override
+	public AST visitInfiniteLoopStmt(InfiniteLoopStmt stmt, Object arg) {
+		IdentityHashMap<Declaration, Object> before = constants;
+		IdentityHashMap<Declaration, Boolean> outer = beginRegion();
+		constants = unassigned(before, stmt.body);
+		Statement body = (Statement) stmt.body.visit(this, arg);
+		endRegion(before, outer);
+
+		if (body == stmt.body)
+			return stmt;
+
+		return rebuilt(new InfiniteLoopStmt(body, stmt.position), stmt);
+	}
+
+	@Override
+	public AST visitUntilStmt(UntilStmt stmt, Object arg) {
+		IdentityHashMap<Declaration, Object> before = constants;
+		IdentityHashMap<Declaration, Boolean> outer = beginRegion();
+		constants = unassigned(before, stmt.body);
+		Expression condition = (Expression) stmt.condition.visit(this, arg);
+		Statement body		 = (Statement) stmt.body.visit(this, arg);
+		endRegion(before, outer);
+
+		if (condition == stmt.condition && body == stmt.body)
+			return stmt;
+
+		return rebuilt(new UntilStmt(condition, body, stmt.position), stmt);
+	}
+
+	@Override
+	public AST visitDoIfStmt(DoIfStmt stmt, Object arg) {
+		Expression condition = (Expression) stmt.condition.visit(this, arg);
+
+		IdentityHashMap<Declaration, Object> before = constants;
+		IdentityHashMap<Declaration, Boolean> outer = beginRegion();
+		Statement thenStmt = (Statement) branch(stmt.thenStmt, before);
+		Statement elseStmt = (Statement) branch(stmt.elseStmt, before);
+		endRegion(before, outer);
+
+		if (thenStmt == stmt.thenStmt && condition == stmt.condition && elseStmt == stmt.elseStmt)
+			return stmt;
+
+		return rebuilt(new DoIfStmt(thenStmt, condition, elseStmt, stmt.position), stmt);
+	}
+
+	@Override
+	public AST visitBreakStmt(BreakStmt stmt, Object arg) {
+		return stmt;
+	}
+
+	@Override
+	public AST visitReturnStmt(ReturnStmt stmt, Object arg) {
+		if (stmt.returnExpr == null)
+			return stmt;
+
+		Expression returnExpr = (Expression) stmt.returnExpr.visit(this, arg);
+		if (returnExpr == stmt.returnExpr)
+			return stmt;
+
+		return rebuilt(new ReturnStmt(returnExpr, stmt.position), stmt);
+	}
+
+	@Override
+	public AST visitUnaryExpr(UnaryExpr expr, Object arg) {
+		Expression operand = (Expression) expr.expr.visit(this, arg);
+		Object value	   = value(operand);
+
+		if (value instanceof Integer && expr.operator.spelling.equals("-")) {
+			if (operand == expr.expr && operand instanceof LiteralExpr)
+				return expr;	// already a negative constant
+			return constant(-(Integer) value, expr);
+		}
+		if (value instanceof Boolean && ! expr.operator.spelling.equals("-"))
+			return constant(! (Boolean) value, expr);
+
+		if (operand == expr.expr)
+			return expr;
+
+		return rebuilt(new UnaryExpr(expr.operator, operand, expr.position), expr);
+	}
+
+	@Override
+	public AST visitBinaryExpr(BinaryExpr expr, Object arg) {
+		Expression left	 = (Expression) expr.leftExpr.visit(this, arg);
+		Expression right = (Expression) expr.rightExpr.visit(this, arg);
+		Object a		 = value(left);
+		Object b		 = value(right);
+		String op		 = expr.operator.spelling;
+
+		if (a instanceof Integer && b instanceof Integer) {
+			int x = (Integer) a;
+			int y = (Integer) b;
+			switch (op) {
+			case "+":
+				return constant(x + y, expr);
+			case "-":
+				return constant(x - y, expr);
+			case "*":
+				return constant(x * y, expr);
+			case "/":
+				if (y != 0)
+					return constant(x / y, expr);
+				break;
+			case "%": case "mod":
+				if (y != 0)
+					return constant(x % y, expr);
+				break;
+			case "<":
+				return constant(x < y, expr);
+			case "<=":
+				return constant(x <= y, expr);
+			case ">":
+				return constant(x > y, expr);
+			case ">=":
+				return constant(x >= y, expr);
+			case "==": case "equals":
+				return constant(x == y, expr);
+			case "!=": case "notequals":
+				return constant(x != y, expr);
+			}
+		}
+
+		switch (op) {
+		case "==": case "equals":
+			if (a instanceof Boolean && b instanceof Boolean)
+				return constant(a.equals(b), expr);
+			break;
+		case "!=": case "notequals":
+			if (a instanceof Boolean && b instanceof Boolean)
+				return constant(! a.equals(b), expr);
+			break;
+		case "and": case "&&":
+			if (a instanceof Boolean)
+				return (Boolean) a ? operand(right, expr) : constant(false, expr);
+			if (Boolean.TRUE.equals(b))
+				return operand(left, expr);
+			break;
+		case "or": case "||":
+			if (a instanceof Boolean)
+				return (Boolean) a ? constant(true, expr) : operand(right, expr);
+			if (Boolean.FALSE.equals(b))
+				return operand(left, expr);
+			break;
+		}
+
+		if (left == expr.leftExpr && right == expr.rightExpr)
+			return expr;
+
+		return rebuilt(new BinaryExpr(left, expr.operator, right, expr.position), expr);
+	}
+
+	/**
+	 * Replace an expression by the operand it reduces to
+	 */
+	private Expression operand(Expression operand, Expression expr) {
+		folded++;
+		return operand;
+	}
+
+	@Override
+	public AST visitRefExpr(RefExpr expr, Object arg) {
+		if (expr.ref instanceof IdRef) {
+			Object value = constants.get(((IdRef) expr.ref).id.decl);
+			if (value != null)
+				return constant(value, expr);
+			return expr;
+		}
+
+		Reference ref = (Reference) expr.ref.visit(this, arg);
+		if (ref == expr.ref)
+			return expr;
+
+		return rebuilt(new RefExpr(ref, expr.position), expr);
+	}
+
+	@Override
+	public AST visitCallExpr(CallExpr expr, Object arg) {
+		if (expr.functionRef instanceof IdRef)
+			calls.add(((IdRef) expr.functionRef).id);
+
+		ExprList argList = expressions(expr.argList);
+		if (argList == expr.argList)
+			return expr;
+
+		return rebuilt(new CallExpr(expr.functionRef, argList, expr.position), expr);
+	}
+
+	@Override
+	public AST visitLiteralExpr(LiteralExpr expr, Object arg) {
+		return expr;
+	}
+
+	@Override
+	public AST visitIfExpr(IfExpr expr, Object arg) {
+		Expression condition = (Expression) expr.condition.visit(this, arg);
+		Object value		 = value(condition);
+		if (value instanceof Boolean)
+			return operand((Expression) ((Boolean) value ? expr.thenExpr : expr.elseExpr).visit(this, arg), expr);
+
+		Expression thenExpr	 = (Expression) expr.thenExpr.visit(this, arg);
+		Expression elseExpr	 = (Expression) expr.elseExpr.visit(this, arg);
+		if (thenExpr == expr.thenExpr && condition == expr.condition && elseExpr == expr.elseExpr)
+			return expr;
+
+		return rebuilt(new IfExpr(thenExpr, condition, elseExpr, expr.position), expr);
+	}
+
+	@Override
+	public AST visitIndexedRef(IndexedRef ref, Object arg) {
+		Expression indexExpr = (Expression) ref.indexExpr.visit(this, arg);
+		if (indexExpr == ref.indexExpr)
+			return ref;
+
+		return rebuilt(new IndexedRef((IdRef) ref.ref, indexExpr, ref.position), ref);
+	}
+
+	@Override
+	public AST visitIdRef(IdRef ref, Object arg) {
+		return ref;
+	}
+
+	@Override
+	public AST visitIdentifier(Identifier id, Object arg) {
+		return id;
+	}
+
+	@Override
+	public AST visitOperator(Operator op, Object arg) {
+		return op;
+	}
+
+	@Override
+	public AST visitIntLiteral(IntLiteral num, Object arg) {
+		return num;
+	}
+
+	@Override
+	public AST visitBooleanLiteral(BooleanLiteral bool, Object arg) {
+		return bool;
+	}
+
+	@Override
+	public AST visitStringLiteral(StringLiteral str, Object arg) {
+		return str;
+	}
+}
@@ -0,0 +1,747 @@
+/**
+ * Removes the parts of an AST that can never run or whose results are
+ * never used: unreachable statements, branches whose conditions are
+ * constant, unused variables, and functions never called from main
+ * <p>
+ * Statements that follow a break, a return, or a statement that cannot
+ * complete, such as a loop that never ends and has no break, are removed,
+ * as the Java compiler rejects them. A branch whose condition is false is
+ * removed, a branch whose condition is true replaces its conditional
+ * statement, and a loop whose condition is never met is removed. A branch
+ * that declares variables takes the place of its conditional statement as
+ * a block, which the Generator writes in braces to keep them in their scope.
+ * <p>
+ * A variable is removed with its declaration and its assignments when it
+ * is never read, other than in the values of assignments to variables that
+ * are themselves removed, and all of those values have no side effects.
+ * A value has side effects if it calls a function, indexes, or divides by
+ * other than a constant that is not zero. Functions are kept only if the
+ * {@link CallGraph} of the program, once the rest of its dead code is
+ * removed, finds them reachable from the main block.
+ * <p>
+ * The AST is best folded by a {@link ConstantFolder} first, which makes
+ * constant the conditions this removes. As with the ConstantFolder, nodes
+ * with nothing removed are kept as they are, and calls are bound again to
+ * their rebuilt functions. Likewise, a body nested too deeply is kept as
+ * it is.
+ * <p>
+ * Implements Visitor<Object, AST>
+ *
+ * @author  Federico Menozzi
+ * @version Easy Compiler v1
+ */
+
+package easy.Optimizer;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+
+import easy.AbstractSyntaxTrees.*;
+
+import easy.ContextualAnalyzer.CallGraph;
+
+public class DeadCodeEliminator implements Visitor<Object, AST> {
+
+	/**
+	 * Whether the statement last visited can complete, so that the next
+	 * one can be reached
+	 */
+	private boolean completes;
+
+	/**
+	 * Whether a break from the innermost loop has been visited
+	 */
+	private boolean broke;
+
+	/**
+	 * Variables declared, the variables read in the values assigned to
+	 * each, and the variables known to be used
+	 */
+	private final IdentityHashMap<Declaration, Boolean> declared = new IdentityHashMap<Declaration, Boolean>();
+	private final IdentityHashMap<Declaration, ArrayList<Declaration>> reads = new IdentityHashMap<Declaration, ArrayList<Declaration>>();
+	private final IdentityHashMap<Declaration, Boolean> used = new IdentityHashMap<Declaration, Boolean>();
+
+	/**
+	 * While visiting the value assigned to a variable, the variables it
+	 * reads, and whether it has no side effects
+	 */
+	private ArrayList<Declaration> valueReads;
+	private boolean pure;
+
+	/**
+	 * Variables to remove, once known
+	 */
+	private IdentityHashMap<Declaration, Boolean> unused = new IdentityHashMap<Declaration, Boolean>();
+
+	/**
+	 * Functions rebuilt, and the identifiers of the calls to be bound to them
+	 */
+	private final IdentityHashMap<FunctionDecl, FunctionDecl> rebuiltFunctions = new IdentityHashMap<FunctionDecl, FunctionDecl>();
+	private final ArrayList<Identifier> calls = new ArrayList<Identifier>();
+
+	/**
+	 * Greatest depth of nesting of a body whose dead code is removed
+	 */
+	private int maxNesting = ConstantFolder.defaultMaxNesting;
+
+	/**
+	 * Number of statements and branches, and of functions, removed, and
+	 * of bodies left as they are, being nested too deeply
+	 */
+	private int removedStatements;
+	private int removedFunctions;
+	private int unvisited;
+
+	/**
+	 * Set the greatest depth of nesting of the statements of a body whose
+	 * dead code is removed, as by {@link ConstantFolder#setMaxNesting(int)}
+	 *
+	 * @param maxNesting	the greatest depth of nesting visited
+	 */
+	public void setMaxNesting(int maxNesting) {
+		if (maxNesting < 0)
+			throw new IllegalArgumentException("Nesting limit must not be negative: " + maxNesting);
+
+		this.maxNesting = maxNesting;
+	}
+
+	/**
+	 * Remove the dead code of a program
+	 *
+	 * @param ast	the root node of the AST, once identified and type checked
+	 * @return		the root node of the AST with its dead code removed, which
+	 * 				is ast itself if there was none
+	 */
+	public AST eliminate(AST ast) {
+		AST result = ast.visit(this, null);
+		bindCalls();
+
+		for (Declaration decl : reads.keySet())
+			if (! declared.containsKey(decl))
+				use(decl);
+		for (Declaration decl : declared.keySet())
+			if (! used.containsKey(decl))
+				unused.put(decl, Boolean.TRUE);
+
+		if (! unused.isEmpty()) {
+			result = result.visit(this, null);
+			bindCalls();
+		}
+
+		declared.clear();
+		reads.clear();
+		used.clear();
+		unused = new IdentityHashMap<Declaration, Boolean>();
+
+		return result;
+	}
+
+	/**
+	 * Bind the calls visited to the functions rebuilt
+	 */
+	private void bindCalls() {
+		for (Identifier id : calls) {
+			FunctionDecl function = rebuiltFunctions.get(id.decl);
+			if (function != null)
+				id.decl = function;
+		}
+		calls.clear();
+		rebuiltFunctions.clear();
+	}
+
+	/**
+	 * Get the number of statements and branches removed so far
+	 *
+	 * @return	the number of statements and branches removed, not counting
+	 * 			those within them
+	 */
+	public int removedStatements() {
+		return removedStatements;
+	}
+
+	/**
+	 * Get the number of functions removed so far
+	 *
+	 * @return	the number of functions removed
+	 */
+	public int removedFunctions() {
+		return removedFunctions;
+	}
+
+	/**
+	 * Get the number of bodies left as they are so far, being nested
+	 * more deeply than the limit on nesting
+	 *
+	 * @return	the number of function bodies and main blocks not visited
+	 */
+	public int unvisited() {
+		return unvisited;
+	}
+
+	/**
+	 * Find the value of a constant condition
+	 *
+	 * @param expr	the condition
+	 * @return		its value, or null if it is not a Boolean literal
+	 */
+	private static Boolean constant(Expression expr) {
+		if (expr instanceof LiteralExpr && ((LiteralExpr) expr).literal instanceof BooleanLiteral)
+			return ((LiteralExpr) expr).literal.spelling.equals("true");
+		return null;
+	}
+
+	/**
+	 * Keep the end position of a rebuilt node
+	 */
+	private static <T extends AST> T rebuilt(T rebuilt, AST original) {
+		rebuilt.endPosition = original.endPosition;
+		return rebuilt;
+	}
+
+	/**
+	 * Record that a variable is read, by the value assigned to another
+	 * if one is being visited
+	 */
+	private void read(Declaration decl) {
+		if (decl == null)
+			return;
+
+		if (valueReads != null)
+			valueReads.add(decl);
+		else
+			use(decl);
+	}
+
+	/**
+	 * Record that a variable is used, along with the variables read in
+	 * the values assigned to it
+	 */
+	private void use(Declaration decl) {
+		ArrayList<Declaration> uses = new ArrayList<Declaration>();
+		uses.add(decl);
+		while (! uses.isEmpty()) {
+			Declaration used = uses.remove(uses.size() - 1);
+			if (this.used.put(used, Boolean.TRUE) == null && reads.containsKey(used))
+				uses.addAll(reads.get(used));
+		}
+	}
+
+	/**
+	 * Visit the value assigned to a variable, recording what it reads
+	 *
+	 * @param decl	the declaration of the variable, or null if it is not known
+	 * @param val	the value
+	 */
+	private void assign(Declaration decl, Expression val) {
+		valueReads = new ArrayList<Declaration>();
+		pure	   = true;
+		val.visit(this, null);
+		ArrayList<Declaration> values = valueReads;
+		valueReads = null;
+
+		if (decl == null || ! pure) {
+			for (Declaration read : values)
+				use(read);
+			if (decl != null)
+				use(decl);
+		} else if (used.containsKey(decl)) {
+			for (Declaration read : values)
+				use(read);
+		} else {
+			if (! reads.containsKey(decl))
+				reads.put(decl, new ArrayList<Declaration>());
+			reads.get(decl).addAll(values);
+		}
+	}
+
+	/**
+	 * Put a branch chosen by a constant condition in place of its
+	 * conditional statement, as a block if it declares variables. Whether
+	 * it completes is left as found by visiting it.
+	 *
+	 * @param body		the branch, once visited
+	 * @param original	the conditional statement
+	 * @return			the statement to take its place
+	 */
+	private Statement inline(Statement body, Statement original) {
+		if (! (body instanceof VarDeclStmt))
+			return body;
+
+		return rebuilt(new BlockStmt(new StatementList(new AST[] { body }, 0, 1), original.position), original);
+	}
+
+	/**
+	 * Visit a statement that must be kept, as an empty block if it is removed
+	 */
+	private Statement statement(Statement stmt) {
+		Statement result = (Statement) stmt.visit(this, null);
+		if (result != null)
+			return result;
+
+		completes = true;
+		return rebuilt(new BlockStmt(StatementList.empty, stmt.position), stmt);
+	}
+
+	private StatementList statements(StatementList list) {
+		AST[] elements = null;
+		int count	   = 0;
+		completes	   = true;
+		for (int i = 0; i < list.size(); i++) {
+			AST element = null;
+			if (completes)
+				element = list.get(i).visit(this, null);
+			else
+				removedStatements++;
+
+			if (element != list.get(i) && elements == null) {
+				elements = new AST[list.size()];
+				for (int j = 0; j < i; j++)
+					elements[count++] = list.get(j);
+			}
+			if (elements != null && element != null)
+				elements[count++] = element;
+		}
+		return elements == null ? list : new StatementList(elements, 0, count);
+	}
+
+	/**
+	 * Visit the body of a function or the main block, unless it is nested
+	 * too deeply, in which case only its calls are recorded, to be bound again
+	 */
+	private BlockStmt body(BlockStmt block) {
+		if (Nesting.depth(block) > maxNesting) {
+			unvisited++;
+			Nesting.calls(block, calls);
+			return block;
+		}
+
+		broke = false;
+		return (BlockStmt) block.visit(this, null);
+	}
+
+	/**
+	 * Visit the main block and every function, then keep the functions
+	 * that the {@link CallGraph} of the result finds reachable, so that
+	 * calls in code removed do not count
+	 */
+	@Override
+	public AST visitProgram(Program prog, Object arg) {
+		FunctionDeclList functionDeclList = prog.functionDeclList;
+		BlockStmt mainBlock = body(prog.mainBlock);
+
+		AST[] visited		= new AST[functionDeclList.size()];
+		int[] removedWithin = new int[functionDeclList.size()];
+		boolean changed		= mainBlock != prog.mainBlock;
+		for (int i = 0; i < functionDeclList.size(); i++) {
+			int removed		 = removedStatements;
+			visited[i]		 = functionDeclList.get(i).visit(this, arg);
+			removedWithin[i] = removedStatements - removed;
+			changed			|= visited[i] != functionDeclList.get(i);
+		}
+		bindCalls();
+
+		FunctionDeclList visitedList = changed ? new FunctionDeclList(visited, 0, visited.length) : functionDeclList;
+		CallGraph graph = CallGraph.of(new Program(mainBlock, visitedList, prog.position));
+
+		AST[] kept = null;
+		int count  = 0;
+		for (int i = 0; i < visited.length; i++) {
+			AST decl = graph.isReachable(visitedList.get(i)) ? visited[i] : null;
+			if (decl != functionDeclList.get(i) && kept == null) {
+				kept = new AST[visited.length];
+				for (int j = 0; j < i; j++)
+					kept[count++] = functionDeclList.get(j);
+			}
+			if (kept != null && decl != null)
+				kept[count++] = decl;
+			if (decl == null) {
+				removedFunctions++;
+				removedStatements -= removedWithin[i];
+			}
+		}
+
+		if (kept == null && mainBlock == prog.mainBlock)
+			return prog;
+
+		if (kept != null)
+			functionDeclList = new FunctionDeclList(kept, 0, count);
+		return rebuilt(new Program(mainBlock, functionDeclList, prog.position), prog);
+	}
+
+	@Override
+	public AST visitFunctionDecl(FunctionDecl fd, Object arg) {
+		BlockStmt block = body(fd.block);
+		if (block == fd.block)
+			return fd;
+
+		FunctionDecl function = rebuilt(new FunctionDecl(fd.nameId, fd.type, fd.params, block, fd.position), fd);
+		rebuiltFunctions.put(fd, function);
+		return function;
+	}
+
+	@Override
+	public AST visitParameterDecl(ParameterDecl pd, Object arg) {
+		return pd;
+	}
+
+	@Override
+	public AST visitVarDecl(VarDecl decl, Object arg) {
+		return decl;
+	}
+
+	@Override
+	public AST visitBaseType(BaseType type, Object arg) {
+		return type;
+	}
+
+	@Override
+	public AST visitBlockStmt(BlockStmt stmt, Object arg) {
+		StatementList statementList = statements(stmt.statementList);
+		if (statementList == stmt.statementList)
+			return stmt;
+
+		return rebuilt(new BlockStmt(statementList, stmt.position), stmt);
+	}
+
+	@Override
+	public AST visitVardeclStmt(VarDeclStmt stmt, Object arg) {
+		completes = true;
+		if (unused.containsKey(stmt.varDecl)) {
+			removedStatements++;
+			return null;
+		}
+
+		declared.put(stmt.varDecl, Boolean.TRUE);
+		assign(stmt.varDecl, stmt.initExpr);
+		return stmt;
+	}
+
+	@Override
+	public AST visitAssignStmt(AssignStmt stmt, Object arg) {
+		completes = true;
+		if (stmt.ref instanceof IdRef) {
+			Declaration decl = ((IdRef) stmt.ref).id.decl;
+			if (unused.containsKey(decl)) {
+				removedStatements++;
+				return null;
+			}
+			assign(decl, stmt.val);
+		} else {
+			stmt.ref.visit(this, arg);
+			stmt.val.visit(this, arg);
+		}
+		return stmt;
+	}
+
+	@Override
+	public AST visitCallStmt(CallStmt stmt, Object arg) {
+		completes = true;
+		call(stmt.functionRef);
+		for (int i = 0; i < stmt.argList.size(); i++)
+			stmt.argList.get(i).visit(this, arg);
+		return stmt;
+	}
+
+	/**
+	 * Record a call, to be bound to the function called once rebuilt
+	 */
+	private void call(Reference functionRef) {
+		if (functionRef instanceof IdRef)
+			calls.add(((IdRef) functionRef).id);
+	}
+
+	/**
+	 * Visit an if statement. The branches up to the first whose condition
+	 * is true are kept, less those whose conditions are false; the first
+	 * kept becomes the if, and one whose condition is true the else.
+	 */
+	@Override
+	public AST visitIfStmt(IfStmt stmt, Object arg) {
+		ArrayList<Expression> conditions = new ArrayList<Expression>();
+		ArrayList<Statement> bodies		 = new ArrayList<Statement>();
+		ArrayList<Statement> originals	 = new ArrayList<Statement>();
+		Statement last		 = null;
+		Statement lastBranch = null;
+		boolean changed		 = false;
+		boolean anyCompletes = false;
+
+		int branches = stmt.elseIfStmts.size() + 1;
+		for (int i = 0; i < branches && lastBranch == null; i++) {
+			Statement branch	 = i == 0 ? stmt : stmt.elseIfStmts.get(i - 1);
+			Expression condition = i == 0 ? stmt.condition : stmt.elseIfStmts.get(i - 1).condition;
+			Statement body		 = i == 0 ? stmt.body : stmt.elseIfStmts.get(i - 1).body;
+
+			Boolean value = constant(condition);
+			if (value == null) {
+				condition.visit(this, arg);
+				conditions.add(condition);
+				bodies.add(statement(body));
+				originals.add(branch);
+			} else if (value) {
+				last	   = statement(body);
+				lastBranch = branch;
+				changed	   = true;
+				removedStatements += branches - i - 1 + (stmt.elseStmt == null ? 0 : 1);
+			} else {
+				changed = true;
+				removedStatements++;
+			}
+			if (value == null || value)
+				anyCompletes |= completes;
+		}
+
+		if (lastBranch == null && stmt.elseStmt != null) {
+			last		 = statement(stmt.elseStmt.body);
+			lastBranch	 = stmt.elseStmt;
+			anyCompletes |= completes;
+		}
+		if (lastBranch == null)
+			anyCompletes = true;
+
+		completes = anyCompletes;
+		if (conditions.isEmpty())
+			return last == null ? null : inline(last, stmt);
+
+		if (! changed) {
+			boolean same = last == (stmt.elseStmt == null ? null : stmt.elseStmt.body);
+			for (int i = 0; i < bodies.size(); i++)
+				same &= bodies.get(i) == (i == 0 ? stmt.body : stmt.elseIfStmts.get(i - 1).body);
+			if (same)
+				return stmt;
+		}
+
+		AST[] elseIfs = new AST[bodies.size() - 1];
+		for (int i = 1; i < bodies.size(); i++) {
+			Statement original = originals.get(i);
+			if (original instanceof ElseIfStmt && ((ElseIfStmt) original).body == bodies.get(i))
+				elseIfs[i - 1] = original;
+			else
+				elseIfs[i - 1] = rebuilt(new ElseIfStmt(conditions.get(i), bodies.get(i), original.position), original);
+		}
+		ElseIfStmtList elseIfStmts = elseIfs.length == 0 ? ElseIfStmtList.empty
+														 : new ElseIfStmtList(elseIfs, 0, elseIfs.length);
+
+		ElseStmt elseStmt = null;
+		if (lastBranch == stmt.elseStmt && last == stmt.elseStmt.body)
+			elseStmt = stmt.elseStmt;
+		else if (lastBranch != null)
+			elseStmt = rebuilt(new ElseStmt(last, lastBranch.position), lastBranch);
+
+		return rebuilt(new IfStmt(conditions.get(0), bodies.get(0), elseIfStmts, elseStmt, originals.get(0).position),
+					   originals.get(0));
+	}
+
+	@Override
+	public AST visitElseIfStmt(ElseIfStmt stmt, Object arg) {
+		return stmt;	// visited by visitIfStmt
+	}
+
+	@Override
+	public AST visitElseStmt(ElseStmt stmt, Object arg) {
+		return stmt;	// visited by visitIfStmt
+	}
+
+	@Override
+	public AST visitWhileStmt(WhileStmt stmt, Object arg) {
+		Boolean value = constant(stmt.condition);
+		if (Boolean.FALSE.equals(value)) {
+			removedStatements++;
+			completes = true;
+			return null;
+		}
+
+		stmt.condition.visit(this, arg);
+		Statement body = loop(stmt.body, value != null);
+		if (body == stmt.body)
+			return stmt;
+
+		return rebuilt(new WhileStmt(stmt.condition, body, stmt.position), stmt);
+	}
+
+	/**
+	 * Visit the body of a loop, which completes unless it never ends
+	 * and has no break
+	 *
+	 * @param body		the body
+	 * @param endless	whether the loop ends only by a break
+	 * @return			the body, once visited
+	 */
+	private Statement loop(Statement body, boolean endless) {
+		boolean outer = broke;
+		broke = false;
+		Statement result = statement(body);
+		completes = ! endless || broke;
+		broke = outer;
+		return result;
+	}
+
+	@Override
+	public AST visitForStmt(ForStmt stmt, Object arg) {
+		stmt.fromExpr.visit(this, arg);
+		stmt.toExpr.visit(this, arg);
+		stmt.byExpr.visit(this, arg);
+		BlockStmt body = (BlockStmt) loop(stmt.body, false);
+		if (body == stmt.body)
+			return stmt;
+
+		return rebuilt(new ForStmt(stmt.loopVar, stmt.loopVarType, stmt.fromExpr, stmt.toExpr, stmt.byExpr, body, stmt.position), stmt);
+	}
+
+	@Override
+	public AST visitForEachStmt(ForEachStmt stmt, Object arg) {
+		stmt.collection.visit(this, arg);
+		Statement body = loop(stmt.body, false);
+		if (body == stmt.body)
+			return stmt;
+
+		return rebuilt(new ForEachStmt(stmt.loopVar, stmt.loopVarType, stmt.collection, body, stmt.position), stmt);
+	}
+
+	@Override
+	public AST visitInfiniteLoopStmt(InfiniteLoopStmt stmt, Object arg) {
+		Statement body = loop(stmt.body, true);
+		if (body == stmt.body)
+			return stmt;
+
+		return rebuilt(new InfiniteLoopStmt(body, stmt.position), stmt);
+	}
+
+	@Override
+	public AST visitUntilStmt(UntilStmt stmt, Object arg) {
+		Boolean value = constant(stmt.condition);
+		if (Boolean.TRUE.equals(value)) {
+			removedStatements++;
+			completes = true;
+			return null;
+		}
+
+		stmt.condition.visit(this, arg);
+		Statement body = loop(stmt.body, value != null);
+		if (body == stmt.body)
+			return stmt;
+
+		return rebuilt(new UntilStmt(stmt.condition, body, stmt.position), stmt);
+	}
+
+	@Override
+	public AST visitDoIfStmt(DoIfStmt stmt, Object arg) {
+		Boolean value = constant(stmt.condition);
+		if (value != null) {
+			removedStatements++;
+			return inline(statement(value ? stmt.thenStmt : stmt.elseStmt), stmt);
+		}
+
+		stmt.condition.visit(this, arg);
+		Statement thenStmt	  = statement(stmt.thenStmt);
+		boolean thenCompletes = completes;
+		Statement elseStmt	  = statement(stmt.elseStmt);
+		completes |= thenCompletes;
+		if (thenStmt == stmt.thenStmt && elseStmt == stmt.elseStmt)
+			return stmt;
+
+		return rebuilt(new DoIfStmt(thenStmt, stmt.condition, elseStmt, stmt.position), stmt);
+	}
+
+	@Override
+	public AST visitBreakStmt(BreakStmt stmt, Object arg) {
+		broke	  = true;
+		completes = false;
+		return stmt;
+	}
+
+	@Override
+	public AST visitReturnStmt(ReturnStmt stmt, Object arg) {
+		if (stmt.returnExpr != null)
+			stmt.returnExpr.visit(this, arg);
+		completes = false;
+		return stmt;
+	}
+
+	@Override
+	public AST visitUnaryExpr(UnaryExpr expr, Object arg) {
+		expr.expr.visit(this, arg);
+		return expr;
+	}
+
+	@Override
+	public AST visitBinaryExpr(BinaryExpr expr, Object arg) {
+		expr.leftExpr.visit(this, arg);
+		expr.rightExpr.visit(this, arg);
+
+		switch (expr.operator.spelling) {
+		case "/": case "%": case "mod":
+			Object divisor = ConstantFolder.value(expr.rightExpr);
+			if (divisor == null || divisor.equals(0))
+				pure = false;
+			break;
+		}
+		return expr;
+	}
+
+	@Override
+	public AST visitRefExpr(RefExpr expr, Object arg) {
+		expr.ref.visit(this, arg);
+		return expr;
+	}
+
+	@Override
+	public AST visitCallExpr(CallExpr expr, Object arg) {
+		pure = false;
+		call(expr.functionRef);
+		for (int i = 0; i < expr.argList.size(); i++)
+			expr.argList.get(i).visit(this, arg);
+		return expr;
+	}
+
+	@Override
+	public AST visitLiteralExpr(LiteralExpr expr, Object arg) {
+		return expr;
+	}
+
+	@Override
+	public AST visitIfExpr(IfExpr expr, Object arg) {
+		expr.condition.visit(this, arg);
+		expr.thenExpr.visit(this, arg);
+		expr.elseExpr.visit(this, arg);
+		return expr;
+	}
+
+	@Override
+	public AST visitIndexedRef(IndexedRef ref, Object arg) {
+		pure = false;
+		ref.ref.visit(this, arg);
+		ref.indexExpr.visit(this, arg);
+		return ref;
+	}
+
+	@Override
+	public AST visitIdRef(IdRef ref, Object arg) {
+		read(ref.id.decl);
+		return ref;
+	}
+
+	@Override
+	public AST visitIdentifier(Identifier id, Object arg) {
+		return id;
+	}
+
+	@Override
+	public AST visitOperator(Operator op, Object arg) {
+		return op;
+	}
+
+	@Override
+	public AST visitIntLiteral(IntLiteral num, Object arg) {
+		return num;
+	}
+
+	@Override
+	public AST visitBooleanLiteral(BooleanLiteral bool, Object arg) {
+		return bool;
+	}
+
+	@Override
+	public AST visitStringLiteral(StringLiteral str, Object arg) {
+		return str;
+	}
+}
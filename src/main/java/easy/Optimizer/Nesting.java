@@ -0,0 +1,309 @@
+/**
+ * Finds how deeply the statements of a body are nested, and the calls
+ * it makes, by walking it with an explicit stack rather than by recursion
+ * <p>
+ * The optimizers recurse once or more for each level of nesting, and
+ * need more of the thread's stack for each level than the passes before
+ * them. A body nested more deeply than they can afford is left as it is,
+ * and its calls are still bound again to the functions they rebuild.
+ * <p>
+ * Implements Visitor<Integer, Object>, where the argument is the depth
+ * of the statement that holds the node visited
+ *
+ * @author  Federico Menozzi
+ * @version Easy Compiler v1
+ */
+
+package easy.Optimizer;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import easy.AbstractSyntaxTrees.*;
+
+class Nesting implements Visitor<Integer, Object> {
+
+	/**
+	 * Nodes still to be visited, and the depth of the statement holding each
+	 */
+	private final ArrayList<AST> pending	  = new ArrayList<AST>();
+	private final ArrayList<Integer> depths = new ArrayList<Integer>();
+
+	/**
+	 * Identifiers of the calls found, or null if they are not wanted
+	 */
+	private final List<Identifier> calls;
+
+	/**
+	 * Deepest nesting found
+	 */
+	private int depth;
+
+	private Nesting(List<Identifier> calls) {
+		this.calls = calls;
+	}
+
+	/**
+	 * Find how deeply the statements of a body are nested
+	 *
+	 * @param block	the body of a function or the main block
+	 * @return		the number of compound statements that enclose the
+	 * 				most deeply nested statement, 0 if none does
+	 */
+	static int depth(BlockStmt block) {
+		Nesting nesting = new Nesting(null);
+		nesting.walk(block);
+		return nesting.depth;
+	}
+
+	/**
+	 * Find the calls of a body
+	 *
+	 * @param block	the body of a function or the main block
+	 * @param calls	the list to which the identifiers of the functions
+	 * 				called are added
+	 */
+	static void calls(BlockStmt block, List<Identifier> calls) {
+		new Nesting(calls).walk(block);
+	}
+
+	private void walk(BlockStmt block) {
+		push(block, 0);
+		while (! pending.isEmpty()) {
+			int last = pending.size() - 1;
+			AST node = pending.remove(last);
+			node.visit(this, depths.remove(last));
+		}
+	}
+
+	private void push(AST node, int depth) {
+		if (node == null)
+			return;
+
+		pending.add(node);
+		depths.add(depth);
+	}
+
+	private void pushAll(ASTList<? extends AST> list, int depth) {
+		for (int i = 0; i < list.size(); i++)
+			push(list.get(i), depth);
+	}
+
+	/**
+	 * Push the body of a compound statement, one level deeper
+	 */
+	private void nest(AST body, int depth) {
+		this.depth = Math.max(this.depth, depth + 1);
+		push(body, depth + 1);
+	}
+
+	private void call(Reference functionRef, int depth) {
+		if (calls != null && functionRef instanceof IdRef)
+			calls.add(((IdRef) functionRef).id);
+		push(functionRef, depth);
+	}
+
+	@Override
+	public Object visitProgram(Program prog, Integer depth) {
+		return null;
+	}
+
+	@Override
+	public Object visitFunctionDecl(FunctionDecl fd, Integer depth) {
+		return null;
+	}
+
+	@Override
+	public Object visitParameterDecl(ParameterDecl pd, Integer depth) {
+		return null;
+	}
+
+	@Override
+	public Object visitVarDecl(VarDecl decl, Integer depth) {
+		return null;
+	}
+
+	@Override
+	public Object visitBaseType(BaseType type, Integer depth) {
+		return null;
+	}
+
+	@Override
+	public Object visitBlockStmt(BlockStmt stmt, Integer depth) {
+		pushAll(stmt.statementList, depth);
+		return null;
+	}
+
+	@Override
+	public Object visitVardeclStmt(VarDeclStmt stmt, Integer depth) {
+		push(stmt.initExpr, depth);
+		return null;
+	}
+
+	@Override
+	public Object visitAssignStmt(AssignStmt stmt, Integer depth) {
+		push(stmt.ref, depth);
+		push(stmt.val, depth);
+		return null;
+	}
+
+	@Override
+	public Object visitCallStmt(CallStmt stmt, Integer depth) {
+		call(stmt.functionRef, depth);
+		pushAll(stmt.argList, depth);
+		return null;
+	}
+
+	@Override
+	public Object visitIfStmt(IfStmt stmt, Integer depth) {
+		push(stmt.condition, depth);
+		nest(stmt.body, depth);
+		pushAll(stmt.elseIfStmts, depth);
+		push(stmt.elseStmt, depth);
+		return null;
+	}
+
+	@Override
+	public Object visitElseIfStmt(ElseIfStmt stmt, Integer depth) {
+		push(stmt.condition, depth);
+		nest(stmt.body, depth);
+		return null;
+	}
+
+	@Override
+	public Object visitElseStmt(ElseStmt stmt, Integer depth) {
+		nest(stmt.body, depth);
+		return null;
+	}
+
+	@Override
+	public Object visitWhileStmt(WhileStmt stmt, Integer depth) {
+		push(stmt.condition, depth);
+		nest(stmt.body, depth);
+		return null;
+	}
+
+	@Override
+	public Object visitForStmt(ForStmt stmt, Integer depth) {
+		push(stmt.fromExpr, depth);
+		push(stmt.toExpr, depth);
+		push(stmt.byExpr, depth);
+		nest(stmt.body, depth);
+		return null;
+	}
+
+	@Override
+	public Object visitForEachStmt(ForEachStmt stmt, Integer depth) {
+		push(stmt.collection, depth);
+		nest(stmt.body, depth);
+		return null;
+	}
+
+	@Override
+	public Object visitInfiniteLoopStmt(InfiniteLoopStmt stmt, Integer depth) {
+		nest(stmt.body, depth);
+		return null;
+	}
+
+	@Override
+	public Object visitUntilStmt(UntilStmt stmt, Integer depth) {
+		push(stmt.condition, depth);
+		nest(stmt.body, depth);
+		return null;
+	}
+
+	@Override
+	public Object visitDoIfStmt(DoIfStmt stmt, Integer depth) {
+		push(stmt.condition, depth);
+		nest(stmt.thenStmt, depth);
+		nest(stmt.elseStmt, depth);
+		return null;
+	}
+
+	@Override
+	public Object visitBreakStmt(BreakStmt stmt, Integer depth) {
+		return null;
+	}
+
+	@Override
+	public Object visitReturnStmt(ReturnStmt stmt, Integer depth) {
+		push(stmt.returnExpr, depth);
+		return null;
+	}
+
+	@Override
+	public Object visitUnaryExpr(UnaryExpr expr, Integer depth) {
+		push(expr.expr, depth);
+		return null;
+	}
+
+	@Override
+	public Object visitBinaryExpr(BinaryExpr expr, Integer depth) {
+		push(expr.leftExpr, depth);
+		push(expr.rightExpr, depth);
+		return null;
+	}
+
+	@Override
+	public Object visitRefExpr(RefExpr expr, Integer depth) {
+		push(expr.ref, depth);
+		return null;
+	}
+
+	@Override
+	public Object visitCallExpr(CallExpr expr, Integer depth) {
+		call(expr.functionRef, depth);
+		pushAll(expr.argList, depth);
+		return null;
+	}
+
+	@Override
+	public Object visitLiteralExpr(LiteralExpr expr, Integer depth) {
+		return null;
+	}
+
+	@Override
+	public Object visitIfExpr(IfExpr expr, Integer depth) {
+		push(expr.condition, depth);
+		push(expr.thenExpr, depth);
+		push(expr.elseExpr, depth);
+		return null;
+	}
+
+	@Override
+	public Object visitIndexedRef(IndexedRef ref, Integer depth) {
+		push(ref.ref, depth);
+		push(ref.indexExpr, depth);
+		return null;
+	}
+
+	@Override
+	public Object visitIdRef(IdRef ref, Integer depth) {
+		return null;
+	}
+
+	@Override
+	public Object visitIdentifier(Identifier id, Integer depth) {
+		return null;
+	}
+
+	@Override
+	public Object visitOperator(Operator op, Integer depth) {
+		return null;
+	}
+
+	@Override
+	public Object visitIntLiteral(IntLiteral num, Integer depth) {
+		return null;
+	}
+
+	@Override
+	public Object visitBooleanLiteral(BooleanLiteral bool, Integer depth) {
+		return null;
+	}
+
+	@Override
+	public Object visitStringLiteral(StringLiteral str, Integer depth) {
+		return null;
+	}
+}
@@ -0,0 +1,108 @@
+/**
+ * Directory of ASTs written by an {@link ASTWriter}, keyed by a hash of
+ * the contents of the source they were parsed from, so that a program
+ * that has not changed since it was last compiled need not be scanned
+ * or parsed again
+ *
+ * @author  Federico Menozzi
+ * @version Easy Compiler v1
+ */
+
+package easy;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+import easy.AbstractSyntaxTrees.AST;
+import easy.AbstractSyntaxTrees.ASTReader;
+import easy.AbstractSyntaxTrees.ASTWriter;
+import easy.AbstractSyntaxTrees.FlatAST;
+
+public class ParseCache {
+
+	/**
+	 * Directory holding the cached ASTs
+	 */
+	private final File directory;
+
+	/**
+	 * Construct a ParseCache in a directory, which is created if need be
+	 *
+	 * @param directory	the directory
+	 * @throws IOException	if the directory cannot be created
+	 */
+	public ParseCache(File directory) throws IOException {
+		if (! directory.isDirectory() && ! directory.mkdirs())
+			throw new IOException("Unable to create cache directory " + directory);
+
+		this.directory = directory;
+	}
+
+	/**
+	 * Compute the key of a source file, from its contents
+	 *
+	 * @param source	the contents of the file
+	 * @return			the SHA-256 digest of the contents, in hexadecimal
+	 */
+	public static String key(byte[] source) {
+		try {
+			StringBuilder key = new StringBuilder();
+			for (byte b : MessageDigest.getInstance("SHA-256").digest(source))
+				key.append(String.format("%02x", b));
+			return key.toString();
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException("SHA-256 not available", e);
+		}
+	}
+
+	/**
+	 * Look up the AST of a source file
+	 *
+	 * @param key	the key of the source file
+	 * @return		the cached AST, or null if there is none that can be read
+	 */
+	public FlatAST get(String key) {
+		File file = file(key);
+		if (! file.isFile())
+			return null;
+
+		try {
+			return ASTReader.read(file.getPath());
+		} catch (IOException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Cache the AST of a source file. The AST is written to a temporary
+	 * file that is then renamed, so that a reader never sees it half written.
+	 *
+	 * @param key	the key of the source file
+	 * @param ast	the AST parsed from the file
+	 * @throws IOException	if the AST cannot be written
+	 */
+	public void put(String key, AST ast) throws IOException {
+		File temp = File.createTempFile(key, ".tmp", directory);
+		try {
+			try (OutputStream out = new FileOutputStream(temp)) {
+				new ASTWriter(out).write(ast);
+			}
+			Files.move(temp.toPath(), file(key).toPath(),
+					   StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} finally {
+			temp.delete();
+		}
+	}
+
+	private File file(String key) {
+		return new File(directory, key + ".ezast");
+	}
+}
@@ -0,0 +1,56 @@
+/**
+ * Character source that copies blocks of bytes out of a ByteBuffer,
+ * such as a region of a memory-mapped file
+ *
+ * @author 	Federico Menozzi
+ * @version Easy Compiler v1
+ */
+
+package easy.SyntacticAnalyzer;
+
+import java.nio.ByteBuffer;
+
+public class ByteBufferCharSource implements CharSource {
+
+	/**
+	 * Buffer whose remaining bytes are read
+	 */
+	private final ByteBuffer bytesIn;
+
+	/**
+	 * Reusable buffer for bytes copied out of the ByteBuffer
+	 */
+	private byte[] bytes;
+
+	/**
+	 * Construct a ByteBufferCharSource over the remaining bytes of the given buffer
+	 *
+	 * @param bytesIn	the buffer from which bytes are read,
+	 * 					whose position is advanced as bytes are read
+	 */
+	public ByteBufferCharSource(ByteBuffer bytesIn) {
+		this.bytesIn = bytesIn;
+		this.bytes	 = new byte[0];
+	}
+
+	@Override
+	public int read(char[] cbuf, int off, int len) {
+		if (!bytesIn.hasRemaining())
+			return -1;
+
+		int n = Math.min(len, bytesIn.remaining());
+		if (bytes.length < n)
+			bytes = new byte[n];
+
+		bytesIn.get(bytes, 0, n);
+		for (int i = 0; i < n; i++)
+			cbuf[off + i] = (char) (bytes[i] & 0xFF);
+
+		return n;
+	}
+
+	@Override
+	public void close() {
+		// Nothing to release; the buffer belongs to the caller
+	}
+}
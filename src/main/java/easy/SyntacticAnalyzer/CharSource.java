@@ -0,0 +1,32 @@
+/**
+ * A source of characters that the {@link Scanner} reads in blocks
+ * 
+ * @author 	Federico Menozzi
+ * @version Easy Compiler v1
+ */
+
+package easy.SyntacticAnalyzer;
+
+import java.io.IOException;
+
+public interface CharSource {
+	
+	/**
+	 * Read up to len characters into cbuf starting at off, blocking until
+	 * at least one character is available or the end of the source is reached.
+	 * 
+	 * @param cbuf	the destination buffer
+	 * @param off	the offset in cbuf at which to start storing characters
+	 * @param len	the maximum number of characters to read
+	 * @return		the number of characters read, or -1 at the end of the source
+	 * @throws IOException	if the underlying source cannot be read
+	 */
+	public int read(char[] cbuf, int off, int len) throws IOException;
+	
+	/**
+	 * Release any resources held by the source
+	 * 
+	 * @throws IOException	if the underlying source cannot be closed
+	 */
+	public void close() throws IOException;
+}
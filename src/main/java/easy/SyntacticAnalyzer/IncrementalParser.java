@@ -0,0 +1,463 @@
+/**
+ * Keeps the AST of a source text up to date as the text is edited,
+ * re-scanning and re-parsing only the top-level pieces an edit touches
+ * <p>
+ * The program is divided into segments, each beginning at a token: the
+ * function declarations, the token main, the statements of the main
+ * block, the token end of the main block, and the EOF token. An edit is
+ * confined to a region running from the last segment that begins before
+ * the edit to the first segment that begins after it. The region is
+ * re-scanned from its first token, which the scanner reaches in the same
+ * state as a scan of the whole text, and must re-scan to a token that
+ * begins exactly where the segment after it now begins, past which the
+ * tokens are those of the previous text. The tokens of the region are then
+ * parsed as function declarations or as statements, and the resulting
+ * subtrees replace those of the region, while those after it are reused
+ * with their positions moved by a {@link PositionShifter}. Whenever the
+ * previous text had errors, or the region does not re-scan and re-parse
+ * cleanly on its own, the whole text is parsed again instead, so that the
+ * AST and the errors are always those a full parse would produce.
+ *
+ * @author 	Federico Menozzi
+ * @version Easy Compiler v1
+ */
+
+package easy.SyntacticAnalyzer;
+
+import java.util.ArrayList;
+
+import easy.AbstractSyntaxTrees.AST;
+import easy.AbstractSyntaxTrees.BlockStmt;
+import easy.AbstractSyntaxTrees.FunctionDecl;
+import easy.AbstractSyntaxTrees.FunctionDeclList;
+import easy.AbstractSyntaxTrees.IfStmt;
+import easy.AbstractSyntaxTrees.PositionShifter;
+import easy.AbstractSyntaxTrees.Program;
+import easy.AbstractSyntaxTrees.Statement;
+import easy.AbstractSyntaxTrees.StatementList;
+
+import easy.SyntacticAnalyzer.NameTable;
+import easy.SyntacticAnalyzer.Parser;
+import easy.SyntacticAnalyzer.Scanner;
+import easy.SyntacticAnalyzer.SourcePosition;
+import easy.SyntacticAnalyzer.StringCharSource;
+import easy.SyntacticAnalyzer.TokenBuffer;
+import easy.SyntacticAnalyzer.TokenKind;
+
+import easy.ErrorReporter;
+
+public class IncrementalParser {
+
+	/**
+	 * Kinds of segment
+	 */
+	private final static int startSegment	  = 0;
+	private final static int functionSegment  = 1;
+	private final static int mainSegment	  = 2;
+	private final static int statementSegment = 3;
+	private final static int endSegment		  = 4;
+	private final static int eofSegment		  = 5;
+
+	/**
+	 * IDs of the reserved words "if" and "mod" in the NameTable, which
+	 * could continue a statement that precedes them
+	 */
+	private final static int ifId  = NameTable.intern("if");
+	private final static int modId = NameTable.intern("mod");
+
+	/**
+	 * The current source text
+	 */
+	private String source;
+
+	/**
+	 * AST of the current source text, or null if it has no main block
+	 */
+	private AST ast;
+
+	/**
+	 * Errors found in the current source text
+	 */
+	private ErrorReporter reporter;
+
+	/**
+	 * Segments of the current source text in order, or none if it had errors
+	 */
+	private ArrayList<Segment> segments;
+
+	/**
+	 * Whether the most recent edit was parsed incrementally
+	 */
+	private boolean incremental;
+
+	/**
+	 * Construct an IncrementalParser for a source text, parsing all of it
+	 *
+	 * @param source	the source text
+	 */
+	public IncrementalParser(String source) {
+		this.source	  = source;
+		this.segments = new ArrayList<Segment>();
+		parseAll();
+	}
+
+	/**
+	 * Retrieve the current source text
+	 *
+	 * @return	the source text
+	 */
+	public String source() {
+		return source;
+	}
+
+	/**
+	 * Retrieve the AST of the current source text
+	 *
+	 * @return	the AST, as returned by {@link Parser#parse()}
+	 */
+	public AST ast() {
+		return ast;
+	}
+
+	/**
+	 * Retrieve the errors found in the current source text
+	 *
+	 * @return	the ErrorReporter holding the errors
+	 */
+	public ErrorReporter reporter() {
+		return reporter;
+	}
+
+	/**
+	 * Check whether the most recent edit was parsed incrementally, rather
+	 * than by parsing the whole text again
+	 *
+	 * @return	true if only the region of the edit was parsed
+	 */
+	public boolean wasIncremental() {
+		return incremental;
+	}
+
+	/**
+	 * Replace a range of the source text and bring the AST up to date.
+	 * Nodes of the previous AST may be reused, with their positions moved.
+	 *
+	 * @param offset	the offset of the first character replaced
+	 * @param length	the number of characters replaced
+	 * @param text		the replacement text
+	 * @return			the AST of the edited source text
+	 */
+	public AST edit(int offset, int length, String text) {
+		if (offset < 0 || length < 0 || offset + length > source.length())
+			throw new IndexOutOfBoundsException("Edit " + offset + "+" + length +
+												" outside source of length " + source.length());
+
+		source = source.substring(0, offset) + text + source.substring(offset + length);
+
+		incremental = ! segments.isEmpty() && reparse(offset, offset + length, text.length() - length);
+		if (! incremental)
+			parseAll();
+
+		return ast;
+	}
+
+	/**
+	 * Scan and parse the whole source text
+	 */
+	private void parseAll() {
+		reporter = new ErrorReporter();
+		TokenBuffer tokens = new Scanner(new StringCharSource(source), reporter).scanAll();
+		ast = new Parser(tokens.cursor(), reporter).parse();
+
+		segments.clear();
+		if (ast instanceof Program && ! reporter.hasErrors())
+			divide((Program) ast, tokens);
+	}
+
+	/**
+	 * Divide a program that parsed without error into segments
+	 *
+	 * @param program	the AST of the program
+	 * @param tokens	the tokens of the program
+	 */
+	private void divide(Program program, TokenBuffer tokens) {
+		BlockStmt main = program.mainBlock;
+		int i = 0;
+
+		segments.add(new Segment(startSegment, 0, SourcePosition.of(1, 1), null));
+
+		int f = 0;
+		for (; f < program.functionDeclList.size(); f++) {
+			FunctionDecl decl = program.functionDeclList.get(f);
+			if (decl.position > main.position)
+				break;
+			i = add(functionSegment, decl.position, decl, tokens, i);
+		}
+
+		i = add(mainSegment, main.position, null, tokens, i);
+		for (int s = 0; s < main.statementList.size(); s++) {
+			Statement stmt = main.statementList.get(s);
+			i = add(statementSegment, stmt.position, stmt, tokens, i);
+		}
+
+		// The end of the main block is just past its token "end"
+		long endPosition = SourcePosition.of(SourcePosition.lineNumber(main.endPosition),
+											 SourcePosition.column(main.endPosition) - "end".length());
+		i = add(endSegment, endPosition, null, tokens, i);
+
+		for (; f < program.functionDeclList.size(); f++) {
+			FunctionDecl decl = program.functionDeclList.get(f);
+			i = add(functionSegment, decl.position, decl, tokens, i);
+		}
+
+		add(eofSegment, tokens.position(tokens.size() - 1), null, tokens, i);
+	}
+
+	/**
+	 * Append a segment beginning at the token at the given position
+	 *
+	 * @param kind		the kind of segment
+	 * @param position	the position of its first token
+	 * @param node		the AST of the segment, if any
+	 * @param tokens	the tokens among which the segment begins
+	 * @param i			the index of a token at or before the first token
+	 * @return			the index of the first token
+	 */
+	private int add(int kind, long position, AST node, TokenBuffer tokens, int i) {
+		while (tokens.position(i) < position)
+			i++;
+		segments.add(new Segment(kind, tokens.offset(i), position, node));
+		return i;
+	}
+
+	/**
+	 * Re-scan and re-parse the region of an edit, if it can be parsed on its own
+	 *
+	 * @param editStart	the offset of the first character replaced
+	 * @param editEnd	the offset just past the last character replaced, before the edit
+	 * @param delta		the change in length of the source text
+	 * @return			true if the AST was brought up to date
+	 */
+	private boolean reparse(int editStart, int editEnd, int delta) {
+		int n = segments.size();
+
+		// From the last segment that begins before the edit...
+		int a = 0;
+		while (a + 1 < n && segments.get(a + 1).offset < editStart)
+			a++;
+
+		// ...to the first that begins after it, and that cannot
+		// be taken as the end of the statement before it
+		int b = a + 1;
+		while (b < n - 1 && (segments.get(b).offset <= editEnd || startsWithIf(segments.get(b))))
+			b++;
+
+		int zone = segments.get(a).kind == startSegment ? functionSegment : segments.get(a).kind;
+		for (int i = a; i < b; i++) {
+			int kind = segments.get(i).kind;
+			if (kind != zone && ! (kind == startSegment && zone == functionSegment))
+				return false;
+		}
+		if (zone != functionSegment && zone != statementSegment)
+			return false;
+
+		Segment first	 = segments.get(a);
+		Segment boundary = segments.get(b);
+		int start = first.offset;
+		int limit = boundary.offset + delta;
+
+		ErrorReporter errors = new ErrorReporter();
+		TokenBuffer tokens = new Scanner(new StringCharSource(source, start), errors, start,
+										 SourcePosition.lineNumber(first.position),
+										 start - SourcePosition.column(first.position) + 1).scanAll(limit);
+		int last = tokens.size() - 1;
+		if (errors.hasErrors() || tokens.offset(last) != limit)
+			return false;
+
+		if (zone == statementSegment && segments.get(a - 1).kind == statementSegment && ! beginsStatement(tokens))
+			return false;
+
+		ArrayList<AST> nodes = parseRegion(tokens, zone, errors);
+		if (nodes == null || errors.hasErrors())
+			return false;
+
+		splice(a, b, nodes, tokens, delta);
+		return true;
+	}
+
+	/**
+	 * Check whether a segment is a statement that begins with "if", which
+	 * the statement before it would take as the start of a conditional
+	 * expression if it came to end with an expression
+	 *
+	 * @param segment	the segment
+	 * @return			true if the segment is an if statement
+	 */
+	private boolean startsWithIf(Segment segment) {
+		return segment.kind == statementSegment && segment.node instanceof IfStmt;
+	}
+
+	/**
+	 * Check whether the first token of a region cannot continue the statement before it
+	 *
+	 * @param tokens	the tokens of the region
+	 * @return			true if the first token can only begin a statement
+	 */
+	private boolean beginsStatement(TokenBuffer tokens) {
+		if (tokens.kind(0) == TokenKind.IDEN)
+			return true;
+		return tokens.kind(0) == TokenKind.KEYWORD && tokens.nameId(0) != ifId && tokens.nameId(0) != modId;
+	}
+
+	/**
+	 * Parse the tokens of a region, up to but excluding its last token
+	 *
+	 * @param tokens	the tokens of the region
+	 * @param zone		functionSegment or statementSegment, the kind of segment the region holds
+	 * @param errors	the ErrorReporter for errors in the region
+	 * @return			the ASTs of the segments of the region, or null if it fails to parse
+	 */
+	private ArrayList<AST> parseRegion(TokenBuffer tokens, int zone, ErrorReporter errors) {
+		int last = tokens.size() - 1;
+		TokenBuffer.Cursor cursor = tokens.cursor(0, last);
+		Parser parser = new Parser(cursor, errors);
+		ArrayList<AST> nodes = new ArrayList<AST>();
+
+		if (zone == functionSegment) {
+			while (cursor.kind() != TokenKind.EOF) {
+				if (! cursor.spelling().equals("def"))
+					return null;
+
+				FunctionDecl decl = parser.parseDeclaration();
+				if (decl == null)
+					return null;
+				nodes.add(decl);
+			}
+		} else {
+			StatementList statements = parser.parseStatements();
+			if (statements == null || cursor.index() != last)
+				return null;
+
+			for (int i = 0; i < statements.size(); i++)
+				nodes.add(statements.get(i));
+		}
+		return nodes;
+	}
+
+	/**
+	 * Replace the segments of a region with those parsed from it, move the
+	 * segments after it, and assemble the AST of the program from them
+	 *
+	 * @param a			the index of the first segment of the region
+	 * @param b			the index of the first segment after the region
+	 * @param nodes		the ASTs of the segments parsed from the region
+	 * @param tokens	the tokens of the region
+	 * @param delta		the change in length of the source text
+	 */
+	private void splice(int a, int b, ArrayList<AST> nodes, TokenBuffer tokens, int delta) {
+		Program previous = (Program) ast;
+		int kind = segments.get(a).kind == startSegment ? functionSegment : segments.get(a).kind;
+		PositionShifter shifter = new PositionShifter(segments.get(b).position,
+													  tokens.position(tokens.size() - 1));
+
+		ArrayList<Segment> updated = new ArrayList<Segment>(segments.size() - (b - a) + nodes.size() + 1);
+		for (int i = 0; i < a; i++)
+			updated.add(segments.get(i));
+
+		if (segments.get(a).kind == startSegment)
+			updated.add(segments.get(a));
+
+		int i = 0;
+		for (AST node : nodes) {
+			while (tokens.position(i) < node.position)
+				i++;
+			updated.add(new Segment(kind, tokens.offset(i), node.position, node));
+		}
+
+		for (int j = b; j < segments.size(); j++) {
+			Segment segment = segments.get(j);
+			segment.offset	 += delta;
+			segment.position = shifter.shift(segment.position);
+			if (segment.node != null)
+				shifter.shiftTree(segment.node);
+			updated.add(segment);
+		}
+
+		boolean endMoved = indexOf(segments, endSegment) >= b;
+		segments = updated;
+
+		AST[] functions	   = new AST[segments.size()];
+		AST[] statements   = new AST[segments.size()];
+		int functionCount  = 0;
+		int statementCount = 0;
+		long mainPosition  = 0;
+		AST lastNode	   = null;
+		for (Segment segment : segments) {
+			if (segment.kind == functionSegment)
+				functions[functionCount++] = segment.node;
+			else if (segment.kind == statementSegment)
+				statements[statementCount++] = segment.node;
+			else if (segment.kind == mainSegment)
+				mainPosition = segment.position;
+
+			if (segment.kind == functionSegment || segment.kind == endSegment)
+				lastNode = segment.node;
+		}
+
+		BlockStmt main = new BlockStmt(new StatementList(statements, 0, statementCount), mainPosition);
+		main.endPosition = endMoved ? shifter.shift(previous.mainBlock.endPosition) : previous.mainBlock.endPosition;
+
+		// A program ends with its last function declaration after the main block, if any
+		Program program = new Program(main, new FunctionDeclList(functions, 0, functionCount), mainPosition);
+		program.endPosition = lastNode != null ? lastNode.endPosition : main.endPosition;
+
+		ast = program;
+	}
+
+	/**
+	 * Find the first segment of a kind
+	 *
+	 * @param segments	the segments to search
+	 * @param kind		the kind of segment
+	 * @return			the index of the segment, or -1 if there is none
+	 */
+	private int indexOf(ArrayList<Segment> segments, int kind) {
+		for (int i = 0; i < segments.size(); i++)
+			if (segments.get(i).kind == kind)
+				return i;
+		return -1;
+	}
+
+	/**
+	 * A top-level piece of the source text, beginning at a token
+	 */
+	private static class Segment {
+
+		/**
+		 * Kind of segment, one of the segment kinds
+		 */
+		final int kind;
+
+		/**
+		 * Offset in source of the first token of the segment
+		 */
+		int offset;
+
+		/**
+		 * Position of the first token of the segment
+		 */
+		long position;
+
+		/**
+		 * AST of the segment, a FunctionDecl or a Statement, or null
+		 */
+		final AST node;
+
+		Segment(int kind, int offset, long position, AST node) {
+			this.kind	  = kind;
+			this.offset	  = offset;
+			this.position = position;
+			this.node	  = node;
+		}
+	}
+}
@@ -0,0 +1,106 @@
+/**
+ * Statements of a function body skipped by a {@link Parser} in lazy mode,
+ * parsed from their range of a {@link TokenBuffer} the first time they
+ * are retrieved
+ *
+ * @author 	Federico Menozzi
+ * @version Easy Compiler v1
+ */
+
+package easy.SyntacticAnalyzer;
+
+import easy.AbstractSyntaxTrees.AST;
+import easy.AbstractSyntaxTrees.FunctionDecl;
+import easy.AbstractSyntaxTrees.Statement;
+import easy.AbstractSyntaxTrees.StatementList;
+
+import easy.ErrorReporter;
+
+class LazyStatementList extends StatementList {
+
+	/**
+	 * Tokens of the program, and the range of them that makes up the body,
+	 * until the body is parsed
+	 */
+	private TokenBuffer tokens;
+	private final int start;
+	private final int limit;
+
+	/**
+	 * Used in reporting errors in the body
+	 */
+	private ErrorReporter reporter;
+
+	/**
+	 * Limit on nesting of the Parser that skipped the body
+	 */
+	private final int maxNesting;
+
+	/**
+	 * The declaration whose body this is, whose end positions are
+	 * settled once the body is parsed
+	 */
+	private FunctionDecl decl;
+
+	/**
+	 * The statements, once parsed
+	 */
+	private StatementList statements;
+
+	/**
+	 * Construct a LazyStatementList over a range of tokens
+	 *
+	 * @param tokens		the tokens of the program
+	 * @param start			the index of the first token of the body
+	 * @param limit			the index of the "end" that closes the body
+	 * @param reporter		the ErrorReporter instance
+	 * @param maxNesting	the limit on nesting
+	 */
+	LazyStatementList(TokenBuffer tokens, int start, int limit, ErrorReporter reporter, int maxNesting) {
+		super(new AST[0], 0, 0);
+		this.tokens		= tokens;
+		this.start		= start;
+		this.limit		= limit;
+		this.reporter	= reporter;
+		this.maxNesting = maxNesting;
+	}
+
+	/**
+	 * Set the declaration whose body this is
+	 *
+	 * @param decl	the declaration
+	 */
+	void setDeclaration(FunctionDecl decl) {
+		this.decl = decl;
+	}
+
+	/**
+	 * Parse the statements, if not done yet. A body nested too deeply is
+	 * reported and left empty.
+	 *
+	 * @return	the statements
+	 */
+	private synchronized StatementList statements() {
+		if (statements == null) {
+			Parser parser = new Parser(tokens.cursor(start, limit), reporter);
+			parser.setMaxNesting(maxNesting);
+			StatementList parsed = parser.parseBody(decl);
+
+			statements = parsed == null ? StatementList.empty : parsed;
+			tokens	   = null;
+			reporter   = null;
+			decl	   = null;
+		}
+		return statements;
+	}
+
+	@Override
+	public Statement get(int i) {
+		return statements().get(i);
+	}
+
+	@Override
+	public int size() {
+		return statements().size();
+	}
+}
@@ -0,0 +1,90 @@
+/**
+ * Character source that memory-maps a file and copies blocks 
+ * of its bytes out of the mapping
+ * 
+ * @author 	Federico Menozzi
+ * @version Easy Compiler v1
+ */
+
+package easy.SyntacticAnalyzer;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+public class MappedFileCharSource implements CharSource {
+	
+	/**
+	 * Largest region of the file mapped at once
+	 */
+	private final static long maxMappingSize = 1L << 30;
+	
+	/**
+	 * Channel of the mapped file
+	 */
+	private final FileChannel channel;
+	
+	/**
+	 * Size of the file in bytes
+	 */
+	private final long size;
+	
+	/**
+	 * File position just past the current mapping
+	 */
+	private long mappedEnd;
+	
+	/**
+	 * Currently mapped region of the file
+	 */
+	private MappedByteBuffer mapping;
+	
+	/**
+	 * Reusable buffer for bytes copied out of the mapping
+	 */
+	private byte[] bytes;
+	
+	/**
+	 * Open and map the file at the given path
+	 * 
+	 * @param path	the path of the file to read
+	 * @throws IOException	if the file cannot be opened
+	 */
+	public MappedFileCharSource(String path) throws IOException {
+		this.channel   = new RandomAccessFile(path, "r").getChannel();
+		this.size	   = channel.size();
+		this.mappedEnd = 0;
+		this.mapping   = null;
+		this.bytes	   = new byte[0];
+	}
+
+	@Override
+	public int read(char[] cbuf, int off, int len) throws IOException {
+		if (mapping == null || !mapping.hasRemaining()) {
+			if (mappedEnd >= size)
+				return -1;
+			
+			long length = Math.min(maxMappingSize, size - mappedEnd);
+			mapping = channel.map(FileChannel.MapMode.READ_ONLY, mappedEnd, length);
+			mappedEnd += length;
+		}
+		
+		int n = Math.min(len, mapping.remaining());
+		if (bytes.length < n)
+			bytes = new byte[n];
+		
+		mapping.get(bytes, 0, n);
+		for (int i = 0; i < n; i++)
+			cbuf[off + i] = (char) (bytes[i] & 0xFF);
+		
+		return n;
+	}
+
+	@Override
+	public void close() throws IOException {
+		mapping = null;
+		channel.close();
+	}
+}
@@ -0,0 +1,161 @@
+/**
+ * Compiler-wide table of interned names
+ * <p>
+ * Every identifier and reserved word is interned to a compact int ID, so
+ * that identical names share one String and can be compared as ints. The
+ * reserved words of the {@link WordTable} are interned first, so the ID of
+ * a reserved word is its word ordinal.
+ *
+ * @author 	Federico Menozzi
+ * @version Easy Compiler v1
+ */
+
+package easy.SyntacticAnalyzer;
+
+import java.util.Arrays;
+
+public class NameTable {
+
+	/**
+	 * Initial number of names the table can hold before growing
+	 */
+	private final static int initialCapacity = 1024;
+
+	/**
+	 * Spelling of each name, indexed by ID
+	 */
+	private static volatile String[] spellings = new String[initialCapacity];
+
+	/**
+	 * Hash of each name, indexed by ID
+	 */
+	private static int[] hashes = new int[initialCapacity];
+
+	/**
+	 * Open-addressed hash table mapping slots to IDs, -1 for an empty slot
+	 */
+	private static int[] slots = emptySlots(2 * initialCapacity);
+
+	/**
+	 * Number of interned names
+	 */
+	private static int size = 0;
+
+	static {
+		for (int ordinal = 0; ordinal < WordTable.size(); ordinal++)
+			intern(WordTable.spelling(ordinal));
+	}
+
+	/**
+	 * ID of the built-in "println" function
+	 */
+	public final static int println = intern("println");
+
+	/**
+	 * ID of the built-in "print" function
+	 */
+	public final static int print = intern("print");
+
+	/**
+	 * ID of the built-in "sqrt" function
+	 */
+	public final static int sqrt = intern("sqrt");
+
+	/**
+	 * Intern the name held in the first length characters of chars
+	 *
+	 * @param chars		the buffer holding the characters of the name
+	 * @param length	the number of characters in the name
+	 * @return			the ID of the name
+	 */
+	public static synchronized int intern(char[] chars, int length) {
+		int hash = hash(chars, length);
+		int mask = slots.length - 1;
+		for (int slot = hash & mask; ; slot = (slot + 1) & mask) {
+			int id = slots[slot];
+			if (id == -1)
+				return add(new String(chars, 0, length), hash, slot);
+			if (hashes[id] == hash && matches(spellings[id], chars, length))
+				return id;
+		}
+	}
+
+	/**
+	 * Intern the given name
+	 *
+	 * @param name	the name
+	 * @return		the ID of the name
+	 */
+	public static int intern(String name) {
+		return intern(name.toCharArray(), name.length());
+	}
+
+	/**
+	 * Retrieve the spelling of an interned name
+	 *
+	 * @param id	the ID of the name
+	 * @return		the spelling of the name
+	 */
+	public static String spelling(int id) {
+		return spellings[id];
+	}
+
+	/**
+	 * Retrieve the number of interned names
+	 *
+	 * @return	the number of interned names
+	 */
+	public static synchronized int size() {
+		return size;
+	}
+
+	private static int add(String spelling, int hash, int slot) {
+		if (size == hashes.length) {
+			spellings = Arrays.copyOf(spellings, 2 * size);
+			hashes	  = Arrays.copyOf(hashes, 2 * size);
+		}
+
+		int id = size++;
+		spellings[id] = spelling;
+		hashes[id]	  = hash;
+		slots[slot]	  = id;
+
+		if (2 * size > slots.length)
+			rehash();
+
+		return id;
+	}
+
+	private static void rehash() {
+		slots = emptySlots(2 * slots.length);
+		int mask = slots.length - 1;
+		for (int id = 0; id < size; id++) {
+			int slot = hashes[id] & mask;
+			while (slots[slot] != -1)
+				slot = (slot + 1) & mask;
+			slots[slot] = id;
+		}
+	}
+
+	private static int[] emptySlots(int length) {
+		int[] slots = new int[length];
+		Arrays.fill(slots, -1);
+		return slots;
+	}
+
+	private static int hash(char[] chars, int length) {
+		int h = 0;
+		for (int i = 0; i < length; i++)
+			h = 31 * h + chars[i];
+		return h ^ (h >>> 16);
+	}
+
+	private static boolean matches(String spelling, char[] chars, int length) {
+		if (spelling.length() != length)
+			return false;
+		for (int i = 0; i < length; i++)
+			if (spelling.charAt(i) != chars[i])
+				return false;
+		return true;
+	}
+}
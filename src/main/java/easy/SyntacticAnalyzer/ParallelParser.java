@@ -0,0 +1,292 @@
+/**
+ * Parses the function declarations of a program on several threads at once
+ * <p>
+ * A quick skim of a {@link TokenBuffer} finds the tokens def and main,
+ * which bound the top-level declarations. Each function declaration is
+ * then parsed on a ForkJoinPool by its own {@link Parser}, over a cursor
+ * that reads the next boundary as the end of input. Finally a sequential
+ * Parser parses the program, taking every declaration that parsed without
+ * error instead of parsing it again, and parsing all the others itself.
+ * Since a clean declaration never looks past its own "end", the AST and
+ * the diagnostics are exactly those of the sequential Parser.
+ *
+ * @author 	Federico Menozzi
+ * @version Easy Compiler v1
+ */
+
+package easy.SyntacticAnalyzer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import easy.AbstractSyntaxTrees.AST;
+import easy.AbstractSyntaxTrees.FunctionDecl;
+
+import easy.SyntacticAnalyzer.NameTable;
+import easy.SyntacticAnalyzer.Parser;
+import easy.SyntacticAnalyzer.TokenBuffer;
+import easy.SyntacticAnalyzer.TokenKind;
+
+import easy.ErrorReporter;
+
+public class ParallelParser {
+
+	/**
+	 * Smallest number of tokens worth parsing on its own thread
+	 */
+	public final static int minTaskSize = 1 << 14;
+
+	/**
+	 * IDs of the reserved words "def" and "main" in the NameTable
+	 */
+	private final static int defId  = NameTable.intern("def");
+	private final static int mainId = NameTable.intern("main");
+
+	/**
+	 * Tokens of the program to parse
+	 */
+	private final TokenBuffer tokens;
+
+	/**
+	 * Used in reporting errors
+	 */
+	private final ErrorReporter reporter;
+
+	/**
+	 * Pool on which the declarations are parsed
+	 */
+	private final ForkJoinPool pool;
+
+	/**
+	 * Limit on nesting passed to every Parser
+	 */
+	private int maxNesting = Parser.defaultMaxNesting;
+
+	/**
+	 * Construct a ParallelParser that parses on the common pool
+	 *
+	 * @param tokens	the tokens of the program to parse
+	 * @param reporter	the ErrorReporter instance
+	 */
+	public ParallelParser(TokenBuffer tokens, ErrorReporter reporter) {
+		this(tokens, reporter, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Construct a ParallelParser that parses on the given pool
+	 *
+	 * @param tokens	the tokens of the program to parse
+	 * @param reporter	the ErrorReporter instance
+	 * @param pool		the pool on which the declarations are parsed
+	 */
+	public ParallelParser(TokenBuffer tokens, ErrorReporter reporter, ForkJoinPool pool) {
+		this.tokens	  = tokens;
+		this.reporter = reporter;
+		this.pool	  = pool;
+	}
+
+	/**
+	 * Set the limit on nesting, as by {@link Parser#setMaxNesting(int)}
+	 *
+	 * @param maxNesting	the greatest depth of nesting accepted
+	 */
+	public void setMaxNesting(int maxNesting) {
+		if (maxNesting < 1)
+			throw new IllegalArgumentException("Nesting limit must be positive: " + maxNesting);
+
+		this.maxNesting = maxNesting;
+	}
+
+	/**
+	 * Parse the program
+	 *
+	 * @return	the AST of the program, as returned by {@link Parser#parse()}
+	 */
+	public AST parse() {
+		Declarations declarations = skim();
+
+		if (declarations.size() > 0) {
+			DeclarationsTask task = new DeclarationsTask(declarations, 0, declarations.size());
+			if (declarations.limit(declarations.size() - 1) - declarations.start(0) <= minTaskSize)
+				task.invoke();
+			else
+				pool.invoke(task);
+		}
+
+		Parser parser = new Parser(tokens.cursor(0, Integer.MAX_VALUE), reporter, declarations);
+		parser.setMaxNesting(maxNesting);
+		return parser.parse();
+	}
+
+	/**
+	 * Find every token def, and the next def or main or the EOF token after it
+	 *
+	 * @return	the declarations to parse, none of them parsed yet
+	 */
+	private Declarations skim() {
+		ArrayList<Integer> boundaries = new ArrayList<Integer>();
+		int size = tokens.size();
+		for (int i = 0; i < size; i++) {
+			if (tokens.kind(i) == TokenKind.KEYWORD) {
+				int nameId = tokens.nameId(i);
+				if (nameId == defId || nameId == mainId)
+					boundaries.add(i);
+			}
+		}
+		boundaries.add(size - 1);
+
+		int count = 0;
+		for (int i = 0; i + 1 < boundaries.size(); i++)
+			if (tokens.nameId(boundaries.get(i)) == defId)
+				count++;
+
+		int[] starts = new int[count];
+		int[] limits = new int[count];
+		int n = 0;
+		for (int i = 0; i + 1 < boundaries.size(); i++) {
+			if (tokens.nameId(boundaries.get(i)) == defId) {
+				starts[n] = boundaries.get(i);
+				limits[n] = boundaries.get(i + 1);
+				n++;
+			}
+		}
+		return new Declarations(starts, limits);
+	}
+
+	/**
+	 * Parse the declaration at the given index, keeping it only if
+	 * it parses without error
+	 *
+	 * @param declarations	the declarations to parse
+	 * @param i				the index of the declaration
+	 */
+	private void parseDeclaration(Declarations declarations, int i) {
+		TokenBuffer.Cursor cursor = tokens.cursor(declarations.start(i), declarations.limit(i));
+		ErrorReporter errors = new ErrorReporter();
+
+		Parser parser = new Parser(cursor, errors);
+		parser.setMaxNesting(maxNesting);
+		FunctionDecl decl = parser.parseDeclaration();
+
+		if (decl != null && ! errors.hasErrors())
+			declarations.put(i, decl, cursor.index());
+	}
+
+	/**
+	 * Function declarations found by the skim, in source order, and the
+	 * ASTs of those that parsed without error
+	 */
+	static class Declarations {
+
+		/**
+		 * Index of the token def of each declaration
+		 */
+		private final int[] starts;
+
+		/**
+		 * Index of the next boundary after each declaration
+		 */
+		private final int[] limits;
+
+		/**
+		 * Index of the token following each declaration that parsed
+		 */
+		private final int[] ends;
+
+		/**
+		 * AST of each declaration, or null if it failed to parse
+		 */
+		private final FunctionDecl[] decls;
+
+		/**
+		 * Index of the first declaration not yet passed by {@link #find(int)}
+		 */
+		private int next;
+
+		Declarations(int[] starts, int[] limits) {
+			this.starts = starts;
+			this.limits = limits;
+			this.ends	= new int[starts.length];
+			this.decls	= new FunctionDecl[starts.length];
+		}
+
+		int size() {
+			return starts.length;
+		}
+
+		int start(int i) {
+			return starts[i];
+		}
+
+		int limit(int i) {
+			return limits[i];
+		}
+
+		int end(int i) {
+			return ends[i];
+		}
+
+		FunctionDecl decl(int i) {
+			return decls[i];
+		}
+
+		void put(int i, FunctionDecl decl, int end) {
+			decls[i] = decl;
+			ends[i]	 = end;
+		}
+
+		/**
+		 * Find the declaration that starts at the given token and parsed
+		 * without error. Tokens must be asked for in increasing order.
+		 *
+		 * @param start	the index of the token
+		 * @return		the index of the declaration, or -1 if there is none
+		 */
+		int find(int start) {
+			while (next < starts.length && starts[next] < start)
+				next++;
+
+			return next < starts.length && starts[next] == start && decls[next] != null ? next : -1;
+		}
+	}
+
+	/**
+	 * Parses a run of declarations, splitting it in two halves of about
+	 * as many tokens while it is large enough
+	 */
+	private class DeclarationsTask extends RecursiveTask<Void> {
+		private static final long serialVersionUID = 1L;
+
+		private final Declarations declarations;
+		private final int from;
+		private final int to;
+
+		DeclarationsTask(Declarations declarations, int from, int to) {
+			this.declarations = declarations;
+			this.from		  = from;
+			this.to			  = to;
+		}
+
+		@Override
+		protected Void compute() {
+			int low	 = declarations.start(from);
+			int high = declarations.limit(to - 1);
+
+			if (to - from > 1 && high - low > minTaskSize) {
+				int mid = Arrays.binarySearch(declarations.starts, from, to, low + (high - low) / 2);
+				if (mid < 0)
+					mid = -mid - 1;
+				mid = Math.max(from + 1, Math.min(mid, to - 1));
+
+				invokeAll(new DeclarationsTask(declarations, from, mid),
+						  new DeclarationsTask(declarations, mid, to));
+			} else {
+				for (int i = from; i < to; i++)
+					parseDeclaration(declarations, i);
+			}
+			return null;
+		}
+	}
+}
@@ -0,0 +1,363 @@
+/**
+ * Scans a large source file on several threads at once
+ * <p>
+ * The file is memory-mapped and a quick sequential pre-pass, which only
+ * tracks whether each character lies inside a string literal or a comment,
+ * splits it at the starts of top-level lines that begin with def, main, or
+ * end. Since no token, string literal, or comment spans such a boundary,
+ * each chunk can be scanned independently on a ForkJoinPool by a
+ * {@link Scanner} that starts at the line number and offset of its chunk.
+ * The token arrays of the chunks are then stitched together into exactly
+ * the sequence of tokens that the sequential Scanner would produce.
+ *
+ * @author 	Federico Menozzi
+ * @version Easy Compiler v1
+ */
+
+package easy.SyntacticAnalyzer;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import easy.SyntacticAnalyzer.Scanner;
+import easy.SyntacticAnalyzer.Token;
+import easy.SyntacticAnalyzer.TokenKind;
+
+import easy.ErrorReporter;
+
+public class ParallelScanner {
+
+	/**
+	 * Smallest chunk worth scanning on its own thread
+	 */
+	public final static int minChunkSize = 1 << 20;
+
+	/**
+	 * Number of chunks per thread of the pool, so that threads
+	 * finishing early can pick up the remaining chunks
+	 */
+	private final static int chunksPerThread = 4;
+
+	/**
+	 * States of the pre-pass
+	 */
+	private final static int normal		  = 0;
+	private final static int lineComment  = 1;
+	private final static int blockComment = 2;
+	private final static int string		  = 3;
+
+	/**
+	 * Path of the file to scan
+	 */
+	private final String path;
+
+	/**
+	 * Used in reporting errors
+	 */
+	private final ErrorReporter reporter;
+
+	/**
+	 * Pool on which the chunks are scanned
+	 */
+	private final ForkJoinPool pool;
+
+	/**
+	 * Smallest chunk scanned on its own thread by this ParallelScanner
+	 */
+	private int chunkSize = minChunkSize;
+
+	/**
+	 * Construct a ParallelScanner that scans on the common pool
+	 *
+	 * @param path		the path of the file to scan
+	 * @param reporter	the ErrorReporter instance
+	 */
+	public ParallelScanner(String path, ErrorReporter reporter) {
+		this(path, reporter, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Construct a ParallelScanner that scans on the given pool
+	 *
+	 * @param path		the path of the file to scan
+	 * @param reporter	the ErrorReporter instance
+	 * @param pool		the pool on which the chunks are scanned
+	 */
+	public ParallelScanner(String path, ErrorReporter reporter, ForkJoinPool pool) {
+		this.path	  = path;
+		this.reporter = reporter;
+		this.pool	  = pool;
+	}
+
+	/**
+	 * Set the smallest chunk scanned on its own thread, so that tests can
+	 * split small files at every line where a chunk may start
+	 *
+	 * @param chunkSize	the smallest chunk, in bytes
+	 */
+	void setChunkSize(int chunkSize) {
+		if (chunkSize < 1)
+			throw new IllegalArgumentException("Chunk size must be positive: " + chunkSize);
+
+		this.chunkSize = chunkSize;
+	}
+
+	/**
+	 * Scan the whole file
+	 *
+	 * @return				the tokens of the file, in order
+	 * @throws IOException	if the file cannot be opened or mapped
+	 */
+	public Token[] scanAll() throws IOException {
+		RandomAccessFile file = new RandomAccessFile(path, "r");
+		try {
+			FileChannel channel = file.getChannel();
+			if (channel.size() > Integer.MAX_VALUE)
+				throw new IOException("File " + path + " is too large to scan");
+
+			MappedByteBuffer mapping = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			return scanAll(mapping);
+		} finally {
+			file.close();
+		}
+	}
+
+	private Token[] scanAll(ByteBuffer source) {
+		int chunkCount = Math.max(1, Math.min(pool.getParallelism() * chunksPerThread,
+											  source.limit() / chunkSize));
+		int[][] boundaries = split(source, chunkCount);
+		int[] starts = boundaries[0];
+		int[] lines	 = boundaries[1];
+
+		ChunkTask[] tasks = new ChunkTask[starts.length];
+		for (int i = 0; i < tasks.length; i++) {
+			int end = i + 1 < starts.length ? starts[i + 1] : source.limit();
+			ByteBuffer chunk = source.duplicate();
+			chunk.limit(end);
+			chunk.position(starts[i]);
+			tasks[i] = new ChunkTask(chunk, starts[i], lines[i], i + 1 == tasks.length);
+		}
+
+		if (tasks.length == 1)
+			tasks[0].invoke();
+		else
+			pool.invoke(new ChunksTask(tasks));
+
+		return stitch(tasks);
+	}
+
+	/**
+	 * Concatenate the tokens of the chunks, and append their errors
+	 * to the reporter in the same order
+	 *
+	 * @param tasks	the completed chunk tasks
+	 * @return		the tokens of the file
+	 */
+	private Token[] stitch(ChunkTask[] tasks) {
+		int total = 0;
+		for (int i = 0; i < tasks.length; i++)
+			total += tasks[i].count;
+
+		Token[] tokens = new Token[total];
+		int n = 0;
+		for (int i = 0; i < tasks.length; i++) {
+			System.arraycopy(tasks[i].tokens, 0, tokens, n, tasks[i].count);
+			n += tasks[i].count;
+			reporter.addErrors(tasks[i].reporter);
+		}
+		return tokens;
+	}
+
+	/**
+	 * Find up to chunkCount chunks of roughly equal size, each of which
+	 * starts at a line that begins with def, main, or end outside of any
+	 * string literal or comment
+	 *
+	 * @param source		the bytes of the file
+	 * @param chunkCount	the desired number of chunks
+	 * @return				the start offsets and the line numbers of the chunks
+	 */
+	private int[][] split(ByteBuffer source, int chunkCount) {
+		ArrayList<Integer> starts = new ArrayList<Integer>();
+		ArrayList<Integer> lines  = new ArrayList<Integer>();
+		starts.add(0);
+		lines.add(1);
+
+		int size   = source.limit();
+		int target = size / chunkCount;
+		int line   = 1;
+		int state  = normal;
+		byte quote = 0;
+
+		for (int i = 0; i < size && starts.size() < chunkCount; i++) {
+			byte c = source.get(i);
+			switch (state) {
+			case normal:
+				if (c == '\r' || c == '\n') {
+					line++;
+					if (i + 1 >= target && isTopLevelLine(source, i + 1)) {
+						starts.add(i + 1);
+						lines.add(line);
+						target = (int) ((long) size * starts.size() / chunkCount);
+					}
+				} else if (c == '#') {
+					if (i + 1 < size && source.get(i + 1) == '#') {
+						state = blockComment;
+						i++;
+					} else {
+						state = lineComment;
+					}
+				} else if (c == '"' || c == '\'') {
+					state = string;
+					quote = c;
+				}
+				break;
+
+			case lineComment:
+				if (c == '\r' || c == '\n') {
+					// Let the newline be counted as whitespace
+					state = normal;
+					i--;
+				}
+				break;
+
+			case blockComment:
+				if (c == '\r' || c == '\n')
+					line++;
+				else if (c == '#' && i + 1 < size && source.get(i + 1) == '#') {
+					state = normal;
+					i++;
+				}
+				break;
+
+			default:
+				// Newlines within string literals are not counted as lines
+				if (c == quote)
+					state = normal;
+				break;
+			}
+		}
+
+		int[][] boundaries = new int[2][starts.size()];
+		for (int i = 0; i < starts.size(); i++) {
+			boundaries[0][i] = starts.get(i);
+			boundaries[1][i] = lines.get(i);
+		}
+		return boundaries;
+	}
+
+	/**
+	 * Check whether the line starting at the given offset begins with
+	 * the word def, main, or end
+	 *
+	 * @param source	the bytes of the file
+	 * @param offset	the offset of the start of the line
+	 * @return			true if the line begins with def, main, or end
+	 */
+	private boolean isTopLevelLine(ByteBuffer source, int offset) {
+		return startsWithWord(source, offset, "def") ||
+			   startsWithWord(source, offset, "main") ||
+			   startsWithWord(source, offset, "end");
+	}
+
+	private boolean startsWithWord(ByteBuffer source, int offset, String word) {
+		int end = offset + word.length();
+		if (end > source.limit())
+			return false;
+
+		for (int i = 0; i < word.length(); i++)
+			if (source.get(offset + i) != word.charAt(i))
+				return false;
+
+		if (end == source.limit())
+			return true;
+
+		byte c = source.get(end);
+		return !(('a' <= c && c <= 'z') || ('A' <= c && c <= 'Z') ||
+				 ('0' <= c && c <= '9') || c == '_');
+	}
+
+	/**
+	 * Scans every chunk in parallel
+	 */
+	private static class ChunksTask extends RecursiveTask<Void> {
+		private static final long serialVersionUID = 1L;
+
+		private final ChunkTask[] tasks;
+
+		ChunksTask(ChunkTask[] tasks) {
+			this.tasks = tasks;
+		}
+
+		@Override
+		protected Void compute() {
+			invokeAll(tasks);
+			return null;
+		}
+	}
+
+	/**
+	 * Scans a single chunk into an array of tokens
+	 */
+	private static class ChunkTask extends RecursiveTask<Void> {
+		private static final long serialVersionUID = 1L;
+
+		private final ByteBuffer chunk;
+		private final int startOffset;
+		private final int startLine;
+		private final boolean isLast;
+
+		/**
+		 * Errors found in the chunk
+		 */
+		final ErrorReporter reporter;
+
+		/**
+		 * Tokens of the chunk, including the EOF token only for the last chunk
+		 */
+		Token[] tokens;
+
+		/**
+		 * Number of tokens of the chunk
+		 */
+		int count;
+
+		ChunkTask(ByteBuffer chunk, int startOffset, int startLine, boolean isLast) {
+			this.chunk		 = chunk;
+			this.startOffset = startOffset;
+			this.startLine	 = startLine;
+			this.isLast		 = isLast;
+			this.reporter	 = new ErrorReporter();
+		}
+
+		@Override
+		protected Void compute() {
+			Scanner scanner = new Scanner(new ByteBufferCharSource(chunk), reporter, startOffset, startLine);
+
+			// Guess about six bytes per token
+			tokens = new Token[Math.max(16, chunk.remaining() / 6)];
+			while (true) {
+				Token t = scanner.scan();
+				if (t.kind == TokenKind.EOF && !isLast)
+					break;
+
+				if (count == tokens.length)
+					tokens = Arrays.copyOf(tokens, 2 * count);
+				tokens[count++] = t;
+
+				if (t.kind == TokenKind.EOF)
+					break;
+			}
+			return null;
+		}
+	}
+}
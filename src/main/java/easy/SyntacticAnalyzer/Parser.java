@@ -1,20 +1,19 @@
 package easy.SyntacticAnalyzer;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 
 import easy.AbstractSyntaxTrees.*;
 
 import easy.SyntacticAnalyzer.Scanner;
-import easy.SyntacticAnalyzer.Token;
+import easy.SyntacticAnalyzer.SourcePosition;
+import easy.SyntacticAnalyzer.TokenCursor;
+import easy.SyntacticAnalyzer.TokenStream;
 
 import easy.ErrorReporter;
 
 public class Parser {
 
-	/**
-	 * The Scanner from whose token stream we synthesize the AST
-	 */
-	private Scanner scanner;
 	
 	/**
 	 * Used in reporting errors in scanning and parsing
@@ -22,16 +21,158 @@ public class Parser {
 	private ErrorReporter reporter;
 	
 	/**
-	 * The current token in the token stream
+	 * Cursor at the current token of the tokens from which we synthesize the AST
+	 */
+	private TokenCursor token;
+	
+	/**
+	 * Function declarations already parsed by a {@link ParallelParser}, with
+	 * the cursor over the buffer they were parsed from, or null
+	 */
+	private ParallelParser.Declarations declarations;
+	private TokenBuffer.Cursor buffer;
+	
+	/**
+	 * Position just past the end of the most recently accepted token
+	 */
+	private long previousEnd;
+	
+	/**
+	 * Whether no token has been accepted since the most recent parse error,
+	 * during which further errors are cascades of it and are not reported
+	 */
+	private boolean recovering;
+	
+	/**
+	 * Precedences of binary operators, from loosest to tightest binding
+	 */
+	private final static int none			= 0;
+	private final static int disjunction	= 1;
+	private final static int conjunction	= 2;
+	private final static int equality		= 3;
+	private final static int relational		= 4;
+	private final static int additive		= 5;
+	private final static int multiplicative	= 6;
+	
+	/**
+	 * Kinds of frame of a compound statement
+	 */
+	private final static int ifFrame		= 0;
+	private final static int whileFrame		= 1;
+	private final static int untilFrame		= 2;
+	private final static int forFrame		= 3;
+	private final static int forEachFrame	= 4;
+	private final static int loopFrame		= 5;
+	private final static int doFrame		= 6;
+	
+	/**
+	 * Kinds of entry of the expression stack: operators, and the constructs
+	 * whose expression is being parsed
+	 */
+	private final static int binary			= 0;
+	private final static int unary			= 1;
+	private final static int topLevel		= 2;
+	private final static int parenthesis	= 3;
+	private final static int argument		= 4;
+	private final static int index			= 5;
+	private final static int condition		= 6;
+	private final static int alternative	= 7;
+	
+	/**
+	 * Default limit on the nesting of compound statements and of
+	 * constructs within expressions
+	 */
+	public final static int defaultMaxNesting = 1000;
+	
+	/**
+	 * Limit on the nesting of compound statements and of constructs within expressions
+	 */
+	private int maxNesting = defaultMaxNesting;
+	
+	/**
+	 * Whether the bodies of function declarations are parsed only when
+	 * their statements are first retrieved
+	 */
+	private boolean lazyBodies;
+	
+	/**
+	 * Function bodies skipped so far in lazy mode
+	 */
+	private final ArrayList<LazyStatementList> lazyLists = new ArrayList<LazyStatementList>();
+	
+	/**
+	 * Frames of the compound statements whose parse is under way, innermost last
+	 */
+	private final ArrayList<Frame> frames = new ArrayList<Frame>();
+	
+	/**
+	 * Operators and constructs of the expression being parsed that still
+	 * await an operand, innermost last
+	 */
+	private final ArrayList<Pending> pending = new ArrayList<Pending>();
+	
+	/**
+	 * Left operands of the binary operators in pending
+	 */
+	private final ArrayList<Expression> operands = new ArrayList<Expression>();
+	
+	/**
+	 * Number of unary operators and constructs in pending
+	 */
+	private int expressionDepth;
+	
+	/**
+	 * Scratch stack holding the elements of every list under construction,
+	 * each list occupying the range from its base up to the next list or
+	 * to the top. A list is copied out, at its exact size, once complete.
 	 */
-	private Token token;
+	private AST[] scratch = new AST[64];
+	private int scratchTop;
 	
 	/**
-	 * Used to unwind parse stack when parse fails
+	 * IDs of the reserved words "mod" and "if" in the NameTable
 	 */
-    class SyntaxError extends Error {
-		private static final long serialVersionUID = 1L;	
+	private final static int modId = NameTable.intern("mod");
+	private final static int ifId  = NameTable.intern("if");
+	
+	/**
+	 * IDs of the reserved words "def" and "main", which only begin top-level declarations
+	 */
+	private final static int defId	= NameTable.intern("def");
+	private final static int mainId = NameTable.intern("main");
+	
+	/**
+	 * Used to unwind parse stack to the nearest point of recovery when parse fails.
+	 * Carries no stack trace, so a single preallocated instance is thrown.
+	 */
+    static class SyntaxError extends Error {
+		private static final long serialVersionUID = 1L;
+		
+		SyntaxError() {
+			super(null, null, false, false);
+		}
     }
+    
+    /**
+     * The only SyntaxError, thrown on every parse error
+     */
+    private final static SyntaxError syntaxError = new SyntaxError();
+    
+    /**
+     * Used to abandon the parse when nesting exceeds maxNesting
+     */
+    static class NestingError extends Error {
+		private static final long serialVersionUID = 1L;
+		
+		NestingError() {
+			super(null, null, false, false);
+		}
+    }
+    
+    /**
+     * The only NestingError
+     */
+    private final static NestingError nestingError = new NestingError();
 	
 	/**
 	 * Constructor that sets scanner and reporter
@@ -40,10 +181,73 @@ public class Parser {
 	 * @param reporter	the ErrorReporter used to report errors in scanning and parsing
 	 */
 	public Parser(Scanner scanner, ErrorReporter reporter) {
-		this.scanner  = scanner;
+		this(new TokenStream(scanner), reporter);
+	}
+	
+	/**
+	 * Constructor that sets token cursor and reporter
+	 * 
+	 * @param tokens	the cursor at the first of the tokens from which we synthesize the AST,
+	 * 					such as a {@link TokenStream} or a cursor over a {@link TokenBuffer}
+	 * @param reporter	the ErrorReporter used to report errors in scanning and parsing
+	 */
+	public Parser(TokenCursor tokens, ErrorReporter reporter) {
+		this.token	  = tokens;
 		this.reporter = reporter;
 	}
 	
+	/**
+	 * Constructor for the final pass of a {@link ParallelParser}, which takes
+	 * each function declaration already parsed instead of parsing it again
+	 * 
+	 * @param buffer		the cursor at the first of the tokens from which we synthesize the AST
+	 * @param reporter		the ErrorReporter used to report errors in scanning and parsing
+	 * @param declarations	the function declarations already parsed
+	 */
+	Parser(TokenBuffer.Cursor buffer, ErrorReporter reporter, ParallelParser.Declarations declarations) {
+		this(buffer, reporter);
+		this.buffer		  = buffer;
+		this.declarations = declarations;
+	}
+	
+	/**
+	 * Set the limit on the nesting of compound statements and of parentheses,
+	 * unary operators, arguments, indices and conditionals within expressions.
+	 * Deeper programs are rejected with a single parse error.
+	 * 
+	 * @param maxNesting	the greatest depth of nesting accepted
+	 */
+	public void setMaxNesting(int maxNesting) {
+		if (maxNesting < 1)
+			throw new IllegalArgumentException("Nesting limit must be positive: " + maxNesting);
+		
+		this.maxNesting = maxNesting;
+	}
+	
+	/**
+	 * Set whether the bodies of function declarations are parsed lazily.
+	 * A lazy body is skipped, and its statements are parsed the first time
+	 * they are retrieved from its StatementList, so that the signatures of
+	 * all the functions of a program cost little more than scanning it.
+	 * Parse errors within a lazy body are reported to the ErrorReporter,
+	 * and the end positions of the body and its declaration settled, only
+	 * once it is parsed; if the parse fails, every skipped body is parsed
+	 * before {@link #parse()} returns. A body is skipped only when the last
+	 * token before the next "def" or "main" is an "end", and is otherwise
+	 * parsed at once. A program with syntax errors thus always has some
+	 * reported, though for a few malformed programs they differ in detail
+	 * from those of a parse that is not lazy.
+	 * 
+	 * @param lazyBodies	whether function bodies are parsed lazily
+	 * @throws IllegalStateException	if the tokens are not those of a {@link TokenBuffer}
+	 */
+	public void setLazyBodies(boolean lazyBodies) {
+		if (lazyBodies && ! (token instanceof TokenBuffer.Cursor))
+			throw new IllegalStateException("Lazy bodies need the tokens of a TokenBuffer");
+		
+		this.lazyBodies = lazyBodies;
+	}
+	
 	/**
 	 * Verify that current input token matches expected token in type,
 	 * advancing to the next token if it does and throwing a SyntaxError
@@ -53,10 +257,12 @@ public class Parser {
 	 * @throws SyntaxError	if expected token mismatches actual token
 	 */
 	private void accept(TokenKind expectedKind) throws SyntaxError {
-		if (token.kind == expectedKind)
-			token = scanner.scan();
-		else 
-			parseError(token.line.lineNumber, "Expecting " + expectedKind + " but found " + token.kind);
+		if (token.kind() == expectedKind) {
+			recovering	= false;
+			previousEnd = token.endPosition();
+			token.advance();
+		} else 
+			parseError(token.position(), "Expecting " + expectedKind + " but found " + token.kind());
 	}
 	
 	/**
@@ -69,11 +275,12 @@ public class Parser {
 	 * @throws SyntaxError		if expected token mismatches actual token
 	 */
 	private void accept(TokenKind expectedKind, String expectedSpelling) throws SyntaxError {
-		if (token.kind == expectedKind && token.spelling.equals(expectedSpelling)) {
-			token = scanner.scan();
+		if (token.kind() == expectedKind && token.spelling().equals(expectedSpelling)) {
+			recovering	= false;
+			previousEnd = token.endPosition();
+			token.advance();
 		} else {
-			Token t = new Token(expectedKind, expectedSpelling, new Line(scanner.lineNumber()));
-			parseError(token.line.lineNumber, "Expecting \"" + t + "\" but found \"" + token + "\"");
+			parseError(token.position(), "Expecting \"" + expectedSpelling + "\" but found \"" + token.spelling() + "\"");
 		}
 	}
 	
@@ -81,35 +288,160 @@ public class Parser {
 	 * Accept current token
 	 */
 	private void acceptIt() {
-    	accept(token.kind, token.spelling);
+    	accept(token.kind(), token.spelling());
     }
 	
 	/**
-	 * Report parse error and unwind parse stack to start of parse
+	 * Check whether the current token is (or could be) a unary operator
+	 * 
+	 * @return	true if the current token is (or could be) a unary operator, false otherwise
+	 */
+	private boolean isUnary() {
+		switch (token.kind()) {
+		case ARITHOP:
+			return token.spelling().charAt(0) == '-';
+		case LOGOP:
+			char logOp = token.spelling().charAt(0);
+			return logOp == '!' || logOp == 'n';
+		default:
+			return false;
+		}
+	}
+	
+	/**
+	 * Record the end of a completed AST node as the end of the most
+	 * recently accepted token
+	 * 
+	 * @param node	the completed AST node
+	 * @return		the same node
+	 */
+	private <T extends AST> T finish(T node) {
+		node.endPosition = Math.max(previousEnd, node.position);
+		return node;
+	}
+	
+	/**
+	 * Report parse error and unwind parse stack to the nearest point of recovery
 	 * 
+	 * @param position		the position of the error in source
 	 * @param errorMessage	the error message
 	 * @throws SyntaxError
 	 */
-	private void parseError(int lineNumber, String errorMessage) throws SyntaxError {
-        reporter.addParseError(lineNumber, errorMessage);
-        throw new SyntaxError();
+	private void parseError(long position, String errorMessage) throws SyntaxError {
+		reportError(position, errorMessage);
+        throw syntaxError;
     }
 	
 	/**
-	 * Begin parse
+	 * Report parse error without unwinding, unless it is a cascade of the
+	 * previous error
 	 * 
-	 * @return				the AST of the source program
-	 * @throws SyntaxError	if expected token mismatches actual token
+	 * @param position		the position of the error in source
+	 * @param errorMessage	the error message
+	 */
+	private void reportError(long position, String errorMessage) {
+		if (! recovering)
+			reporter.addParseError(position, errorMessage);
+		recovering = true;
+	}
+	
+	/**
+	 * Report that nesting exceeds maxNesting and abandon the parse
+	 * 
+	 * @param position	the position in source of the construct too deeply nested
+	 * @throws NestingError
+	 */
+	private void nestingError(long position) throws NestingError {
+		recovering = false;
+		reportError(position, "Nesting exceeds limit of " + maxNesting);
+		throw nestingError;
+	}
+	
+	/**
+	 * Check whether the current token closes a block, either
+	 * because it is "end" or because input has run out
+	 * 
+	 * @return	true if the current token closes a block
+	 */
+	private boolean atEndOfBlock() {
+		return token.kind() == TokenKind.EOF || token.spelling().equals("end");
+	}
+	
+	/**
+	 * Check whether the current token can begin a statement
+	 * 
+	 * @return	true if the current token can begin a statement
+	 */
+	private boolean atStartOfStatement() {
+		if (token.kind() == TokenKind.IDEN)
+			return true;
+		if (token.kind() != TokenKind.KEYWORD)
+			return false;
+		
+		String spelling = token.spelling();
+		return spelling.equals("if")  || spelling.equals("while")  || spelling.equals("Int")    ||
+			   spelling.equals("Boolean") || spelling.equals("return") || spelling.equals("for") || 
+			   spelling.equals("loop") || spelling.equals("until") || spelling.equals("do")   || 
+			   spelling.equals("break");
+	}
+	
+	/**
+	 * Recover from a parse error within a block by skipping to the next
+	 * statement that begins a line or to the end of the block. Since a
+	 * statement always accepts its first token, the skipped statement
+	 * cannot be the one that failed.
+	 */
+	private void synchronize() {
+		int line = SourcePosition.lineNumber(previousEnd);
+		while (! atEndOfBlock() && ! token.spelling().equals("else")) {
+			int tokenLine = SourcePosition.lineNumber(token.position());
+			if (tokenLine > line && atStartOfStatement())
+				break;
+			
+			line = tokenLine;
+			token.advance();
+		}
+	}
+	
+	/**
+	 * Recover from a parse error outside of any function body by
+	 * skipping to the next "def" or "main"
+	 */
+	private void skipToDeclaration() {
+		while (token.kind() != TokenKind.EOF &&
+			   ! token.spelling().equals("def") && ! token.spelling().equals("main"))
+			token.advance();
+	}
+	
+	/**
+	 * Begin parse, recovering from parse errors so that
+	 * all of them are reported in a single pass
+	 * 
+	 * @return				the AST of the source program, or null if it has no main block
+	 * 						or nesting exceeds the limit
 	 */
 	public AST parse() {
-    	token = scanner.scan();
     	try {
     		return parseProgram();
     	} catch (SyntaxError e) { 
+    		parseLazyBodies();
+    		return null;
+    	} catch (NestingError e) {
+    		parseLazyBodies();
     		return null;
     	}
     }
 	
+	/**
+	 * Parse every function body skipped in lazy mode, so that the errors in
+	 * them are reported even though no AST is returned to retrieve them from
+	 */
+	private void parseLazyBodies() {
+		for (LazyStatementList list : lazyLists)
+			list.size();
+		lazyLists.clear();
+	}
+	
 	/**
 	 * Program ::= (functionDecl | structDecl)* mainBlock (functionDecl | structDecl)* EOF
 	 * 
@@ -117,33 +449,111 @@ public class Parser {
 	 * @throws SyntaxError	if expected token mismatches actual token
 	 */
 	private Program parseProgram() throws SyntaxError {
-		FunctionDeclList fdl = new FunctionDeclList();
-		BlockStmt mainBlock  = null;
-		
-		while (! token.spelling.equals("main")) {
-			if (token.spelling.equals("def"))
-				fdl.add(parseFunctionDeclaration());
-			else
-				parseError(token.line.lineNumber, "Unrecognized token");
+		int functionsBase	= scratchTop;
+		BlockStmt mainBlock = null;
+		
+		while (! token.spelling().equals("main")) {
+			if (token.kind() == TokenKind.EOF) {
+				// Never a cascade of an earlier error, so always reported
+				recovering = false;
+				parseError(token.position(), "Missing main block");
+			}
 			
-			if (token.kind == TokenKind.EOF)
-				parseError(token.line.lineNumber, "Missing main block");
+			parseTopLevelDeclaration();
 		}
 		
-		Line mainLine = token.line;
+		long mainPosition = token.position();
+		int mainBase	  = scratchTop;
 		
-		mainBlock = parseMainBlock();
-		
-		while (token.kind != TokenKind.EOF) {
-			if (token.spelling.equals("def"))
-				fdl.add(parseFunctionDeclaration());
-			else 
-				parseError(token.line.lineNumber, "Unrecognized token");
+		try {
+			mainBlock = parseMainBlock();
+		} catch (SyntaxError e) {
+			scratchTop = mainBase;
+			mainBlock  = finish(new BlockStmt(StatementList.empty, mainPosition));
+			skipToDeclaration();
 		}
 		
+		while (token.kind() != TokenKind.EOF)
+			parseTopLevelDeclaration();
+		
+		Program program = finish(new Program(mainBlock, takeFunctions(functionsBase), mainPosition));
+		
 		accept(TokenKind.EOF);
 		
-		return new Program(mainBlock, fdl, mainLine);
+		return program;
+	}
+	
+	/**
+	 * Parse a function declaration onto the scratch stack, recovering from
+	 * a parse error by skipping to the next declaration
+	 */
+	private void parseTopLevelDeclaration() {
+		if (token.spelling().equals("def")) {
+			if (declarations != null && takeDeclaration())
+				return;
+			
+			int base = scratchTop;
+			try {
+				hold(parseFunctionDeclaration());
+			} catch (SyntaxError e) {
+				scratchTop = base;
+				skipToDeclaration();
+			}
+		} else {
+			reportError(token.position(), "Unrecognized token");
+			token.advance();
+			skipToDeclaration();
+		}
+	}
+	
+	/**
+	 * Take the function declaration already parsed from the current token,
+	 * if any, onto the scratch stack, moving past its tokens
+	 * 
+	 * @return	true if a declaration was taken
+	 */
+	private boolean takeDeclaration() {
+		int i = declarations.find(buffer.index());
+		if (i == -1)
+			return false;
+		
+		FunctionDecl decl = declarations.decl(i);
+		hold(decl);
+		recovering	= false;
+		previousEnd = decl.endPosition;
+		buffer.seek(declarations.end(i));
+		return true;
+	}
+	
+	/**
+	 * Parse a single function declaration, as a task of a {@link ParallelParser}
+	 * 
+	 * @return	the AST of the function declaration, or null if it fails to parse
+	 */
+	FunctionDecl parseDeclaration() {
+		try {
+			return parseFunctionDeclaration();
+		} catch (SyntaxError e) {
+			return null;
+		} catch (NestingError e) {
+			return null;
+		}
+	}
+	
+	/**
+	 * Parse statements up to the end of input or an unmatched "end", as
+	 * an {@link IncrementalParser} does for the statements of a main block
+	 * 
+	 * @return	the statements, or null if nesting exceeds the limit
+	 */
+	StatementList parseStatements() {
+		int base = scratchTop;
+		try {
+			parseBlock();
+		} catch (NestingError e) {
+			return null;
+		}
+		return takeStatements(base);
 	}
 	
 	/**
@@ -153,16 +563,15 @@ public class Parser {
 	 * @throws SyntaxError	if expected token mismatches actual token
 	 */
 	private BlockStmt parseMainBlock() throws SyntaxError {
-		Line mainLine = token.line;
+		long mainPosition = token.position();
 		accept(TokenKind.KEYWORD, "main");
 		
-		StatementList mainBlockStatements = new StatementList();
-		while (! token.spelling.equals("end"))
-			mainBlockStatements.add(parseStatement());
+		int base = scratchTop;
+		parseBlock();
 		
 		accept(TokenKind.KEYWORD, "end");
 		
-		return new BlockStmt(mainBlockStatements, mainLine);
+		return finish(new BlockStmt(takeStatements(base), mainPosition));
 	}
 	
 	/**
@@ -173,31 +582,96 @@ public class Parser {
 	 */
 	
 	private FunctionDecl parseFunctionDeclaration() throws SyntaxError {
-		Line functionLine = token.line;
+		long functionPosition = token.position();
 		accept(TokenKind.KEYWORD, "def");
 		
-		String functionName = token.spelling;
+		int functionNameId = token.nameId();
 		accept(TokenKind.IDEN);
 		
 		accept(TokenKind.LPAREN);
-		ParameterDeclList params = new ParameterDeclList();
-		if (token.kind != TokenKind.RPAREN)
+		ParameterDeclList params = ParameterDeclList.empty;
+		if (token.kind() != TokenKind.RPAREN)
 			params = parseParameterList();
 		accept(TokenKind.RPAREN);
 		
-		Type returnType = new BaseType(TypeKind.VOID, new Line(scanner.lineNumber()));	// Defaults to void
-		if (token.spelling.equals("returns")) {
+		Type returnType = finish(new BaseType(TypeKind.VOID, token.position()));	// Defaults to void
+		if (token.spelling().equals("returns")) {
 			acceptIt();
 			returnType = parseType();
 		}
 		
-		StatementList body = new StatementList();
-		Line blockLine = token.line;
-		while (! token.spelling.equals("end"))
-			body.add(parseStatement());					
+		BlockStmt block = lazyBodies ? skipBody() : null;
+		if (block == null) {
+			int base = scratchTop;
+			long blockPosition = token.position();
+			parseBlock();
+			block = finish(new BlockStmt(takeStatements(base), blockPosition));
+		}
 		accept(TokenKind.KEYWORD, "end");	
 		
-		return new FunctionDecl(functionName, returnType, params, new BlockStmt(body, blockLine), functionLine);
+		FunctionDecl decl = finish(new FunctionDecl(functionNameId, returnType, params, block, functionPosition));
+		if (block.statementList instanceof LazyStatementList)
+			((LazyStatementList) block.statementList).setDeclaration(decl);
+		
+		return decl;
+	}
+	
+	/**
+	 * Skip the body of a function declaration up to its "end", if that is
+	 * the last token before the next declaration, the main block or EOF
+	 * 
+	 * @return	the body, whose statements are parsed when first retrieved,
+	 * 			or null if the body was not skipped
+	 */
+	private BlockStmt skipBody() {
+		TokenBuffer.Cursor cursor = (TokenBuffer.Cursor) token;
+		TokenBuffer tokens		  = cursor.buffer();
+		int start				  = cursor.index();
+		int limit				  = Math.min(cursor.limit(), tokens.size() - 1);
+		
+		int boundary = start;
+		while (boundary < limit && ! (tokens.kind(boundary) == TokenKind.KEYWORD &&
+									  (tokens.nameId(boundary) == defId || tokens.nameId(boundary) == mainId)))
+			boundary++;
+		
+		int end = boundary - 1;
+		if (end < start || tokens.kind(end) != TokenKind.KEYWORD || ! tokens.spelling(end).equals("end"))
+			return null;
+		
+		long blockPosition = token.position();
+		if (end > start)
+			previousEnd = tokens.endPosition(end - 1);
+		cursor.seek(end);
+		
+		LazyStatementList statements = new LazyStatementList(tokens, start, end, reporter, maxNesting);
+		lazyLists.add(statements);
+		
+		return finish(new BlockStmt(statements, blockPosition));
+	}
+	
+	/**
+	 * Parse the statements of a lazy function body, which make up all of
+	 * the tokens up to EOF unless an unmatched "end" closes the body early.
+	 * The declaration then ends there, as it would have if parsed at once,
+	 * and the tokens after it are reported as they would have been and
+	 * are ignored.
+	 * 
+	 * @param decl	the declaration, whose end positions and those of its
+	 * 				body are settled by the parse
+	 * @return		the statements, or null if nesting exceeds the limit
+	 */
+	StatementList parseBody(FunctionDecl decl) {
+		StatementList statements = parseStatements();
+		if (statements == null)
+			return null;
+		
+		finish(decl.block);
+		if (token.kind() != TokenKind.EOF) {
+			acceptIt();
+			finish(decl);
+			reportError(token.position(), "Unrecognized token");
+		}
+		return statements;
 	}
 	
 	/**
@@ -209,18 +683,18 @@ public class Parser {
 	 * @throws SyntaxError	if expected token mismatches actual token
 	 */
 	private Type parseType() throws SyntaxError {
-		String typeSpelling = token.spelling;
-		Line typeLine       = token.line;
+		String typeSpelling = token.spelling();
+		long typePosition   = token.position();
 		
 		TypeKind typeKind   = null;
 		
 		if      (typeSpelling.equals("Int")) 		typeKind = TypeKind.INT;
 		else if (typeSpelling.equals("Boolean"))	typeKind = TypeKind.BOOLEAN;
-		else parseError(typeLine.lineNumber, "Unknown type (somehow)");
+		else parseError(typePosition, "Unknown type (somehow)");
 		
 		acceptIt();	
 		
-		return new BaseType(typeKind, typeLine);
+		return finish(new BaseType(typeKind, typePosition));
 	}
 	
 	/**
@@ -230,28 +704,30 @@ public class Parser {
 	 * @throws SyntaxError	if expected token mismatches actual token
 	 */
     private ParameterDeclList parseParameterList() throws SyntaxError {
-    	ParameterDeclList pdl = new ParameterDeclList();
+    	int base = scratchTop;
     	
-    	String paramName = token.spelling;
+    	long paramPosition = token.position();
+    	int paramNameId	   = token.nameId();
     	accept(TokenKind.IDEN);
 		accept(TokenKind.ASSIGN);
 		Type paramType = parseType();
 		
-		pdl.add(new ParameterDecl(paramType, paramName, new Line(scanner.lineNumber())));
+		hold(finish(new ParameterDecl(paramType, paramNameId, paramPosition)));
     	
-		while (token.kind == TokenKind.COMMA) {
+		while (token.kind() == TokenKind.COMMA) {
     		accept(TokenKind.COMMA);
     		
-    		paramName = token.spelling;
+    		paramPosition = token.position();
+    		paramNameId	  = token.nameId();
     		accept(TokenKind.IDEN);
     		accept(TokenKind.ASSIGN);
     		paramType = parseType();
     		
-    		pdl.add(new ParameterDecl(paramType, paramName, new Line(scanner.lineNumber())));
+    		hold(finish(new ParameterDecl(paramType, paramNameId, paramPosition)));
     		
      	} 
     	
-    	return pdl;
+    	return takeParameters(base);
     }
     
     /**
@@ -261,47 +737,13 @@ public class Parser {
 	 * @throws SyntaxError	if expected token mismatches actual token
 	 */
     private ExprList parseArgumentList() throws SyntaxError {
-    	ExprList args = new ExprList();
-    	args.add(parseExpression());				// Expression
-    	while (token.kind == TokenKind.COMMA) {
+    	int base = scratchTop;
+    	hold(parseExpression());					// Expression
+    	while (token.kind() == TokenKind.COMMA) {
     		accept(TokenKind.COMMA);				// ,
-    		args.add(parseExpression());			// Expression
-    	}
-    	return args;
-    }
-    
-    /**
-	 * Reference ::= BaseRef (.BaseRef)*
-	 * 
-	 * @return				the AST of the Reference
-	 * @throws SyntaxError	if expected token mismatches actual token
-	 */
-        
-    private Reference parseReference() throws SyntaxError {
-    	return parseBaseRef();
-    }
-    
-    /**
-	 * BaseRef ::= id | id[Expression]
-	 * 
-	 * @return				the AST of the Reference
-	 * @throws SyntaxError	if expected token mismatches actual token
-	 */
-        
-    private Reference parseBaseRef() throws SyntaxError {
-    	IdRef idRef = new IdRef(new Identifier(token.spelling, token.line), token.line);
-    	
-    	accept(TokenKind.IDEN);							// id
-    	
-    	if (token.kind == TokenKind.LBRACKET) {
-    		acceptIt();									// [
-    		Expression indexExpr = parseExpression();	// Expression
-    		accept(TokenKind.RBRACKET);					// ]
-    		
-    		return new IndexedRef(idRef, indexExpr, idRef.line);
-    	} else {
-    		return idRef;
+    		hold(parseExpression());				// Expression
     	}
+    	return takeExpressions(base);
     }
     
     /**
@@ -312,353 +754,695 @@ public class Parser {
 	 * 				if Expr Statement (else if cond Statement)* (else Statement)? end <p> 
 	 * 				while Expression Statement end <p> 
 	 * 				return Expression; <p>
-	 * 
-	 * @return				the AST of the Reference
-	 * @throws SyntaxError	if expected token mismatches actual token
+	 * <p>
+	 * Parse statements onto the scratch stack up to the end of the enclosing
+	 * block. Compound statements under way are kept on the explicit stack
+	 * of frames rather than on the call stack, so that their nesting is
+	 * bounded by maxNesting and not by the size of the thread's stack.
+	 * A parse error abandons every frame above the innermost block being
+	 * parsed, exactly as unwinding the recursive parse would, along with
+	 * whatever those frames and the failed statement left on the scratch stack.
 	 */
+    private void parseBlock() {
+    	frames.clear();
+    	
+    	while (true) {
+    		Frame frame = frames.isEmpty() ? null : frames.get(frames.size() - 1);
+    		int base = scratchTop;
+    		try {
+    			if (frame != null && ! frame.inBody)
+    				parseStatement();							// Statement of do ... if ... else
+    			else if (! atEndOfBlock() && 
+    					 ! (frame != null && frame.kind == ifFrame && token.spelling().equals("else")))
+    				parseStatement();
+    			else if (frame != null)
+    				closeBlock(frame);
+    			else
+    				return;
+    		} catch (SyntaxError e) {
+    			while (! frames.isEmpty() && ! frames.get(frames.size() - 1).inBody)
+    				base = Math.min(base, frames.remove(frames.size() - 1).base);
+    			scratchTop = base;
+    			synchronize();
+    		}
+    	}
+    }
     
-    private Statement parseStatement() throws SyntaxError {
-    	if (token.kind == TokenKind.KEYWORD) {
-    		if (token.spelling.equals("if")) {	
-    			Line ifLine = token.line;
+    /**
+     * Parse a statement, either completely or, if it is compound, up to
+     * the start of its body, pushing a frame for the rest of it
+     * 
+     * @throws SyntaxError	if expected token mismatches actual token
+     */
+    private void parseStatement() throws SyntaxError {
+    	if (token.kind() == TokenKind.KEYWORD) {
+    		if (token.spelling().equals("if")) {	
+    			Frame frame = new Frame(ifFrame, token.position());
     			
     			acceptIt();
-    			Expression ifCondition = parseExpression();		
-
-    			StatementList ifBody = new StatementList();
-    			Line blockLine = token.line;
-    			while (! token.spelling.equals("end") && 
-    				   ! token.spelling.equals("else"))
-    				ifBody.add(parseStatement());					
-
-    			ArrayList<ElseIfStmt> elseIfStmts = new ArrayList<ElseIfStmt>();
-    			ElseStmt elseStmt				  = null;
+    			frame.condition = parseExpression();
     			
-    			while (token.spelling.equals("else")) {
-    				Line elseLine = token.line;
-    				acceptIt();
-    				
-    				if (token.spelling.equals("if")) {
-    					acceptIt();
-    					
-    					Expression elseIfCondition = parseExpression();
-    					
-    					StatementList elseIfBody = new StatementList();
-    	    			Line elseIfBlockLine = token.line;
-    	    			while (! token.spelling.equals("end") && 
-    	    				   ! token.spelling.equals("else"))
-    	    				elseIfBody.add(parseStatement());	
-    	    			
-    	    			elseIfStmts.add(new ElseIfStmt(elseIfCondition, 
-    	    										   new BlockStmt(elseIfBody, elseIfBlockLine), 
-    	    										   elseLine));
-    				} else {
-    					StatementList elseBody = new StatementList();
-    	    			Line elseBlockLine = token.line;
-    	    			while (! token.spelling.equals("end") && 
-    	    				   ! token.spelling.equals("else"))
-    	    				elseBody.add(parseStatement());
-    	    			
-    	    			elseStmt = new ElseStmt(new BlockStmt(elseBody, elseBlockLine), elseLine);
-    	    			break;
-    				}
-    			}
-    			
-    			accept(TokenKind.KEYWORD, "end");
-    			
-    			return new IfStmt(ifCondition, new BlockStmt(ifBody, blockLine), elseIfStmts, elseStmt, ifLine);
-    		} else if (token.spelling.equals("while")) {
-    			Line whileLine = token.line;
+    			openBlock(frame);
+    		} else if (token.spelling().equals("while") || token.spelling().equals("until")) {
+    			Frame frame = new Frame(token.spelling().equals("while") ? whileFrame : untilFrame, 
+    									token.position());
 
-    			acceptIt();									// while
-    			Expression condition = parseExpression();	// Expression
-    			StatementList body = new StatementList();
-
-    			Line blockLine = token.line;
-    			while (! token.spelling.equals("end"))
-    				body.add(parseStatement());				// Statement
-    			accept(TokenKind.KEYWORD, "end");			// end
-
-    			return new WhileStmt(condition, new BlockStmt(body, blockLine), whileLine);
-    		} else if (token.spelling.equals("Int") || token.spelling.equals("Boolean")) {
+    			acceptIt();									// while | until
+    			frame.condition = parseExpression();		// Expression
+    			
+    			openBlock(frame);
+    		} else if (token.spelling().equals("Int") || token.spelling().equals("Boolean")) {
 
-    			VarDecl decl = new VarDecl(parseType(), token.spelling, token.line);
+    			Type varType  = parseType();
+    			int varNameId = token.nameId();
 
     			accept(TokenKind.IDEN);
+    			VarDecl decl = finish(new VarDecl(varType, varNameId, varType.position));
     			accept(TokenKind.ASSIGN);
 
     			Expression expr = parseExpression();
 
-    			if (token.kind == TokenKind.SEMICOL) acceptIt();
+    			if (token.kind() == TokenKind.SEMICOL) acceptIt();
 
-    			return new VarDeclStmt(decl, expr, decl.line);
-    		} else if (token.spelling.equals("return")) {
-    			Line returnLine = token.line;
+    			complete(finish(new VarDeclStmt(decl, expr, decl.position)));
+    		} else if (token.spelling().equals("return")) {
+    			long returnPosition = token.position();
     			acceptIt();
-    			if (token.kind == TokenKind.SEMICOL) {
+    			if (token.kind() == TokenKind.SEMICOL) {
     				acceptIt();
-    				return new ReturnStmt(null, returnLine);
+    				complete(finish(new ReturnStmt(null, returnPosition)));
     			} else {
     				Expression returnExpr = parseExpression();
-    				if (token.kind == TokenKind.SEMICOL) acceptIt();
-    				return new ReturnStmt(returnExpr, returnLine);
+    				if (token.kind() == TokenKind.SEMICOL) acceptIt();
+    				complete(finish(new ReturnStmt(returnExpr, returnPosition)));
     			}
-    		} else if (token.spelling.equals("for")) {
-    			Line forLine = token.line;
+    		} else if (token.spelling().equals("for")) {
+    			Frame frame = new Frame(forFrame, token.position());
     			acceptIt();
     			
-    			Type iterType 	  = parseType();
-				Identifier iterId = new Identifier(token.spelling, token.line);
+    			frame.iterType 	  = parseType();
+				long iterPosition = token.position();
+				int iterNameId	  = token.nameId();
 				
 				accept(TokenKind.IDEN);
+				frame.iterId = finish(new Identifier(iterNameId, iterPosition));
     			
-    			if (token.spelling.equals("from")) {	// ForStmt    				
+    			if (token.spelling().equals("from")) {	// ForStmt    				
     				accept(TokenKind.KEYWORD, "from");
-    				Expression fromExpr = parseExpression();
+    				frame.condition = parseExpression();
     				
     				accept(TokenKind.KEYWORD, "to");
-    				Expression toExpr = parseExpression();
+    				frame.toExpr = parseExpression();
     				
-    				Expression byExpr = new LiteralExpr(new IntLiteral("1", token.line), token.line);
-    				if (token.spelling.equals("by")) {
+    				frame.byExpr = finish(new LiteralExpr(finish(new IntLiteral("1", token.position())), token.position()));
+    				if (token.spelling().equals("by")) {
     					acceptIt();
-    					byExpr = parseExpression();
+    					frame.byExpr = parseExpression();
     				}
-    				
-    				StatementList body = new StatementList();
-        			Line blockLine = token.line;
-        			while (! token.spelling.equals("end"))
-        				body.add(parseStatement());				
-        			accept(TokenKind.KEYWORD, "end");
-        			
-        			return new ForStmt(iterId, iterType, fromExpr, toExpr, 
-        							   byExpr, new BlockStmt(body, blockLine), forLine);	
     			} else {								// ForEachStmt
+    				frame.kind = forEachFrame;
     				accept(TokenKind.KEYWORD, "in");
-    				Expression collection = parseExpression();
-    				
-    				StatementList body = new StatementList();
-        			Line blockLine = token.line;
-        			while (! token.spelling.equals("end"))
-        				body.add(parseStatement());				
-        			accept(TokenKind.KEYWORD, "end");
-    				
-    				return new ForEachStmt(iterId, iterType, collection, new BlockStmt(body, blockLine), forLine);
+    				frame.condition = parseExpression();
     			}
-    		} else if (token.spelling.equals("loop")) {
-    			Line loopLine = token.line;
+    			
+    			openBlock(frame);
+    		} else if (token.spelling().equals("loop")) {
+    			Frame frame = new Frame(loopFrame, token.position());
     			acceptIt();
     			
-    			StatementList body = new StatementList();
-    			Line blockLine = token.line;
-    			while (! token.spelling.equals("end"))
-    				body.add(parseStatement());				
-    			accept(TokenKind.KEYWORD, "end");
-    			
-    			return new InfiniteLoopStmt(new BlockStmt(body, blockLine), loopLine);
-    		} else if (token.spelling.equals("until")) {
-    			Line untilLine = token.line;
-
-    			acceptIt();									// until
-    			Expression condition = parseExpression();	// Expression
-    			StatementList body = new StatementList();
-
-    			Line blockLine = token.line;
-    			while (! token.spelling.equals("end"))
-    				body.add(parseStatement());				// Statement
-    			accept(TokenKind.KEYWORD, "end");			// end
-
-    			return new UntilStmt(condition, new BlockStmt(body, blockLine), untilLine);
-    		} else if (token.spelling.equals("do")) {
-    			Line doIfLine = token.line;
+    			openBlock(frame);
+    		} else if (token.spelling().equals("do")) {
+    			Frame frame = new Frame(doFrame, token.position());
     			
     			acceptIt();
-    			Statement thenStmt = parseStatement();
-    			accept(TokenKind.KEYWORD, "if");
-    			Expression condition = parseExpression();
-    			accept(TokenKind.KEYWORD, "else");
-    			Statement elseStmt = parseStatement();
-    			
-    			return new DoIfStmt(thenStmt, condition, elseStmt, doIfLine);
+    			push(frame);								// Statement if Expression else Statement
     		} else { // "break"
-    			Line breakLine = token.line;
+    			long breakPosition = token.position();
     			acceptIt();
-    			if (token.kind == TokenKind.SEMICOL) acceptIt();
-    			return new BreakStmt(breakLine);
+    			if (token.kind() == TokenKind.SEMICOL) acceptIt();
+    			complete(finish(new BreakStmt(breakPosition)));
     		} 
     	} else {	// id
-    		Identifier typeId = new Identifier(token.spelling, new Line(scanner.lineNumber()));
+    		long idPosition = token.position();
+    		int idNameId	= token.nameId();
     		accept(TokenKind.IDEN);
+    		Identifier typeId = finish(new Identifier(idNameId, idPosition));
     		
-    		if (token.kind == TokenKind.LBRACKET) { // id[Expr] (.id([Expr])?)* (= Expr; | (ArgList?);)
+    		if (token.kind() == TokenKind.LBRACKET) { // id[Expr] (.id([Expr])?)* (= Expr; | (ArgList?);)
     			accept(TokenKind.LBRACKET);
 
-    			IdRef idRef 	= new IdRef(typeId, new Line(scanner.lineNumber()));
-    			Reference ref 	= new IndexedRef(idRef, parseExpression(), new Line(scanner.lineNumber()));
+    			IdRef idRef 	= finish(new IdRef(typeId, idPosition));
+    			Expression indexExpr = parseExpression();
 
     			accept(TokenKind.RBRACKET);
+    			Reference ref 	= finish(new IndexedRef(idRef, indexExpr, idPosition));
 
-    			if (token.kind == TokenKind.ASSIGN) {
+    			if (token.kind() == TokenKind.ASSIGN) {
     				acceptIt();
     				Expression expr = parseExpression();
-    				if (token.kind == TokenKind.SEMICOL) acceptIt();
+    				if (token.kind() == TokenKind.SEMICOL) acceptIt();
 
-    				return new AssignStmt(ref, expr, new Line(scanner.lineNumber()));
+    				complete(finish(new AssignStmt(ref, expr, idPosition)));
     			} else {
-    				ExprList args = new ExprList();
+    				ExprList args = ExprList.empty;
 
     				accept(TokenKind.LPAREN);
-    				if (token.kind != TokenKind.RPAREN)
+    				if (token.kind() != TokenKind.RPAREN)
     					args = parseArgumentList();
     				accept(TokenKind.RPAREN);
 
-    				if (token.kind == TokenKind.SEMICOL) acceptIt();
+    				if (token.kind() == TokenKind.SEMICOL) acceptIt();
 
-    				return new CallStmt(ref, args, new Line(scanner.lineNumber()));
+    				complete(finish(new CallStmt(ref, args, idPosition)));
     			}
-    		} else if (token.kind == TokenKind.ASSIGN) {
+    		} else if (token.kind() == TokenKind.ASSIGN) {
+    			Reference ref = finish(new IdRef(typeId, idPosition));
     			accept(TokenKind.ASSIGN);
     			Expression expr = parseExpression();
-    			if (token.kind == TokenKind.SEMICOL) acceptIt();
+    			if (token.kind() == TokenKind.SEMICOL) acceptIt();
 
-    			Reference ref = new IdRef(typeId, new Line(scanner.lineNumber()));
-    			return new AssignStmt(ref, expr, new Line(scanner.lineNumber()));
+    			complete(finish(new AssignStmt(ref, expr, idPosition)));
     		} else {
-    			ExprList args = new ExprList();
+    			Reference ref = finish(new IdRef(typeId, idPosition));
+    			ExprList args = ExprList.empty;
 
     			accept(TokenKind.LPAREN);
-    			if (token.kind != TokenKind.RPAREN)
+    			if (token.kind() != TokenKind.RPAREN)
     				args = parseArgumentList();
     			accept(TokenKind.RPAREN);
 
-    			if (token.kind == TokenKind.SEMICOL) acceptIt();
+    			if (token.kind() == TokenKind.SEMICOL) acceptIt();
 
-    			Reference ref = new IdRef(typeId, new Line(scanner.lineNumber()));
-    			return new CallStmt(ref, args, new Line(scanner.lineNumber()));
+    			complete(finish(new CallStmt(ref, args, idPosition)));
     		}
     	}
     }
-        
-    /*
-     * Expression ::= A (|| A)* (if Expr else Expr)?
-     * A ::= B (&& B)*
-     * B ::= C (== C | != C)*
-     * C ::= D (< D | > D | <= D | >= D)*
-     * D ::= E (+ E | - E)*
-     * E ::= F (* F | / F | % F)*
-     * F ::= num | string | true | false | null | (Expr) | -F | !F | 
-     * 		 new id( ArgList? ) || id || id( ArgList? )
+    
+    /**
+     * Push the frame of a compound statement whose body begins at the current token
+     * 
+     * @param frame	the frame of the compound statement
      */
+    private void openBlock(Frame frame) {
+    	frame.bodyBase		= scratchTop;
+    	frame.blockPosition = token.position();
+    	frame.inBody		= true;
+    	push(frame);
+    }
     
-    private Expression parseExpression() {
-    	Expression expr = parseA();
+    /**
+     * Finish the body of the compound statement on top of the stack, which
+     * has reached "end" (or "else" for an if statement), completing the
+     * statement or beginning its next else branch
+     * 
+     * @param frame			the frame on top of the stack
+     * @throws SyntaxError	if expected token mismatches actual token
+     */
+    private void closeBlock(Frame frame) throws SyntaxError {
+    	frame.inBody = false;
+    	BlockStmt block = finish(new BlockStmt(takeStatements(frame.bodyBase), frame.blockPosition));
     	
-    	while (token.spelling.equals("or") || token.spelling.equals("||")) {
-    		Operator op = new Operator(token, new Line(scanner.lineNumber()));
-    		acceptIt();
-    		expr = new BinaryExpr(expr, op, parseA(), new Line(scanner.lineNumber()));
+    	Statement stmt;
+    	switch (frame.kind) {
+    	case ifFrame:
+    		if (frame.ifBlock == null)
+    			frame.ifBlock = block;
+    		else if (frame.elseIfCondition != null)
+    			hold(finish(new ElseIfStmt(frame.elseIfCondition, block, frame.elsePosition)));
+    		else
+    			frame.elseStmt = finish(new ElseStmt(block, frame.elsePosition));
+    		
+    		if (frame.elseStmt == null && token.spelling().equals("else")) {
+    			frame.elsePosition	  = token.position();
+    			frame.elseIfCondition = null;
+    			acceptIt();
+    			
+    			if (token.spelling().equals("if")) {
+    				acceptIt();
+    				frame.elseIfCondition = parseExpression();
+    			}
+    			
+    			frame.bodyBase		= scratchTop;
+    			frame.blockPosition = token.position();
+    			frame.inBody		= true;
+    			return;
+    		}
+    		
+    		accept(TokenKind.KEYWORD, "end");
+    		stmt = new IfStmt(frame.condition, frame.ifBlock, takeElseIfStmts(frame.base), frame.elseStmt, frame.position);
+    		break;
+    	case whileFrame:
+    		accept(TokenKind.KEYWORD, "end");			// end
+    		stmt = new WhileStmt(frame.condition, block, frame.position);
+    		break;
+    	case untilFrame:
+    		accept(TokenKind.KEYWORD, "end");			// end
+    		stmt = new UntilStmt(frame.condition, block, frame.position);
+    		break;
+    	case forFrame:
+    		accept(TokenKind.KEYWORD, "end");
+    		stmt = new ForStmt(frame.iterId, frame.iterType, frame.condition, frame.toExpr, 
+    						   frame.byExpr, block, frame.position);
+    		break;
+    	case forEachFrame:
+    		accept(TokenKind.KEYWORD, "end");
+    		stmt = new ForEachStmt(frame.iterId, frame.iterType, frame.condition, block, frame.position);
+    		break;
+    	default: // loopFrame
+    		accept(TokenKind.KEYWORD, "end");
+    		stmt = new InfiniteLoopStmt(block, frame.position);
+    		break;
     	}
     	
-    	if (token.spelling.equals("if")) {
-    		acceptIt();
-			Expression thenExpr = expr;
-			Expression condition = parseExpression();
-			accept(TokenKind.KEYWORD, "else");
-			Expression elseExpr = parseExpression();
-			return new IfExpr(thenExpr, condition, elseExpr, thenExpr.line);
-    	} else {
-    		return expr;
-    	}
+    	frames.remove(frames.size() - 1);
+    	complete(finish(stmt));
     }
     
-    private Expression parseA() {
-    	Expression expr = parseB();
-    	while (token.spelling.equals("and") || token.spelling.equals("&&")) {
-    		Operator op = new Operator(token, new Line(scanner.lineNumber()));
-    		acceptIt();
-    		expr = new BinaryExpr(expr, op, parseB(), new Line(scanner.lineNumber()));
+    /**
+     * Hand a completed statement to whatever encloses it: a pending
+     * do ... if ... else, or else the body on top of the scratch stack,
+     * which is that of the compound statement on top of the stack of
+     * frames or of the outermost block
+     * 
+     * @param stmt			the completed statement
+     * @throws SyntaxError	if expected token mismatches actual token
+     */
+    private void complete(Statement stmt) throws SyntaxError {
+    	while (! frames.isEmpty()) {
+    		Frame frame = frames.get(frames.size() - 1);
+    		if (frame.kind != doFrame)
+    			break;
+    		
+    		if (frame.thenStmt == null) {
+    			frame.thenStmt = stmt;
+    			accept(TokenKind.KEYWORD, "if");
+    			frame.condition = parseExpression();
+    			accept(TokenKind.KEYWORD, "else");
+    			return;
+    		}
+    		
+    		frames.remove(frames.size() - 1);
+    		stmt = finish(new DoIfStmt(frame.thenStmt, frame.condition, stmt, frame.position));
     	}
-    	return expr;
+    	hold(stmt);
     }
     
-    private Expression parseB() {
-    	Expression expr = parseC();
-    	while (token.spelling.equals("==") || token.spelling.equals("equals") ||
-    		   token.spelling.equals("!=") || token.spelling.equals("notequals")) {
-    		Operator op = new Operator(token, new Line(scanner.lineNumber()));
-    		acceptIt();
-    		expr = new BinaryExpr(expr, op, parseC(), new Line(scanner.lineNumber()));
-    	}
-    	return expr;
+    /**
+     * Push the frame of a compound statement, unless nesting would exceed maxNesting
+     * 
+     * @param frame	the frame of the compound statement
+     */
+    private void push(Frame frame) {
+    	if (frames.size() + 1 > maxNesting)
+    		nestingError(frame.position);
+    	frame.base = scratchTop;
+    	frames.add(frame);
     }
     
-    private Expression parseC() {
-    	Expression expr = parseD();
-    	while (token.spelling.equals("<") || token.spelling.equals("<=") ||
-    		   token.spelling.equals(">") || token.spelling.equals(">=")) {
-    		Operator op = new Operator(token, new Line(scanner.lineNumber()));
-    		acceptIt();
-    		expr = new BinaryExpr(expr, op, parseD(), new Line(scanner.lineNumber()));
-    	}
-    	return expr;
+    /**
+     * Push an element of the innermost list under construction onto the scratch stack
+     * 
+     * @param node	the element
+     */
+    private void hold(AST node) {
+    	if (scratchTop == scratch.length)
+    		scratch = Arrays.copyOf(scratch, 2 * scratchTop);
+    	scratch[scratchTop++] = node;
     }
     
-    private Expression parseD() {
-    	Expression expr = parseE();
-    	while (token.spelling.equals("+") || token.spelling.equals("-")) {
-    		Operator op = new Operator(token, new Line(scanner.lineNumber()));
-    		acceptIt();
-    		expr = new BinaryExpr(expr, op, parseE(), new Line(scanner.lineNumber()));
-    	}
-    	return expr;
+    /**
+     * Pop the elements of a completed list off the scratch stack
+     * 
+     * @param base	the height of the scratch stack when the list was begun
+     * @return		the list, of exactly its size
+     */
+    private StatementList takeStatements(int base) {
+    	StatementList list = base == scratchTop ? StatementList.empty : new StatementList(scratch, base, scratchTop);
+    	scratchTop = base;
+    	return list;
     }
     
-    private Expression parseE() {
-    	Expression expr = parseF();
-    	while (token.spelling.equals("*") || token.spelling.equals("/") || 
-    		   token.spelling.equals("mod") || token.spelling.equals("%")) {
-    		Operator op = new Operator(token, new Line(scanner.lineNumber()));
-    		acceptIt();
-    		expr = new BinaryExpr(expr, op, parseF(), new Line(scanner.lineNumber()));
+    private ExprList takeExpressions(int base) {
+    	ExprList list = base == scratchTop ? ExprList.empty : new ExprList(scratch, base, scratchTop);
+    	scratchTop = base;
+    	return list;
+    }
+    
+    private ParameterDeclList takeParameters(int base) {
+    	ParameterDeclList list = base == scratchTop ? ParameterDeclList.empty : new ParameterDeclList(scratch, base, scratchTop);
+    	scratchTop = base;
+    	return list;
+    }
+    
+    private FunctionDeclList takeFunctions(int base) {
+    	FunctionDeclList list = base == scratchTop ? FunctionDeclList.empty : new FunctionDeclList(scratch, base, scratchTop);
+    	scratchTop = base;
+    	return list;
+    }
+    
+    private ElseIfStmtList takeElseIfStmts(int base) {
+    	ElseIfStmtList list = base == scratchTop ? ElseIfStmtList.empty : new ElseIfStmtList(scratch, base, scratchTop);
+    	scratchTop = base;
+    	return list;
+    }
+        
+    /*
+     * Expression ::= Binary (if Expression else Expression)?
+     * Binary ::= Operand (binop Operand)*
+     * Operand ::= num | string | true | false | (Expression) | -Operand | !Operand | 
+     * 		 	   Reference | Reference( ArgList? )
+     * Reference ::= id | id[Expression]
+     * 
+     * where binop is, from loosest to tightest binding, and all left-associative:
+     * 		|| or
+     * 		&& and
+     * 		== equals != notequals
+     * 		< > <= >=
+     * 		+ -
+     * 		* / % mod
+     * 
+     * Operands are parsed in a loop, with the binary and unary operators and
+     * the enclosing constructs (parentheses, argument lists, indices and the
+     * parts of a conditional) still awaiting operands kept on an explicit stack.
+     */
+    
+    private Expression parseExpression() {
+    	pending.clear();
+    	operands.clear();
+    	expressionDepth = 0;
+    	pending.add(new Pending(topLevel));
+    	
+    	while (true) {
+    		Expression operand = parseOperand();
+    		if (operand != null) {
+    			Expression expr = reduce(operand);
+    			if (expr != null)
+    				return expr;
+    		}
     	}
-    	return expr;
     }
     
-    private Expression parseF() {
-    	if (token.isUnary()) {
-    		Operator op = new Operator(token, new Line(scanner.lineNumber()));
+    /**
+     * Parse an operand, or the part of one that opens a construct whose
+     * own operand comes next
+     * 
+     * @return	the operand, or null if a construct was opened
+     */
+    private Expression parseOperand() {
+    	if (isUnary()) {
+    		Operator op = new Operator(token.token(), token.position());
     		acceptIt();
-    		return new UnaryExpr(op, parseF(), new Line(scanner.lineNumber()));
-    	} else if (token.kind == TokenKind.LPAREN) {
+    		open(unary).op = finish(op);
+    		return null;
+    	} else if (token.kind() == TokenKind.LPAREN) {
     		acceptIt();
-    		Expression expr = parseExpression();
-    		accept(TokenKind.RPAREN);
-    		return expr;
-    	} else if (token.kind == TokenKind.INTLIT) {
-    		IntLiteral lit = new IntLiteral(token.spelling, new Line(scanner.lineNumber()));
+    		open(parenthesis);
+    		return null;
+    	} else if (token.kind() == TokenKind.INTLIT) {
+    		IntLiteral lit = new IntLiteral(token.spelling(), token.position());
     		acceptIt();
-    		return new LiteralExpr(lit, new Line(scanner.lineNumber()));
-    	} else if (token.kind == TokenKind.STRLIT) {
-    		StringLiteral lit = new StringLiteral(token.spelling, new Line(scanner.lineNumber()));
+    		return finish(new LiteralExpr(finish(lit), lit.position));
+    	} else if (token.kind() == TokenKind.STRLIT) {
+    		StringLiteral lit = new StringLiteral(token.spelling(), token.position());
     		acceptIt();
-    		return new LiteralExpr(lit, new Line(scanner.lineNumber()));
-    	} else if (token.kind == TokenKind.BOOLLIT) {
-    		BooleanLiteral lit = new BooleanLiteral(token.spelling, new Line(scanner.lineNumber()));
+    		return finish(new LiteralExpr(finish(lit), lit.position));
+    	} else if (token.kind() == TokenKind.BOOLLIT) {
+    		BooleanLiteral lit = new BooleanLiteral(token.spelling(), token.position());
     		acceptIt();
-    		return new LiteralExpr(lit, new Line(scanner.lineNumber()));
+    		return finish(new LiteralExpr(finish(lit), lit.position));
     	} else { // Reference (ArgList?)? 
-    		Reference ref = parseReference();   
-    		if (token.kind == TokenKind.LPAREN) {
-    			ExprList exprList = new ExprList();
-    			accept(TokenKind.LPAREN);
-				if (token.kind != TokenKind.RPAREN)
-					exprList = parseArgumentList();
-    			accept(TokenKind.RPAREN);
+    		long idPosition = token.position();
+    		int idNameId	= token.nameId();
+    		accept(TokenKind.IDEN);							// id
+    		
+    		IdRef idRef = finish(new IdRef(finish(new Identifier(idNameId, idPosition)), idPosition));
     		
-    			return new CallExpr(ref, exprList, new Line(scanner.lineNumber()));
+    		if (token.kind() == TokenKind.LBRACKET) {
+    			acceptIt();									// [
+    			open(index).ref = idRef;
+    			return null;
     		} else {
-    			return new RefExpr(ref, new Line(scanner.lineNumber()));
+    			return parseCall(idRef);
+    		}
+    	}
+    }
+    
+    /**
+     * Parse the argument list, if any, following a reference
+     * 
+     * @param ref	the reference
+     * @return		the operand, or null if an argument list was opened
+     */
+    private Expression parseCall(Reference ref) {
+    	if (token.kind() == TokenKind.LPAREN) {
+    		accept(TokenKind.LPAREN);
+    		if (token.kind() != TokenKind.RPAREN) {
+    			Pending call = open(argument);
+    			call.ref	  = ref;
+    			call.argsBase = scratchTop;
+    			return null;
+    		}
+    		accept(TokenKind.RPAREN);
+    		
+    		return finish(new CallExpr(ref, ExprList.empty, ref.position));
+    	} else {
+    		return finish(new RefExpr(ref, ref.position));
+    	}
+    }
+    
+    /**
+     * Fold a completed operand into the operators and constructs pending
+     * on the stack, for as long as the current token does not continue it
+     * 
+     * @param operand	the completed operand
+     * @return			the whole expression, or null if another operand comes next
+     */
+    private Expression reduce(Expression operand) {
+    	while (true) {
+    		Pending top = pending.get(pending.size() - 1);
+    		while (top.kind == unary) {
+    			close();
+    			operand = finish(new UnaryExpr(top.op, operand, top.op.position));
+    			top = pending.get(pending.size() - 1);
+    		}
+    		
+    		int precedence = binaryPrecedence();
+    		while (top.kind == binary && top.precedence >= precedence) {
+    			pending.remove(pending.size() - 1);
+    			Expression left = operands.remove(operands.size() - 1);
+    			operand = finish(new BinaryExpr(left, top.op, operand, left.position));
+    			top = pending.get(pending.size() - 1);
+    		}
+    		
+    		if (precedence != none) {
+    			Operator op = new Operator(token.token(), token.position());
+    			acceptIt();
+    			operands.add(operand);
+    			
+    			Pending binop = new Pending(binary);
+    			binop.op		 = finish(op);
+    			binop.precedence = precedence;
+    			pending.add(binop);
+    			return null;
+    		}
+    		
+    		// The innermost construct's expression ends here, unless it is conditional
+    		if (! top.conditional && token.kind() == TokenKind.KEYWORD && token.nameId() == ifId) {
+    			acceptIt();
+    			top.conditional = true;
+    			top.thenExpr	= operand;
+    			open(condition);
+    			return null;
+    		}
+    		
+    		switch (top.kind) {
+    		case topLevel:
+    			pending.clear();
+    			return operand;
+    		case parenthesis:
+    			accept(TokenKind.RPAREN);
+    			close();
+    			break;
+    		case argument:
+    			hold(operand);								// Expression
+    			if (token.kind() == TokenKind.COMMA) {
+    				acceptIt();								// ,
+    				top.conditional = false;
+    				return null;
+    			}
+    			accept(TokenKind.RPAREN);
+    			close();
+    			operand = finish(new CallExpr(top.ref, takeExpressions(top.argsBase), top.ref.position));
+    			break;
+    		case index:
+    			accept(TokenKind.RBRACKET);					// ]
+    			close();
+    			operand = parseCall(finish(new IndexedRef((IdRef) top.ref, operand, top.ref.position)));
+    			if (operand == null)
+    				return null;
+    			break;
+    		case condition:
+    			close();
+    			pending.get(pending.size() - 1).condition = operand;
+    			accept(TokenKind.KEYWORD, "else");
+    			open(alternative);
+    			return null;
+    		default: // alternative
+    			close();
+    			Pending owner = pending.get(pending.size() - 1);
+    			operand = finish(new IfExpr(owner.thenExpr, owner.condition, operand, owner.thenExpr.position));
+    			break;
     		}
     	}
     }
+    
+    /**
+     * Push a unary operator or a construct awaiting an operand,
+     * unless nesting would exceed maxNesting
+     * 
+     * @param kind	the kind of entry
+     * @return		the entry pushed
+     */
+    private Pending open(int kind) {
+    	if (frames.size() + ++expressionDepth > maxNesting)
+    		nestingError(token.position());
+    	
+    	Pending entry = new Pending(kind);
+    	pending.add(entry);
+    	return entry;
+    }
+    
+    /**
+     * Pop the unary operator or construct on top of the stack
+     */
+    private void close() {
+    	pending.remove(pending.size() - 1);
+    	expressionDepth--;
+    }
+    
+    /**
+     * Look up the precedence of the current token as a binary operator
+     * 
+     * @return	the precedence, or none if the token is not a binary operator
+     */
+    private int binaryPrecedence() {
+    	switch (token.kind()) {
+    	case ARITHOP:
+    		char arithOp = token.spelling().charAt(0);
+    		return arithOp == '+' || arithOp == '-' ? additive : multiplicative;
+    	case RELOP:
+    		char relOp = token.spelling().charAt(0);
+    		return relOp == '<' || relOp == '>' ? relational : equality;
+    	case LOGOP:
+    		char logOp = token.spelling().charAt(0);
+    		return logOp == '|' || logOp == 'o' ? disjunction :
+    			   logOp == '&' || logOp == 'a' ? conjunction : none;
+    	case KEYWORD:
+    		return token.nameId() == modId ? multiplicative : none;
+    	default:
+    		return none;
+    	}
+    }
+    
+    /**
+     * A compound statement whose parse is under way
+     */
+    private static class Frame {
+    	
+    	/**
+    	 * Kind of statement, one of the frame kinds
+    	 */
+    	int kind;
+    	
+    	/**
+    	 * Position of the first token of the statement
+    	 */
+    	final long position;
+    	
+    	/**
+    	 * Whether the statements of a body are being parsed, rather than
+    	 * the statement's own tokens or, for do, its nested statements
+    	 */
+    	boolean inBody;
+    	
+    	/**
+    	 * Height of the scratch stack when the frame was pushed, above which
+    	 * an if statement holds its else if branches
+    	 */
+    	int base;
+    	
+    	/**
+    	 * Height of the scratch stack at which the statements of the body
+    	 * being parsed begin, and the position of the body
+    	 */
+    	int bodyBase;
+    	long blockPosition;
+    	
+    	/**
+    	 * Condition of if, while, until and do, start of for, or collection of for-each
+    	 */
+    	Expression condition;
+    	
+    	/**
+    	 * Parts of an if statement parsed so far
+    	 */
+    	BlockStmt ifBlock;
+    	ElseStmt elseStmt;
+    	Expression elseIfCondition;
+    	long elsePosition;
+    	
+    	/**
+    	 * Iteration variable, end and step of a for statement
+    	 */
+    	Type iterType;
+    	Identifier iterId;
+    	Expression toExpr;
+    	Expression byExpr;
+    	
+    	/**
+    	 * Statement executed when the condition of a do statement holds
+    	 */
+    	Statement thenStmt;
+    	
+    	Frame(int kind, long position) {
+    		this.kind	  = kind;
+    		this.position = position;
+    	}
+    }
+    
+    /**
+     * An operator or construct of an expression still awaiting its operand
+     */
+    private static class Pending {
+    	
+    	/**
+    	 * Kind of entry, one of the expression entry kinds
+    	 */
+    	final int kind;
+    	
+    	/**
+    	 * Operator and precedence of a unary or binary operator
+    	 */
+    	Operator op;
+    	int precedence;
+    	
+    	/**
+    	 * Whether the construct's expression has been found to be
+    	 * conditional, with thenExpr and then condition parsed so far
+    	 */
+    	boolean conditional;
+    	Expression thenExpr;
+    	Expression condition;
+    	
+    	/**
+    	 * Reference being indexed or called, and height of the scratch
+    	 * stack at which the arguments parsed so far begin
+    	 */
+    	Reference ref;
+    	int argsBase;
+    	
+    	Pending(int kind) {
+    		this.kind = kind;
+    	}
+    }
 }
@@ -12,9 +12,9 @@ import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
 
-import java.util.HashSet;
+import java.util.Arrays;
 
-import easy.SyntacticAnalyzer.Line;
+import easy.SyntacticAnalyzer.SourcePosition;
 import easy.SyntacticAnalyzer.Token;
 import easy.SyntacticAnalyzer.TokenKind;
 
@@ -43,15 +43,66 @@ public class Scanner {
 	 */
 	private int lineNumber;	
 	
+	/**
+	 * Offset in source of the first character of the current line
+	 */
+	private int lineStart;
+	
+	/**
+	 * Position in source of the token being scanned
+	 */
+	private long tokenPosition;
+	
+	/**
+	 * Offset in source of the first character of the token being scanned
+	 */
+	private int tokenOffset;
+	
+	/**
+	 * Spelling of the token just scanned, if it is not an interned name
+	 */
+	private String spelling;
+	
+	/**
+	 * ID of the spelling of the token just scanned in the NameTable,
+	 * or -1 if it is not an interned name
+	 */
+	private int nameId;
+	
 	/**
 	 * Flag for end-of-file character
 	 */
 	private boolean isEOF;
 	
 	/**
-	 * Stream from which we read input characters
+	 * Source from which we read blocks of input characters
 	 */
-	private InputStream inputStream;
+	private CharSource source;
+	
+	/**
+	 * Size of the window of characters read from the source at once
+	 */
+	private final static int bufferSize = 1 << 16;
+	
+	/**
+	 * Reusable window of characters read from the source
+	 */
+	private char[] buffer;
+	
+	/**
+	 * Position of the next unread character in the window
+	 */
+	private int bufferPos;
+	
+	/**
+	 * Number of valid characters in the window
+	 */
+	private int bufferEnd;
+	
+	/**
+	 * Offset in source of the first character in the window
+	 */
+	private int windowStart;
 	
 	/**
 	 * Used in reporting errors
@@ -59,19 +110,19 @@ public class Scanner {
 	public final ErrorReporter reporter;
 	
 	/**
-	 * Set of keywords
+	 * Initial capacity of the lexeme buffer
 	 */
-	private HashSet<String> keywords;
+	private final static int lexemeSize = 64;
 	
 	/**
-	 * Set of logical operators
+	 * Reusable buffer in which the characters of the current lexeme are accumulated
 	 */
-	private HashSet<String> logops;
+	private char[] lexeme;
 	
 	/**
-	 * Set of relational operators
+	 * Number of characters in the current lexeme
 	 */
-	private HashSet<String> relops;
+	private int lexemeLength;
 	
 	/**
 	 * Main method used for debugging 
@@ -115,50 +166,66 @@ public class Scanner {
 	}
 	
 	/**
-	 * Constructor that sets up keywords and operator
-	 * names and then proceeds to read first character of input
+	 * Construct a Scanner that reads characters from the given stream
 	 * 
 	 * @param inputStream	the stream from which characters are read
 	 * @param reporter		the ErrorReporter instance
 	 */
 	public Scanner(InputStream inputStream, ErrorReporter reporter) {
-		this.inputStream = inputStream;
-		this.reporter 	 = reporter;
-				
-		keywords = new HashSet<String>();
-		keywords.add("def");
-		keywords.add("main");
-		keywords.add("end");
-		keywords.add("return");
-		keywords.add("returns");
-		keywords.add("Int");
-		keywords.add("Boolean");
-		keywords.add("mod");
-		keywords.add("do");
-		keywords.add("if");
-		keywords.add("else");
-		keywords.add("while");
-		keywords.add("for");
-		keywords.add("loop");
-		keywords.add("until");
-		keywords.add("in");
-		keywords.add("from");
-		keywords.add("by");
-		keywords.add("to");
-		keywords.add("break");
-		
-		logops = new HashSet<String>();
-		logops.add("and");
-		logops.add("or");
-		logops.add("not");
-		
-		relops = new HashSet<String>();
-		relops.add("equals");
-		relops.add("notequals");
+		this(new StreamCharSource(inputStream), reporter);
+	}
+	
+	/**
+	 * Constructor that sets up the character window and 
+	 * then proceeds to read first character of input
+	 * 
+	 * @param source	the source from which blocks of characters are read
+	 * @param reporter	the ErrorReporter instance
+	 */
+	public Scanner(CharSource source, ErrorReporter reporter) {
+		this(source, reporter, 0, 1);
+	}
+
+	/**
+	 * Construct a Scanner over a region of a larger source that begins
+	 * at the start of a line, so that tokens carry their positions in
+	 * the larger source
+	 *
+	 * @param source		the source from which blocks of characters of the region are read
+	 * @param reporter		the ErrorReporter instance
+	 * @param startOffset	the offset of the region in the larger source
+	 * @param startLine		the line number of the first line of the region
+	 */
+	Scanner(CharSource source, ErrorReporter reporter, int startOffset, int startLine) {
+		this(source, reporter, startOffset, startLine, startOffset);
+	}
+
+	/**
+	 * Construct a Scanner over a region of a larger source that begins
+	 * at the start of a token, possibly in the middle of a line
+	 *
+	 * @param source		the source from which blocks of characters of the region are read
+	 * @param reporter		the ErrorReporter instance
+	 * @param startOffset	the offset of the region in the larger source
+	 * @param startLine		the line number of the line on which the region begins
+	 * @param lineStart		the offset in the larger source of the start of that line
+	 */
+	Scanner(CharSource source, ErrorReporter reporter, int startOffset, int startLine, int lineStart) {
+		this.source   = source;
+		this.reporter = reporter;
+
+		buffer	  = new char[bufferSize];
+		bufferPos	= 0;
+		bufferEnd	= 0;
+		windowStart = startOffset;
+
+		lexeme		 = new char[lexemeSize];
+		lexemeLength = 0;
 
 		isEOF = false;
 
-		lineNumber = 1;
+		this.lineNumber = startLine;
+		this.lineStart	= lineStart;
 
 		nextChar();
 	}
@@ -170,36 +237,77 @@ public class Scanner {
 	 * @return the synthesized token
 	 */
 	public Token scan() {
+		TokenKind kind = scanToken();
+		if (nameId != -1)
+			return new Token(kind, nameId, tokenPosition, position(), tokenOffset, offset());
+		else
+			return new Token(kind, spelling, tokenPosition, position(), tokenOffset, offset());
+	}
+	
+	/**
+	 * Scans the whole remaining character stream into a packed buffer of
+	 * tokens, without constructing a Token for each
+	 * 
+	 * @return	the buffer of scanned tokens
+	 */
+	public TokenBuffer scanAll() {
+		return scanAll(Integer.MAX_VALUE);
+	}
+	
+	/**
+	 * Scans the character stream into a packed buffer of tokens, up to
+	 * and including the first token that begins at or after the given offset
+	 * 
+	 * @param limit	the offset at which to stop
+	 * @return		the buffer of scanned tokens
+	 */
+	TokenBuffer scanAll(int limit) {
+		TokenBuffer tokens = new TokenBuffer();
+		while (true) {
+			TokenKind kind = scanToken();
+			int endOffset  = offset();
+			
+			if (nameId != -1)
+				tokens.add(kind, nameId, lineNumber, lineStart, tokenOffset, endOffset);
+			else
+				tokens.add(kind, spelling, lineNumber, lineStart, tokenOffset, endOffset);
+			
+			if (kind == TokenKind.EOF || tokenOffset >= limit)
+				return tokens;
+		}
+	}
+	
+	/**
+	 * Scans a series of characters from the character stream, leaving 
+	 * the spelling of the token in {@link #spelling} or {@link #nameId}
+	 * 
+	 * @return	the kind of the scanned token
+	 */
+	private TokenKind scanToken() {
 				
 		// Skip whitespace (\n, \t, etc.) and comments
 		passThroughWhitespace();
 		
+		tokenPosition = position();
+		tokenOffset   = offset();
+		
 		// Check for EOF flag
 		if (isEOF)
-			return new Token(TokenKind.EOF, "EOF", new Line(lineNumber));
+			return found(TokenKind.EOF, "EOF");
 
 		// Identify keywords and identifiers
 		if (isAlphaChar(currentChar)) {
 			// Consume entire "word"
-			String word = "";
-			while (isAlphaChar(currentChar) || isDigit(currentChar) || isUnderscore(currentChar)) {
-				word += currentChar;
-				takeIt();
-			}
+			lexemeLength = 0;
+			while (isAlphaChar(currentChar) || isDigit(currentChar) || isUnderscore(currentChar))
+				takeItIntoLexeme();
 
 			// Perform lookup to disambiguate "word"
-			if (keywords.contains(word))
-				return new Token(TokenKind.KEYWORD, word, new Line(lineNumber));
-			else if (logops.contains(word))
-				return new Token(TokenKind.LOGOP, word, new Line(lineNumber));
-			else if (relops.contains(word))
-				return new Token(TokenKind.RELOP, word, new Line(lineNumber));
-			else if (word.equals("true") || word.equals("false"))
-				return new Token(TokenKind.BOOLLIT, word, new Line(lineNumber));
-			else if (word.equals("mod"))
-				return new Token(TokenKind.ARITHOP, word, new Line(lineNumber));
+			int ordinal = WordTable.lookup(lexeme, lexemeLength);
+			if (ordinal != -1)
+				return found(WordTable.kind(ordinal), ordinal);
 			else 
-				return new Token(TokenKind.IDEN, word, new Line(lineNumber));
+				return found(TokenKind.IDEN, NameTable.intern(lexeme, lexemeLength));
 		}
 
 		// Scan token
@@ -209,20 +317,19 @@ public class Scanner {
 		case '"':
 		case '\'':
 			// Handle string literals (can begin with single or double quotes)
-			String strlit = "";
+			lexemeLength = 0;
 			temp = currentChar;
 			takeIt();
 			while (currentChar != temp) {
 				if (isEOF) {
 					errorStr = "Unterminated string";
-					scanError(lineNumber, errorStr);
-					return new Token(TokenKind.ERROR, errorStr, new Line(lineNumber));
+					scanError(tokenPosition, errorStr);
+					return found(TokenKind.ERROR, errorStr);
 				}
-				strlit += Character.toString(currentChar);
-				takeIt();
+				takeItIntoLexeme();
 			}
 			takeIt();
-			return new Token(TokenKind.STRLIT, strlit, new Line(lineNumber));
+			return found(TokenKind.STRLIT, lexemeSpelling());
 			
 		case '+': 
 		case '*':
@@ -236,10 +343,10 @@ public class Scanner {
 				(temp == '-' && currentChar == '-')) {
 				// Deny ++ and --
 				errorStr = "++ not allowed in Easy!";
-				scanError(lineNumber, errorStr);
-				return new Token(TokenKind.ERROR, Character.toString(temp), new Line(lineNumber));
+				scanError(tokenPosition, errorStr);
+				return found(TokenKind.ERROR, operatorSpelling(temp));
 			} else {
-				return new Token(TokenKind.ARITHOP, Character.toString(temp), new Line(lineNumber));
+				return found(TokenKind.ARITHOP, operatorSpelling(temp));
 			}
 			
 		case '>':
@@ -249,10 +356,10 @@ public class Scanner {
 			takeIt();
 			if (currentChar == '=') {
 				takeIt();
-				return new Token(TokenKind.RELOP, Character.toString(temp) + "=", new Line(lineNumber));
+				return found(TokenKind.RELOP, temp == '<' ? "<=" : ">=");
 			}
 			else {
-				return new Token(TokenKind.RELOP, Character.toString(temp), new Line(lineNumber));
+				return found(TokenKind.RELOP, operatorSpelling(temp));
 			}
 			
 		case '=':
@@ -261,9 +368,9 @@ public class Scanner {
 			if (currentChar == '=') {
 				// Allow == as well
 				takeIt();
-				return new Token(TokenKind.RELOP, "==", new Line(lineNumber));
+				return found(TokenKind.RELOP, "==");
 			} else {
-				return new Token(TokenKind.ASSIGN, "=", new Line(lineNumber));
+				return found(TokenKind.ASSIGN, "=");
 			}
 			
 		case '!':
@@ -271,21 +378,21 @@ public class Scanner {
 			takeIt();
 			if (currentChar == '=') {
 				takeIt();
-				return new Token(TokenKind.RELOP, "!=", new Line(lineNumber));
+				return found(TokenKind.RELOP, "!=");
 			}
 			else
-				return new Token(TokenKind.LOGOP, "!", new Line(lineNumber));
+				return found(TokenKind.LOGOP, "!");
 			
 		case '&':
 			takeIt();
 			if (currentChar == '&') {
 				// Allow && as well
 				takeIt();
-				return new Token(TokenKind.LOGOP, "&&", new Line(lineNumber));
+				return found(TokenKind.LOGOP, "&&");
 			} else {
 				errorStr = "Single & not allowed in Easy!";
-				scanError(lineNumber, errorStr);
-				return new Token(TokenKind.ERROR, errorStr, new Line(lineNumber));
+				scanError(tokenPosition, errorStr);
+				return found(TokenKind.ERROR, errorStr);
 			}
 			
 		case '|':
@@ -293,36 +400,36 @@ public class Scanner {
 			if (currentChar == '|') {
 				// Allow || as well
 				takeIt();
-				return new Token(TokenKind.LOGOP, "||", new Line(lineNumber));
+				return found(TokenKind.LOGOP, "||");
 			} else {
 				errorStr = "Single | not allowed in Easy!";
-				scanError(lineNumber, errorStr);
-				return new Token(TokenKind.ERROR, errorStr, new Line(lineNumber));
+				scanError(tokenPosition, errorStr);
+				return found(TokenKind.ERROR, errorStr);
 			}
 
 		case '(': 
 			takeIt();
-			return new Token(TokenKind.LPAREN, "(", new Line(lineNumber));
+			return found(TokenKind.LPAREN, "(");
 
 		case ')':
 			takeIt();
-			return new Token(TokenKind.RPAREN, ")", new Line(lineNumber));
+			return found(TokenKind.RPAREN, ")");
 
 		case '{':
 			takeIt();
-			return new Token(TokenKind.LBRACE, "{", new Line(lineNumber));
+			return found(TokenKind.LBRACE, "{");
 
 		case '}':
 			takeIt();
-			return new Token(TokenKind.RBRACE, "}", new Line(lineNumber));
+			return found(TokenKind.RBRACE, "}");
 
 		case '[':
 			takeIt();
-			return new Token(TokenKind.LBRACKET, "[", new Line(lineNumber));
+			return found(TokenKind.LBRACKET, "[");
 
 		case ']':
 			takeIt();
-			return new Token(TokenKind.RBRACKET, "]", new Line(lineNumber));
+			return found(TokenKind.RBRACKET, "]");
 
 		case '0': 
 		case '1': 
@@ -334,12 +441,10 @@ public class Scanner {
 		case '7': 
 		case '8': 
 		case '9':
-			String numstr = "";
-			while (isDigit(currentChar)) {
-				numstr += Character.toString(currentChar);
-				takeIt();
-			}
-			return new Token(TokenKind.INTLIT, numstr, new Line(lineNumber));
+			lexemeLength = 0;
+			while (isDigit(currentChar))
+				takeItIntoLexeme();
+			return found(TokenKind.INTLIT, lexemeSpelling());
 			
 			/*
 			// Distinguish between ints and floats
@@ -351,44 +456,46 @@ public class Scanner {
 						floatstr += Character.toString(currentChar);
 						takeIt();
 					}
-					return new Token(TokenKind.FLOATLIT, numstr+"."+floatstr, new Line(lineNumber));
+					return found(TokenKind.FLOATLIT, numstr+"."+floatstr);
 				} else {
 					errorStr = "Floats must have numbers on either side of the point!";
-					scanError(lineNumber, errorStr);
-					return new Token(TokenKind.ERROR, errorStr, new Line(lineNumber));
+					scanError(tokenPosition, errorStr);
+					return found(TokenKind.ERROR, errorStr);
 				}
 			} else {
-				return new Token(TokenKind.INTLIT, numstr, new Line(lineNumber));
+				return found(TokenKind.INTLIT, numstr);
 			}
 			*/
 		case ';':
 			takeIt();
-			return new Token(TokenKind.SEMICOL, ";", new Line(lineNumber));
+			return found(TokenKind.SEMICOL, ";");
 			
 		case ',':
 			takeIt();
-			return new Token(TokenKind.COMMA, ",", new Line(lineNumber));
+			return found(TokenKind.COMMA, ",");
 			
 		case '.':
 			takeIt();
 			if (isDigit(currentChar)) {
 				errorStr = "Floats must have numbers on either side of the point!";
-				scanError(lineNumber, errorStr);
-				return new Token(TokenKind.ERROR, errorStr, new Line(lineNumber));
+				scanError(tokenPosition, errorStr);
+				return found(TokenKind.ERROR, errorStr);
 			} else {
-				return new Token(TokenKind.DOT, ".", new Line(lineNumber));
+				return found(TokenKind.DOT, ".");
 			}
 			
 		case '_':
 			takeIt();
 			errorStr = "Identifiers cannot start with an underscore!";
-			scanError(lineNumber, errorStr);
-			return new Token(TokenKind.ERROR, errorStr, new Line(lineNumber));
+			scanError(tokenPosition, errorStr);
+			return found(TokenKind.ERROR, errorStr);
 			
 		default:
-			scanError(lineNumber, "Unrecognized character in input");
+			// Skip the character so that scanning can go on past it
+			scanError(tokenPosition, "Unrecognized character in input");
 			errorStr = "ASCII: " + Integer.toString((int)currentChar);
-			return new Token(TokenKind.ERROR, errorStr, new Line(lineNumber));
+			takeIt();
+			return found(TokenKind.ERROR, errorStr);
 		}
 	}
 	
@@ -401,24 +508,136 @@ public class Scanner {
 		return lineNumber;
 	}
 	
+	/**
+	 * Returns the current position in source code, packed by {@link SourcePosition}
+	 * 
+	 * @return the current line and column in source code
+	 */
+	public long position() {
+		return SourcePosition.of(lineNumber, offset() - lineStart + 1);
+	}
+	
+	/**
+	 * Returns the offset in source of the current character
+	 * 
+	 * @return the offset of the current character, or the length of the source at end of input
+	 */
+	public int offset() {
+		return isEOF ? windowStart + bufferEnd : windowStart + bufferPos - 1;
+	}
+	
+	/**
+	 * Record the spelling of the token just scanned
+	 * 
+	 * @param kind		the type of the token
+	 * @param spelling	the String representation of the token
+	 * @return			the type of the token
+	 */
+	private TokenKind found(TokenKind kind, String spelling) {
+		this.spelling = spelling;
+		this.nameId	  = -1;
+		return kind;
+	}
+	
+	/**
+	 * Record the spelling of the token just scanned as an interned name
+	 * 
+	 * @param kind		the type of the token
+	 * @param nameId	the ID of the token's spelling in the NameTable
+	 * @return			the type of the token
+	 */
+	private TokenKind found(TokenKind kind, int nameId) {
+		this.spelling = null;
+		this.nameId	  = nameId;
+		return kind;
+	}
+	
+	
 	private void takeIt() {
 		nextChar();
 	}
 	
+	/**
+	 * Append the current character to the lexeme buffer, 
+	 * growing it if necessary, and advance
+	 */
+	private void takeItIntoLexeme() {
+		if (lexemeLength == lexeme.length)
+			lexeme = Arrays.copyOf(lexeme, 2 * lexeme.length);
+		lexeme[lexemeLength++] = currentChar;
+		nextChar();
+	}
+	
+	/**
+	 * Materialize the accumulated lexeme as a String
+	 * 
+	 * @return	the spelling of the current lexeme
+	 */
+	private String lexemeSpelling() {
+		return new String(lexeme, 0, lexemeLength);
+	}
+	
+	/**
+	 * Spelling of a single-character operator, using a
+	 * constant so that no String is allocated
+	 * 
+	 * @param c	the operator character
+	 * @return	the spelling of the operator
+	 */
+	private String operatorSpelling(char c) {
+		switch (c) {
+		case '+': return "+";
+		case '-': return "-";
+		case '*': return "*";
+		case '/': return "/";
+		case '%': return "%";
+		case '<': return "<";
+		case '>': return ">";
+		default:  return String.valueOf(c);
+		}
+	}
+	
 	private void nextChar() {
+		if (bufferPos == bufferEnd && !refill()) {
+			currentChar = '\0';
+			isEOF = true;
+		} else {
+			currentChar = buffer[bufferPos++];
+		}
+	}
+	
+	/**
+	 * Read the next block of characters from the source into the window, 
+	 * closing the source once it is exhausted
+	 * 
+	 * @return	true if at least one character was read, false at end of input
+	 */
+	private boolean refill() {
+		if (isEOF)
+			return false;
+		
 		try {
-            int c = inputStream.read();
-            if (c == -1) {
-            	currentChar = '\0';
-            	isEOF = true;
-            } else {
-            	currentChar = (char) c;
-            }
-        } catch (IOException e) {
-            scanError(lineNumber, "I/O Exception!");
-            currentChar = '\0';
-            isEOF = true;
-        }
+			int n;
+			do {
+				n = source.read(buffer, 0, buffer.length);
+			} while (n == 0);
+			
+			if (n != -1) {
+				windowStart += bufferEnd;
+				bufferPos	 = 0;
+				bufferEnd	 = n;
+				return true;
+			}
+		} catch (IOException e) {
+			scanError(position(), "I/O Exception!");
+		}
+		
+		try {
+			source.close();
+		} catch (IOException e) {
+			// Nothing left to read, so the failure is harmless
+		}
+		return false;
 	}
 	
 	private void passThroughWhitespace() {
@@ -427,12 +646,13 @@ public class Scanner {
 			// Consume initial whitespace
 			while (isWhitespace() || isNewline()) {
 				if (isNewline())
-					lineNumber++;
+					markNewline();
 				takeIt();
 			}
 
 			// Consume comments
 			if (currentChar == '#') {
+				long commentPosition = position();
 				takeIt();
 				if (currentChar == '#') {
 					// Multi-line comments
@@ -446,12 +666,12 @@ public class Scanner {
 							}
 						} else {
 							if (isNewline())
-								lineNumber++;
+								markNewline();
 							takeIt();
 						}
 
 						if (isEOF) {
-							scanError(lineNumber, "Unterminated block comment");
+							scanError(commentPosition, "Unterminated block comment");
 							break;
 						}
 					}
@@ -464,6 +684,11 @@ public class Scanner {
 		} while (isWhitespace() || isNewline() || isStartOfComment());
 	}
 	
+	private void markNewline() {
+		lineNumber++;
+		lineStart = offset() + 1;
+	}
+	
 	private boolean isDigit(char c) {
         return (c >= '0') && (c <= '9');
     }
@@ -488,7 +713,7 @@ public class Scanner {
 		return currentChar == '#';
 	}
 	
-	private void scanError(int lineNumber, String errorMessage) {
-    	reporter.addScanError(lineNumber, errorMessage);
+	private void scanError(long position, String errorMessage) {
+    	reporter.addScanError(position, errorMessage);
     }
 }
@@ -0,0 +1,63 @@
+/**
+ * Packs a line and column in source code into a single long, so that
+ * tokens and AST nodes can record where they appear without allocating
+ * 
+ * @author  Federico Menozzi
+ * @version Easy Compiler v1
+ */
+
+package easy.SyntacticAnalyzer;
+
+public class SourcePosition {
+	
+	/**
+	 * Pack a line and column into a position
+	 * 
+	 * @param lineNumber	the line number in source, starting at 1
+	 * @param column		the column in source, starting at 1
+	 * @return				the packed position
+	 */
+	public static long of(int lineNumber, int column) {
+		return ((long) lineNumber << 32) | (column & 0xFFFFFFFFL);
+	}
+	
+	/**
+	 * Retrieve the line number of a position
+	 * 
+	 * @param position	the packed position
+	 * @return			the line number in source
+	 */
+	public static int lineNumber(long position) {
+		return (int) (position >>> 32);
+	}
+	
+	/**
+	 * Retrieve the column of a position
+	 * 
+	 * @param position	the packed position
+	 * @return			the column in source
+	 */
+	public static int column(long position) {
+		return (int) position;
+	}
+	
+	/**
+	 * Create a {@link Line} view of a position for error reporting
+	 * 
+	 * @param position	the packed position
+	 * @return			the Line of the position
+	 */
+	public static Line line(long position) {
+		return new Line(lineNumber(position));
+	}
+	
+	/**
+	 * Format a position as "line:column"
+	 * 
+	 * @param position	the packed position
+	 * @return			the formatted position
+	 */
+	public static String toString(long position) {
+		return lineNumber(position) + ":" + column(position);
+	}
+}
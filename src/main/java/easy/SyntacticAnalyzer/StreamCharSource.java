@@ -0,0 +1,51 @@
+/**
+ * Character source that reads blocks of bytes from an InputStream
+ * 
+ * @author 	Federico Menozzi
+ * @version Easy Compiler v1
+ */
+
+package easy.SyntacticAnalyzer;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+public class StreamCharSource implements CharSource {
+	
+	/**
+	 * Stream from which we read input bytes
+	 */
+	private final InputStream inputStream;
+	
+	/**
+	 * Reusable buffer for bytes read from the stream
+	 */
+	private byte[] bytes;
+	
+	/**
+	 * Construct a StreamCharSource over the given stream
+	 * 
+	 * @param inputStream	the stream from which bytes are read
+	 */
+	public StreamCharSource(InputStream inputStream) {
+		this.inputStream = inputStream;
+		this.bytes		 = new byte[0];
+	}
+
+	@Override
+	public int read(char[] cbuf, int off, int len) throws IOException {
+		if (bytes.length < len)
+			bytes = new byte[len];
+		
+		int n = inputStream.read(bytes, 0, len);
+		for (int i = 0; i < n; i++)
+			cbuf[off + i] = (char) (bytes[i] & 0xFF);
+		
+		return n;
+	}
+
+	@Override
+	public void close() throws IOException {
+		inputStream.close();
+	}
+}
@@ -0,0 +1,59 @@
+/**
+ * Character source that reads the characters of a String, such as
+ * the text of a buffer in an editor
+ *
+ * @author 	Federico Menozzi
+ * @version Easy Compiler v1
+ */
+
+package easy.SyntacticAnalyzer;
+
+public class StringCharSource implements CharSource {
+
+	/**
+	 * The String being read
+	 */
+	private final String text;
+
+	/**
+	 * Index of the next character to read
+	 */
+	private int next;
+
+	/**
+	 * Construct a StringCharSource that reads the whole String
+	 *
+	 * @param text	the String to read
+	 */
+	public StringCharSource(String text) {
+		this(text, 0);
+	}
+
+	/**
+	 * Construct a StringCharSource that reads the String from the given index
+	 *
+	 * @param text	the String to read
+	 * @param start	the index of the first character to read
+	 */
+	public StringCharSource(String text, int start) {
+		this.text = text;
+		this.next = start;
+	}
+
+	@Override
+	public int read(char[] cbuf, int off, int len) {
+		if (next == text.length())
+			return -1;
+
+		int n = Math.min(len, text.length() - next);
+		text.getChars(next, next + n, cbuf, off);
+		next += n;
+
+		return n;
+	}
+
+	@Override
+	public void close() {
+		// Nothing to release
+	}
+}
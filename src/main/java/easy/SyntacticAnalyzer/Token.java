@@ -20,22 +20,94 @@ public class Token {
 	public final String spelling;
 	
 	/**
-	 * Line number of the token in source
+	 * ID of the spelling in the {@link NameTable} for identifiers and 
+	 * reserved words, -1 for all other tokens
 	 */
-	public final Line line;
+	public final int nameId;
+	
+	/**
+	 * Position of the first character of the token in source, 
+	 * packed by {@link SourcePosition}
+	 */
+	public final long position;
+	
+	/**
+	 * Position just past the last character of the token in source,
+	 * packed by {@link SourcePosition}
+	 */
+	public final long endPosition;
+	
+	/**
+	 * Offset in source of the first character of the token, -1 if unknown
+	 */
+	public final int offset;
+	
+	/**
+	 * Offset in source just past the last character of the token, -1 if unknown
+	 */
+	public final int endOffset;
 	
 	/**
 	 * Construct a Token of the specified type with the specified
-	 * spelling at the given line number in source.
+	 * spelling at the given position in source.
 	 * 
 	 * @param kind		the type of the token, selected from an enumeration
 	 * @param spelling	the String representation of the Token in source
-	 * @param line		the line number of the token is source
+	 * @param position	the position of the token in source
+	 */
+	public Token(TokenKind kind, String spelling, long position) {
+		this(kind, spelling, position, position, -1, -1);
+	}
+	
+	/**
+	 * Construct a Token of the specified type with the specified
+	 * spelling spanning the given range of source.
+	 * 
+	 * @param kind			the type of the token, selected from an enumeration
+	 * @param spelling		the String representation of the Token in source
+	 * @param position		the position of the first character of the token
+	 * @param endPosition	the position just past the last character of the token
+	 * @param offset		the offset of the first character of the token
+	 * @param endOffset		the offset just past the last character of the token
+	 */
+	public Token(TokenKind kind, String spelling, long position, long endPosition, int offset, int endOffset) {
+		this(kind, spelling, -1, position, endPosition, offset, endOffset);
+	}
+	
+	/**
+	 * Construct a Token of the specified type whose spelling is the
+	 * interned name with the given ID, spanning the given range of source.
+	 * 
+	 * @param kind			the type of the token, selected from an enumeration
+	 * @param nameId		the ID of the token's spelling in the NameTable
+	 * @param position		the position of the first character of the token
+	 * @param endPosition	the position just past the last character of the token
+	 * @param offset		the offset of the first character of the token
+	 * @param endOffset		the offset just past the last character of the token
 	 */
-	public Token(TokenKind kind, String spelling, Line line) {
+	public Token(TokenKind kind, int nameId, long position, long endPosition, int offset, int endOffset) {
+		this(kind, NameTable.spelling(nameId), nameId, position, endPosition, offset, endOffset);
+	}
+	
+	private Token(TokenKind kind, String spelling, int nameId, 
+				  long position, long endPosition, int offset, int endOffset) {
 		this.kind = kind;
 		this.spelling = spelling;
-		this.line = line;
+		this.nameId = nameId;
+		this.position = position;
+		this.endPosition = endPosition;
+		this.offset = offset;
+		this.endOffset = endOffset;
+	}
+	
+	/**
+	 * Create a {@link Line} view of the position of the token, 
+	 * meant for error reporting
+	 * 
+	 * @return	the line of the token in source
+	 */
+	public Line line() {
+		return SourcePosition.line(position);
 	}
 	
 	/**
@@ -57,7 +129,7 @@ public class Token {
 	public String debugStr() {
 		String f1 = String.format("%-20s", kind);
 		String f2 = String.format("%-20s", spelling);
-		return f1 + " " + f2 + " at line " + line;
+		return f1 + " " + f2 + " at line " + SourcePosition.lineNumber(position);
 	}
 	
 	/**
@@ -0,0 +1,362 @@
+/**
+ * Packed buffer holding the tokens of a whole file
+ * <p>
+ * Tokens are stored column by column in primitive arrays instead of as one
+ * {@link Token} per lexeme. The spelling of an identifier or reserved word
+ * is its ID in the {@link NameTable}, while every other spelling is
+ * interned in a pool local to the buffer. The position of a token is its
+ * line number and offset, the column being recovered from the offset of
+ * the start of its line. A buffer is filled by {@link Scanner#scanAll()}
+ * and read by the {@link Parser} through a {@link TokenCursor}.
+ *
+ * @author 	Federico Menozzi
+ * @version Easy Compiler v1
+ */
+
+package easy.SyntacticAnalyzer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+
+import easy.SyntacticAnalyzer.SourcePosition;
+import easy.SyntacticAnalyzer.Token;
+import easy.SyntacticAnalyzer.TokenKind;
+
+public class TokenBuffer {
+
+	/**
+	 * Initial number of tokens the buffer can hold before growing
+	 */
+	private final static int initialCapacity = 1024;
+
+	/**
+	 * Kinds of token, indexed by ordinal
+	 */
+	private final static TokenKind[] tokenKinds = TokenKind.values();
+
+	/**
+	 * Ordinal of the kind of each token
+	 */
+	private byte[] kinds;
+
+	/**
+	 * Spelling of each token, either the ID of an interned name or,
+	 * if negative, -1 minus the index of a spelling in the local pool
+	 */
+	private int[] spellings;
+
+	/**
+	 * Line number of each token
+	 */
+	private int[] lines;
+
+	/**
+	 * Offset in source of the first character of each token
+	 */
+	private int[] offsets;
+
+	/**
+	 * Number of characters of source spanned by each token
+	 */
+	private int[] lengths;
+
+	/**
+	 * Offset in source of the start of each line holding a token, indexed by line number
+	 */
+	private int[] lineStarts;
+
+	/**
+	 * Spellings that are not interned names, indexed by pool index
+	 */
+	private final ArrayList<String> pool;
+
+	/**
+	 * Pool index of each spelling in the pool
+	 */
+	private final HashMap<String, Integer> poolIndices;
+
+	/**
+	 * Number of tokens in the buffer
+	 */
+	private int size;
+
+	/**
+	 * Construct an empty TokenBuffer
+	 */
+	public TokenBuffer() {
+		kinds	   = new byte[initialCapacity];
+		spellings  = new int[initialCapacity];
+		lines	   = new int[initialCapacity];
+		offsets	   = new int[initialCapacity];
+		lengths	   = new int[initialCapacity];
+		lineStarts = new int[initialCapacity];
+
+		pool		= new ArrayList<String>();
+		poolIndices = new HashMap<String, Integer>();
+		size		= 0;
+	}
+
+	/**
+	 * Append a token whose spelling is an interned name
+	 *
+	 * @param kind		the type of the token
+	 * @param nameId	the ID of the token's spelling in the NameTable
+	 * @param line		the line number of the token
+	 * @param lineStart	the offset of the start of the line of the token
+	 * @param offset	the offset of the first character of the token
+	 * @param endOffset	the offset just past the last character of the token
+	 */
+	void add(TokenKind kind, int nameId, int line, int lineStart, int offset, int endOffset) {
+		if (size == kinds.length)
+			grow();
+		if (line >= lineStarts.length)
+			lineStarts = Arrays.copyOf(lineStarts, Math.max(line + 1, 2 * lineStarts.length));
+
+		kinds[size]		 = (byte) kind.ordinal();
+		spellings[size]	 = nameId;
+		lines[size]		 = line;
+		offsets[size]	 = offset;
+		lengths[size]	 = endOffset - offset;
+		lineStarts[line] = lineStart;
+		size++;
+	}
+
+	/**
+	 * Append a token whose spelling is not an interned name
+	 *
+	 * @param kind		the type of the token
+	 * @param spelling	the String representation of the token
+	 * @param line		the line number of the token
+	 * @param lineStart	the offset of the start of the line of the token
+	 * @param offset	the offset of the first character of the token
+	 * @param endOffset	the offset just past the last character of the token
+	 */
+	void add(TokenKind kind, String spelling, int line, int lineStart, int offset, int endOffset) {
+		Integer index = poolIndices.get(spelling);
+		if (index == null) {
+			index = pool.size();
+			pool.add(spelling);
+			poolIndices.put(spelling, index);
+		}
+		add(kind, -1 - index, line, lineStart, offset, endOffset);
+	}
+
+	private void grow() {
+		int capacity = 2 * kinds.length;
+		kinds	  = Arrays.copyOf(kinds, capacity);
+		spellings = Arrays.copyOf(spellings, capacity);
+		lines	  = Arrays.copyOf(lines, capacity);
+		offsets	  = Arrays.copyOf(offsets, capacity);
+		lengths	  = Arrays.copyOf(lengths, capacity);
+	}
+
+	/**
+	 * Retrieve the number of tokens in the buffer
+	 *
+	 * @return	the number of tokens
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Retrieve the type of a token
+	 *
+	 * @param i	the index of the token
+	 * @return	the TokenKind of the token
+	 */
+	public TokenKind kind(int i) {
+		return tokenKinds[kinds[i]];
+	}
+
+	/**
+	 * Retrieve the spelling of a token
+	 *
+	 * @param i	the index of the token
+	 * @return	the String representation of the token
+	 */
+	public String spelling(int i) {
+		int spelling = spellings[i];
+		return spelling >= 0 ? NameTable.spelling(spelling) : pool.get(-1 - spelling);
+	}
+
+	/**
+	 * Retrieve the ID of the spelling of a token in the {@link NameTable}
+	 *
+	 * @param i	the index of the token
+	 * @return	the ID of the spelling, or -1 if the token is not an interned name
+	 */
+	public int nameId(int i) {
+		return Math.max(spellings[i], -1);
+	}
+
+	/**
+	 * Retrieve the position of the first character of a token
+	 *
+	 * @param i	the index of the token
+	 * @return	the position, packed by {@link SourcePosition}
+	 */
+	public long position(int i) {
+		return SourcePosition.of(lines[i], offsets[i] - lineStarts[lines[i]] + 1);
+	}
+
+	/**
+	 * Retrieve the position just past the last character of a token
+	 *
+	 * @param i	the index of the token
+	 * @return	the position, packed by {@link SourcePosition}
+	 */
+	public long endPosition(int i) {
+		return SourcePosition.of(lines[i], offsets[i] + lengths[i] - lineStarts[lines[i]] + 1);
+	}
+
+	/**
+	 * Retrieve the offset of the first character of a token
+	 *
+	 * @param i	the index of the token
+	 * @return	the offset in source
+	 */
+	public int offset(int i) {
+		return offsets[i];
+	}
+
+	/**
+	 * Retrieve the offset just past the last character of a token
+	 *
+	 * @param i	the index of the token
+	 * @return	the offset in source
+	 */
+	public int endOffset(int i) {
+		return offsets[i] + lengths[i];
+	}
+
+	/**
+	 * Materialize a token
+	 *
+	 * @param i	the index of the token
+	 * @return	the token
+	 */
+	public Token token(int i) {
+		if (spellings[i] >= 0)
+			return new Token(kind(i), spellings[i], position(i), endPosition(i), offset(i), endOffset(i));
+		else
+			return new Token(kind(i), spelling(i), position(i), endPosition(i), offset(i), endOffset(i));
+	}
+
+	/**
+	 * Create a cursor positioned at the first token of the buffer
+	 *
+	 * @return	the cursor
+	 */
+	public TokenCursor cursor() {
+		return new Cursor(0, Integer.MAX_VALUE);
+	}
+
+	/**
+	 * Create a cursor over a range of the buffer, which reads the token
+	 * at the end of the range as EOF
+	 *
+	 * @param start	the index of the first token of the range
+	 * @param limit	the index just past the last token of the range
+	 * @return		the cursor
+	 */
+	Cursor cursor(int start, int limit) {
+		return new Cursor(start, limit);
+	}
+
+	/**
+	 * Cursor that walks the buffer by index, staying at the last token
+	 * or at the limit of its range
+	 */
+	class Cursor implements TokenCursor {
+
+		/**
+		 * Index of the current token
+		 */
+		private int current;
+
+		/**
+		 * Index of the token read as EOF
+		 */
+		private final int limit;
+
+		private Cursor(int start, int limit) {
+			this.current = start;
+			this.limit	 = limit;
+		}
+
+		/**
+		 * Retrieve the index of the current token
+		 *
+		 * @return	the index in the buffer
+		 */
+		int index() {
+			return current;
+		}
+
+		/**
+		 * Retrieve the index of the token read as EOF
+		 *
+		 * @return	the index in the buffer, or Integer.MAX_VALUE if the
+		 * 			cursor reads the whole buffer
+		 */
+		int limit() {
+			return limit;
+		}
+
+		/**
+		 * Retrieve the buffer walked by the cursor
+		 *
+		 * @return	the TokenBuffer
+		 */
+		TokenBuffer buffer() {
+			return TokenBuffer.this;
+		}
+
+		/**
+		 * Move to the token at the given index
+		 *
+		 * @param i	the index in the buffer
+		 */
+		void seek(int i) {
+			current = i;
+		}
+
+		@Override
+		public TokenKind kind() {
+			return current == limit ? TokenKind.EOF : TokenBuffer.this.kind(current);
+		}
+
+		@Override
+		public String spelling() {
+			return TokenBuffer.this.spelling(current);
+		}
+
+		@Override
+		public int nameId() {
+			return TokenBuffer.this.nameId(current);
+		}
+
+		@Override
+		public long position() {
+			return TokenBuffer.this.position(current);
+		}
+
+		@Override
+		public long endPosition() {
+			return TokenBuffer.this.endPosition(current);
+		}
+
+		@Override
+		public Token token() {
+			return TokenBuffer.this.token(current);
+		}
+
+		@Override
+		public void advance() {
+			if (current < limit && current + 1 < size)
+				current++;
+		}
+	}
+}
@@ -0,0 +1,62 @@
+/**
+ * A cursor over a sequence of tokens, positioned at the current token
+ * <p>
+ * Lets the {@link Parser} read the current token field by field, so that
+ * a sequence held in a packed {@link TokenBuffer} can be parsed without
+ * materializing a {@link Token} for every lexeme.
+ *
+ * @author 	Federico Menozzi
+ * @version Easy Compiler v1
+ */
+
+package easy.SyntacticAnalyzer;
+
+public interface TokenCursor {
+
+	/**
+	 * Retrieve the type of the current token
+	 *
+	 * @return	the TokenKind of the current token
+	 */
+	public TokenKind kind();
+
+	/**
+	 * Retrieve the spelling of the current token
+	 *
+	 * @return	the String representation of the current token
+	 */
+	public String spelling();
+
+	/**
+	 * Retrieve the ID of the spelling of the current token in the {@link NameTable}
+	 *
+	 * @return	the ID of the spelling, or -1 if the token is not an interned name
+	 */
+	public int nameId();
+
+	/**
+	 * Retrieve the position of the first character of the current token
+	 *
+	 * @return	the position, packed by {@link SourcePosition}
+	 */
+	public long position();
+
+	/**
+	 * Retrieve the position just past the last character of the current token
+	 *
+	 * @return	the position, packed by {@link SourcePosition}
+	 */
+	public long endPosition();
+
+	/**
+	 * Materialize the current token
+	 *
+	 * @return	the current token
+	 */
+	public Token token();
+
+	/**
+	 * Move to the next token, staying at the last token once it is reached
+	 */
+	public void advance();
+}
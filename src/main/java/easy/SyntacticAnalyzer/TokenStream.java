@@ -0,0 +1,238 @@
+/**
+ * Stream of tokens pulled from a {@link Scanner}, with bounded lookahead
+ * <p>
+ * Tokens are held in a fixed-capacity ring buffer, so peeking k tokens
+ * ahead and consuming a token are both O(1) and allocate nothing beyond
+ * the tokens themselves. A position in the stream may be marked and later
+ * returned to, as long as no more than capacity tokens are buffered from
+ * the mark onwards. Once the end of input is reached, the stream keeps
+ * returning the EOF token. As a {@link TokenCursor}, the stream is
+ * positioned at the next token.
+ *
+ * @author 	Federico Menozzi
+ * @version Easy Compiler v1
+ */
+
+package easy.SyntacticAnalyzer;
+
+import easy.SyntacticAnalyzer.Scanner;
+import easy.SyntacticAnalyzer.Token;
+import easy.SyntacticAnalyzer.TokenKind;
+
+public class TokenStream implements TokenCursor {
+
+	/**
+	 * Number of tokens buffered by default
+	 */
+	public final static int defaultCapacity = 8;
+
+	/**
+	 * The Scanner from which tokens are pulled
+	 */
+	private final Scanner scanner;
+
+	/**
+	 * Ring buffer of tokens, indexed by stream index masked to its length
+	 */
+	private final Token[] ring;
+
+	/**
+	 * Mask mapping a stream index to its slot in the ring
+	 */
+	private final int mask;
+
+	/**
+	 * Stream index of the next token to be consumed
+	 */
+	private long head;
+
+	/**
+	 * Stream index one past the last buffered token
+	 */
+	private long tail;
+
+	/**
+	 * Stream index of the mark, or -1 if the stream is not marked
+	 */
+	private long mark;
+
+	/**
+	 * The EOF token, once it has been scanned
+	 */
+	private Token eof;
+
+	/**
+	 * Construct a TokenStream over the given Scanner with the default capacity
+	 *
+	 * @param scanner	the Scanner from which tokens are pulled
+	 */
+	public TokenStream(Scanner scanner) {
+		this(scanner, defaultCapacity);
+	}
+
+	/**
+	 * Construct a TokenStream over the given Scanner able to buffer at least
+	 * capacity tokens
+	 *
+	 * @param scanner	the Scanner from which tokens are pulled
+	 * @param capacity	the minimum number of tokens that can be buffered
+	 */
+	public TokenStream(Scanner scanner, int capacity) {
+		if (capacity < 1)
+			throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+
+		int size = Integer.highestOneBit(capacity);
+		if (size < capacity)
+			size <<= 1;
+
+		this.scanner = scanner;
+		this.ring	 = new Token[size];
+		this.mask	 = size - 1;
+		this.mark	 = -1;
+	}
+
+	/**
+	 * Retrieve the number of tokens that can be buffered
+	 *
+	 * @return	the capacity of the stream
+	 */
+	public int capacity() {
+		return ring.length;
+	}
+
+	/**
+	 * Peek at the next token without consuming it
+	 *
+	 * @return	the next token
+	 */
+	public Token peek() {
+		return peek(0);
+	}
+
+	/**
+	 * Peek k tokens past the next token without consuming any
+	 *
+	 * @param k		the lookahead distance, 0 for the next token
+	 * @return		the token k tokens past the next token
+	 */
+	public Token peek(int k) {
+		if (k < 0 || k >= ring.length)
+			throw new IndexOutOfBoundsException("Lookahead " + k + " exceeds capacity " + ring.length);
+
+		while (tail <= head + k)
+			buffer();
+
+		return ring[(int) (head + k) & mask];
+	}
+
+	/**
+	 * Consume the next token
+	 *
+	 * @return	the next token
+	 */
+	public Token next() {
+		if (head == tail)
+			buffer();
+
+		return ring[(int) head++ & mask];
+	}
+
+	/**
+	 * Consume tokens into dst until it is full or the EOF token has been
+	 * consumed
+	 *
+	 * @param dst	the array to fill, starting at index 0
+	 * @return		the number of tokens consumed
+	 */
+	public int fill(Token[] dst) {
+		int n = 0;
+		while (n < dst.length) {
+			Token t = next();
+			dst[n++] = t;
+			if (t.kind == TokenKind.EOF)
+				break;
+		}
+		return n;
+	}
+
+	@Override
+	public TokenKind kind() {
+		return peek(0).kind;
+	}
+
+	@Override
+	public String spelling() {
+		return peek(0).spelling;
+	}
+
+	@Override
+	public int nameId() {
+		return peek(0).nameId;
+	}
+
+	@Override
+	public long position() {
+		return peek(0).position;
+	}
+
+	@Override
+	public long endPosition() {
+		return peek(0).endPosition;
+	}
+
+	@Override
+	public Token token() {
+		return peek(0);
+	}
+
+	@Override
+	public void advance() {
+		next();
+	}
+
+	/**
+	 * Mark the current position in the stream, so that a later call to
+	 * {@link #reset()} returns to it. The mark is dropped if more than
+	 * capacity tokens are buffered from it onwards.
+	 */
+	public void mark() {
+		mark = head;
+	}
+
+	/**
+	 * Return to the most recently marked position in the stream
+	 *
+	 * @throws IllegalStateException	if the stream is not marked or the mark was dropped
+	 */
+	public void reset() {
+		if (mark == -1)
+			throw new IllegalStateException("Stream not marked or mark exceeded capacity");
+
+		head = mark;
+	}
+
+	/**
+	 * Forget the mark, if any
+	 */
+	public void unmark() {
+		mark = -1;
+	}
+
+	/**
+	 * Scan one more token into the ring, dropping the mark if the ring is full
+	 */
+	private void buffer() {
+		long low = mark == -1 ? head : mark;
+		if (tail - low == ring.length)
+			mark = -1;
+
+		Token t = eof;
+		if (t == null) {
+			t = scanner.scan();
+			if (t.kind == TokenKind.EOF)
+				eof = t;
+		}
+
+		ring[(int) tail++ & mask] = t;
+	}
+}
@@ -0,0 +1,136 @@
+/**
+ * Collision-free classification table for the reserved words of Easy
+ * (keywords, word operators, and boolean literals)
+ * <p>
+ * A word is hashed on its length and its first and last characters, so
+ * classifying a lexeme takes a single probe followed by one character-wise
+ * comparison, with no String hashing or allocation.
+ *
+ * @author 	Federico Menozzi
+ * @version Easy Compiler v1
+ */
+
+package easy.SyntacticAnalyzer;
+
+public class WordTable {
+
+	/**
+	 * Reserved words, indexed by word ordinal
+	 */
+	private final static String[] spellings = {
+		"def", "main", "end", "return", "returns", "Int", "Boolean", "mod",
+		"do", "if", "else", "while", "for", "loop", "until", "in", "from",
+		"by", "to", "break",
+		"and", "or", "not",
+		"equals", "notequals",
+		"true", "false"
+	};
+
+	/**
+	 * Kind of token for each reserved word, indexed by word ordinal
+	 */
+	private final static TokenKind[] kinds = {
+		TokenKind.KEYWORD, TokenKind.KEYWORD, TokenKind.KEYWORD, TokenKind.KEYWORD,
+		TokenKind.KEYWORD, TokenKind.KEYWORD, TokenKind.KEYWORD, TokenKind.KEYWORD,
+		TokenKind.KEYWORD, TokenKind.KEYWORD, TokenKind.KEYWORD, TokenKind.KEYWORD,
+		TokenKind.KEYWORD, TokenKind.KEYWORD, TokenKind.KEYWORD, TokenKind.KEYWORD,
+		TokenKind.KEYWORD, TokenKind.KEYWORD, TokenKind.KEYWORD, TokenKind.KEYWORD,
+		TokenKind.LOGOP, TokenKind.LOGOP, TokenKind.LOGOP,
+		TokenKind.RELOP, TokenKind.RELOP,
+		TokenKind.BOOLLIT, TokenKind.BOOLLIT
+	};
+
+	/**
+	 * Multiplier of the hash function, chosen by search so that
+	 * no two reserved words share a slot
+	 */
+	private final static int multiplier = 574032;
+
+	/**
+	 * Number of bits in a slot index
+	 */
+	private final static int slotBits = 6;
+
+	/**
+	 * Word ordinal stored in each slot, or -1 for an empty slot
+	 */
+	private final static int[] slots = new int[1 << slotBits];
+
+	static {
+		for (int i = 0; i < slots.length; i++)
+			slots[i] = -1;
+
+		for (int ordinal = 0; ordinal < spellings.length; ordinal++) {
+			char[] chars = spellings[ordinal].toCharArray();
+			int slot = slot(chars, chars.length);
+			if (slots[slot] != -1)
+				throw new IllegalStateException("Reserved words \"" + spellings[slots[slot]] +
+												"\" and \"" + spellings[ordinal] + "\" collide");
+			slots[slot] = ordinal;
+		}
+	}
+
+	/**
+	 * Hash a word of at least one character to its slot
+	 *
+	 * @param chars		the characters of the word
+	 * @param length	the number of characters in the word
+	 * @return			the slot index
+	 */
+	private static int slot(char[] chars, int length) {
+		int key = chars[0] * 961 + chars[length - 1] * 31 + length;
+		return (key * multiplier) >>> (32 - slotBits);
+	}
+
+	/**
+	 * Classify a word, returning its ordinal if it is a reserved word
+	 *
+	 * @param chars		the buffer holding the characters of the word
+	 * @param length	the number of characters in the word, starting at index 0
+	 * @return			the word ordinal, or -1 if the word is not reserved
+	 */
+	public static int lookup(char[] chars, int length) {
+		int ordinal = slots[slot(chars, length)];
+		if (ordinal == -1)
+			return -1;
+
+		String spelling = spellings[ordinal];
+		if (spelling.length() != length)
+			return -1;
+
+		for (int i = 0; i < length; i++)
+			if (spelling.charAt(i) != chars[i])
+				return -1;
+
+		return ordinal;
+	}
+
+	/**
+	 * Retrieve the kind of token for a reserved word
+	 *
+	 * @param ordinal	the word ordinal
+	 * @return			the TokenKind of the word
+	 */
+	public static TokenKind kind(int ordinal) {
+		return kinds[ordinal];
+	}
+
+	/**
+	 * Retrieve the canonical spelling of a reserved word
+	 *
+	 * @param ordinal	the word ordinal
+	 * @return			the spelling of the word
+	 */
+	public static String spelling(int ordinal) {
+		return spellings[ordinal];
+	}
+
+	/**
+	 * Retrieve the number of reserved words
+	 *
+	 * @return	the number of reserved words
+	 */
+	public static int size() {
+		return spellings.length;
+	}
+}
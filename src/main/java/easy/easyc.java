@@ -8,17 +8,31 @@
 package easy;
 
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
-import java.io.InputStream;
+
+import java.nio.ByteBuffer;
+
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Paths;
 
 import easy.ErrorReporter;
 
+import easy.SyntacticAnalyzer.ByteBufferCharSource;
+import easy.SyntacticAnalyzer.CharSource;
+import easy.SyntacticAnalyzer.MappedFileCharSource;
 import easy.SyntacticAnalyzer.Parser;
 import easy.SyntacticAnalyzer.Scanner;
 
 import easy.AbstractSyntaxTrees.AST;
+import easy.AbstractSyntaxTrees.FlatAST;
+
+import easy.ContextualAnalyzer.Identification;
+import easy.ContextualAnalyzer.TypeChecker;
+
+import easy.Optimizer.ConstantFolder;
+import easy.Optimizer.DeadCodeEliminator;
 
 import easy.CodeGenerator.Generator;
 
@@ -28,30 +42,90 @@ public class easyc {
 
 	public static void main(String[] args) {
 				
-		InputStream inputStream = null;
 		if (args.length != 1) {
 			System.out.println("Usage: java -jar path/to/easyc.java path/to/source.easy");
 			System.exit(0);
-		} else {
-			try {
-				inputStream = new FileInputStream(args[0]);
-			} catch (FileNotFoundException e) {
-				System.out.println("Input file " + args[0] + " not found");
-				System.exit(1);
-			}		
 		}
 		
 		reporter = new ErrorReporter();
-		Scanner scanner = new Scanner(inputStream, reporter);
-
-		AST ast = new Parser(scanner, reporter).parse();
+		AST ast = null;
+		try {
+			ast = parse(args[0]);
+		} catch (FileNotFoundException | NoSuchFileException e) {
+			System.out.println("Input file " + args[0] + " not found");
+			System.exit(1);
+		} catch (IOException e) {
+			System.out.println("Unable to read input file " + args[0]);
+			System.exit(1);
+		}
 		
+		new Identification(reporter).identify(ast);
+		new TypeChecker(reporter).check(ast);
 		checkForErrors();
-		File outputJavaFile = generateJavaSource(args[0], ast);
+		
+		// Optimize unless the system property easy.optimize is false
+		boolean optimize = ! "false".equals(System.getProperty("easy.optimize"));
+		if (optimize) {
+			ast = new ConstantFolder().fold(ast);
+			ast = new DeadCodeEliminator().eliminate(ast);
+		}
+		
+		// Leave out functions never called if the system property
+		// easy.reachableOnly is true, unless the DeadCodeEliminator
+		// has already removed them
+		boolean reachableOnly = ! optimize && "true".equals(System.getProperty("easy.reachableOnly"));
+		
+		File outputJavaFile = generateJavaSource(args[0], ast, reachableOnly);
 		compileJavaSource(outputJavaFile);
 		printSuccessMessage();			
 	}
 	
+	/**
+	 * Parse the source file, or if the system property easy.parseCache
+	 * names a directory, take its AST from the ParseCache there when the
+	 * file has not changed since it was last parsed. The file is opened
+	 * only if it is to be parsed; with a cache, it is read once, both to
+	 * compute its key and to be parsed.
+	 */
+	private static AST parse(String fileName) throws IOException {
+		String cacheDirectory = System.getProperty("easy.parseCache");
+		ParseCache cache = null;
+		String key = null;
+		CharSource source;
+		if (cacheDirectory != null) {
+			byte[] contents = Files.readAllBytes(Paths.get(fileName));
+			key = ParseCache.key(contents);
+			try {
+				cache = new ParseCache(new File(cacheDirectory));
+				FlatAST cached = cache.get(key);
+				if (cached != null)
+					return cached.tree();
+			} catch (IOException e) {
+				cache = null;
+			}
+			source = new ByteBufferCharSource(ByteBuffer.wrap(contents));
+		} else {
+			source = new MappedFileCharSource(fileName);
+		}
+		
+		AST ast;
+		try {
+			ast = new Parser(new Scanner(source, reporter), reporter).parse();
+		} finally {
+			source.close();
+		}
+		checkForErrors();
+		
+		if (cache != null) {
+			try {
+				cache.put(key, ast);
+			} catch (IOException e) {
+				// The program is compiled all the same
+			}
+		}
+		return ast;
+	}
+	
 	private static void checkForErrors() {
 		if (reporter.hasErrors()) {
 			reporter.reportErrors();
@@ -59,7 +133,7 @@ public class easyc {
 		}
 	}
 	
-	private static File generateJavaSource(String fileName, AST ast) {
+	private static File generateJavaSource(String fileName, AST ast, boolean reachableOnly) {
 		int easyIndex = fileName.indexOf(".ez");
 		if (easyIndex == -1) {
 				System.err.println("File must end in \".ez\"");
@@ -68,7 +142,9 @@ public class easyc {
 		
 		String sourceFileNameBeforeDot = fileName.substring(0, easyIndex);
 		File outputJavaFile = new File(sourceFileNameBeforeDot + ".java");
-		new Generator(outputJavaFile).generate(ast);
+		Generator generator = new Generator(outputJavaFile);
+		generator.setReachableOnly(reachableOnly);
+		generator.generate(ast);
 		
 		return outputJavaFile;
 	}
@@ -0,0 +1,292 @@
+/**
+ * Checks that an AST written by an ASTWriter and read back by an ASTReader,
+ * directly or by way of a ParseCache, has the same structure as the AST
+ * that was written
+ *
+ * @author 	Federico Menozzi
+ * @version Easy Compiler v1
+ */
+
+package easy.AbstractSyntaxTrees;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import easy.ErrorReporter;
+import easy.ParseCache;
+
+import easy.SyntacticAnalyzer.Parser;
+import easy.SyntacticAnalyzer.Scanner;
+import easy.SyntacticAnalyzer.StringCharSource;
+
+public class ASTRoundTripTest {
+
+	private final static String[] binaryOperators = {
+		"+", "-", "*", "/", "mod", "<", ">", "<=", ">=", "equals", "notequals", "and", "or"
+	};
+
+	@Test
+	public void tutorial() throws IOException {
+		String path = "src/test/resources/tutorial.ez";
+		assertRoundTrip(parse(new String(Files.readAllBytes(Paths.get(path)), StandardCharsets.UTF_8)));
+	}
+
+	@Test
+	public void stressCorpus() throws IOException {
+		for (int seed = 0; seed < 20; seed++)
+			assertRoundTrip(parse(new Generator(new Random(seed)).program()));
+	}
+
+	@Test
+	public void parseCache() throws IOException {
+		File directory = Files.createTempDirectory("ASTRoundTripTest").toFile();
+		try {
+			ParseCache cache = new ParseCache(directory);
+			for (int seed = 0; seed < 5; seed++) {
+				String text = new Generator(new Random(seed)).program();
+				String key	= ParseCache.key(text.getBytes(StandardCharsets.UTF_8));
+				AST ast		= parse(text);
+
+				cache.put(key, ast);
+				FlatAST read = cache.get(key);
+				assertNotNull(read);
+				assertSameStructure(FlatAST.of(ast), read);
+				assertEquals(display(ast), display(read.tree()));
+			}
+		} finally {
+			for (File f : directory.listFiles())
+				f.delete();
+			directory.delete();
+		}
+	}
+
+	/**
+	 * Write an AST, read it back, and check that both have the same structure
+	 *
+	 * @param ast	the root node of the AST
+	 */
+	private static void assertRoundTrip(AST ast) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		new ASTWriter(bytes).write(ast);
+		FlatAST read = new ASTReader(ByteBuffer.wrap(bytes.toByteArray())).read();
+
+		assertSameStructure(FlatAST.of(ast), read);
+		assertEquals(display(ast), display(read.tree()));
+	}
+
+	/**
+	 * Check that two FlatASTs have the same nodes, with the same positions
+	 * and operands, comparing spellings rather than indices of spellings
+	 *
+	 * @param expected	the FlatAST that was written
+	 * @param actual	the FlatAST that was read
+	 */
+	private static void assertSameStructure(FlatAST expected, FlatAST actual) {
+		assertEquals("node count", expected.size(), actual.size());
+		for (int node = 0; node < expected.size(); node++) {
+			String where = "node " + node;
+			assertEquals(where, expected.kind(node), actual.kind(node));
+			assertEquals(where, expected.position(node), actual.position(node));
+			assertEquals(where, expected.endPosition(node), actual.endPosition(node));
+			assertEquals(where, expected.operandCount(node), actual.operandCount(node));
+
+			byte kind = expected.kind(node);
+			for (int i = 0; i < expected.operandCount(node); i++) {
+				if (ASTWriter.operandType(kind, i) == ASTWriter.stringOperand)
+					assertEquals(where, expected.spelling(node), actual.spelling(node));
+				else
+					assertEquals(where + ", operand " + i, expected.operand(node, i), actual.operand(node, i));
+			}
+		}
+	}
+
+	/**
+	 * Display a tree with the positions of its nodes
+	 *
+	 * @param ast	the root node of the tree
+	 * @return		the display
+	 */
+	private static String display(AST ast) throws IOException {
+		boolean showPosition = ASTDisplay.showPosition;
+		ASTDisplay.showPosition = true;
+		try {
+			StringBuilder text = new StringBuilder();
+			new ASTDisplay().showTree(ast, text);
+			return text.toString();
+		} finally {
+			ASTDisplay.showPosition = showPosition;
+		}
+	}
+
+	private static AST parse(String text) {
+		ErrorReporter reporter = new ErrorReporter();
+		AST ast = new Parser(new Scanner(new StringCharSource(text), reporter), reporter).parse();
+		assertFalse(text, reporter.hasErrors());
+		return ast;
+	}
+
+	/**
+	 * Generates random programs that use every kind of node, nested
+	 * several levels deep, including a statement at a column too large
+	 * to be packed with the others. Statements that end in an expression
+	 * end in a semicolon, and no block begins with an if statement, lest
+	 * the if statement continue the expression on the line before it.
+	 */
+	private static class Generator {
+
+		private final Random random;
+
+		private final StringBuilder text = new StringBuilder();
+
+		Generator(Random random) {
+			this.random = random;
+		}
+
+		String program() {
+			text.append("main\n");
+			for (int i = 0; i < 20; i++)
+				statement(1, 3, false);
+			text.append(String.format("%3000s", "")).append("x = 1\n");
+			text.append("end\n");
+
+			for (int i = 0; i < 5; i++) {
+				text.append("def f").append(i).append("(a = Int, b = Boolean)");
+				if (random.nextBoolean())
+					text.append(" returns Int");
+				text.append('\n');
+				for (int j = 0; j < 5; j++)
+					statement(1, 3, false);
+				text.append("\treturn ").append(expression(2)).append(";\n");
+				text.append("end\n");
+			}
+			text.append("def g()\nend\n");
+			return text.toString();
+		}
+
+		private void statement(int indent, int depth, boolean first) {
+			indent(indent);
+
+			int choice = random.nextInt(depth > 0 ? 14 : 6);
+			if (first && (choice == 6 || choice == 7))
+				choice = 1;
+			switch (choice) {
+			case 0:
+				text.append(random.nextBoolean() ? "Int" : "Boolean").append(" v").append(random.nextInt(10))
+					.append(" = ").append(expression(2)).append(";\n");
+				return;
+			case 1:
+				text.append("x = ").append(expression(3)).append(";\n");
+				return;
+			case 2:
+				text.append("xs[").append(expression(1)).append("] = ").append(expression(2)).append(";\n");
+				return;
+			case 3:
+				text.append("f").append(random.nextInt(5)).append('(').append(expression(1)).append(", ")
+					.append(expression(1)).append(")\n");
+				return;
+			case 4:
+				text.append("do g() if ").append(expression(2)).append(" else x = 0;\n");
+				return;
+			case 5:
+				text.append(random.nextBoolean() ? "break\n" : "println('a string')\n");
+				return;
+			case 6:
+			case 7:
+				text.append("if ").append(expression(2)).append('\n');
+				block(indent, depth);
+				if (random.nextBoolean()) {
+					indent(indent);
+					text.append("else if ").append(expression(2)).append('\n');
+					block(indent, depth);
+				}
+				if (random.nextBoolean()) {
+					indent(indent);
+					text.append("else\n");
+					block(indent, depth);
+				}
+				break;
+			case 8:
+				text.append("while ").append(expression(2)).append('\n');
+				block(indent, depth);
+				break;
+			case 9:
+				text.append("until ").append(expression(2)).append('\n');
+				block(indent, depth);
+				break;
+			case 10:
+				text.append("loop\n");
+				block(indent, depth);
+				break;
+			case 11:
+				text.append("for Int j from ").append(expression(1)).append(" to ").append(expression(1));
+				if (random.nextBoolean())
+					text.append(" by ").append(expression(1));
+				text.append('\n');
+				block(indent, depth);
+				break;
+			case 12:
+				text.append("for Int j in ").append(expression(1)).append('\n');
+				block(indent, depth);
+				break;
+			default:
+				text.append("return ").append(expression(3)).append(";\n");
+				return;
+			}
+			indent(indent);
+			text.append("end\n");
+		}
+
+		private void block(int indent, int depth) {
+			int count = 1 + random.nextInt(3);
+			for (int i = 0; i < count; i++)
+				statement(indent + 1, depth - 1, i == 0);
+		}
+
+		private void indent(int indent) {
+			for (int i = 0; i < indent; i++)
+				text.append('\t');
+		}
+
+		private String expression(int depth) {
+			switch (random.nextInt(depth > 0 ? 11 : 5)) {
+			case 0:
+				return Integer.toString(random.nextInt(1000));
+			case 1:
+				return random.nextBoolean() ? "true" : "false";
+			case 2:
+				return random.nextBoolean() ? "\"a string\"" : "'another'";
+			case 3:
+				return "x";
+			case 4:
+				return "v" + random.nextInt(10);
+			case 5:
+				return "xs[" + expression(depth - 1) + "]";
+			case 6:
+				return "f" + random.nextInt(5) + "(" + expression(depth - 1) + ", " + expression(depth - 1) + ")";
+			case 7:
+				return random.nextBoolean() ? "-(" + expression(depth - 1) + ")" : "not " + expression(depth - 1);
+			case 8:
+				return "(" + expression(depth - 1) + ")";
+			case 9:
+				return expression(depth - 1) + " if " + expression(depth - 1) + " else " + expression(depth - 1);
+			default:
+				return expression(depth - 1) + " " + binaryOperators[random.nextInt(binaryOperators.length)] +
+					   " " + expression(depth - 1);
+			}
+		}
+	}
+}
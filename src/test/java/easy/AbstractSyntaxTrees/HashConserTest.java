@@ -0,0 +1,123 @@
+/**
+ * Checks that a tree consed by a HashConser before the contextual
+ * analyzers and the optimizers compiles as it does unconsed, and that
+ * only expressions without names are shared
+ *
+ * @author 	Federico Menozzi
+ * @version Easy Compiler v1
+ */
+
+package easy.AbstractSyntaxTrees;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+
+import java.nio.file.Files;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+
+import org.junit.Test;
+
+import easy.ErrorReporter;
+
+import easy.CodeGenerator.Generator;
+
+import easy.ContextualAnalyzer.Identification;
+import easy.ContextualAnalyzer.TypeChecker;
+
+import easy.Optimizer.ConstantFolder;
+import easy.Optimizer.DeadCodeEliminator;
+
+import easy.SyntacticAnalyzer.Parser;
+import easy.SyntacticAnalyzer.Scanner;
+import easy.SyntacticAnalyzer.StringCharSource;
+
+public class HashConserTest {
+
+	private final static String sameNameInTwoFunctions =
+		"main\n" +
+		"\tprintln(f(1))\n" +
+		"\tprintln(g(2))\n" +
+		"end\n" +
+		"def f(n = Int) returns Int\n" +
+		"\tInt x = n * 3\n" +
+		"\treturn x + n\n" +
+		"end\n" +
+		"def g(n = Int) returns Int\n" +
+		"\tInt x = 1 + 2\n" +
+		"\treturn x + n\n" +
+		"end\n";
+
+	@Test
+	public void consedBeforeIdentification() throws IOException {
+		AST ast = new HashConser().cons(parse(sameNameInTwoFunctions));
+		String consed = compile(ast);
+		assertEquals(compile(parse(sameNameInTwoFunctions)), consed);
+		assertTrue(consed, consed.contains("int x"));
+	}
+
+	@Test
+	public void namesAreNeverShared() {
+		HashConser conser = new HashConser();
+		Program program	  = (Program) conser.cons(parse(sameNameInTwoFunctions));
+
+		Expression f = ((ReturnStmt) program.functionDeclList.get(0).block.statementList.get(1)).returnExpr;
+		Expression g = ((ReturnStmt) program.functionDeclList.get(1).block.statementList.get(1)).returnExpr;
+		assertNotSame(f, g);
+		assertTrue(conser.id(f) != conser.id(g));
+
+		// 1 + 2 is an expression without names, and is shared
+		Program literals = (Program) conser.cons(parse("main\n\tprintln(1 + 2)\n\tprintln(1 + 2)\nend\n"));
+		Expression first  = ((CallStmt) literals.mainBlock.statementList.get(0)).argList.get(0);
+		Expression second = ((CallStmt) literals.mainBlock.statementList.get(1)).argList.get(0);
+		assertSame(first, second);
+	}
+
+	private static AST parse(String text) {
+		ErrorReporter reporter = new ErrorReporter();
+		AST ast = new Parser(new Scanner(new StringCharSource(text), reporter), reporter).parse();
+		assertFalse(text, reporter.hasErrors());
+		return ast;
+	}
+
+	/**
+	 * Identify, type check and optimize a tree, generate Java for it, and
+	 * compile the Java
+	 *
+	 * @param ast	the root node of the AST
+	 * @return		the generated Java
+	 */
+	private static String compile(AST ast) throws IOException {
+		ErrorReporter reporter = new ErrorReporter();
+		new Identification(reporter).identify(ast);
+		new TypeChecker(reporter).check(ast);
+		assertFalse(reporter.hasErrors());
+		ast = new DeadCodeEliminator().eliminate(new ConstantFolder().fold(ast));
+
+		File directory = Files.createTempDirectory("HashConserTest").toFile();
+		File source	   = new File(directory, "Consed.java");
+		try {
+			new Generator(source).generate(ast);
+			String java = new String(Files.readAllBytes(source.toPath()), "UTF-8");
+
+			JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+			assertTrue("no Java compiler", compiler != null);
+			ByteArrayOutputStream errors = new ByteArrayOutputStream();
+			int status = compiler.run(null, null, errors, "-d", directory.getPath(), source.getPath());
+			assertEquals(java + errors, 0, status);
+			return java;
+		} finally {
+			for (File f : directory.listFiles())
+				f.delete();
+			directory.delete();
+		}
+	}
+}
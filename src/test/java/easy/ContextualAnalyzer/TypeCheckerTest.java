@@ -0,0 +1,128 @@
+/**
+ * Checks that the result of sqrt is a real number, which prints as the
+ * Java program prints it, and may be used as a number but not as an Int
+ *
+ * @author 	Federico Menozzi
+ * @version Easy Compiler v1
+ */
+
+package easy.ContextualAnalyzer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.PrintStream;
+
+import java.lang.reflect.Method;
+
+import java.net.URL;
+import java.net.URLClassLoader;
+
+import java.nio.file.Files;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+
+import org.junit.Test;
+
+import easy.ErrorReporter;
+
+import easy.AbstractSyntaxTrees.AST;
+import easy.AbstractSyntaxTrees.CallStmt;
+import easy.AbstractSyntaxTrees.Expression;
+import easy.AbstractSyntaxTrees.Program;
+import easy.AbstractSyntaxTrees.TypeKind;
+
+import easy.CodeGenerator.Generator;
+
+import easy.SyntacticAnalyzer.Parser;
+import easy.SyntacticAnalyzer.Scanner;
+import easy.SyntacticAnalyzer.StringCharSource;
+
+public class TypeCheckerTest {
+
+	@Test
+	public void sqrtPrintsARealNumber() throws Exception {
+		String text =
+			"main\n" +
+			"\tprintln(sqrt(2))\n" +
+			"\tprintln(sqrt(16) + 1)\n" +
+			"\tprintln(sqrt(2) > 1)\n" +
+			"\tprintln(sqrt(4) equals 2)\n" +
+			"end\n";
+		AST ast = check(text, false);
+
+		Expression sum = ((CallStmt) ((Program) ast).mainBlock.statementList.get(1)).argList.get(0);
+		assertEquals(TypeKind.REAL, sum.typeKind);
+		assertEquals("1.4142135623730951\n5.0\ntrue\ntrue\n", run(ast).replace("\r\n", "\n"));
+	}
+
+	@Test
+	public void sqrtIsNotAnInt() {
+		check("main\n\tInt x = sqrt(4)\nend\n", true);
+		check("main\n\tInt x = 0\n\tx = sqrt(4) + 1\nend\n", true);
+		check("main\n\tprintln(f(sqrt(4)))\nend\ndef f(n = Int) returns Int\n\treturn n\nend\n", true);
+		check("main\nend\ndef f(n = Int) returns Int\n\treturn sqrt(n)\nend\n", true);
+		check("main\n\tfor Int i from 0 to sqrt(9)\n\t\tprintln(i)\n\tend\nend\n", true);
+		check("main\n\tprintln(sqrt(true))\nend\n", true);
+	}
+
+	/**
+	 * Identify and type check a program
+	 *
+	 * @param text		the source of the program
+	 * @param errors	whether type errors are expected
+	 * @return			the root node of the checked AST
+	 */
+	private static AST check(String text, boolean errors) {
+		ErrorReporter reporter = new ErrorReporter();
+		AST ast = new Parser(new Scanner(new StringCharSource(text), reporter), reporter).parse();
+		new Identification(reporter).identify(ast);
+		assertFalse(text, reporter.hasErrors());
+
+		new TypeChecker(reporter).check(ast);
+		assertEquals(text, errors, reporter.hasErrors());
+		return ast;
+	}
+
+	/**
+	 * Generate Java for a program, compile it and run it
+	 *
+	 * @param ast	the root node of the checked AST
+	 * @return		what the program prints
+	 */
+	private static String run(AST ast) throws Exception {
+		File directory = Files.createTempDirectory("TypeCheckerTest").toFile();
+		File source	   = new File(directory, "Checked.java");
+		try {
+			new Generator(source).generate(ast);
+
+			JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+			assertTrue("no Java compiler", compiler != null);
+			ByteArrayOutputStream errors = new ByteArrayOutputStream();
+			int status = compiler.run(null, null, errors, "-d", directory.getPath(), source.getPath());
+			assertEquals(errors.toString(), 0, status);
+
+			PrintStream out = System.out;
+			ByteArrayOutputStream printed = new ByteArrayOutputStream();
+			URLClassLoader loader = new URLClassLoader(new URL[] { directory.toURI().toURL() });
+			try {
+				System.setOut(new PrintStream(printed, true, "UTF-8"));
+				Method main = loader.loadClass("Checked").getMethod("main", String[].class);
+				main.setAccessible(true);	// the generated class is not public
+				main.invoke(null, (Object) new String[0]);
+			} finally {
+				System.setOut(out);
+				loader.close();
+			}
+			return printed.toString("UTF-8");
+		} finally {
+			for (File f : directory.listFiles())
+				f.delete();
+			directory.delete();
+		}
+	}
+}
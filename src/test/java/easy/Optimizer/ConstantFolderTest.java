@@ -0,0 +1,305 @@
+/**
+ * Checks that programs print the same when optimized as when not: that
+ * Int arithmetic is folded as Java computes it, division by zero is left
+ * to fail when the program runs, "and" and "or" keep the calls they
+ * depend on, and constants are not propagated past the assignments of
+ * branches and loops. Checks too that the optimizers leave alone a body
+ * nested as deeply as the Parser accepts, rather than exhausting the
+ * stack, and still bind its calls to the functions they rebuild.
+ *
+ * @author 	Federico Menozzi
+ * @version Easy Compiler v1
+ */
+
+package easy.Optimizer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.PrintStream;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+
+import java.net.URL;
+import java.net.URLClassLoader;
+
+import java.nio.file.Files;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+
+import org.junit.Test;
+
+import easy.ErrorReporter;
+
+import easy.AbstractSyntaxTrees.AST;
+import easy.AbstractSyntaxTrees.FunctionDecl;
+import easy.AbstractSyntaxTrees.Program;
+
+import easy.CodeGenerator.Generator;
+
+import easy.ContextualAnalyzer.CallGraph;
+import easy.ContextualAnalyzer.Identification;
+import easy.ContextualAnalyzer.TypeChecker;
+
+import easy.SyntacticAnalyzer.Parser;
+import easy.SyntacticAnalyzer.Scanner;
+import easy.SyntacticAnalyzer.StringCharSource;
+
+public class ConstantFolderTest {
+
+	/**
+	 * Stack of the thread that compiles, the default of the JVM
+	 */
+	private final static long stackSize = 1 << 20;
+
+	@Test
+	public void arithmeticWrapsAround() throws Exception {
+		String java = assertSameOutput(
+			"main\n" +
+			"\tprintln(2147483647 + 1);\n" +
+			"\tprintln(0 - 2147483647 - 2);\n" +
+			"\tprintln(65536 * 65536);\n" +
+			"\tprintln(-(0 - 2147483647 - 1));\n" +
+			"\tInt m = 0 - 2147483647 - 1;\n" +
+			"\tprintln(m / -1);\n" +
+			"\tprintln(m mod -1);\n" +
+			"\tprintln(-7 / 2);\n" +
+			"\tprintln(-7 mod 2);\n" +
+			"\tprintln(7 mod -2);\n" +
+			"end\n");
+		assertTrue(java, java.contains("println((-2147483648))"));
+	}
+
+	@Test
+	public void divisionByZeroFailsWhenRun() throws Exception {
+		String java = assertSameOutput(
+			"main\n" +
+			"\tprintln(7 / 2);\n" +
+			"\tprintln(7 / 0);\n" +
+			"end\n");
+		assertTrue(java, java.contains("(7/0)"));
+
+		java = assertSameOutput(
+			"main\n" +
+			"\tInt zero = 0;\n" +
+			"\tprintln(7 mod 2);\n" +
+			"\tprintln(7 mod zero);\n" +
+			"end\n");
+		assertTrue(java, java.contains("(7%0)"));
+	}
+
+	@Test
+	public void andAndOrKeepTheCallsTheyDependOn() throws Exception {
+		assertSameOutput(
+			"main\n" +
+			"\tprintln(false and say(1));\n" +
+			"\tprintln(true or say(2));\n" +
+			"\tprintln(say(3) and true);\n" +
+			"\tprintln(say(4) or false);\n" +
+			"\tprintln(say(5) and false);\n" +
+			"\tprintln(say(6) or true);\n" +
+			"\tprintln(true and say(7));\n" +
+			"\tprintln(false or say(8));\n" +
+			"end\n" +
+			"def say(n = Int) returns Boolean\n" +
+			"\tprintln(n);\n" +
+			"\treturn n > 4;\n" +
+			"end\n");
+	}
+
+	@Test
+	public void assignmentsInBranchesAndLoopsStopPropagation() throws Exception {
+		assertSameOutput(
+			"main\n" +
+			"\tInt x = 1;\n" +
+			"\tprintln(x + 1);\n" +
+			"\tif id(0) equals 0\n" +
+			"\t\tx = 2;\n" +
+			"\tend\n" +
+			"\tprintln(x);\n" +
+			"\tInt y = 1;\n" +
+			"\tif id(1) equals 0\n" +
+			"\t\ty = 2;\n" +
+			"\telse if id(1) equals 1\n" +
+			"\t\ty = 3;\n" +
+			"\telse\n" +
+			"\t\ty = 4;\n" +
+			"\tend\n" +
+			"\tprintln(y);\n" +
+			"\tInt i = 0;\n" +
+			"\tInt s = 5;\n" +
+			"\twhile i < 3\n" +
+			"\t\tprintln(s);\n" +
+			"\t\ts = s + 1;\n" +
+			"\t\ti = i + 1;\n" +
+			"\tend\n" +
+			"\tprintln(s);\n" +
+			"\tInt n = 3;\n" +
+			"\tfor Int j from 0 to n\n" +
+			"\t\tn = 1;\n" +
+			"\t\tprintln(j);\n" +
+			"\tend\n" +
+			"\tInt k = 0;\n" +
+			"\tuntil k equals 3\n" +
+			"\t\tk = k + 1;\n" +
+			"\tend\n" +
+			"\tprintln(k);\n" +
+			"\tInt t = 10;\n" +
+			"\tloop\n" +
+			"\t\tt = t - 1;\n" +
+			"\t\tprintln(t);\n" +
+			"\t\tif t < 7\n" +
+			"\t\t\tbreak\n" +
+			"\t\tend\n" +
+			"\tend\n" +
+			"\tprintln(t);\n" +
+			"end\n" +
+			"def id(n = Int) returns Int\n" +
+			"\treturn n;\n" +
+			"end\n");
+	}
+
+	@Test
+	public void nestingAsDeepAsTheParserAccepts() throws InterruptedException {
+		final String text = nestedIfs(Parser.defaultMaxNesting - 1);
+		final Throwable[] failure = new Throwable[1];
+		final Program[] result	  = new Program[1];
+		final int[] counts		  = new int[2];
+
+		Thread thread = new Thread(null, new Runnable() {
+			@Override
+			public void run() {
+				try {
+					ErrorReporter reporter = new ErrorReporter();
+					AST ast = new Parser(new Scanner(new StringCharSource(text), reporter), reporter).parse();
+					new Identification(reporter).identify(ast);
+					new TypeChecker(reporter).check(ast);
+					assertFalse(reporter.hasErrors());
+
+					ConstantFolder folder		= new ConstantFolder();
+					DeadCodeEliminator eliminator = new DeadCodeEliminator();
+					ast = eliminator.eliminate(folder.fold(ast));
+
+					result[0] = (Program) ast;
+					counts[0] = folder.unfolded();
+					counts[1] = eliminator.unvisited();
+				} catch (Throwable e) {
+					failure[0] = e;
+				}
+			}
+		}, "ConstantFolderTest", stackSize);
+		thread.start();
+		thread.join();
+
+		if (failure[0] != null)
+			throw new AssertionError(failure[0]);
+		assertEquals("main blocks not folded", 1, counts[0]);
+		assertEquals("main blocks not visited", 1, counts[1]);
+
+		// The function is folded, and the call in the main block bound to it
+		Program program = result[0];
+		assertEquals(1, program.functionDeclList.size());
+		FunctionDecl f = program.functionDeclList.get(0);
+		assertTrue(CallGraph.of(program).isReachable(f));
+		assertEquals(1, CallGraph.of(program).reachable().size());
+	}
+
+	/**
+	 * Run a program as generated with and without the optimizers, and
+	 * check that it prints the same, and fails in the same way if it fails
+	 *
+	 * @param text	the source of the program, in which something can be folded
+	 * @return		the Java generated for the optimized program
+	 */
+	private static String assertSameOutput(String text) throws Exception {
+		ConstantFolder folder = new ConstantFolder();
+		AST optimized = new DeadCodeEliminator().eliminate(folder.fold(check(text)));
+		assertTrue("nothing folded", folder.folded() > 0);
+
+		File directory = Files.createTempDirectory("ConstantFolderTest").toFile();
+		try {
+			String expected = run(check(text), new File(directory, "Unoptimized.java"));
+			String actual	= run(optimized, new File(directory, "Optimized.java"));
+			assertEquals(text, expected, actual);
+			return new String(Files.readAllBytes(new File(directory, "Optimized.java").toPath()), "UTF-8");
+		} finally {
+			for (File f : directory.listFiles())
+				f.delete();
+			directory.delete();
+		}
+	}
+
+	/**
+	 * Parse, identify and type check a program
+	 *
+	 * @param text	the source of the program
+	 * @return		the root node of the checked AST
+	 */
+	private static AST check(String text) {
+		ErrorReporter reporter = new ErrorReporter();
+		AST ast = new Parser(new Scanner(new StringCharSource(text), reporter), reporter).parse();
+		new Identification(reporter).identify(ast);
+		new TypeChecker(reporter).check(ast);
+		assertFalse(text, reporter.hasErrors());
+		return ast;
+	}
+
+	/**
+	 * Generate Java for a program, compile it and run it
+	 *
+	 * @param ast		the root node of the AST
+	 * @param source	the Java source file to write, in a directory of its own
+	 * @return			what the program prints, followed by the class of the
+	 * 					exception that ends it, if one does
+	 */
+	private static String run(AST ast, File source) throws Exception {
+		new Generator(source).generate(ast);
+
+		JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+		assertTrue("no Java compiler", compiler != null);
+		ByteArrayOutputStream errors = new ByteArrayOutputStream();
+		int status = compiler.run(null, null, errors, "-d", source.getParent(), source.getPath());
+		assertEquals(errors.toString(), 0, status);
+
+		String className = source.getName().substring(0, source.getName().indexOf('.'));
+		PrintStream out = System.out;
+		ByteArrayOutputStream printed = new ByteArrayOutputStream();
+		URLClassLoader loader = new URLClassLoader(new URL[] { source.getParentFile().toURI().toURL() });
+		try {
+			System.setOut(new PrintStream(printed, true, "UTF-8"));
+			Method main = loader.loadClass(className).getMethod("main", String[].class);
+			main.setAccessible(true);	// the generated class is not public
+			main.invoke(null, (Object) new String[0]);
+		} catch (InvocationTargetException e) {
+			printed.write(e.getCause().getClass().getName().getBytes("UTF-8"));
+		} finally {
+			System.setOut(out);
+			loader.close();
+		}
+		return printed.toString("UTF-8");
+	}
+
+	/**
+	 * Make a program whose main block nests if statements, and calls a
+	 * function with a constant expression to fold
+	 *
+	 * @param depth	the number of if statements nested
+	 * @return		the source of the program
+	 */
+	private static String nestedIfs(int depth) {
+		StringBuilder text = new StringBuilder("main\n\tInt x = f();\n");
+		for (int i = 0; i < depth; i++)
+			text.append("if x < ").append(i + 1000).append("\n\tx = x + 1;\n");
+		text.append("x = f();\n");
+		for (int i = 0; i < depth; i++)
+			text.append("end\n");
+		text.append("\tprintln(x)\nend\n");
+		text.append("def f() returns Int\n\treturn 1 + 2\nend\n");
+		return text.toString();
+	}
+}
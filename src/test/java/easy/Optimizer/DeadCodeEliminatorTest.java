@@ -0,0 +1,169 @@
+/**
+ * Checks that the Java generated for programs whose branches are removed
+ * by a DeadCodeEliminator is accepted by the Java compiler
+ *
+ * @author 	Federico Menozzi
+ * @version Easy Compiler v1
+ */
+
+package easy.Optimizer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+
+import java.nio.file.Files;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+
+import org.junit.Test;
+
+import easy.ErrorReporter;
+
+import easy.AbstractSyntaxTrees.AST;
+import easy.AbstractSyntaxTrees.FunctionDeclList;
+import easy.AbstractSyntaxTrees.Program;
+
+import easy.CodeGenerator.Generator;
+
+import easy.ContextualAnalyzer.Identification;
+import easy.ContextualAnalyzer.TypeChecker;
+
+import easy.SyntacticAnalyzer.Parser;
+import easy.SyntacticAnalyzer.Scanner;
+import easy.SyntacticAnalyzer.StringCharSource;
+
+public class DeadCodeEliminatorTest {
+
+	@Test
+	public void branchThatDeclaresAndReturns() throws IOException {
+		String java = compile(
+			"main\n" +
+			"\tprintln(f(3))\n" +
+			"\tprintln(g(4))\n" +
+			"end\n" +
+			"def f(n = Int) returns Int\n" +
+			"\tif true\n" +
+			"\t\tInt y = n*2\n" +
+			"\t\treturn y\n" +
+			"\telse\n" +
+			"\t\treturn 0\n" +
+			"\tend\n" +
+			"end\n" +
+			"def g(n = Int) returns Int\n" +
+			"\tif false\n" +
+			"\t\treturn 1\n" +
+			"\telse if true\n" +
+			"\t\tInt y = n + 1\n" +
+			"\t\tloop\n" +
+			"\t\t\treturn y\n" +
+			"\t\tend\n" +
+			"\tend\n" +
+			"end\n");
+		assertFalse(java, java.contains("if (true)"));
+	}
+
+	@Test
+	public void branchThatDeclaresAVariableDeclaredAfterIt() throws IOException {
+		String java = compile(
+			"main\n" +
+			"\tif true\n" +
+			"\t\tInt z = f(5)\n" +
+			"\t\tprintln(z)\n" +
+			"\tend\n" +
+			"\tInt z = f(6)\n" +
+			"\tprintln(z)\n" +
+			"end\n" +
+			"def f(n = Int) returns Int\n" +
+			"\treturn n\n" +
+			"end\n");
+		assertFalse(java, java.contains("if (true)"));
+	}
+
+	@Test
+	public void functionsCalledOnlyFromRemovedCode() {
+		Program program = (Program) optimize(
+			"main\n" +
+			"\tprintln(a(1))\n" +
+			"\tif false\n" +
+			"\t\tprintln(b(1))\n" +
+			"\tend\n" +
+			"end\n" +
+			"def a(n = Int) returns Int\n" +
+			"\tif false\n" +
+			"\t\treturn c(n)\n" +
+			"\tend\n" +
+			"\treturn d(n)\n" +
+			"end\n" +
+			"def b(n = Int) returns Int\n" +
+			"\treturn n\n" +
+			"end\n" +
+			"def c(n = Int) returns Int\n" +
+			"\treturn n\n" +
+			"end\n" +
+			"def d(n = Int) returns Int\n" +
+			"\tif n > 0\n" +
+			"\t\treturn d(n - 1)\n" +
+			"\tend\n" +
+			"\treturn 7\n" +
+			"end\n" +
+			"def e(n = Int) returns Int\n" +
+			"\treturn e(n)\n" +
+			"end\n");
+
+		FunctionDeclList functions = program.functionDeclList;
+		assertEquals(2, functions.size());
+		assertEquals("a", functions.get(0).name);
+		assertEquals("d", functions.get(1).name);
+	}
+
+	/**
+	 * Identify, type check, fold, and remove the dead code of a program
+	 *
+	 * @param text	the source of the program
+	 * @return		the root node of the optimized AST
+	 */
+	private static AST optimize(String text) {
+		ErrorReporter reporter = new ErrorReporter();
+		AST ast = new Parser(new Scanner(new StringCharSource(text), reporter), reporter).parse();
+		new Identification(reporter).identify(ast);
+		new TypeChecker(reporter).check(ast);
+		assertFalse(text, reporter.hasErrors());
+
+		ast = new ConstantFolder().fold(ast);
+		return new DeadCodeEliminator().eliminate(ast);
+	}
+
+	/**
+	 * Optimize a program, generate Java for it, and compile the Java
+	 *
+	 * @param text	the source of the program
+	 * @return		the generated Java
+	 */
+	private static String compile(String text) throws IOException {
+		AST ast = optimize(text);
+
+		File directory = Files.createTempDirectory("DeadCodeEliminatorTest").toFile();
+		File source	   = new File(directory, "Optimized.java");
+		try {
+			new Generator(source).generate(ast);
+			String java = new String(Files.readAllBytes(source.toPath()), "UTF-8");
+
+			JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+			assertTrue("no Java compiler", compiler != null);
+			ByteArrayOutputStream errors = new ByteArrayOutputStream();
+			int status = compiler.run(null, null, errors, "-d", directory.getPath(), source.getPath());
+			assertEquals(java + errors, 0, status);
+			return java;
+		} finally {
+			for (File f : directory.listFiles())
+				f.delete();
+			directory.delete();
+		}
+	}
+}
@@ -0,0 +1,79 @@
+/**
+ * Checks that a program compiled from the ParseCache is the same as
+ * one compiled from its source
+ *
+ * @author 	Federico Menozzi
+ * @version Easy Compiler v1
+ */
+
+package easy;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+
+import org.junit.Test;
+
+public class ParseCacheTest {
+
+	@Test
+	public void warmCacheCompilesTheSameAsColdCache() throws IOException {
+		File directory = Files.createTempDirectory("ParseCacheTest").toFile();
+		File source	   = new File(directory, "tutorial.ez");
+		File cache	   = new File(directory, "cache");
+		Files.copy(Paths.get("src/test/resources/tutorial.ez"), source.toPath(),
+				   StandardCopyOption.REPLACE_EXISTING);
+
+		String uncached = compile(source, null);
+		String cold		= compile(source, cache);
+		File[] entries	= cache.listFiles();
+		assertEquals(1, entries.length);
+		String warm		= compile(source, cache);
+
+		assertEquals(uncached, cold);
+		assertEquals(cold, warm);
+		assertTrue(warm.contains("int numToPrint"));
+		assertTrue(warm.contains("print_10("));
+
+		for (File f : cache.listFiles())
+			f.delete();
+		cache.delete();
+		for (File f : directory.listFiles())
+			f.delete();
+		directory.delete();
+	}
+
+	/**
+	 * Compile a program and read the Java source generated for it
+	 *
+	 * @param source	the source file
+	 * @param cache		the cache directory, or null to compile without a cache
+	 * @return			the generated Java source
+	 */
+	private static String compile(File source, File cache) throws IOException {
+		String previous = System.getProperty("easy.parseCache");
+		if (cache == null)
+			System.clearProperty("easy.parseCache");
+		else
+			System.setProperty("easy.parseCache", cache.getPath());
+
+		try {
+			easyc.main(new String[] { source.getPath() });
+		} finally {
+			if (previous == null)
+				System.clearProperty("easy.parseCache");
+			else
+				System.setProperty("easy.parseCache", previous);
+		}
+
+		File output = new File(source.getParentFile(), "tutorial.java");
+		return new String(Files.readAllBytes(output.toPath()), StandardCharsets.UTF_8);
+	}
+}
@@ -0,0 +1,92 @@
+/**
+ * Checks that functions never called are left out of the generated Java
+ * only when the program is optimized or easy.reachableOnly is true
+ *
+ * @author 	Federico Menozzi
+ * @version Easy Compiler v1
+ */
+
+package easy;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import org.junit.Test;
+
+public class ReachableOnlyTest {
+
+	private final static String program =
+		"main\n" +
+		"\tprintln(called(1))\n" +
+		"end\n" +
+		"def called(n = Int) returns Int\n" +
+		"\treturn n\n" +
+		"end\n" +
+		"def neverCalled(n = Int) returns Int\n" +
+		"\treturn n\n" +
+		"end\n";
+
+	@Test
+	public void everyFunctionWrittenByDefaultWithoutOptimizing() throws IOException {
+		String java = compile("false", null);
+		assertTrue(java, java.contains("called("));
+		assertTrue(java, java.contains("neverCalled("));
+	}
+
+	@Test
+	public void functionsNeverCalledLeftOutWhenAsked() throws IOException {
+		String java = compile("false", "true");
+		assertTrue(java, java.contains("called("));
+		assertFalse(java, java.contains("neverCalled("));
+	}
+
+	@Test
+	public void functionsNeverCalledRemovedWhenOptimizing() throws IOException {
+		String java = compile(null, null);
+		assertTrue(java, java.contains("called("));
+		assertFalse(java, java.contains("neverCalled("));
+	}
+
+	/**
+	 * Compile the program with the given system properties
+	 *
+	 * @param optimize		the value of easy.optimize, or null to leave it unset
+	 * @param reachableOnly	the value of easy.reachableOnly, or null to leave it unset
+	 * @return				the generated Java source
+	 */
+	private static String compile(String optimize, String reachableOnly) throws IOException {
+		File directory = Files.createTempDirectory("ReachableOnlyTest").toFile();
+		File source	   = new File(directory, "reachable.ez");
+		Files.write(source.toPath(), program.getBytes(StandardCharsets.UTF_8));
+
+		String previousOptimize		 = System.getProperty("easy.optimize");
+		String previousReachableOnly = System.getProperty("easy.reachableOnly");
+		try {
+			set("easy.optimize", optimize);
+			set("easy.reachableOnly", reachableOnly);
+			easyc.main(new String[] { source.getPath() });
+
+			File output = new File(directory, "reachable.java");
+			return new String(Files.readAllBytes(output.toPath()), StandardCharsets.UTF_8);
+		} finally {
+			set("easy.optimize", previousOptimize);
+			set("easy.reachableOnly", previousReachableOnly);
+			for (File f : directory.listFiles())
+				f.delete();
+			directory.delete();
+		}
+	}
+
+	private static void set(String property, String value) {
+		if (value == null)
+			System.clearProperty(property);
+		else
+			System.setProperty(property, value);
+	}
+}
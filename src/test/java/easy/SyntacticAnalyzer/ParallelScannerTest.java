@@ -0,0 +1,194 @@
+/**
+ * Checks that the ParallelScanner produces exactly the tokens and errors
+ * of the sequential Scanner, with chunks small enough that the file is
+ * split at every line where a chunk may start
+ *
+ * @author 	Federico Menozzi
+ * @version Easy Compiler v1
+ */
+
+package easy.SyntacticAnalyzer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Test;
+
+import easy.ErrorReporter;
+
+public class ParallelScannerTest {
+
+	/**
+	 * Lines inside string literals and comments that look like the starts
+	 * of chunks, and multi-character operators right at the starts of lines
+	 */
+	private final static String boundaries =
+		"main\n" +
+		"\tx = a <= b >= c == d != e && f || g;\t# \"quoted\" and 'quoted'\n" +
+		"\ts = \"a string\n" +
+		"end of a line inside the string\n" +
+		"def inside the string\n" +
+		"main\";\n" +
+		"\tt = 'single ## not a comment\n" +
+		"end';\n" +
+		"## a block comment\n" +
+		"def f() inside the comment\n" +
+		"end\n" +
+		"main ##\n" +
+		"\ty = x<=y; x>=y; x!=y; x==y; x&&y; x||y;\n" +
+		"end\n" +
+		"def g(a = Int) returns Int\n" +
+		"\treturn a&&b||c;\n" +
+		"end# a comment right after end\n" +
+		"def\"a string right after def\n" +
+		"end\"\n" +
+		"end'a string right after end\n" +
+		"end too'\n" +
+		"end<=x\n" +
+		"end>=x\n" +
+		"end==x\n" +
+		"end&&x\n" +
+		"end||x\n" +
+		"ends x\n" +
+		"define x\n" +
+		"main_x = 1;\n" +
+		"end";
+
+	@Test
+	public void boundariesInStringsCommentsAndOperators() throws IOException {
+		assertSameTokens(boundaries);
+	}
+
+	@Test
+	public void windowsNewlines() throws IOException {
+		assertSameTokens(boundaries.replace("\n", "\r\n"));
+	}
+
+	@Test
+	public void unterminatedStringAndComment() throws IOException {
+		assertSameTokens(boundaries + "\n\"an unterminated\nend\nstring");
+		assertSameTokens(boundaries + "\n## an unterminated\ndef\ncomment");
+	}
+
+	@Test
+	public void tutorial() throws IOException {
+		String path = "src/test/resources/tutorial.ez";
+		assertSameTokens(new String(Files.readAllBytes(Paths.get(path)), StandardCharsets.UTF_8));
+	}
+
+	@Test
+	public void randomPrograms() throws IOException {
+		for (int seed = 0; seed < 50; seed++)
+			assertSameTokens(randomProgram(new Random(seed)));
+	}
+
+	/**
+	 * Generate a program whose lines often begin with def, main, or end,
+	 * and whose string literals and comments often span several lines
+	 *
+	 * @param random	the source of randomness
+	 * @return			the text of the program
+	 */
+	private static String randomProgram(Random random) {
+		String[] pieces = {
+			"def", "main", "end", "ends", "x", "Int", "1", "2.5", " ", "\t",
+			"<=", ">=", "==", "!=", "&&", "||", "<", ">", "=", "!", "&", "|",
+			"(", ")", ";", ",", "+", "-", "*", "/",
+			"\"", "'", "#", "##", "\n", "\n", "\n", "\r\n", "\n\t"
+		};
+
+		StringBuilder text = new StringBuilder();
+		int length = 200 + random.nextInt(800);
+		for (int i = 0; i < length; i++)
+			text.append(pieces[random.nextInt(pieces.length)]);
+		return text.toString();
+	}
+
+	/**
+	 * Scan the text with both scanners and check that they agree
+	 *
+	 * @param text	the source text
+	 */
+	private static void assertSameTokens(String text) throws IOException {
+		File file = File.createTempFile("ParallelScannerTest", ".ez");
+		try {
+			Files.write(file.toPath(), text.getBytes(StandardCharsets.UTF_8));
+			String path = file.getPath();
+
+			ErrorReporter sequentialReporter = new ErrorReporter();
+			ArrayList<Token> sequential = new ArrayList<Token>();
+			MappedFileCharSource source = new MappedFileCharSource(path);
+			try {
+				Scanner scanner = new Scanner(source, sequentialReporter);
+				Token t;
+				do {
+					t = scanner.scan();
+					sequential.add(t);
+				} while (t.kind != TokenKind.EOF);
+			} finally {
+				source.close();
+			}
+
+			ErrorReporter parallelReporter = new ErrorReporter();
+			ForkJoinPool pool = new ForkJoinPool(64);
+			Token[] parallel;
+			try {
+				ParallelScanner scanner = new ParallelScanner(path, parallelReporter, pool);
+				scanner.setChunkSize(1);
+				parallel = scanner.scanAll();
+			} finally {
+				pool.shutdown();
+			}
+
+			assertEquals("token count of " + text, sequential.size(), parallel.length);
+			for (int i = 0; i < parallel.length; i++) {
+				Token expected = sequential.get(i);
+				Token actual   = parallel[i];
+				String where   = "token " + i + " (" + expected.debugStr() + ") of " + text;
+
+				assertEquals(where, expected.kind, actual.kind);
+				assertEquals(where, expected.spelling, actual.spelling);
+				assertEquals(where, expected.nameId, actual.nameId);
+				assertEquals(where, expected.position, actual.position);
+				assertEquals(where, expected.endPosition, actual.endPosition);
+				assertEquals(where, expected.offset, actual.offset);
+				assertEquals(where, expected.endOffset, actual.endOffset);
+			}
+
+			assertEquals("errors of " + text, errors(sequentialReporter), errors(parallelReporter));
+		} finally {
+			assertTrue(file.delete());
+		}
+	}
+
+	/**
+	 * Capture the errors that the reporter prints
+	 *
+	 * @param reporter	the ErrorReporter instance
+	 * @return			the printed errors
+	 */
+	private static String errors(ErrorReporter reporter) {
+		PrintStream out = System.out;
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		System.setOut(new PrintStream(bytes, true));
+		try {
+			reporter.reportErrors();
+		} finally {
+			System.setOut(out);
+		}
+		return bytes.toString();
+	}
+}